@@ -0,0 +1,351 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Compact representation of the sample-related information of a variant in a file, stored by column instead of
+ * by sample.
+ * <p>
+ * The names of the fields (the FORMAT column in VCF) are kept in a {@link Format} that can be shared by all the
+ * variants of a file. There is an array of values for each field, with one value per sample, and the genotypes are
+ * dictionary-coded: each sample has the code of its genotype, and the genotype itself is stored once.
+ * <p>
+ * Instances are immutable, so the value arrays can be shared by several variants, e.g. the ones created from the
+ * same multiallelic VCF line, which only differ in how the genotypes are coded.
+ */
+public class SampleColumns {
+
+    public static final String GENOTYPE_FIELD = "GT";
+
+    /**
+     * Code for samples that don't have a genotype.
+     */
+    public static final int MISSING_GENOTYPE = -1;
+
+    private static final Format EMPTY_FORMAT = new Format(new String[0]);
+
+    public static final SampleColumns EMPTY = new SampleColumns(EMPTY_FORMAT, 0, new String[0][], new String[0],
+                                                                new int[0]);
+
+    private final Format format;
+
+    private final int numberOfSamples;
+
+    /**
+     * Values indexed by [field][sample]. A null value means that the sample didn't provide that field. The genotype
+     * column is not used, see {@link #genotypes} and {@link #genotypeCodes}
+     */
+    private final String[][] values;
+
+    private final String[] genotypes;
+
+    private final int[] genotypeCodes;
+
+    /**
+     * @param format names of the fields
+     * @param numberOfSamples number of samples
+     * @param values values indexed by [field][sample]; the arrays are not copied
+     * @param genotypes distinct genotypes, indexed by their code
+     * @param genotypeCodes the code of the genotype of each sample, or {@link #MISSING_GENOTYPE}
+     */
+    public SampleColumns(Format format, int numberOfSamples, String[][] values, String[] genotypes,
+                         int[] genotypeCodes) {
+        this.format = format;
+        this.numberOfSamples = numberOfSamples;
+        this.values = values;
+        this.genotypes = genotypes;
+        this.genotypeCodes = genotypeCodes;
+    }
+
+    /**
+     * Builds the compact representation of samples stored one map per sample.
+     */
+    public static SampleColumns fromMaps(List<Map<String, String>> samplesData) {
+        if (samplesData.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Integer> fieldIndexes = new LinkedHashMap<>();
+        for (Map<String, String> sampleData : samplesData) {
+            for (String field : sampleData.keySet()) {
+                fieldIndexes.putIfAbsent(field, fieldIndexes.size());
+            }
+        }
+        Format format = new Format(fieldIndexes.keySet().toArray(new String[fieldIndexes.size()]));
+
+        int numberOfSamples = samplesData.size();
+        String[][] values = new String[format.size()][numberOfSamples];
+        GenotypeDictionary dictionary = new GenotypeDictionary(numberOfSamples);
+        for (int sample = 0; sample < numberOfSamples; sample++) {
+            for (Map.Entry<String, String> field : samplesData.get(sample).entrySet()) {
+                values[fieldIndexes.get(field.getKey())][sample] = field.getValue();
+            }
+            dictionary.add(samplesData.get(sample).get(GENOTYPE_FIELD));
+        }
+        return new SampleColumns(format, numberOfSamples, values, dictionary.getGenotypes(), dictionary.getCodes());
+    }
+
+    /**
+     * @return a copy of these samples, sharing the values, but with the genotype codes pointing to other genotypes.
+     * This is used to recode the genotypes of multiallelic variants without touching the rest of the values.
+     */
+    public SampleColumns withGenotypes(String[] genotypes) {
+        if (genotypes.length != this.genotypes.length) {
+            throw new IllegalArgumentException("Expected " + this.genotypes.length + " genotypes, found "
+                                                       + genotypes.length);
+        }
+        return new SampleColumns(format, numberOfSamples, values, genotypes, genotypeCodes);
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /**
+     * @return the value of a field for a sample, or null if the sample doesn't have it
+     */
+    public String getValue(int sample, String field) {
+        return getValue(sample, format.indexOf(field));
+    }
+
+    /**
+     * @param fieldIndex as returned by {@link Format#indexOf(String)}
+     * @return the value of a field for a sample, or null if the sample doesn't have it
+     */
+    public String getValue(int sample, int fieldIndex) {
+        checkSample(sample);
+        if (fieldIndex < 0) {
+            return null;
+        }
+        if (fieldIndex == format.getGenotypeIndex()) {
+            int code = genotypeCodes[sample];
+            return code == MISSING_GENOTYPE ? null : genotypes[code];
+        }
+        return values[fieldIndex][sample];
+    }
+
+    /**
+     * @return the code of the genotype of a sample, or {@link #MISSING_GENOTYPE}
+     */
+    public int getGenotypeCode(int sample) {
+        checkSample(sample);
+        return genotypeCodes[sample];
+    }
+
+    public int getNumberOfGenotypes() {
+        return genotypes.length;
+    }
+
+    public String getGenotype(int code) {
+        return genotypes[code];
+    }
+
+    /**
+     * @return a new map with the fields of a sample
+     */
+    public Map<String, String> toMap(int sample) {
+        Map<String, String> sampleData = new TreeMap<>();
+        for (int field = 0; field < format.size(); field++) {
+            String value = getValue(sample, field);
+            if (value != null) {
+                sampleData.put(format.getName(field), value);
+            }
+        }
+        return sampleData;
+    }
+
+    /**
+     * @return a new list with one map per sample
+     */
+    public List<Map<String, String>> toMaps() {
+        List<Map<String, String>> samplesData = new ArrayList<>(numberOfSamples);
+        for (int sample = 0; sample < numberOfSamples; sample++) {
+            samplesData.add(toMap(sample));
+        }
+        return samplesData;
+    }
+
+    /**
+     * Two instances are equal if every sample has the same fields with the same values, like the maps of
+     * {@link #toMaps()} would be, but without building them: the order of the fields and the genotype codes don't
+     * matter.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        SampleColumns other = (SampleColumns) obj;
+        if (numberOfSamples != other.numberOfSamples) {
+            return false;
+        }
+        return containsFieldsOf(other) && other.containsFieldsOf(this);
+    }
+
+    /**
+     * @return whether the values of all the fields of the other samples are the same in these samples
+     */
+    private boolean containsFieldsOf(SampleColumns other) {
+        for (int otherField = 0; otherField < other.format.size(); otherField++) {
+            int field = format.indexOf(other.format.getName(otherField));
+            for (int sample = 0; sample < numberOfSamples; sample++) {
+                if (!Objects.equals(getValue(sample, field), other.getValue(sample, otherField))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Consistent with {@link #equals(Object)}: the hashes of the fields are added, so their order doesn't matter, and
+     * fields without values don't change the result.
+     */
+    @Override
+    public int hashCode() {
+        int hash = numberOfSamples;
+        for (int field = 0; field < format.size(); field++) {
+            int fieldHash = 0;
+            boolean hasValues = false;
+            for (int sample = 0; sample < numberOfSamples; sample++) {
+                String value = getValue(sample, field);
+                hasValues |= value != null;
+                fieldHash = 31 * fieldHash + Objects.hashCode(value);
+            }
+            if (hasValues) {
+                hash += format.getName(field).toUpperCase().hashCode() ^ fieldHash;
+            }
+        }
+        return hash;
+    }
+
+    private void checkSample(int sample) {
+        if (sample < 0 || sample >= numberOfSamples) {
+            throw new IndexOutOfBoundsException("Sample " + sample + " out of " + numberOfSamples);
+        }
+    }
+
+    /**
+     * Names of the fields stored for each sample, with an index to find their position.
+     */
+    public static class Format {
+
+        private final String[] names;
+
+        private final Map<String, Integer> indexes;
+
+        private final int genotypeIndex;
+
+        public Format(String[] names) {
+            this.names = names;
+            Map<String, Integer> indexes = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                indexes.putIfAbsent(names[i].toUpperCase(), i);
+            }
+            this.indexes = Collections.unmodifiableMap(indexes);
+            this.genotypeIndex = indexOf(GENOTYPE_FIELD);
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public String getName(int index) {
+            return names[index];
+        }
+
+        /**
+         * @return the position of the field (case insensitive), or -1 if it is not present
+         */
+        public int indexOf(String name) {
+            Integer index = indexes.get(name.toUpperCase());
+            return index == null ? -1 : index;
+        }
+
+        public int getGenotypeIndex() {
+            return genotypeIndex;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(names);
+        }
+    }
+
+    /**
+     * Assigns a code to each distinct genotype, in order of appearance.
+     */
+    public static class GenotypeDictionary {
+
+        private final Map<String, Integer> codesByGenotype;
+
+        private final List<String> genotypes;
+
+        private final int[] codes;
+
+        private int size;
+
+        public GenotypeDictionary(int numberOfSamples) {
+            this.codesByGenotype = new HashMap<>();
+            this.genotypes = new ArrayList<>();
+            this.codes = new int[numberOfSamples];
+            this.size = 0;
+        }
+
+        /**
+         * Adds the genotype of the next sample.
+         *
+         * @param genotype the genotype, or null if the sample has no genotype
+         */
+        public void add(String genotype) {
+            if (genotype == null) {
+                codes[size++] = MISSING_GENOTYPE;
+                return;
+            }
+            Integer code = codesByGenotype.get(genotype);
+            if (code == null) {
+                code = genotypes.size();
+                codesByGenotype.put(genotype, code);
+                genotypes.add(genotype);
+            }
+            codes[size++] = code;
+        }
+
+        public String[] getGenotypes() {
+            return genotypes.toArray(new String[genotypes.size()]);
+        }
+
+        public int[] getCodes() {
+            return codes;
+        }
+    }
+}
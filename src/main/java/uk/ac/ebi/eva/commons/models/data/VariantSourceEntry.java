@@ -22,6 +22,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 /**
  * Entry that associates a variant and a file in a variant archive. It contains
@@ -53,9 +54,27 @@ public class VariantSourceEntry {
      * Genotypes and other sample-related information. The keys are the names
      * of the samples. The values are pairs (field name, field value), such as
      * (GT, A/C).
+     * <p>
+     * Only used if the samples were added one by one with {@link #addSampleData(Map)}, otherwise they are stored
+     * in sampleColumns.
      */
     private List<Map<String, String>> samplesData;
 
+    /**
+     * Compact representation of the sample-related information, see {@link SampleColumns}.
+     */
+    private SampleColumns sampleColumns;
+
+    /**
+     * Decodes sampleColumns the first time the samples are needed, see {@link #setSampleColumns(int, Supplier)}.
+     */
+    private Supplier<SampleColumns> sampleColumnsDecoder;
+
+    /**
+     * Number of samples that sampleColumnsDecoder will decode, so that it can be known without decoding them.
+     */
+    private int numberOfUndecodedSamples;
+
     /**
      * Statistics of the genomic variation, such as its alleles/genotypes count
      * or its minimum allele frequency, grouped by cohort name.
@@ -122,18 +141,87 @@ public class VariantSourceEntry {
         this.format = format;
     }
 
+    /**
+     * If the samples are stored in columns, this creates a map per sample, so prefer {@link #getSampleColumns()}
+     * when reading many samples.
+     *
+     * @return the information of each sample, as pairs (field name, field value)
+     */
     public List<Map<String, String>> getSamplesData() {
+        decodeSampleColumns();
+        if (sampleColumns != null) {
+            return sampleColumns.toMaps();
+        }
         return samplesData;
     }
 
     public String getSampleData(int sampleIndex, String field) {
+        decodeSampleColumns();
+        if (sampleColumns != null) {
+            return sampleColumns.getValue(sampleIndex, field);
+        }
         return getSampleData(sampleIndex).get(field.toUpperCase());
     }
 
     public Map<String, String> getSampleData(int sampleIndex) {
+        decodeSampleColumns();
+        if (sampleColumns != null) {
+            return sampleColumns.toMap(sampleIndex);
+        }
         return samplesData.get(sampleIndex);
     }
 
+    public int getNumberOfSamples() {
+        if (sampleColumnsDecoder != null) {
+            return numberOfUndecodedSamples;
+        }
+        if (sampleColumns != null) {
+            return sampleColumns.getNumberOfSamples();
+        }
+        return samplesData.size();
+    }
+
+    /**
+     * @return the samples in columnar form, building it if they were added with {@link #addSampleData(Map)}
+     */
+    public SampleColumns getSampleColumns() {
+        decodeSampleColumns();
+        if (sampleColumns != null) {
+            return sampleColumns;
+        }
+        return SampleColumns.fromMaps(samplesData);
+    }
+
+    /**
+     * Replaces the information of all the samples.
+     */
+    public void setSampleColumns(SampleColumns sampleColumns) {
+        this.sampleColumns = sampleColumns;
+        this.sampleColumnsDecoder = null;
+        this.samplesData = new ArrayList<>();
+    }
+
+    /**
+     * Replaces the information of all the samples with some that will be decoded only if any of the samples is read.
+     * Asking for the number of samples does not decode them.
+     *
+     * @param numberOfSamples number of samples that the decoder will return
+     * @param decoder builds the sample columns, it will be called at most once
+     */
+    public void setSampleColumns(int numberOfSamples, Supplier<SampleColumns> decoder) {
+        this.sampleColumns = null;
+        this.sampleColumnsDecoder = decoder;
+        this.numberOfUndecodedSamples = numberOfSamples;
+        this.samplesData = new ArrayList<>();
+    }
+
+    private void decodeSampleColumns() {
+        if (sampleColumnsDecoder != null) {
+            sampleColumns = sampleColumnsDecoder.get();
+            sampleColumnsDecoder = null;
+        }
+    }
+
     /**
      * Adds information about a new sample to associate to this VariantSourceEntry.
      *
@@ -141,6 +229,11 @@ public class VariantSourceEntry {
      * @return The index where the sample was inserted
      */
     public int addSampleData(Map<String, String> sampleData) {
+        decodeSampleColumns();
+        if (sampleColumns != null) {
+            this.samplesData = sampleColumns.toMaps();
+            this.sampleColumns = null;
+        }
         this.samplesData.add(sampleData);
         return this.samplesData.size() - 1;
     }
@@ -195,9 +288,9 @@ public class VariantSourceEntry {
         int hash = 5;
         hash = 41 * hash + Objects.hashCode(this.fileId);
         hash = 41 * hash + Objects.hashCode(this.studyId);
-        hash = 41 * hash + Objects.hashCode(this.secondaryAlternates);
+        hash = 41 * hash + Arrays.hashCode(this.secondaryAlternates);
         hash = 41 * hash + Objects.hashCode(this.format);
-        hash = 41 * hash + Objects.hashCode(this.samplesData);
+        hash = 41 * hash + Objects.hashCode(getSampleColumns());
         hash = 41 * hash + Objects.hashCode(this.attributes);
         return hash;
     }
@@ -223,7 +316,7 @@ public class VariantSourceEntry {
         if (!Objects.equals(this.format, other.format)) {
             return false;
         }
-        if (!Objects.equals(this.samplesData, other.samplesData)) {
+        if (!Objects.equals(getSampleColumns(), other.getSampleColumns())) {
             return false;
         }
         if (!Objects.equals(this.attributes, other.attributes)) {
@@ -236,7 +329,7 @@ public class VariantSourceEntry {
     public String toString() {
         return "VariantSourceEntry{" + "fileId=" + fileId + ", studyId=" + studyId
                 + ", secondaryAlternates=" + secondaryAlternates + ", format=" + format
-                + ", samplesData=" + samplesData + ", cohortStats=" + cohortStats
+                + ", samples=" + getNumberOfSamples() + ", cohortStats=" + cohortStats
                 + ", attributes=" + attributes + '}';
     }
 
@@ -165,15 +165,8 @@ public class Annotation {
 
     public static String buildAnnotationId(String chromosome, int start, String reference, String alternate,
                                            String vepVersion, String vepCacheVersion) {
-        StringBuilder builder = new StringBuilder(VariantDocument.buildVariantId(
-                chromosome, start,
-                reference,
-                alternate));
-        builder.append("_");
-        builder.append(vepVersion);
-        builder.append("_");
-        builder.append(vepCacheVersion);
-        return builder.toString();
+        return VariantIdBuilder.getInstance().buildAnnotationId(chromosome, start, reference, alternate, vepVersion,
+                                                                vepCacheVersion);
     }
 
     /**
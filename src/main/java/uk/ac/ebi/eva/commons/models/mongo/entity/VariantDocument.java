@@ -15,7 +15,6 @@
  */
 package uk.ac.ebi.eva.commons.models.mongo.entity;
 
-import org.opencb.commons.utils.CryptoUtils;
 import org.opencb.opencga.storage.mongodb.variant.VariantMongoDBWriter;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
@@ -160,28 +159,7 @@ public class VariantDocument {
     }
 
     public static String buildVariantId(String chromosome, int start, String reference, String alternate) {
-        StringBuilder builder = new StringBuilder(chromosome);
-        builder.append("_");
-        builder.append(start);
-        builder.append("_");
-        if (!reference.equals("-")) {
-            if (reference.length() < 50) {
-                builder.append(reference);
-            } else {
-                builder.append(new String(CryptoUtils.encryptSha1(reference)));
-            }
-        }
-
-        builder.append("_");
-        if (!alternate.equals("-")) {
-            if (alternate.length() < 50) {
-                builder.append(alternate);
-            } else {
-                builder.append(new String(CryptoUtils.encryptSha1(alternate)));
-            }
-        }
-
-        return builder.toString();
+        return VariantIdBuilder.getInstance().buildVariantId(chromosome, start, reference, alternate);
     }
 
     public static VariantAt generateAtField(String chromosome, int start) {
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.mongo.entity;
+
+import org.opencb.commons.utils.CryptoUtils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds the IDs of the variant and annotation documents.
+ * <p>
+ * The IDs are built for every variant written or annotated, so each thread reuses the same buffer instead of
+ * allocating a new one per ID, and the SHA-1 of long alleles is kept in a bounded LRU cache: the same indels and
+ * structural variants appear in several files of a study, and again when a chunk is retried.
+ * <p>
+ * The cache is bounded by the total length of the alleles it keeps, as a few structural variants can have alleles of
+ * millions of bases, and it is split in stripes with a lock each, so that the writer threads don't wait for each
+ * other to look up a digest.
+ */
+public class VariantIdBuilder {
+
+    /**
+     * Alleles of this length or longer are replaced by their SHA-1 in the ID.
+     */
+    public static final int SHA1_MIN_ALLELE_LENGTH = 50;
+
+    /**
+     * Maximum number of characters of the alleles and digests cached by the shared builder, about 8 MB.
+     */
+    public static final int DEFAULT_DIGEST_CACHE_LENGTH = 4 * 1024 * 1024;
+
+    static final int DEFAULT_DIGEST_CACHE_STRIPES = 16;
+
+    private static final VariantIdBuilder INSTANCE = new VariantIdBuilder(DEFAULT_DIGEST_CACHE_LENGTH);
+
+    private static final int INITIAL_BUFFER_CAPACITY = 128;
+
+    private static final int MAX_REUSED_BUFFER_CAPACITY = 1024;
+
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(
+            () -> new StringBuilder(INITIAL_BUFFER_CAPACITY));
+
+    private final DigestStripe[] digestStripes;
+
+    /**
+     * @param digestCacheLength maximum number of characters of the alleles and digests kept, 0 to not cache them
+     */
+    public VariantIdBuilder(int digestCacheLength) {
+        this(digestCacheLength, DEFAULT_DIGEST_CACHE_STRIPES);
+    }
+
+    /**
+     * @param digestCacheLength maximum number of characters of the alleles and digests kept, 0 to not cache them
+     * @param stripes number of independently locked parts of the cache, each one keeping up to
+     *                digestCacheLength/stripes characters; longer alleles are never cached
+     */
+    VariantIdBuilder(int digestCacheLength, int stripes) {
+        if (digestCacheLength < 0) {
+            throw new IllegalArgumentException("The length of the digest cache can't be negative");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("The digest cache needs at least one stripe");
+        }
+        digestStripes = new DigestStripe[stripes];
+        for (int i = 0; i < stripes; i++) {
+            digestStripes[i] = new DigestStripe(digestCacheLength / stripes);
+        }
+    }
+
+    /**
+     * @return the builder shared by all the documents of the application
+     */
+    public static VariantIdBuilder getInstance() {
+        return INSTANCE;
+    }
+
+    public String buildVariantId(String chromosome, int start, String reference, String alternate) {
+        StringBuilder builder = getBuffer();
+        appendVariantId(builder, chromosome, start, reference, alternate);
+        return builder.toString();
+    }
+
+    public String buildAnnotationId(String chromosome, int start, String reference, String alternate,
+                                    String vepVersion, String vepCacheVersion) {
+        StringBuilder builder = getBuffer();
+        appendVariantId(builder, chromosome, start, reference, alternate);
+        builder.append('_').append(vepVersion).append('_').append(vepCacheVersion);
+        return builder.toString();
+    }
+
+    private StringBuilder getBuffer() {
+        StringBuilder builder = buffers.get();
+        if (builder.capacity() > MAX_REUSED_BUFFER_CAPACITY) {
+            // don't keep a big buffer forever because of one unusually long chromosome name or VEP version
+            builder = new StringBuilder(INITIAL_BUFFER_CAPACITY);
+            buffers.set(builder);
+        }
+        builder.setLength(0);
+        return builder;
+    }
+
+    private void appendVariantId(StringBuilder builder, String chromosome, int start, String reference,
+                                 String alternate) {
+        builder.append(chromosome).append('_').append(start).append('_');
+        appendAllele(builder, reference);
+        builder.append('_');
+        appendAllele(builder, alternate);
+    }
+
+    private void appendAllele(StringBuilder builder, String allele) {
+        if (allele.equals("-")) {
+            return;
+        }
+        if (allele.length() < SHA1_MIN_ALLELE_LENGTH) {
+            builder.append(allele);
+        } else {
+            builder.append(getDigest(allele));
+        }
+    }
+
+    private String getDigest(String allele) {
+        DigestStripe stripe = digestStripes[Math.floorMod(allele.hashCode(), digestStripes.length)];
+        String digest = stripe.get(allele);
+        if (digest == null) {
+            digest = new String(CryptoUtils.encryptSha1(allele));
+            stripe.put(allele, digest);
+        }
+        return digest;
+    }
+
+    /**
+     * @return the number of characters of the alleles and digests currently cached
+     */
+    long getCachedDigestsLength() {
+        long length = 0;
+        for (DigestStripe stripe : digestStripes) {
+            length += stripe.getLength();
+        }
+        return length;
+    }
+
+    /**
+     * LRU map from alleles to their digests, bounded by the number of characters of both.
+     */
+    private static class DigestStripe {
+
+        private final LinkedHashMap<String, String> digests = new LinkedHashMap<>(16, 0.75f, true);
+
+        private final int maxLength;
+
+        private long length;
+
+        DigestStripe(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        synchronized String get(String allele) {
+            return digests.get(allele);
+        }
+
+        synchronized void put(String allele, String digest) {
+            int entryLength = allele.length() + digest.length();
+            if (entryLength > maxLength || digests.put(allele, digest) != null) {
+                return;
+            }
+            length += entryLength;
+            Iterator<Map.Entry<String, String>> eldest = digests.entrySet().iterator();
+            while (length > maxLength) {
+                Map.Entry<String, String> entry = eldest.next();
+                length -= entry.getKey().length() + entry.getValue().length();
+                eldest.remove();
+            }
+        }
+
+        synchronized long getLength() {
+            return length;
+        }
+    }
+}
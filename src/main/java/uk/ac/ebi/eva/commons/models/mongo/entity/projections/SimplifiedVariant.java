@@ -15,6 +15,9 @@
  */
 package uk.ac.ebi.eva.commons.models.mongo.entity.projections;
 
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Field;
 import uk.ac.ebi.eva.commons.models.data.Variant;
@@ -79,7 +82,16 @@ public class SimplifiedVariant {
 
     public SimplifiedVariant(Variant.VariantType variantType, String chromosome, int start, int end, int length,
                              String reference, String alternate, Map<String, Set<String>> hgvs) {
-        this.id = buildVariantId(chromosome, start, reference, alternate);
+        this(buildVariantId(chromosome, start, reference, alternate), variantType, chromosome, start, end, length,
+             reference, alternate, hgvs);
+    }
+
+    /**
+     * @param id ID already built with {@link uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument#buildVariantId}
+     */
+    public SimplifiedVariant(String id, Variant.VariantType variantType, String chromosome, int start, int end,
+                             int length, String reference, String alternate, Map<String, Set<String>> hgvs) {
+        this.id = id;
         this.variantType = variantType;
         this.chromosome = chromosome;
         this.start = start;
@@ -130,4 +142,42 @@ public class SimplifiedVariant {
     public Set<HgvsMongo> getHgvs() {
         return hgvs;
     }
+
+    /**
+     * Builds the document that the Spring Data mapping converter would write for this variant, without going through
+     * the reflection of the converter. As in the converter, the fields are written in declaration order and null
+     * fields are skipped.
+     */
+    public DBObject toDBObject() {
+        BasicDBObject dbObject = new BasicDBObject();
+        if (id != null) {
+            dbObject.put("_id", id);
+        }
+        if (variantType != null) {
+            dbObject.put(TYPE_FIELD, variantType.name());
+        }
+        if (chromosome != null) {
+            dbObject.put(CHROMOSOME_FIELD, chromosome);
+        }
+        dbObject.put(START_FIELD, start);
+        dbObject.put(END_FIELD, end);
+        dbObject.put(LENGTH_FIELD, length);
+        if (reference != null) {
+            dbObject.put(REFERENCE_FIELD, reference);
+        }
+        if (alternate != null) {
+            dbObject.put(ALTERNATE_FIELD, alternate);
+        }
+        if (at != null) {
+            dbObject.put(AT_FIELD, at.toDBObject());
+        }
+        if (hgvs != null) {
+            BasicDBList hgvsList = new BasicDBList();
+            for (HgvsMongo hgvsMongo : hgvs) {
+                hgvsList.add(hgvsMongo.toDBObject());
+            }
+            dbObject.put(HGVS_FIELD, hgvsList);
+        }
+        return dbObject;
+    }
 }
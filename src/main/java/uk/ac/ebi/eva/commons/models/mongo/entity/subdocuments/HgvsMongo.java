@@ -15,6 +15,8 @@
  */
 package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 /**
@@ -40,4 +42,18 @@ public class HgvsMongo {
         this.type = type;
         this.name = name;
     }
+
+    /**
+     * @return document with the type and name of the HGVS code
+     */
+    public DBObject toDBObject() {
+        BasicDBObject dbObject = new BasicDBObject();
+        if (type != null) {
+            dbObject.put(TYPE_FIELD, type);
+        }
+        if (name != null) {
+            dbObject.put(NAME_FIELD, name);
+        }
+        return dbObject;
+    }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+import uk.ac.ebi.eva.commons.models.data.SampleColumns;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact storage of the genotypes of all the samples of a file, as an alternative to the lists of sample indexes
+ * per genotype built by {@link VariantSourceEntryMongo}.
+ * <p>
+ * Only the samples whose genotype is not the most common one are stored, as a BSON binary with a pair of unsigned
+ * varints per sample: the distance to the previous stored sample and the genotype code (0 for a missing genotype,
+ * i+1 for the genotype at position i of the "gts" list). With a "0|0" default, a cohort of thousands of samples
+ * takes a couple of bytes per non-reference sample instead of a 32-bit integer plus the BSON array key.
+ * Example:
+ * <pre>
+ * "samp" : { "n" : 2504, "def" : "0|0", "gts" : [ "0|1", "1|0" ], "pk" : BinData(0, ...) }
+ * </pre>
+ * The genotypes are stored as they were written in the VCF.
+ */
+public class PackedGenotypes {
+
+    public static final String NUMBER_OF_SAMPLES_FIELD = "n";
+
+    public static final String DEFAULT_GENOTYPE_FIELD = "def";
+
+    public static final String GENOTYPES_FIELD = "gts";
+
+    public static final String PACKED_SAMPLES_FIELD = "pk";
+
+    private static final int MISSING_CODE = 0;
+
+    private PackedGenotypes() {
+    }
+
+    public static BasicDBObject encode(SampleColumns samples) {
+        int numberOfSamples = samples.getNumberOfSamples();
+        int[] samplesPerCode = new int[samples.getNumberOfGenotypes()];
+        int missingSamples = 0;
+        for (int sample = 0; sample < numberOfSamples; sample++) {
+            int code = samples.getGenotypeCode(sample);
+            if (code == SampleColumns.MISSING_GENOTYPE) {
+                missingSamples++;
+            } else {
+                samplesPerCode[code]++;
+            }
+        }
+
+        // the most common genotype is not stored per sample, unless missing genotypes are even more common
+        int defaultCode = SampleColumns.MISSING_GENOTYPE;
+        int defaultCount = missingSamples;
+        for (int code = 0; code < samplesPerCode.length; code++) {
+            if (samplesPerCode[code] > defaultCount) {
+                defaultCode = code;
+                defaultCount = samplesPerCode[code];
+            }
+        }
+
+        // codes in the binary: 0 is missing, and the rest of genotypes are numbered from 1 skipping the default one
+        int[] packedCodes = new int[samplesPerCode.length];
+        BasicDBList genotypes = new BasicDBList();
+        for (int code = 0; code < samplesPerCode.length; code++) {
+            if (code != defaultCode && samplesPerCode[code] > 0) {
+                genotypes.add(samples.getGenotype(code));
+                packedCodes[code] = genotypes.size();
+            }
+        }
+
+        ByteArrayOutputStream packedSamples = new ByteArrayOutputStream(2 * (numberOfSamples - defaultCount));
+        int previousSample = -1;
+        for (int sample = 0; sample < numberOfSamples; sample++) {
+            int code = samples.getGenotypeCode(sample);
+            if (code != defaultCode) {
+                writeVarint(packedSamples, sample - previousSample - 1);
+                writeVarint(packedSamples, code == SampleColumns.MISSING_GENOTYPE ? MISSING_CODE : packedCodes[code]);
+                previousSample = sample;
+            }
+        }
+
+        BasicDBObject mongoSamples = new BasicDBObject(NUMBER_OF_SAMPLES_FIELD, numberOfSamples);
+        if (defaultCode != SampleColumns.MISSING_GENOTYPE) {
+            mongoSamples.append(DEFAULT_GENOTYPE_FIELD, samples.getGenotype(defaultCode));
+        }
+        if (!genotypes.isEmpty()) {
+            mongoSamples.append(GENOTYPES_FIELD, genotypes);
+        }
+        if (packedSamples.size() > 0) {
+            mongoSamples.append(PACKED_SAMPLES_FIELD, packedSamples.toByteArray());
+        }
+        return mongoSamples;
+    }
+
+    /**
+     * @return true if the samples document was written by {@link #encode(SampleColumns)}
+     */
+    public static boolean isPacked(DBObject mongoSamples) {
+        return mongoSamples != null && mongoSamples.containsField(NUMBER_OF_SAMPLES_FIELD);
+    }
+
+    /**
+     * @return the genotype of each sample, or null for the samples without genotype
+     * @throws IllegalArgumentException if the document is not a valid encoding
+     */
+    public static String[] decode(DBObject mongoSamples) {
+        if (!isPacked(mongoSamples)) {
+            throw new IllegalArgumentException("The samples are not stored as packed genotypes: " + mongoSamples);
+        }
+        int numberOfSamples = ((Number) mongoSamples.get(NUMBER_OF_SAMPLES_FIELD)).intValue();
+        String[] genotypesBySample = new String[numberOfSamples];
+        Arrays.fill(genotypesBySample, (String) mongoSamples.get(DEFAULT_GENOTYPE_FIELD));
+
+        byte[] packedSamples = (byte[]) mongoSamples.get(PACKED_SAMPLES_FIELD);
+        if (packedSamples == null) {
+            return genotypesBySample;
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> genotypes = (List<Object>) mongoSamples.get(GENOTYPES_FIELD);
+
+        int[] position = {0};
+        int sample = -1;
+        while (position[0] < packedSamples.length) {
+            sample += readVarint(packedSamples, position) + 1;
+            int code = readVarint(packedSamples, position);
+            if (sample >= numberOfSamples || (code != MISSING_CODE && (genotypes == null || code > genotypes.size()))) {
+                throw new IllegalArgumentException("Corrupted packed genotypes at byte " + position[0]);
+            }
+            genotypesBySample[sample] = code == MISSING_CODE ? null : (String) genotypes.get(code - 1);
+        }
+        return genotypesBySample;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream output, int value) {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    private static int readVarint(byte[] input, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            if (position[0] >= input.length || shift > 28) {
+                throw new IllegalArgumentException("Corrupted packed genotypes at byte " + position[0]);
+            }
+            current = input[position[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0);
+        return value;
+    }
+}
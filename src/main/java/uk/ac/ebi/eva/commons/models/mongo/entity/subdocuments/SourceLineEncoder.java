@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.eva.utils.CompressionHelper;
+
+import java.io.IOException;
+
+/**
+ * Converts the original VCF line of a variant into the value stored in the "src" attribute, following the options
+ * that OpenCGA offers in its IncludeSrc:
+ * <ul>
+ * <li>NO: the line is not stored.</li>
+ * <li>FIRST_8_COLUMNS: only the columns up to INFO are stored, gzipped.</li>
+ * <li>FULL: the whole line, including the samples, is stored gzipped.</li>
+ * </ul>
+ * All the variants created from a multiallelic line share the same line, so the last one encoded is reused. This
+ * makes the encoder not thread safe: every thread must use its own instance.
+ */
+public class SourceLineEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(SourceLineEncoder.class);
+
+    public enum Policy {
+        NO, FIRST_8_COLUMNS, FULL
+    }
+
+    private static final int NUMBER_OF_SITE_COLUMNS = 8;
+
+    private final Policy policy;
+
+    private String lastLine;
+
+    private Object lastEncodedLine;
+
+    public SourceLineEncoder(Policy policy) {
+        this.policy = policy;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the value to store, usually a gzipped byte array, or null if the line must not be stored
+     */
+    public Object encode(String line) {
+        if (policy == Policy.NO || line == null) {
+            return null;
+        }
+        // the variants of a line share the same String, so comparing the references is enough
+        if (line != lastLine) {
+            lastEncodedLine = gzip(policy == Policy.FULL ? line : getFirstColumns(line, NUMBER_OF_SITE_COLUMNS));
+            lastLine = line;
+        }
+        return lastEncodedLine;
+    }
+
+    static String getFirstColumns(String line, int numberOfColumns) {
+        int end = -1;
+        for (int column = 0; column < numberOfColumns; column++) {
+            end = line.indexOf('\t', end + 1);
+            if (end < 0) {
+                return line;
+            }
+        }
+        return line.substring(0, end);
+    }
+
+    private Object gzip(String text) {
+        try {
+            return CompressionHelper.gzip(text);
+        } catch (IOException e) {
+            logger.error("Could not gzip a VCF line, it will be stored uncompressed", e);
+            return text;
+        }
+    }
+
+}
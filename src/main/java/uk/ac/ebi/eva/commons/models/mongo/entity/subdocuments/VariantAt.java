@@ -15,6 +15,9 @@
  */
 package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
 
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.springframework.data.mongodb.core.mapping.Field;
 
 import java.util.HashSet;
@@ -39,4 +42,17 @@ public class VariantAt {
         chunkIds.add(chunkSmall);
         chunkIds.add(chunkBig);
     }
+
+    /**
+     * @return document with the chunk ids, written without the mapping converter
+     */
+    public DBObject toDBObject() {
+        BasicDBObject dbObject = new BasicDBObject();
+        if (chunkIds != null) {
+            BasicDBList chunkIdsList = new BasicDBList();
+            chunkIdsList.addAll(chunkIds);
+            dbObject.put(CHUNK_IDS_FIELD, chunkIdsList);
+        }
+        return dbObject;
+    }
 }
@@ -15,18 +15,19 @@
  */
 package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.opencb.biodata.models.feature.Genotype;
 import org.springframework.data.mongodb.core.mapping.Field;
-import uk.ac.ebi.eva.utils.CompressionHelper;
 
-import java.io.IOException;
+import uk.ac.ebi.eva.commons.models.data.SampleColumns;
+
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 /**
  * Mongo database representation of Variant Source entry.
@@ -70,13 +71,18 @@ public class VariantSourceEntryMongo {
     }
 
     public VariantSourceEntryMongo(String fileId, String studyId, String[] alternates, Map<String, String> attributes) {
+        this(fileId, studyId, alternates, attributes, new SourceLineEncoder(SourceLineEncoder.Policy.FIRST_8_COLUMNS));
+    }
+
+    public VariantSourceEntryMongo(String fileId, String studyId, String[] alternates, Map<String, String> attributes,
+                                   SourceLineEncoder sourceLineEncoder) {
         this.fileId = fileId;
         this.studyId = studyId;
         if (alternates != null && alternates.length > 0) {
             this.alternates = new String[alternates.length];
             System.arraycopy(alternates, 0, this.alternates, 0, alternates.length);
         }
-        attrs = buildAttributes(attributes);
+        attrs = buildAttributes(attributes, sourceLineEncoder);
 
         this.format = null;
         this.samp = null;
@@ -84,13 +90,34 @@ public class VariantSourceEntryMongo {
 
     public VariantSourceEntryMongo(String fileId, String studyId, String[] alternates, Map<String, String>
             attributes, String format, List<Map<String, String>> samplesData) {
-        this(fileId, studyId, alternates, attributes);
+        this(fileId, studyId, alternates, attributes, format, SampleColumns.fromMaps(samplesData));
+    }
+
+    public VariantSourceEntryMongo(String fileId, String studyId, String[] alternates, Map<String, String>
+            attributes, String format, SampleColumns samples) {
+        this(fileId, studyId, alternates, attributes, format, samples,
+             new SourceLineEncoder(SourceLineEncoder.Policy.FIRST_8_COLUMNS));
+    }
+
+    public VariantSourceEntryMongo(String fileId, String studyId, String[] alternates, Map<String, String>
+            attributes, String format, SampleColumns samples, SourceLineEncoder sourceLineEncoder) {
+        this(fileId, studyId, alternates, attributes, format, samples, sourceLineEncoder, false);
+    }
+
+    /**
+     * @param packGenotypes if true, the genotypes are stored with {@link PackedGenotypes} instead of as lists of
+     * sample indexes
+     */
+    public VariantSourceEntryMongo(String fileId, String studyId, String[] alternates, Map<String, String>
+            attributes, String format, SampleColumns samples, SourceLineEncoder sourceLineEncoder,
+                                   boolean packGenotypes) {
+        this(fileId, studyId, alternates, attributes, sourceLineEncoder);
         this.format = format;
-        this.samp = buildSampleData(samplesData);
+        this.samp = packGenotypes ? PackedGenotypes.encode(samples) : buildSampleData(samples);
     }
 
-    private BasicDBObject buildSampleData(List<Map<String, String>> samplesData) {
-        Map<Genotype, List<Integer>> genotypeCodes = classifySamplesByGenotype(samplesData);
+    private BasicDBObject buildSampleData(SampleColumns samples) {
+        Map<Genotype, List<Integer>> genotypeCodes = classifySamplesByGenotype(samples);
 
         // Get the most common genotype
         Map.Entry<Genotype, List<Integer>> longestList = getLongestGenotypeList(genotypeCodes);
@@ -125,13 +152,18 @@ public class VariantSourceEntryMongo {
         return longestList;
     }
 
-    private Map<Genotype, List<Integer>> classifySamplesByGenotype(List<Map<String, String>> samplesData) {
+    private Map<Genotype, List<Integer>> classifySamplesByGenotype(SampleColumns samples) {
         Map<Genotype, List<Integer>> genotypeCodes = new HashMap<>();
 
-        for (int i = 0; i < samplesData.size(); i++) {
-            String genotype = samplesData.get(i).get("GT");
-            if (genotype != null) {
-                Genotype g = new Genotype(genotype);
+        // Each distinct genotype is parsed only once
+        Genotype[] genotypesByCode = new Genotype[samples.getNumberOfGenotypes()];
+        for (int i = 0; i < samples.getNumberOfSamples(); i++) {
+            int code = samples.getGenotypeCode(i);
+            if (code != SampleColumns.MISSING_GENOTYPE) {
+                if (genotypesByCode[code] == null) {
+                    genotypesByCode[code] = new Genotype(samples.getGenotype(code));
+                }
+                Genotype g = genotypesByCode[code];
                 List<Integer> samplesWithGenotype = genotypeCodes.get(g);
                 if (samplesWithGenotype == null) {
                     samplesWithGenotype = new ArrayList<>();
@@ -143,21 +175,14 @@ public class VariantSourceEntryMongo {
         return genotypeCodes;
     }
 
-    private BasicDBObject buildAttributes(Map<String, String> attributes) {
+    private BasicDBObject buildAttributes(Map<String, String> attributes, SourceLineEncoder sourceLineEncoder) {
         BasicDBObject attrs = null;
         for (Map.Entry<String, String> entry : attributes.entrySet()) {
             Object value = entry.getValue();
             if (entry.getKey().equals("src")) {
-                String[] fields = entry.getValue().split("\t");
-                StringBuilder sb = new StringBuilder();
-                sb.append(fields[0]);
-                for (int i = 1; i < fields.length && i < 8; i++) {
-                    sb.append("\t").append(fields[i]);
-                }
-                try {
-                    value = CompressionHelper.gzip(sb.toString());
-                } catch (IOException ex) {
-                    Logger.getLogger(VariantSourceEntryMongo.class.getName()).log(Level.SEVERE, null, ex);
+                value = sourceLineEncoder.encode(entry.getValue());
+                if (value == null) {
+                    continue;
                 }
             }
 
@@ -170,4 +195,32 @@ public class VariantSourceEntryMongo {
         return attrs;
     }
 
+    /**
+     * @return the same document that the Spring Data mapping converter would write, built without reflection. The
+     * attributes and samples are already documents, so they are not copied.
+     */
+    public DBObject toDBObject() {
+        BasicDBObject dbObject = new BasicDBObject();
+        if (fileId != null) {
+            dbObject.put(FILEID_FIELD, fileId);
+        }
+        if (studyId != null) {
+            dbObject.put(STUDYID_FIELD, studyId);
+        }
+        if (alternates != null) {
+            BasicDBList alternatesList = new BasicDBList();
+            alternatesList.addAll(Arrays.asList(alternates));
+            dbObject.put(ALTERNATES_FIELD, alternatesList);
+        }
+        if (attrs != null) {
+            dbObject.put(ATTRIBUTES_FIELD, attrs);
+        }
+        if (format != null) {
+            dbObject.put(FORMAT_FIELD, format);
+        }
+        if (samp != null) {
+            dbObject.put(SAMPLES_FIELD, samp);
+        }
+        return dbObject;
+    }
 }
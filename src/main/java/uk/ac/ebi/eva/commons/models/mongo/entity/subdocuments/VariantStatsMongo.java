@@ -15,6 +15,8 @@
  */
 package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
 
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 import org.opencb.biodata.models.feature.Genotype;
 import org.springframework.data.mongodb.core.mapping.Field;
 import uk.ac.ebi.eva.commons.models.data.VariantStats;
@@ -143,4 +145,35 @@ public class VariantStatsMongo {
     public Map<String, Integer> getNumGt() {
         return numGt;
     }
+
+    /**
+     * @return the same document as the mapping converter writes; frequencies are kept as Float, like the converter
+     * does
+     */
+    public DBObject toDBObject() {
+        BasicDBObject dbObject = new BasicDBObject();
+        if (studyId != null) {
+            dbObject.put(STUDY_ID, studyId);
+        }
+        if (fileId != null) {
+            dbObject.put(FILE_ID, fileId);
+        }
+        if (cohortId != null) {
+            dbObject.put(COHORT_ID, cohortId);
+        }
+        dbObject.put(MAF_FIELD, maf);
+        dbObject.put(MGF_FIELD, mgf);
+        if (mafAllele != null) {
+            dbObject.put(MAFALLELE_FIELD, mafAllele);
+        }
+        if (mgfGenotype != null) {
+            dbObject.put(MGFGENOTYPE_FIELD, mgfGenotype);
+        }
+        dbObject.put(MISSALLELE_FIELD, missingAlleles);
+        dbObject.put(MISSGENOTYPE_FIELD, missingGenotypes);
+        if (numGt != null) {
+            dbObject.put(NUMGT_FIELD, new BasicDBObject(numGt));
+        }
+        return dbObject;
+    }
 }
@@ -35,20 +35,37 @@ public class BeanNames {
 
     public static final String ANNOTATION_SKIP_STEP_DECIDER = "annotation-skip-step-decider";
     public static final String STATISTICS_SKIP_STEP_DECIDER = "statistics-skip-step-decider";
+    public static final String LOAD_VARIANTS_PARTITION_DECIDER = "load-variants-partition-decider";
+    public static final String VEP_ANNOTATION_PARTITION_DECIDER = "vep-annotation-partition-decider";
+    public static final String VEP_ANNOTATION_STREAMING_DECIDER = "vep-annotation-streaming-decider";
+    public static final String DEFER_INDEXES_DECIDER = "defer-indexes-decider";
+
+    public static final String VCF_CONTIG_PARTITIONER = "vcf-contig-partitioner";
+    public static final String VARIANT_REGION_PARTITIONER = "variant-region-partitioner";
+    public static final String LOAD_VARIANTS_PARTITION_HANDLER = "load-variants-partition-handler";
 
     public static final String VEP_ANNOTATION_FLOW = "vep-annotation-flow";
+    public static final String GENERATE_VEP_ANNOTATION_FLOW = "generate-vep-annotation-flow";
     public static final String VEP_ANNOTATION_OPTIONAL_FLOW = "vep-annotation-optional.flow";
     public static final String PARALLEL_STATISTICS_AND_ANNOTATION = "parallel-statistics-and-annotation-flow";
     public static final String CALCULATE_STATISTICS_FLOW = "calculate-statistics-flow";
     public static final String CALCULATE_STATISTICS_OPTIONAL_FLOW = "calculate-statistics-optional-flow";
+    public static final String LOAD_VARIANTS_FLOW = "load-variants-flow";
+    public static final String BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW = "build-deferred-indexes-optional-flow";
 
     public static final String LOAD_VEP_ANNOTATION_STEP = "load-vep-annotation-step";
     public static final String CALCULATE_STATISTICS_STEP = "calculate-statistics-step";
     public static final String CREATE_DATABASE_INDEXES_STEP = "create-database-indexes-step";
+    public static final String BUILD_DEFERRED_INDEXES_STEP = "build-deferred-indexes-step";
     public static final String LOAD_GENES_STEP = "load-genes-step";
     public static final String GENERATE_VEP_ANNOTATION_STEP = "generate-vep-annotation";
+    public static final String PARTITIONED_GENERATE_VEP_ANNOTATION_STEP = "partitioned-generate-vep-annotation-step";
+    public static final String GENERATE_VEP_ANNOTATION_PARTITION_STEP = "generate-vep-annotation-partition-step";
+    public static final String MERGE_VEP_ANNOTATION_SHARDS_STEP = "merge-vep-annotation-shards-step";
     public static final String LOAD_STATISTICS_STEP = "load-statistics-step";
     public static final String LOAD_VARIANTS_STEP = "load-variants-step";
+    public static final String PARTITIONED_LOAD_VARIANTS_STEP = "partitioned-load-variants-step";
+    public static final String LOAD_VARIANTS_PARTITION_STEP = "load-variants-partition-step";
     public static final String LOAD_FILE_STEP = "load-file-step";
     public static final String DROP_VARIANTS_BY_STUDY_STEP = "drop-variants-by-study-step";
     public static final String PULL_FILES_AND_STATISTICS_BY_STUDY_STEP = "pull-files-and-statistics-by-study-step";
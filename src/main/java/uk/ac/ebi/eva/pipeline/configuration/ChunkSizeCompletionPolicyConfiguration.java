@@ -16,23 +16,31 @@
 package uk.ac.ebi.eva.pipeline.configuration;
 
 import org.springframework.batch.core.configuration.annotation.StepScope;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
 import uk.ac.ebi.eva.pipeline.parameters.ChunkSizeParameters;
 
 /**
- * Spring configuration to inject a SimplecompletionPolicy that modifies the chunk size with the configured
- * JobParameters chunk size.
+ * Spring configuration to inject a completion policy that modifies the chunk size with the configured
+ * JobParameters chunk size. If the adaptive chunk size is enabled, the size changes during the step, so the policy
+ * must also be registered as a listener of the step.
  */
 @Configuration
 public class ChunkSizeCompletionPolicyConfiguration {
 
     @Bean
     @StepScope
-    public SimpleCompletionPolicy chunkSizecompletionPolicy(ChunkSizeParameters chunkSizeParameters) {
-        return new SimpleCompletionPolicy(chunkSizeParameters.getChunkSize());
+    public AdaptiveChunkSizeCompletionPolicy chunkSizecompletionPolicy(ChunkSizeParameters chunkSizeParameters) {
+        AdaptiveChunkSizeCompletionPolicy completionPolicy = new AdaptiveChunkSizeCompletionPolicy(
+                chunkSizeParameters.getChunkSize());
+        if (chunkSizeParameters.isAdaptive()) {
+            completionPolicy.setAdaptive(chunkSizeParameters.getMinChunkSize(), chunkSizeParameters.getMaxChunkSize(),
+                                         chunkSizeParameters.getTargetChunkMillis(),
+                                         chunkSizeParameters.getHeapBudgetPercent());
+        }
+        return completionPolicy;
     }
 
 }
@@ -20,14 +20,21 @@ import org.springframework.batch.core.job.flow.JobExecutionDecider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import uk.ac.ebi.eva.pipeline.jobs.deciders.PartitionedLoadDecider;
 import uk.ac.ebi.eva.pipeline.jobs.deciders.SkipStepDecider;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.ANNOTATION_SKIP_STEP_DECIDER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.DEFER_INDEXES_DECIDER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITION_DECIDER;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.STATISTICS_SKIP_STEP_DECIDER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_PARTITION_DECIDER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_STREAMING_DECIDER;
 
 /**
- * This class defines the beans for the deciders to skip annotation and statistics step.
+ * This class defines the beans for the deciders to skip annotation and statistics step, to partition the variants
+ * load and the VEP annotation, to skip the load of the VEP output file when the annotations were streamed, and to
+ * build the database indexes at the end of the job when their creation was deferred.
  */
 @Configuration
 @EnableBatchProcessing
@@ -43,4 +50,24 @@ public class JobExecutionDeciderConfiguration {
         return new SkipStepDecider(JobParametersNames.STATISTICS_SKIP);
     }
 
+    @Bean(LOAD_VARIANTS_PARTITION_DECIDER)
+    public JobExecutionDecider loadVariantsPartitionDecider() {
+        return new PartitionedLoadDecider(JobParametersNames.CONFIG_LOAD_PARTITIONS);
+    }
+
+    @Bean(VEP_ANNOTATION_PARTITION_DECIDER)
+    public JobExecutionDecider vepAnnotationPartitionDecider() {
+        return new PartitionedLoadDecider(JobParametersNames.CONFIG_ANNOTATION_PARTITIONS);
+    }
+
+    @Bean(VEP_ANNOTATION_STREAMING_DECIDER)
+    public JobExecutionDecider vepAnnotationStreamingDecider() {
+        return new SkipStepDecider(JobParametersNames.CONFIG_ANNOTATION_STREAMING);
+    }
+
+    @Bean(DEFER_INDEXES_DECIDER)
+    public JobExecutionDecider deferIndexesDecider() {
+        return new SkipStepDecider(JobParametersNames.CONFIG_DB_DEFER_INDEXES);
+    }
+
 }
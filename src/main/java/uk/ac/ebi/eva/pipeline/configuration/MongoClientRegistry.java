@@ -0,0 +1,334 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoCredential;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
+import uk.ac.ebi.eva.utils.MongoDBHelper;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps one {@link MongoClient} for each distinct set of connection parameters, so that all the steps of a job, and
+ * the parallel flows among them, share the same connection pool instead of opening a client each.
+ * <p>
+ * The clients are closed when the registry is closed, which Spring does when the application context shuts down.
+ * <p>
+ * While there are clients, a daemon thread samples the statistics of their connection pools and logs them
+ * periodically. The driver doesn't measure how long the threads wait for a connection, so the wait time reported is
+ * only an estimate, made from the samples of the wait queue: each thread seen waiting is counted as waiting for the
+ * whole sample interval, so short waits can be missed or overcounted.
+ */
+public class MongoClientRegistry implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoClientRegistry.class);
+
+    private static final String CONNECTION_POOL_MBEANS = "org.mongodb.driver:type=ConnectionPool,*";
+
+    private static final long DEFAULT_SAMPLE_INTERVAL_MILLIS = 100;
+
+    private static final long DEFAULT_REPORT_INTERVAL_MILLIS = 60000;
+
+    private final Map<List<Object>, MongoClient> clients = new ConcurrentHashMap<>();
+
+    private final long sampleIntervalMillis;
+
+    private final long reportIntervalMillis;
+
+    /**
+     * Estimated milliseconds that threads have waited for a connection, by pool address. Only updated by the
+     * statistics thread.
+     */
+    private final Map<String, Long> waitMillis = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService statisticsExecutor;
+
+    private long lastSampleNanos;
+
+    private long lastReportNanos;
+
+    public MongoClientRegistry() {
+        this(DEFAULT_SAMPLE_INTERVAL_MILLIS, DEFAULT_REPORT_INTERVAL_MILLIS);
+    }
+
+    MongoClientRegistry(long sampleIntervalMillis, long reportIntervalMillis) {
+        this.sampleIntervalMillis = sampleIntervalMillis;
+        this.reportIntervalMillis = reportIntervalMillis;
+    }
+
+    public MongoClient getClient(MongoConnection mongoConnection) throws UnknownHostException {
+        List<Object> key = getKey(mongoConnection);
+        MongoClient client = clients.get(key);
+        if (client == null) {
+            synchronized (clients) {
+                client = clients.get(key);
+                if (client == null) {
+                    client = createClient(mongoConnection);
+                    clients.put(key, client);
+                    logger.debug("Created a MongoClient for hosts {}", mongoConnection.getHosts());
+                    startStatisticsSampling();
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * The password is part of the key only as a hash, so that it is not kept in plain text for as long as the client.
+     */
+    private List<Object> getKey(MongoConnection mongoConnection) {
+        return Arrays.asList(mongoConnection.getHosts(), mongoConnection.getAuthenticationDatabase(),
+                             mongoConnection.getUser(), hashPassword(mongoConnection.getPassword()),
+                             mongoConnection.getReadPreferenceName(), mongoConnection.getPoolMaxSize(),
+                             mongoConnection.getPoolWaitQueueMultiplier(), mongoConnection.getPoolMaxWaitMillis(),
+                             mongoConnection.getConnectTimeoutMillis(), mongoConnection.getSocketTimeoutMillis());
+    }
+
+    /**
+     * @return the SHA-256 of the password, in Base64, or null if there is no password
+     */
+    static String hashPassword(String password) {
+        if (password == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM must support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates a client that is not tracked by any registry, so the caller is responsible for closing it.
+     */
+    public static MongoClient createClient(MongoConnection mongoConnection) throws UnknownHostException {
+        String authenticationDatabase = null;
+        String user = null;
+        String password = null;
+        MongoClient mongoClient;
+
+        // The Mongo API is not happy to deal with empty strings for authentication DB, user and password
+        if (mongoConnection.getAuthenticationDatabase() != null && !mongoConnection.getAuthenticationDatabase().trim()
+                .isEmpty()) {
+            authenticationDatabase = mongoConnection.getAuthenticationDatabase();
+        }
+        if (mongoConnection.getUser() != null && !mongoConnection.getUser().trim().isEmpty()) {
+            user = mongoConnection.getUser();
+        }
+        if (mongoConnection.getPassword() != null && !mongoConnection.getPassword().trim().isEmpty()) {
+            password = mongoConnection.getPassword();
+        }
+
+        MongoClientOptions options = getClientOptions(mongoConnection);
+        if (user == null || password == null) {
+            mongoClient = new MongoClient(MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()), options);
+        } else {
+            mongoClient = new MongoClient(
+                    MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()),
+                    Collections.singletonList(MongoCredential.createCredential(mongoConnection.getUser(),
+                            authenticationDatabase, mongoConnection.getPassword().toCharArray())),
+                    options);
+        }
+
+        return mongoClient;
+    }
+
+    private static MongoClientOptions getClientOptions(MongoConnection mongoConnection) {
+        return MongoClientOptions.builder()
+                                 .readPreference(mongoConnection.getReadPreference())
+                                 .connectionsPerHost(mongoConnection.getPoolMaxSize())
+                                 .threadsAllowedToBlockForConnectionMultiplier(
+                                         mongoConnection.getPoolWaitQueueMultiplier())
+                                 .maxWaitTime(mongoConnection.getPoolMaxWaitMillis())
+                                 .connectTimeout(mongoConnection.getConnectTimeoutMillis())
+                                 .socketTimeout(mongoConnection.getSocketTimeoutMillis())
+                                 .build();
+    }
+
+    private void startStatisticsSampling() {
+        if (statisticsExecutor != null) {
+            return;
+        }
+        statisticsExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mongo-pool-statistics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastSampleNanos = System.nanoTime();
+        lastReportNanos = lastSampleNanos;
+        statisticsExecutor.scheduleWithFixedDelay(this::sampleStatistics, sampleIntervalMillis, sampleIntervalMillis,
+                                                  TimeUnit.MILLISECONDS);
+    }
+
+    private void sampleStatistics() {
+        try {
+            long now = System.nanoTime();
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - lastSampleNanos);
+            lastSampleNanos = now;
+            List<PoolStatistics> statistics = getPoolStatistics();
+            for (PoolStatistics poolStatistics : statistics) {
+                if (poolStatistics.getWaitQueueSize() > 0) {
+                    waitMillis.merge(poolStatistics.getAddress(), poolStatistics.getWaitQueueSize() * elapsedMillis,
+                                     Long::sum);
+                }
+            }
+            if (now - lastReportNanos >= TimeUnit.MILLISECONDS.toNanos(reportIntervalMillis)) {
+                lastReportNanos = now;
+                logPoolStatistics(getPoolStatistics());
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the following samples
+            logger.warn("Could not sample the statistics of the MongoDB connection pools", e);
+        }
+    }
+
+    private void logPoolStatistics(List<PoolStatistics> statistics) {
+        for (PoolStatistics poolStatistics : statistics) {
+            logger.info("MongoDB connection pool {}", poolStatistics);
+        }
+    }
+
+    /**
+     * Snapshot of the connection pools of the driver, as published through JMX, with the time spent waiting for a
+     * connection estimated by this registry.
+     */
+    public List<PoolStatistics> getPoolStatistics() {
+        List<PoolStatistics> statistics = new ArrayList<>();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName(CONNECTION_POOL_MBEANS), null)) {
+                String address = name.getKeyProperty("host") + ":" + name.getKeyProperty("port");
+                statistics.add(new PoolStatistics(address,
+                                                  getIntAttribute(server, name, "Size"),
+                                                  getIntAttribute(server, name, "CheckedOutCount"),
+                                                  getIntAttribute(server, name, "WaitQueueSize"),
+                                                  waitMillis.getOrDefault(address, 0L)));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not read the statistics of the MongoDB connection pools", e);
+        }
+        return statistics;
+    }
+
+    private int getIntAttribute(MBeanServer server, ObjectName name, String attribute) {
+        try {
+            return ((Number) server.getAttribute(name, attribute)).intValue();
+        } catch (Exception e) {
+            // not every driver version publishes every attribute
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (clients) {
+            if (statisticsExecutor != null) {
+                statisticsExecutor.shutdownNow();
+                statisticsExecutor = null;
+            }
+            logPoolStatistics(getPoolStatistics());
+            for (MongoClient client : clients.values()) {
+                client.close();
+            }
+            clients.clear();
+        }
+    }
+
+    public static class PoolStatistics {
+
+        private final String address;
+
+        private final int size;
+
+        private final int inUse;
+
+        private final int waitQueueSize;
+
+        private final long waitMillis;
+
+        public PoolStatistics(String address, int size, int inUse, int waitQueueSize, long waitMillis) {
+            this.address = address;
+            this.size = size;
+            this.inUse = inUse;
+            this.waitQueueSize = waitQueueSize;
+            this.waitMillis = waitMillis;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        /**
+         * @return number of open connections, both in use and available
+         */
+        public int getSize() {
+            return size;
+        }
+
+        public int getInUse() {
+            return inUse;
+        }
+
+        public int getAvailable() {
+            return size - inUse;
+        }
+
+        /**
+         * @return number of threads waiting for a connection, or -1 if the driver does not publish it
+         */
+        public int getWaitQueueSize() {
+            return waitQueueSize;
+        }
+
+        /**
+         * @return estimated milliseconds that all the threads together have waited for a connection since the pool
+         * was created
+         */
+        public long getWaitMillis() {
+            return waitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return address + ": " + inUse + " connections in use, " + getAvailable() + " available, "
+                    + waitQueueSize + " threads waiting, estimated " + waitMillis + " ms waited for a connection";
+        }
+    }
+}
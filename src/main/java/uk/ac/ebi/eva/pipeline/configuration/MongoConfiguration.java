@@ -16,7 +16,6 @@
 package uk.ac.ebi.eva.pipeline.configuration;
 
 import com.mongodb.MongoClient;
-import com.mongodb.MongoCredential;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -32,10 +31,8 @@ import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
 
 import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
 import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
-import uk.ac.ebi.eva.utils.MongoDBHelper;
 
 import java.net.UnknownHostException;
-import java.util.Collections;
 
 /**
  * Utility class dealing with MongoDB connections using pipeline options
@@ -48,18 +45,32 @@ public class MongoConfiguration {
         return new MongoMappingContext();
     }
 
+    @Bean
+    public MongoClientRegistry mongoClientRegistry() {
+        return new MongoClientRegistry();
+    }
+
     @Bean
     @StepScope
-    public MongoOperations mongoTemplate(DatabaseParameters databaseParameters, MongoMappingContext mongoMappingContext)
-            throws UnknownHostException {
-        return getMongoOperations(databaseParameters.getDatabaseName(),databaseParameters.getMongoConnection(),
-                mongoMappingContext);
+    public MongoOperations mongoTemplate(DatabaseParameters databaseParameters, MongoMappingContext mongoMappingContext,
+                                         MongoClientRegistry mongoClientRegistry) throws UnknownHostException {
+        MongoClient mongoClient = mongoClientRegistry.getClient(databaseParameters.getMongoConnection());
+        return getMongoOperations(databaseParameters.getDatabaseName(), mongoClient, mongoMappingContext);
     }
 
+    /**
+     * Opens a new client, instead of taking it from a {@link MongoClientRegistry}. Meant for code outside of the
+     * application context, such as tests.
+     */
     public static MongoOperations getMongoOperations(String databaseName, MongoConnection mongoConnection,
                                                      MongoMappingContext mongoMappingContext)
             throws UnknownHostException {
-        MongoClient mongoClient = getMongoClient(mongoConnection);
+        return getMongoOperations(databaseName, MongoClientRegistry.createClient(mongoConnection),
+                                  mongoMappingContext);
+    }
+
+    private static MongoOperations getMongoOperations(String databaseName, MongoClient mongoClient,
+                                                      MongoMappingContext mongoMappingContext) {
         MongoDbFactory mongoFactory = getMongoDbFactory(mongoClient, databaseName);
         MappingMongoConverter mappingMongoConverter = getMappingMongoConverter(mongoFactory, mongoMappingContext);
         return new MongoTemplate(mongoFactory, mappingMongoConverter);
@@ -69,37 +80,6 @@ public class MongoConfiguration {
         return new SimpleMongoDbFactory(client, database);
     }
 
-    private static MongoClient getMongoClient(MongoConnection mongoConnection) throws UnknownHostException {
-        String authenticationDatabase = null;
-        String user = null;
-        String password = null;
-        MongoClient mongoClient;
-        
-        // The Mongo API is not happy to deal with empty strings for authentication DB, user and password
-        if (mongoConnection.getAuthenticationDatabase() != null && !mongoConnection.getAuthenticationDatabase().trim()
-                .isEmpty()) {
-            authenticationDatabase = mongoConnection.getAuthenticationDatabase();
-        }
-        if (mongoConnection.getUser() != null && !mongoConnection.getUser().trim().isEmpty()) {
-            user = mongoConnection.getUser();
-        }
-        if (mongoConnection.getPassword() != null && !mongoConnection.getPassword().trim().isEmpty()) {
-            password = mongoConnection.getPassword();
-        }
-        
-        if (user == null || password == null) {
-            mongoClient = new MongoClient(MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()));
-        } else {
-            mongoClient = new MongoClient(
-                    MongoDBHelper.parseServerAddresses(mongoConnection.getHosts()),
-                    Collections.singletonList(MongoCredential.createCredential(mongoConnection.getUser(),
-                            authenticationDatabase, mongoConnection.getPassword().toCharArray())));
-        }
-        mongoClient.setReadPreference(mongoConnection.getReadPreference());
-
-        return mongoClient;
-    }
-
     private static MappingMongoConverter getMappingMongoConverter(MongoDbFactory mongoFactory,
                                                                   MongoMappingContext mongoMappingContext) {
         DbRefResolver dbRefResolver = new DefaultDbRefResolver(mongoFactory);
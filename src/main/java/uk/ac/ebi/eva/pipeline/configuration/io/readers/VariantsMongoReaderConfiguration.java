@@ -16,16 +16,19 @@
 package uk.ac.ebi.eva.pipeline.configuration.io.readers;
 
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.core.MongoOperations;
 
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
 import uk.ac.ebi.eva.pipeline.io.readers.VariantsMongoReader;
 import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
 import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
 import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANTS_READER;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.REGIONS;
 
 /**
  * Configuration to inject a VariantsMongoReader bean that reads from a mongo database in the pipeline
@@ -33,12 +36,18 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANTS_READER;
 @Configuration
 public class VariantsMongoReaderConfiguration {
 
+    /**
+     * When the reader is used in a partition of a partitioned step, only the variants of the regions assigned to that
+     * partition in the step execution context are read.
+     */
     @Bean(VARIANTS_READER)
     @StepScope
     public VariantsMongoReader variantsMongoReader(MongoOperations mongoOperations,
                                                    DatabaseParameters databaseParameters,
                                                    InputParameters inputParameters,
-                                                   AnnotationParameters annotationParameters) {
+                                                   AnnotationParameters annotationParameters,
+                                                   @Value("#{stepExecutionContext['" + REGIONS + "']}")
+                                                           String regions) {
         // to overwrite annotation we have to bring all variants (non annotated and annotated)
         boolean excludeAnnotated = !annotationParameters.getOverwriteAnnotation();
 
@@ -51,6 +60,9 @@ public class VariantsMongoReaderConfiguration {
                 inputParameters.getVcfId(),
                 excludeAnnotated);
         variantsMongoReader.setSaveState(false);
+        if (regions != null) {
+            variantsMongoReader.setRegions(GenomicRegion.parseList(regions));
+        }
         return variantsMongoReader;
     }
 
@@ -19,19 +19,27 @@ package uk.ac.ebi.eva.pipeline.configuration.io.readers;
 import org.opencb.biodata.models.variant.VariantSource;
 import org.springframework.batch.core.configuration.annotation.StepScope;
 import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
 
 import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
 import uk.ac.ebi.eva.pipeline.io.readers.AggregatedVcfReader;
+import uk.ac.ebi.eva.pipeline.io.readers.ReadAheadItemStreamReader;
 import uk.ac.ebi.eva.pipeline.io.readers.UnwindingItemStreamReader;
 import uk.ac.ebi.eva.pipeline.io.readers.VcfReader;
+import uk.ac.ebi.eva.pipeline.parameters.ChunkSizeParameters;
 import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
+import uk.ac.ebi.eva.pipeline.parameters.LoadParameters;
 
 import java.io.File;
 import java.io.IOException;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_READER;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.CONTIGS;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.EXCLUDE_CONTIGS;
 
 /**
  * Configuration to inject a VcfReader as a Variant Reader bean.
@@ -39,33 +47,61 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_READER;
 @Configuration
 public class VcfReaderConfiguration {
 
+    /**
+     * If more than one chunk is allowed in flight, the lines of the next chunks are read and parsed in a background
+     * thread while the current chunk is written.
+     */
     @Bean(VARIANT_READER)
     @StepScope
-    public ItemStreamReader<Variant> unwindingReader(VcfReader vcfReader) {
+    public ItemStreamReader<Variant> unwindingReader(VcfReader vcfReader, LoadParameters loadParameters,
+                                                     ChunkSizeParameters chunkSizeParameters) {
+        int inFlightChunks = loadParameters.getInFlightChunks();
+        if (inFlightChunks > 1) {
+            int readAheadLines = (inFlightChunks - 1) * chunkSizeParameters.getChunkSize();
+            return new UnwindingItemStreamReader<>(new ReadAheadItemStreamReader<>(vcfReader, readAheadLines));
+        }
         return new UnwindingItemStreamReader<>(vcfReader);
     }
 
     /**
      * The aggregation type is passed so that spring won't cache the instance of VcfReader if it is already built
      * with other aggregation type.
+     * <p>
+     * If some regions are given, only the variants overlapping them are read.
+     * <p>
+     * When the reader is used in a partition of a partitioned step, the contigs assigned to that partition are taken
+     * from the step execution context. If the VCF is indexed, only the parts of the file with those contigs are read;
+     * otherwise, the lines from any other contig are not parsed.
      *
      * @return a VcfReader for the given aggregation type.
      * @throws IOException if the file doesn't exist, because it has to be read to see if it's compressed.
      */
     @Bean
     @StepScope
-    public VcfReader vcfReader(InputParameters parameters) throws IOException {
+    public VcfReader vcfReader(InputParameters parameters,
+                               @Value("#{stepExecutionContext['" + CONTIGS + "']}") String contigs,
+                               @Value("#{stepExecutionContext['" + EXCLUDE_CONTIGS + "']}") String excludeContigs)
+            throws IOException {
         String fileId = parameters.getVcfId();
         String studyId = parameters.getStudyId();
         File vcfFile = new File(parameters.getVcf());
         VariantSource.Aggregation vcfAggregation = parameters.getVcfAggregation();
 
+        VcfReader vcfReader;
         if (VariantSource.Aggregation.NONE.equals(vcfAggregation)) {
-            return new VcfReader(fileId, studyId, vcfFile);
+            vcfReader = new VcfReader(fileId, studyId, vcfFile);
         } else {
-            return new AggregatedVcfReader(fileId, studyId, vcfAggregation, parameters.getAggregatedMappingFile(),
+            vcfReader = new AggregatedVcfReader(fileId, studyId, vcfAggregation, parameters.getAggregatedMappingFile(),
                     vcfFile);
         }
+
+        if (parameters.getVcfRegions() != null) {
+            vcfReader.setRegions(GenomicRegion.parseList(parameters.getVcfRegions()));
+        }
+        if (contigs != null) {
+            vcfReader.setContigs(StringUtils.commaDelimitedListToSet(contigs), Boolean.parseBoolean(excludeContigs));
+        }
+        return vcfReader;
     }
 
 }
@@ -25,9 +25,12 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.data.mongodb.core.MongoOperations;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.pipeline.Application;
+import uk.ac.ebi.eva.pipeline.io.writers.ShardChunkRanges;
 import uk.ac.ebi.eva.pipeline.io.writers.VariantMongoWriter;
+import uk.ac.ebi.eva.pipeline.io.writers.VariantMongoWriterSettings;
 import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
 import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
+import uk.ac.ebi.eva.pipeline.parameters.LoadParameters;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER;
 
@@ -38,7 +41,8 @@ public class VariantWriterConfiguration {
     @StepScope
     @Profile(Application.VARIANT_WRITER_MONGO_PROFILE)
     public ItemWriter<Variant> variantMongoWriter(InputParameters inputParameters, MongoOperations mongoOperations,
-                                                  DatabaseParameters databaseParameters) {
+                                                  DatabaseParameters databaseParameters,
+                                                  LoadParameters loadParameters) {
         boolean includeSamples, includeStats;
         if (VariantSource.Aggregation.NONE.equals(inputParameters.getVcfAggregation())) {
             includeSamples = true;
@@ -48,8 +52,18 @@ public class VariantWriterConfiguration {
             includeStats = true;
         }
 
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setIncludeSrc(loadParameters.getIncludeSrc())
+                .setWriteMode(loadParameters.getWriteMode())
+                .setDeferIndexes(databaseParameters.isDeferIndexes())
+                .setConcurrentWrites(loadParameters.getWriteThreads(), loadParameters.getWriteBatchSize())
+                .setPackGenotypes(loadParameters.isPackGenotypes());
+        if (loadParameters.isShardAware()) {
+            settings.setShardChunkRanges(ShardChunkRanges.fromConfigChunks(
+                    mongoOperations.getCollection(databaseParameters.getCollectionVariantsName())));
+        }
         return new VariantMongoWriter(databaseParameters.getCollectionVariantsName(), mongoOperations, includeStats,
-                includeSamples);
+                                      includeSamples, settings);
     }
 
 }
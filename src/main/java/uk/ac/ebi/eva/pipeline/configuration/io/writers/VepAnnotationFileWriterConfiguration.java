@@ -17,26 +17,79 @@
 package uk.ac.ebi.eva.pipeline.configuration.io.writers;
 
 import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 
+import uk.ac.ebi.eva.commons.models.mongo.entity.Annotation;
+import uk.ac.ebi.eva.pipeline.io.VepAnnotationCache;
 import uk.ac.ebi.eva.pipeline.io.writers.VepAnnotationFileWriter;
+import uk.ac.ebi.eva.pipeline.io.writers.VepAnnotationStreamWriter;
 import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
 import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
 import uk.ac.ebi.eva.pipeline.parameters.ChunkSizeParameters;
 
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.COMPOSITE_ANNOTATION_VARIANT_WRITER;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_WRITER;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT_SHARD;
 
 @Configuration
+@Import({AnnotationCompositeWriterConfiguration.class})
 public class VepAnnotationFileWriterConfiguration {
 
+    /**
+     * Only needed when the annotations are streamed into the database, and only defined in the profile that writes
+     * the annotations into mongo
+     */
+    @Autowired(required = false)
+    @Qualifier(COMPOSITE_ANNOTATION_VARIANT_WRITER)
+    private ItemWriter<Annotation> compositeAnnotationVariantItemWriter;
+
+    /**
+     * When the writer is used in a partition of a partitioned step, the annotations are written to the shard file
+     * assigned to that partition in the step execution context.
+     * <p>
+     * If the annotations are streamed, they are written into the database by this writer, and the VEP output file is
+     * only written if an audit copy was requested.
+     * <p>
+     * If a result cache path is provided, both writers only send to VEP the variants that are not in the cache.
+     */
     @Bean(VEP_ANNOTATION_WRITER)
     @StepScope
-    public ItemWriter<EnsemblVariant> vepAnnotationFileWriter(AnnotationParameters annotationParameters,
-                                                              ChunkSizeParameters chunkSizeParameters) {
-        return new VepAnnotationFileWriter(annotationParameters, chunkSizeParameters.getChunkSize(),
-                annotationParameters.getTimeout());
+    public ItemStreamWriter<EnsemblVariant> vepAnnotationFileWriter(
+            AnnotationParameters annotationParameters, ChunkSizeParameters chunkSizeParameters,
+            @Value("#{stepExecutionContext['" + VEP_OUTPUT_SHARD + "']}") String vepOutputShard) {
+        String vepOutput = vepOutputShard != null ? vepOutputShard : annotationParameters.getVepOutput();
+        VepAnnotationCache annotationCache = null;
+        if (!annotationParameters.getResultCachePath().isEmpty()) {
+            annotationCache = new VepAnnotationCache(annotationParameters.getResultCachePath(),
+                                                     annotationParameters.getVepVersion(),
+                                                     annotationParameters.getVepCacheVersion());
+        }
+
+        if (annotationParameters.isStreaming()) {
+            if (compositeAnnotationVariantItemWriter == null) {
+                throw new IllegalStateException("The annotations can't be streamed because there is no writer for "
+                                                        + "them (hint: check the active profiles)");
+            }
+            String auditOutput = annotationParameters.isAuditOutput() ? vepOutput : null;
+            VepAnnotationStreamWriter streamWriter = new VepAnnotationStreamWriter(
+                    annotationParameters, auditOutput, chunkSizeParameters.getChunkSize(),
+                    annotationParameters.getTimeout(), annotationParameters.getVepWorkers(),
+                    compositeAnnotationVariantItemWriter);
+            streamWriter.setAnnotationCache(annotationCache);
+            return streamWriter;
+        }
+        VepAnnotationFileWriter fileWriter = new VepAnnotationFileWriter(
+                annotationParameters, vepOutput, chunkSizeParameters.getChunkSize(),
+                annotationParameters.getTimeout(), annotationParameters.getVepWorkers());
+        fileWriter.setAnnotationCache(annotationCache);
+        return fileWriter;
     }
 
 }
@@ -33,12 +33,14 @@ import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 
 import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.AnnotationFlowOptionalConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.BuildDeferredIndexesOptionalFlowConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadFileStepConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadVariantsStepConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.NewJobIncrementer;
 import uk.ac.ebi.eva.pipeline.parameters.validation.job.AggregatedVcfJobParametersValidator;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.AGGREGATED_VCF_JOB;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_FILE_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_OPTIONAL_FLOW;
@@ -48,12 +50,14 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_OPTI
  * genotypes.
  * <p>
  * load --> (optionalAnnotationFlow: variantsAnnotGenerateInput --> (annotationCreate --> annotationLoad))
+ * --> (buildDeferredIndexes)
  * <p>
  * Steps in () are optional
  */
 @Configuration
 @EnableBatchProcessing
-@Import({LoadVariantsStepConfiguration.class, LoadFileStepConfiguration.class, AnnotationFlowOptionalConfiguration.class})
+@Import({LoadVariantsStepConfiguration.class, LoadFileStepConfiguration.class, AnnotationFlowOptionalConfiguration.class,
+        BuildDeferredIndexesOptionalFlowConfiguration.class})
 public class AggregatedVcfJobConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(AggregatedVcfJobConfiguration.class);
@@ -70,6 +74,10 @@ public class AggregatedVcfJobConfiguration {
     @Qualifier(LOAD_FILE_STEP)
     private Step loadFileStep;
 
+    @Autowired
+    @Qualifier(BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW)
+    private Flow buildDeferredIndexesOptionalFlow;
+
     @Bean(AGGREGATED_VCF_JOB)
     @Scope("prototype")
     public Job aggregatedVcfJob(JobBuilderFactory jobBuilderFactory) {
@@ -83,6 +91,7 @@ public class AggregatedVcfJobConfiguration {
                 .flow(variantLoaderStep)
                 .next(loadFileStep)
                 .next(annotationFlowOptional)
+                .next(buildDeferredIndexesOptionalFlow)
                 .end();
 
         return builder.build();
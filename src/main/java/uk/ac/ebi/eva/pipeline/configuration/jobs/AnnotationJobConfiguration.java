@@ -31,16 +31,19 @@ import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 
 import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.AnnotationFlowConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.BuildDeferredIndexesOptionalFlowConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.NewJobIncrementer;
 import uk.ac.ebi.eva.pipeline.parameters.validation.job.AnnotationJobParametersValidator;
 
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.ANNOTATE_VARIANTS_JOB;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_FLOW;
 
 /**
  * Batch class to wire together:
  * 1) generateVepInputStep - Dump a list of variants without annotations and run VEP with them
  * 3) annotationLoadBatchStep - Load VEP annotations into mongo
+ * 4) (buildDeferredIndexesStep) - Build the indexes of the annotations if their creation was deferred
  * <p>
  * Optional flow: variantsAnnotGenerateInput --> (annotationLoad)
  * annotationLoad step is only executed if variantsAnnotGenerateInput is generating a
@@ -51,7 +54,7 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_FLOW
 
 @Configuration
 @EnableBatchProcessing
-@Import({AnnotationFlowConfiguration.class})
+@Import({AnnotationFlowConfiguration.class, BuildDeferredIndexesOptionalFlowConfiguration.class})
 public class AnnotationJobConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(AnnotationJobConfiguration.class);
@@ -60,6 +63,10 @@ public class AnnotationJobConfiguration {
     @Qualifier(VEP_ANNOTATION_FLOW)
     private Flow annotation;
 
+    @Autowired
+    @Qualifier(BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW)
+    private Flow buildDeferredIndexesOptionalFlow;
+
     @Bean(ANNOTATE_VARIANTS_JOB)
     @Scope("prototype")
     public Job annotateVariantsJob(JobBuilderFactory jobBuilderFactory) {
@@ -69,7 +76,7 @@ public class AnnotationJobConfiguration {
                 .get(ANNOTATE_VARIANTS_JOB)
                 .incrementer(new NewJobIncrementer())
                 .validator(new AnnotationJobParametersValidator());
-        return jobBuilder.start(annotation).build().build();
+        return jobBuilder.start(annotation).next(buildDeferredIndexesOptionalFlow).build().build();
     }
 
 }
@@ -32,29 +32,34 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Scope;
 
+import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.BuildDeferredIndexesOptionalFlowConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.LoadVariantsFlowConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.flows.ParallelStatisticsAndAnnotationFlowConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadFileStepConfiguration;
-import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadVariantsStepConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.NewJobIncrementer;
 import uk.ac.ebi.eva.pipeline.parameters.validation.job.GenotypedVcfJobParametersValidator;
 
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENOTYPED_VCF_JOB;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_FILE_STEP;
-import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARALLEL_STATISTICS_AND_ANNOTATION;
 
 /**
  * Complete pipeline workflow:
  * <p>
  * |--> (optionalStatisticsFlow: statsCreate --> statsLoad)
- * transform ---> load -+
+ * transform ---> load (partitioned or not) -+
  * |--> (optionalAnnotationFlow: variantsAnnotGenerateInput --> (annotationCreate --> annotationLoad))
  * <p>
+ * and finally, once both branches are finished, (buildDeferredIndexes) if the writers deferred the indexes.
+ * <p>
  * Steps in () are optional
  */
 @Configuration
 @EnableBatchProcessing
-@Import({LoadVariantsStepConfiguration.class, LoadFileStepConfiguration.class, ParallelStatisticsAndAnnotationFlowConfiguration.class})
+@Import({LoadVariantsFlowConfiguration.class, LoadFileStepConfiguration.class, ParallelStatisticsAndAnnotationFlowConfiguration.class,
+        BuildDeferredIndexesOptionalFlowConfiguration.class})
 public class GenotypedVcfJobConfiguration {
 
     private static final Logger logger = LoggerFactory.getLogger(GenotypedVcfJobConfiguration.class);
@@ -64,13 +69,17 @@ public class GenotypedVcfJobConfiguration {
     private Flow parallelStatisticsAndAnnotation;
 
     @Autowired
-    @Qualifier(LOAD_VARIANTS_STEP)
-    private Step variantLoaderStep;
+    @Qualifier(LOAD_VARIANTS_FLOW)
+    private Flow loadVariantsFlow;
 
     @Autowired
     @Qualifier(LOAD_FILE_STEP)
     private Step loadFileStep;
 
+    @Autowired
+    @Qualifier(BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW)
+    private Flow buildDeferredIndexesOptionalFlow;
+
     @Bean(GENOTYPED_VCF_JOB)
     @Scope("prototype")
     public Job genotypedVcfJob(JobBuilderFactory jobBuilderFactory) {
@@ -81,9 +90,10 @@ public class GenotypedVcfJobConfiguration {
                 .incrementer(new NewJobIncrementer())
                 .validator(new GenotypedVcfJobParametersValidator());
         FlowJobBuilder builder = jobBuilder
-                .flow(variantLoaderStep)
+                .start(loadVariantsFlow)
                 .next(loadFileStep)
                 .next(parallelStatisticsAndAnnotation)
+                .next(buildDeferredIndexesOptionalFlow)
                 .end();
 
         return builder.build();
@@ -20,37 +20,64 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.job.builder.FlowBuilder;
 import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
+import uk.ac.ebi.eva.pipeline.configuration.JobExecutionDeciderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.MergeVepAnnotationShardsStepConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.PartitionedGenerateVepAnnotationStepConfiguration;
 import uk.ac.ebi.eva.pipeline.jobs.deciders.EmptyVepOutputDecider;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadVepAnnotationStepConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.AnnotationMetadataStepConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.GenerateVepAnnotationStepConfiguration;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.PartitionedLoadDecider;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.SkipStepDecider;
 
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_FLOW;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_ANNOTATION_METADATA_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VEP_ANNOTATION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.MERGE_VEP_ANNOTATION_SHARDS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARTITIONED_GENERATE_VEP_ANNOTATION_STEP;
 import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_FLOW;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_PARTITION_DECIDER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_STREAMING_DECIDER;
 
 /**
  * Configuration class that describes flow process in the annotation process.
  * <p>
  * This flow generates a vep input file, then if this file contains results then it starts the annotation process.
  * In the case that the file is empty this flow process ends.
+ * <p>
+ * Depending on the 'config.annotation.partitions' parameter, the VEP output is generated in a single step, or by
+ * several partitions in parallel whose outputs are merged afterwards.
+ * <p>
+ * If the 'config.annotation.streaming' parameter is true, the annotations are loaded while they are generated, so the
+ * VEP output file is not loaded and the flow continues with the annotation metadata.
  */
 @Configuration
 @EnableBatchProcessing
-@Import({GenerateVepAnnotationStepConfiguration.class, LoadVepAnnotationStepConfiguration.class, AnnotationMetadataStepConfiguration.class})
+@Import({GenerateVepAnnotationStepConfiguration.class, PartitionedGenerateVepAnnotationStepConfiguration.class,
+        MergeVepAnnotationShardsStepConfiguration.class, LoadVepAnnotationStepConfiguration.class,
+        AnnotationMetadataStepConfiguration.class, JobExecutionDeciderConfiguration.class})
 public class AnnotationFlowConfiguration {
 
     @Autowired
     @Qualifier(GENERATE_VEP_ANNOTATION_STEP)
     private Step generateVepAnnotationStep;
 
+    @Autowired
+    @Qualifier(PARTITIONED_GENERATE_VEP_ANNOTATION_STEP)
+    private Step partitionedGenerateVepAnnotationStep;
+
+    @Autowired
+    @Qualifier(MERGE_VEP_ANNOTATION_SHARDS_STEP)
+    private Step mergeVepAnnotationShardsStep;
+
     @Autowired
     @Qualifier(LOAD_VEP_ANNOTATION_STEP)
     private Step annotationLoadStep;
@@ -59,13 +86,24 @@ public class AnnotationFlowConfiguration {
     @Qualifier(LOAD_ANNOTATION_METADATA_STEP)
     private Step annotationMetadataStep;
 
+    @Autowired
+    @Qualifier(VEP_ANNOTATION_PARTITION_DECIDER)
+    private JobExecutionDecider partitionDecider;
+
+    @Autowired
+    @Qualifier(VEP_ANNOTATION_STREAMING_DECIDER)
+    private JobExecutionDecider streamingDecider;
+
     @Bean(VEP_ANNOTATION_FLOW)
     public Flow vepAnnotationFlow() {
         EmptyVepOutputDecider emptyVepOutputDecider = new EmptyVepOutputDecider();
 
         return new FlowBuilder<Flow>(VEP_ANNOTATION_FLOW)
-                .start(generateVepAnnotationStep)
-                .next(emptyVepOutputDecider).on(EmptyVepOutputDecider.CONTINUE_FLOW)
+                .start(generateVepAnnotationFlow())
+                .next(streamingDecider).on(SkipStepDecider.SKIP_STEP)
+                .to(annotationMetadataStep)
+                .from(streamingDecider).on(SkipStepDecider.DO_STEP)
+                .to(emptyVepOutputDecider).on(EmptyVepOutputDecider.CONTINUE_FLOW)
                 .to(annotationLoadStep)
                 .next(annotationMetadataStep)
                 .from(emptyVepOutputDecider).on(EmptyVepOutputDecider.STOP_FLOW)
@@ -73,4 +111,15 @@ public class AnnotationFlowConfiguration {
                 .build();
     }
 
+    @Bean(GENERATE_VEP_ANNOTATION_FLOW)
+    public Flow generateVepAnnotationFlow() {
+        return new FlowBuilder<Flow>(GENERATE_VEP_ANNOTATION_FLOW)
+                .start(partitionDecider).on(PartitionedLoadDecider.NOT_PARTITIONED)
+                .to(generateVepAnnotationStep)
+                .from(partitionDecider).on(PartitionedLoadDecider.PARTITIONED)
+                .to(partitionedGenerateVepAnnotationStep)
+                .next(mergeVepAnnotationShardsStep)
+                .build();
+    }
+
 }
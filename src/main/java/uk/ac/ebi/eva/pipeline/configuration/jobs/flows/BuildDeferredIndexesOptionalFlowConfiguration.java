@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration.jobs.flows;
+
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import uk.ac.ebi.eva.pipeline.configuration.JobExecutionDeciderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.BuildDeferredIndexesStepConfiguration;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.SkipStepDecider;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.BUILD_DEFERRED_INDEXES_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.DEFER_INDEXES_DECIDER;
+
+/**
+ * Configuration that defines a flow that runs {@link BuildDeferredIndexesStepConfiguration} only when the property
+ * 'config.db.defer-indexes' is set to true. Otherwise the writers already created the indexes and the flow ends
+ * without executing any step.
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({BuildDeferredIndexesStepConfiguration.class, JobExecutionDeciderConfiguration.class})
+public class BuildDeferredIndexesOptionalFlowConfiguration {
+
+    @Bean(BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW)
+    public Flow buildDeferredIndexesOptionalFlow(@Qualifier(BUILD_DEFERRED_INDEXES_STEP) Step buildDeferredIndexesStep,
+                                                 @Qualifier(DEFER_INDEXES_DECIDER) JobExecutionDecider decider) {
+        // the decider returns SKIP_STEP when the indexes were deferred, meaning that the writers skipped them
+        return new FlowBuilder<Flow>(BUILD_DEFERRED_INDEXES_OPTIONAL_FLOW)
+                .start(decider).on(SkipStepDecider.SKIP_STEP)
+                .to(buildDeferredIndexesStep)
+                .from(decider).on(SkipStepDecider.DO_STEP)
+                .end(BatchStatus.COMPLETED.toString())
+                .build();
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration.jobs.flows;
+
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.job.builder.FlowBuilder;
+import org.springframework.batch.core.job.flow.Flow;
+import org.springframework.batch.core.job.flow.JobExecutionDecider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import uk.ac.ebi.eva.pipeline.configuration.JobExecutionDeciderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadVariantsStepConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.PartitionedLoadVariantsStepConfiguration;
+import uk.ac.ebi.eva.pipeline.jobs.deciders.PartitionedLoadDecider;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_FLOW;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITION_DECIDER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARTITIONED_LOAD_VARIANTS_STEP;
+
+/**
+ * Configuration class that defines the loading of the variants of a VCF.
+ * <p>
+ * The flow uses the partitionedLoadDecider to load the whole file in a single step, or to split it by contig and
+ * load the partitions in parallel, depending on the 'config.load.partitions' parameter.
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({LoadVariantsStepConfiguration.class, PartitionedLoadVariantsStepConfiguration.class,
+        JobExecutionDeciderConfiguration.class})
+public class LoadVariantsFlowConfiguration {
+
+    @Bean(LOAD_VARIANTS_FLOW)
+    public Flow loadVariantsFlow(@Qualifier(LOAD_VARIANTS_STEP) Step variantLoaderStep,
+                                 @Qualifier(PARTITIONED_LOAD_VARIANTS_STEP) Step partitionedVariantLoaderStep,
+                                 @Qualifier(LOAD_VARIANTS_PARTITION_DECIDER) JobExecutionDecider decider) {
+        return new FlowBuilder<Flow>(LOAD_VARIANTS_FLOW)
+                .start(decider).on(PartitionedLoadDecider.NOT_PARTITIONED)
+                .to(variantLoaderStep)
+                .from(decider).on(PartitionedLoadDecider.PARTITIONED)
+                .to(partitionedVariantLoaderStep)
+                .build();
+    }
+
+}
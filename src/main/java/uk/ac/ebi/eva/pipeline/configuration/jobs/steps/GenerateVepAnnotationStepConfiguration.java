@@ -21,8 +21,7 @@ import org.springframework.batch.core.Step;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
 import org.springframework.batch.item.ItemStreamReader;
-import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -33,6 +32,7 @@ import uk.ac.ebi.eva.pipeline.configuration.ChunkSizeCompletionPolicyConfigurati
 import uk.ac.ebi.eva.pipeline.configuration.io.readers.VariantsMongoReaderConfiguration;
 import uk.ac.ebi.eva.pipeline.configuration.io.writers.VepAnnotationFileWriterConfiguration;
 import uk.ac.ebi.eva.pipeline.io.readers.AnnotationFlatFileReader;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
 import uk.ac.ebi.eva.pipeline.listeners.StepProgressListener;
 import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
 import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
@@ -47,7 +47,8 @@ import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_WRIT
  * Input: mongo collection with the variants. Only non-annotated variants will be retrieved.
  * <p>
  * Output: file with the list of annotated variants, in a format written by VEP, readable with
- * {@link AnnotationFlatFileReader}
+ * {@link AnnotationFlatFileReader}. If the annotations are streamed, they are written into the database instead, and
+ * the file is only written if an audit copy was requested.
  */
 @Configuration
 @EnableBatchProcessing
@@ -63,11 +64,11 @@ public class GenerateVepAnnotationStepConfiguration {
 
     @Autowired
     @Qualifier(VEP_ANNOTATION_WRITER)
-    private ItemWriter<EnsemblVariant> vepAnnotationWriter;
+    private ItemStreamWriter<EnsemblVariant> vepAnnotationWriter;
 
     @Bean(GENERATE_VEP_ANNOTATION_STEP)
     public Step generateVepAnnotationStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
-            SimpleCompletionPolicy chunkSizeCompletionPolicy) {
+            AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy) {
         logger.debug("Building '" + GENERATE_VEP_ANNOTATION_STEP + "'");
 
         return stepBuilderFactory.get(GENERATE_VEP_ANNOTATION_STEP)
@@ -75,6 +76,7 @@ public class GenerateVepAnnotationStepConfiguration {
                 .reader(nonAnnotatedVariantsReader)
                 .writer(vepAnnotationWriter)
                 .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(chunkSizeCompletionPolicy)
                 .listener(new StepProgressListener())
                 .build();
     }
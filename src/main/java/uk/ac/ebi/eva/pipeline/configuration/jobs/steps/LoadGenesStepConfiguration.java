@@ -24,7 +24,6 @@ import org.springframework.batch.core.configuration.annotation.StepBuilderFactor
 import org.springframework.batch.item.ItemStreamReader;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.batch.item.file.FlatFileParseException;
-import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
@@ -37,6 +36,7 @@ import uk.ac.ebi.eva.pipeline.configuration.io.writers.GeneWriterConfiguration;
 import uk.ac.ebi.eva.pipeline.io.mappers.GeneLineMapper;
 import uk.ac.ebi.eva.pipeline.io.readers.GeneReader;
 import uk.ac.ebi.eva.pipeline.io.writers.GeneWriter;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
 import uk.ac.ebi.eva.pipeline.jobs.steps.processors.GeneFilterProcessor;
 import uk.ac.ebi.eva.pipeline.listeners.SkippedItemListener;
 import uk.ac.ebi.eva.pipeline.model.FeatureCoordinates;
@@ -76,7 +76,7 @@ public class LoadGenesStepConfiguration {
 
     @Bean(LOAD_GENES_STEP)
     public Step loadGenesStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
-                              SimpleCompletionPolicy chunkSizeCompletionPolicy) {
+                              AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy) {
         logger.debug("Building '" + LOAD_GENES_STEP + "'");
 
         return stepBuilderFactory.get(LOAD_GENES_STEP)
@@ -86,6 +86,7 @@ public class LoadGenesStepConfiguration {
                 .writer(writer)
                 .faultTolerant().skipLimit(50).skip(FlatFileParseException.class)
                 .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(chunkSizeCompletionPolicy)
                 .listener(new SkippedItemListener())
                 .build();
     }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration.jobs.steps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import uk.ac.ebi.eva.pipeline.configuration.ChunkSizeCompletionPolicyConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.io.readers.VariantsMongoReaderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.io.writers.VepAnnotationFileWriterConfiguration;
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VariantRegionPartitioner;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
+import uk.ac.ebi.eva.pipeline.listeners.StepProgressListener;
+import uk.ac.ebi.eva.pipeline.listeners.VepOutputShardCleanerListener;
+import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
+import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
+import uk.ac.ebi.eva.pipeline.parameters.PartitionParameters;
+
+import java.util.Map;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.GENERATE_VEP_ANNOTATION_PARTITION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARTITIONED_GENERATE_VEP_ANNOTATION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANTS_READER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_REGION_PARTITIONER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VEP_ANNOTATION_WRITER;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT_SHARD;
+
+/**
+ * Step that generates the variant annotations in parallel, splitting the variants by genomic range. Each partition
+ * runs the same reader and writer as {@link GenerateVepAnnotationStepConfiguration}, but only reads the variants of
+ * the ranges assigned to it by the {@link VariantRegionPartitioner}, and has its own VEP processes writing to its
+ * own shard of the VEP output.
+ * <p>
+ * Input: mongo collection with the variants. Only non-annotated variants will be retrieved.
+ * <p>
+ * Output: one file per partition with the annotated variants, that must be merged with
+ * {@link MergeVepAnnotationShardsStepConfiguration} before loading them
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({VariantsMongoReaderConfiguration.class, VepAnnotationFileWriterConfiguration.class,
+        ChunkSizeCompletionPolicyConfiguration.class})
+public class PartitionedGenerateVepAnnotationStepConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(
+            PartitionedGenerateVepAnnotationStepConfiguration.class);
+
+    @Autowired
+    @Qualifier(VARIANTS_READER)
+    private ItemStreamReader<EnsemblVariant> nonAnnotatedVariantsReader;
+
+    @Autowired
+    @Qualifier(VEP_ANNOTATION_WRITER)
+    private ItemStreamWriter<EnsemblVariant> vepAnnotationWriter;
+
+    @Bean(VARIANT_REGION_PARTITIONER)
+    @StepScope
+    public Partitioner variantRegionPartitioner(MongoOperations mongoOperations,
+                                                DatabaseParameters databaseParameters,
+                                                AnnotationParameters annotationParameters,
+                                                PartitionParameters partitionParameters) {
+        VariantRegionPartitioner partitioner = new VariantRegionPartitioner(
+                mongoOperations, databaseParameters.getCollectionVariantsName());
+        return gridSize -> {
+            Map<String, ExecutionContext> partitions = partitioner.partition(
+                    partitionParameters.getAnnotationPartitions());
+            for (int i = 0; i < partitions.size(); i++) {
+                partitions.get(VariantRegionPartitioner.PARTITION_PREFIX + i)
+                          .putString(VEP_OUTPUT_SHARD, annotationParameters.getVepOutputShard(i));
+            }
+            return partitions;
+        };
+    }
+
+    @Bean(PARTITIONED_GENERATE_VEP_ANNOTATION_STEP)
+    public Step partitionedGenerateVepAnnotationStep(
+            StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+            @Qualifier(VARIANT_REGION_PARTITIONER) Partitioner partitioner,
+            @Qualifier(GENERATE_VEP_ANNOTATION_PARTITION_STEP) Step partitionStep) {
+        logger.debug("Building '" + PARTITIONED_GENERATE_VEP_ANNOTATION_STEP + "'");
+
+        return stepBuilderFactory.get(PARTITIONED_GENERATE_VEP_ANNOTATION_STEP)
+                .partitioner(GENERATE_VEP_ANNOTATION_PARTITION_STEP, partitioner)
+                .step(partitionStep)
+                .taskExecutor(new SimpleAsyncTaskExecutor())
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .build();
+    }
+
+    @Bean(GENERATE_VEP_ANNOTATION_PARTITION_STEP)
+    public Step generateVepAnnotationPartitionStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                                   AnnotationParameters annotationParameters,
+                                                   AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy) {
+        logger.debug("Building '" + GENERATE_VEP_ANNOTATION_PARTITION_STEP + "'");
+
+        return stepBuilderFactory.get(GENERATE_VEP_ANNOTATION_PARTITION_STEP)
+                .<EnsemblVariant, EnsemblVariant>chunk(chunkSizeCompletionPolicy)
+                .reader(nonAnnotatedVariantsReader)
+                .writer(vepAnnotationWriter)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(chunkSizeCompletionPolicy)
+                .listener(new StepProgressListener())
+                .listener(new VepOutputShardCleanerListener(annotationParameters))
+                .build();
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration.jobs.steps;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
+import org.springframework.batch.core.configuration.annotation.StepBuilderFactory;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.partition.PartitionHandler;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.core.partition.support.TaskExecutorPartitionHandler;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.pipeline.configuration.ChunkSizeCompletionPolicyConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.io.readers.VcfReaderConfiguration;
+import uk.ac.ebi.eva.pipeline.configuration.io.writers.VariantWriterConfiguration;
+import uk.ac.ebi.eva.pipeline.jobs.steps.partitioners.VcfContigPartitioner;
+import uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy;
+import uk.ac.ebi.eva.pipeline.jobs.steps.processors.VariantNoAlternateFilterProcessor;
+import uk.ac.ebi.eva.pipeline.listeners.SkippedItemListener;
+import uk.ac.ebi.eva.pipeline.listeners.StepProgressListener;
+import uk.ac.ebi.eva.pipeline.listeners.VariantLoaderStepStatisticsListener;
+import uk.ac.ebi.eva.pipeline.parameters.InputParameters;
+import uk.ac.ebi.eva.pipeline.parameters.JobOptions;
+import uk.ac.ebi.eva.pipeline.parameters.PartitionParameters;
+
+import java.io.File;
+
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITION_HANDLER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.LOAD_VARIANTS_PARTITION_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.PARTITIONED_LOAD_VARIANTS_STEP;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_READER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VARIANT_WRITER;
+import static uk.ac.ebi.eva.pipeline.configuration.BeanNames.VCF_CONTIG_PARTITIONER;
+
+/**
+ * Step that loads the variants of a VCF in parallel, splitting the file by contig. Each partition runs the same
+ * reader, processor and writer than {@link LoadVariantsStepConfiguration}, but only parses the lines of the contigs
+ * assigned to it by the {@link VcfContigPartitioner}. If the VCF is bgzipped and indexed, each partition reads only
+ * the blocks of its contigs, using the index.
+ * <p>
+ * The number of partitions and of threads running them at the same time are both config.load.partitions.
+ * <p>
+ * Input: VCF file
+ * Output: variants loaded into mongodb
+ */
+@Configuration
+@EnableBatchProcessing
+@Import({VcfReaderConfiguration.class, VariantWriterConfiguration.class, ChunkSizeCompletionPolicyConfiguration.class})
+public class PartitionedLoadVariantsStepConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedLoadVariantsStepConfiguration.class);
+
+    @Autowired
+    @Qualifier(VARIANT_READER)
+    private ItemStreamReader<Variant> reader;
+
+    @Autowired
+    @Qualifier(VARIANT_WRITER)
+    private ItemWriter<Variant> variantWriter;
+
+    @Bean(VCF_CONTIG_PARTITIONER)
+    @StepScope
+    public Partitioner vcfContigPartitioner(InputParameters inputParameters) {
+        return new VcfContigPartitioner(new File(inputParameters.getVcf()));
+    }
+
+    /**
+     * The grid size and the concurrency limit depend on a job parameter, so the handler is built for each execution
+     * of the partitioned step.
+     */
+    @Bean(LOAD_VARIANTS_PARTITION_HANDLER)
+    @StepScope
+    public PartitionHandler loadVariantsPartitionHandler(PartitionParameters partitionParameters,
+                                                         @Qualifier(LOAD_VARIANTS_PARTITION_STEP) Step partitionStep) {
+        int partitions = partitionParameters.getPartitions();
+        SimpleAsyncTaskExecutor taskExecutor = new SimpleAsyncTaskExecutor(LOAD_VARIANTS_PARTITION_STEP + "-");
+        taskExecutor.setConcurrencyLimit(partitions);
+
+        TaskExecutorPartitionHandler partitionHandler = new TaskExecutorPartitionHandler();
+        partitionHandler.setStep(partitionStep);
+        partitionHandler.setTaskExecutor(taskExecutor);
+        partitionHandler.setGridSize(partitions);
+        return partitionHandler;
+    }
+
+    @Bean(PARTITIONED_LOAD_VARIANTS_STEP)
+    public Step partitionedLoadVariantsStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                            @Qualifier(VCF_CONTIG_PARTITIONER) Partitioner partitioner,
+                                            @Qualifier(LOAD_VARIANTS_PARTITION_HANDLER)
+                                                    PartitionHandler partitionHandler) {
+        logger.debug("Building '" + PARTITIONED_LOAD_VARIANTS_STEP + "'");
+
+        return stepBuilderFactory.get(PARTITIONED_LOAD_VARIANTS_STEP)
+                .partitioner(LOAD_VARIANTS_PARTITION_STEP, partitioner)
+                .partitionHandler(partitionHandler)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(new VariantLoaderStepStatisticsListener())
+                .build();
+    }
+
+    @Bean(LOAD_VARIANTS_PARTITION_STEP)
+    public Step loadVariantsPartitionStep(StepBuilderFactory stepBuilderFactory, JobOptions jobOptions,
+                                          AdaptiveChunkSizeCompletionPolicy chunkSizeCompletionPolicy) {
+        logger.debug("Building '" + LOAD_VARIANTS_PARTITION_STEP + "'");
+
+        return stepBuilderFactory.get(LOAD_VARIANTS_PARTITION_STEP)
+                .<Variant, Variant>chunk(chunkSizeCompletionPolicy)
+                .reader(reader)
+                .processor(new VariantNoAlternateFilterProcessor())
+                .writer(variantWriter)
+                .allowStartIfComplete(jobOptions.isAllowStartIfComplete())
+                .listener(chunkSizeCompletionPolicy)
+                .listener(new SkippedItemListener())
+                .listener(new StepProgressListener())
+                .build();
+    }
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a BGZF (blocked gzip, as written by bgzip) stream, inflating several blocks in parallel.
+ * <p>
+ * BGZF files are a series of independent gzip members of up to 64KB, each of them with its compressed size in the
+ * header. This allows reading the compressed blocks ahead and inflating them in a small thread pool, while the
+ * decompressed bytes are still returned in the same order as in the file.
+ * <p>
+ * Plain gzip files can't be split this way, use {@link java.util.zip.GZIPInputStream} for them (see
+ * {@link GzipLazyResource}).
+ */
+public class BgzfInputStream extends InputStream {
+
+    public static final int DEFAULT_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private static final int BLOCKS_AHEAD_PER_THREAD = 4;
+
+    public static final int BLOCK_HEADER_LENGTH = 18;
+
+    private static final int BLOCK_FOOTER_LENGTH = 8;
+
+    private static final int MAX_BLOCK_SIZE = 1 << 16;
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    private final InputStream compressed;
+
+    /**
+     * Channel of the compressed file, only when the stream was opened with {@link #open(File, long)}
+     */
+    private FileChannel channel;
+
+    private final ExecutorService executor;
+
+    private final int maxBlocksAhead;
+
+    private final Deque<Future<byte[]>> pendingBlocks;
+
+    private final Deque<Long> pendingBlockOffsets;
+
+    private long compressedPosition;
+
+    private long currentBlockOffset;
+
+    private long nextBlockOffset;
+
+    private boolean endOfCompressedInput;
+
+    private byte[] currentBlock;
+
+    private int positionInBlock;
+
+    public BgzfInputStream(InputStream compressed) {
+        this(compressed, DEFAULT_THREADS);
+    }
+
+    public BgzfInputStream(InputStream compressed, int threads) {
+        this.compressed = compressed;
+        int poolNumber = poolCount.incrementAndGet();
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "bgzf-inflater-" + poolNumber);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxBlocksAhead = threads * BLOCKS_AHEAD_PER_THREAD;
+        this.pendingBlocks = new ArrayDeque<>(maxBlocksAhead);
+        this.pendingBlockOffsets = new ArrayDeque<>(maxBlocksAhead);
+        this.compressedPosition = 0;
+        this.currentBlockOffset = 0;
+        this.nextBlockOffset = 0;
+        this.endOfCompressedInput = false;
+        this.currentBlock = new byte[0];
+        this.positionInBlock = 0;
+    }
+
+    /**
+     * Opens a BGZF file at a virtual file offset, as used in tabix and CSI indexes: the upper 48 bits are the offset
+     * of a compressed block in the file, and the lower 16 bits the offset inside the uncompressed block.
+     */
+    public static BgzfInputStream open(File file, long virtualOffset) throws IOException {
+        FileInputStream compressed = new FileInputStream(file);
+        BgzfInputStream bgzfInputStream = new BgzfInputStream(compressed);
+        bgzfInputStream.channel = compressed.getChannel();
+        try {
+            bgzfInputStream.seek(virtualOffset);
+        } catch (IOException | RuntimeException e) {
+            bgzfInputStream.close();
+            throw e;
+        }
+        return bgzfInputStream;
+    }
+
+    /**
+     * Moves to a virtual file offset, discarding the blocks read ahead. Only supported by the streams created with
+     * {@link #open(File, long)}, which keep the same inflater threads across seeks.
+     */
+    public void seek(long virtualOffset) throws IOException {
+        if (channel == null) {
+            throw new IOException("Seeking is only supported in BGZF streams opened from a file");
+        }
+        long blockOffset = virtualOffset >>> 16;
+        int offsetInBlock = (int) (virtualOffset & 0xffff);
+        if (blockOffset != currentBlockOffset || currentBlock.length == 0) {
+            for (Future<byte[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(false);
+            }
+            pendingBlocks.clear();
+            pendingBlockOffsets.clear();
+            channel.position(blockOffset);
+            compressedPosition = blockOffset;
+            nextBlockOffset = blockOffset;
+            endOfCompressedInput = false;
+            currentBlock = new byte[0];
+            positionInBlock = 0;
+            if (offsetInBlock > 0 && !fillCurrentBlock()) {
+                throw new IOException("Virtual offset " + virtualOffset + " is out of the BGZF file");
+            }
+        }
+        if (offsetInBlock > currentBlock.length) {
+            throw new IOException("Virtual offset " + virtualOffset + " is out of the BGZF block");
+        }
+        positionInBlock = offsetInBlock;
+    }
+
+    /**
+     * Checks whether the header of a gzip member contains the BGZF extra subfield ('BC', with the block size).
+     *
+     * @param header the first {@link #BLOCK_HEADER_LENGTH} bytes of the stream, or less if the stream is shorter
+     * @param length number of valid bytes in the header
+     */
+    public static boolean isBgzfHeader(byte[] header, int length) {
+        return length >= BLOCK_HEADER_LENGTH
+                && (header[0] & 0xff) == 31 && (header[1] & 0xff) == 139 && header[2] == 8
+                && (header[3] & 4) != 0
+                && readShort(header, 10) == 6
+                && header[12] == 'B' && header[13] == 'C'
+                && readShort(header, 14) == 2;
+    }
+
+    /**
+     * Returns the virtual file offset of the next byte to read, which can be used later to resume reading with
+     * {@link #open(File, long)}. The offsets are only meaningful if the stream was created at the start of the file
+     * or with {@link #open(File, long)}.
+     * <p>
+     * If the current block has been completely read, the next one is inflated, so the offset returned always points
+     * inside a block with data (or to the end of the file).
+     */
+    public long getVirtualOffset() throws IOException {
+        if (!fillCurrentBlock()) {
+            return nextBlockOffset << 16;
+        }
+        return (currentBlockOffset << 16) | positionInBlock;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillCurrentBlock()) {
+            return -1;
+        }
+        return currentBlock[positionInBlock++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (!fillCurrentBlock()) {
+            return -1;
+        }
+        int copied = Math.min(length, currentBlock.length - positionInBlock);
+        System.arraycopy(currentBlock, positionInBlock, buffer, offset, copied);
+        positionInBlock += copied;
+        return copied;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return currentBlock.length - positionInBlock;
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        pendingBlocks.clear();
+        pendingBlockOffsets.clear();
+        compressed.close();
+    }
+
+    /**
+     * @return false if there are no more bytes to read
+     */
+    private boolean fillCurrentBlock() throws IOException {
+        while (positionInBlock == currentBlock.length) {
+            submitBlocksAhead();
+            if (pendingBlocks.isEmpty()) {
+                return false;
+            }
+            currentBlock = waitForBlock(pendingBlocks.removeFirst());
+            currentBlockOffset = pendingBlockOffsets.removeFirst();
+            nextBlockOffset = pendingBlockOffsets.isEmpty() ? compressedPosition : pendingBlockOffsets.getFirst();
+            positionInBlock = 0;
+        }
+        return true;
+    }
+
+    private void submitBlocksAhead() throws IOException {
+        while (!endOfCompressedInput && pendingBlocks.size() < maxBlocksAhead) {
+            long blockOffset = compressedPosition;
+            byte[] block = readCompressedBlock();
+            if (block == null) {
+                endOfCompressedInput = true;
+            } else {
+                compressedPosition += block.length;
+                pendingBlocks.addLast(executor.submit(() -> inflate(block)));
+                pendingBlockOffsets.addLast(blockOffset);
+            }
+        }
+    }
+
+    private byte[] waitForBlock(Future<byte[]> futureBlock) throws IOException {
+        try {
+            return futureBlock.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while inflating a BGZF block", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not inflate a BGZF block", e.getCause());
+        }
+    }
+
+    /**
+     * @return the whole compressed block, including header and footer, or null if the stream ended
+     */
+    private byte[] readCompressedBlock() throws IOException {
+        byte[] header = new byte[BLOCK_HEADER_LENGTH];
+        int headerLength = readFully(header, 0, BLOCK_HEADER_LENGTH);
+        if (headerLength == 0) {
+            return null;
+        }
+        if (!isBgzfHeader(header, headerLength)) {
+            throw new IOException("Invalid BGZF block header");
+        }
+        int blockSize = readShort(header, 16) + 1;
+        byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, BLOCK_HEADER_LENGTH);
+        if (readFully(block, BLOCK_HEADER_LENGTH, blockSize - BLOCK_HEADER_LENGTH) < blockSize - BLOCK_HEADER_LENGTH) {
+            throw new EOFException("Truncated BGZF block");
+        }
+        return block;
+    }
+
+    private int readFully(byte[] buffer, int offset, int length) throws IOException {
+        int total = 0;
+        while (total < length) {
+            int read = compressed.read(buffer, offset + total, length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    static byte[] inflate(byte[] block) throws IOException {
+        int footerStart = block.length - BLOCK_FOOTER_LENGTH;
+        long expectedCrc = readInt(block, footerStart) & 0xffffffffL;
+        int uncompressedSize = readInt(block, footerStart + 4);
+        if (uncompressedSize < 0 || uncompressedSize > MAX_BLOCK_SIZE) {
+            throw new IOException("Invalid uncompressed size in BGZF block: " + uncompressedSize);
+        }
+
+        byte[] uncompressed = new byte[uncompressedSize];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, BLOCK_HEADER_LENGTH, footerStart - BLOCK_HEADER_LENGTH);
+            int inflated = 0;
+            while (inflated < uncompressedSize && !inflater.finished()) {
+                int count = inflater.inflate(uncompressed, inflated, uncompressedSize - inflated);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += count;
+            }
+            if (inflated != uncompressedSize) {
+                throw new IOException("BGZF block inflated to " + inflated + " bytes, expected " + uncompressedSize);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupted BGZF block", e);
+        } finally {
+            inflater.end();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(uncompressed, 0, uncompressedSize);
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("CRC mismatch in BGZF block");
+        }
+        return uncompressed;
+    }
+
+    private static int readShort(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xff) | ((buffer[offset + 1] & 0xff) << 8);
+    }
+
+    private static int readInt(byte[] buffer, int offset) {
+        return readShort(buffer, offset) | (readShort(buffer, offset + 2) << 16);
+    }
+}
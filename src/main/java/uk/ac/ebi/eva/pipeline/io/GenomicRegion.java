@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Region of a chromosome, with 1-based inclusive coordinates as in VCF files. A region written as "chrY" covers the
+ * whole chromosome, and one written as "20:1000-2000" covers positions 1000 to 2000 of chromosome 20.
+ */
+public class GenomicRegion {
+
+    private static final Pattern REGION_PATTERN = Pattern.compile("^([^:,\\s]+)(?::(\\d+)(?:-(\\d+))?)?$");
+
+    private final String chromosome;
+
+    private final int start;
+
+    private final int end;
+
+    public GenomicRegion(String chromosome, int start, int end) {
+        if (start < 1 || end < start) {
+            throw new IllegalArgumentException(
+                    "Invalid region " + chromosome + ":" + start + "-" + end + ", start must be between 1 and end");
+        }
+        this.chromosome = chromosome;
+        this.start = start;
+        this.end = end;
+    }
+
+    public GenomicRegion(String chromosome) {
+        this(chromosome, 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param region a region such as "20", "20:1000" (only that position) or "20:1000-2000"
+     */
+    public static GenomicRegion parse(String region) {
+        Matcher matcher = REGION_PATTERN.matcher(region.trim());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid region '" + region + "', the expected format is chr:start-end");
+        }
+        String chromosome = matcher.group(1);
+        if (matcher.group(2) == null) {
+            return new GenomicRegion(chromosome);
+        }
+        int start = Integer.parseInt(matcher.group(2));
+        int end = matcher.group(3) == null ? start : Integer.parseInt(matcher.group(3));
+        return new GenomicRegion(chromosome, start, end);
+    }
+
+    /**
+     * @param regions comma-separated list of regions
+     * @return the regions sorted by start and merged if they overlap, grouped by chromosome in order of appearance
+     */
+    public static List<GenomicRegion> parseList(String regions) {
+        Map<String, List<GenomicRegion>> regionsByChromosome = new LinkedHashMap<>();
+        for (String region : regions.split(",")) {
+            if (!region.trim().isEmpty()) {
+                GenomicRegion genomicRegion = parse(region);
+                regionsByChromosome.computeIfAbsent(genomicRegion.getChromosome(), c -> new ArrayList<>())
+                                   .add(genomicRegion);
+            }
+        }
+
+        List<GenomicRegion> merged = new ArrayList<>();
+        for (List<GenomicRegion> chromosomeRegions : regionsByChromosome.values()) {
+            Collections.sort(chromosomeRegions, Comparator.comparingInt(GenomicRegion::getStart));
+            GenomicRegion current = null;
+            for (GenomicRegion region : chromosomeRegions) {
+                if (current != null && region.getStart() <= current.getEnd()) {
+                    current = new GenomicRegion(current.chromosome, current.start, Math.max(current.end, region.end));
+                } else {
+                    if (current != null) {
+                        merged.add(current);
+                    }
+                    current = region;
+                }
+            }
+            merged.add(current);
+        }
+        return merged;
+    }
+
+    public String getChromosome() {
+        return chromosome;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+
+    /**
+     * @return whether the interval [start, end] of the same chromosome overlaps this region
+     */
+    public boolean overlaps(int start, int end) {
+        return start <= this.end && end >= this.start;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        GenomicRegion that = (GenomicRegion) o;
+        return start == that.start && end == that.end && chromosome.equals(that.chromosome);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = chromosome.hashCode();
+        result = 31 * result + start;
+        result = 31 * result + end;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return chromosome + ":" + start + "-" + end;
+    }
+}
@@ -17,6 +17,8 @@ package uk.ac.ebi.eva.pipeline.io;
 
 import org.springframework.core.io.FileSystemResource;
 
+import uk.ac.ebi.eva.utils.CompressionHelper;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,6 +31,9 @@ import java.util.zip.GZIPInputStream;
  * It's lazy because otherwise it will try to open the file on creation. The creation may be at the start of the
  * runtime if this class is used to create beans for autowiring, and at the start of the application it's
  * possible that the file doesn't exist yet.
+ * <p>
+ * Files compressed with bgzip are inflated in parallel with a {@link BgzfInputStream}; other gzip files are read
+ * with a regular {@link GZIPInputStream}.
  */
 public class GzipLazyResource extends FileSystemResource {
 
@@ -42,6 +47,9 @@ public class GzipLazyResource extends FileSystemResource {
 
     @Override
     public InputStream getInputStream() throws IOException {
+        if (CompressionHelper.isBgzf(getFile())) {
+            return new BgzfInputStream(super.getInputStream());
+        }
         return new GZIPInputStream(super.getInputStream());
     }
 
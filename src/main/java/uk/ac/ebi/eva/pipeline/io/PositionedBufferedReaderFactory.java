@@ -0,0 +1,226 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.springframework.batch.item.file.BufferedReaderFactory;
+import org.springframework.core.io.Resource;
+
+import uk.ac.ebi.eva.utils.CompressionHelper;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Creates readers that know the position in the file of the next line to read, and that can start reading at one of
+ * those positions. This allows restarting the reading of a big compressed file without inflating it from the start.
+ * <p>
+ * The position depends on the compression of the file:
+ * <ul>
+ * <li>bgzip: BGZF virtual file offset, so the reading resumes at the right block with random access.</li>
+ * <li>plain gzip: offset in the uncompressed data. Gzip can't seek: the inflater state can't be restored in the
+ * middle of a member with java.util.zip, so all the data before the position is inflated again and discarded. Only
+ * splitting it in lines is saved.</li>
+ * <li>uncompressed: offset in the file, which is resumed with random access.</li>
+ * </ul>
+ * Only {@link BufferedReader#readLine()} and {@link BufferedReader#close()} are supported in the readers, which is
+ * what {@link org.springframework.batch.item.file.FlatFileItemReader} uses.
+ */
+public class PositionedBufferedReaderFactory implements BufferedReaderFactory {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private long startPosition;
+
+    private PositionedBufferedReader lastReader;
+
+    public PositionedBufferedReaderFactory() {
+        this.startPosition = 0;
+    }
+
+    /**
+     * @param startPosition position returned by {@link #getPosition()}, where the next reader created will start
+     */
+    public void setStartPosition(long startPosition) {
+        this.startPosition = startPosition;
+    }
+
+    /**
+     * @return position of the next line in the last reader created, or -1 if no reader has been created or it was
+     * closed
+     */
+    public long getPosition() throws IOException {
+        return lastReader == null ? -1 : lastReader.getPosition();
+    }
+
+    @Override
+    public BufferedReader create(Resource resource, String encoding) throws IOException {
+        InputStream inputStream;
+        if (startPosition > 0) {
+            inputStream = openAt(resource.getFile(), startPosition);
+        } else {
+            inputStream = resource.getInputStream();
+        }
+        lastReader = new PositionedBufferedReader(inputStream, Charset.forName(encoding), startPosition);
+        return lastReader;
+    }
+
+    private static InputStream openAt(File file, long position) throws IOException {
+        if (CompressionHelper.isBgzf(file)) {
+            return BgzfInputStream.open(file, position);
+        }
+        if (CompressionHelper.isGzip(file)) {
+            InputStream inputStream = new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE);
+            skipFully(inputStream, position);
+            return inputStream;
+        }
+        FileInputStream inputStream = new FileInputStream(file);
+        inputStream.getChannel().position(position);
+        return inputStream;
+    }
+
+    private static void skipFully(InputStream inputStream, long bytes) throws IOException {
+        byte[] discarded = new byte[BUFFER_SIZE];
+        long remaining = bytes;
+        while (remaining > 0) {
+            int read = inputStream.read(discarded, 0, (int) Math.min(discarded.length, remaining));
+            if (read < 0) {
+                inputStream.close();
+                throw new EOFException("Position " + bytes + " is beyond the end of the file");
+            }
+            remaining -= read;
+        }
+    }
+
+    private static class PositionedBufferedReader extends BufferedReader {
+
+        private final InputStream inputStream;
+
+        private final BgzfInputStream bgzfInputStream;
+
+        private final Charset charset;
+
+        private final byte[] buffer;
+
+        private int bufferPosition;
+
+        private int bufferLimit;
+
+        /** Position in the file of the first byte in the buffer */
+        private long bufferStart;
+
+        /** Bytes read from the stream, plus the start position */
+        private long streamPosition;
+
+        private byte[] line;
+
+        private boolean closed;
+
+        PositionedBufferedReader(InputStream inputStream, Charset charset, long startPosition) {
+            super(new StringReader(""), 1);
+            this.inputStream = inputStream;
+            this.bgzfInputStream = inputStream instanceof BgzfInputStream ? (BgzfInputStream) inputStream : null;
+            this.charset = charset;
+            this.buffer = new byte[BUFFER_SIZE];
+            this.bufferPosition = 0;
+            this.bufferLimit = 0;
+            this.bufferStart = startPosition;
+            this.streamPosition = startPosition;
+            this.line = new byte[BUFFER_SIZE];
+            this.closed = false;
+        }
+
+        long getPosition() throws IOException {
+            if (closed) {
+                return -1;
+            }
+            if (bufferPosition < bufferLimit) {
+                return bufferStart + bufferPosition;
+            }
+            return bgzfInputStream != null ? bgzfInputStream.getVirtualOffset() : streamPosition;
+        }
+
+        @Override
+        public String readLine() throws IOException {
+            int lineLength = 0;
+            boolean endOfLine = false;
+            while (!endOfLine) {
+                if (bufferPosition == bufferLimit && !fillBuffer()) {
+                    if (lineLength == 0) {
+                        return null;
+                    }
+                    break;
+                }
+                int end = bufferPosition;
+                while (end < bufferLimit && buffer[end] != '\n') {
+                    end++;
+                }
+                int length = end - bufferPosition;
+                if (lineLength + length > line.length) {
+                    line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + length));
+                }
+                System.arraycopy(buffer, bufferPosition, line, lineLength, length);
+                lineLength += length;
+                endOfLine = end < bufferLimit;
+                bufferPosition = endOfLine ? end + 1 : end;
+            }
+            if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                lineLength--;
+            }
+            return new String(line, 0, lineLength, charset);
+        }
+
+        /**
+         * A read from a BGZF stream never crosses the end of a block, so the virtual offset of every byte in the
+         * buffer is the offset of the first one plus its index.
+         */
+        private boolean fillBuffer() throws IOException {
+            bufferStart = bgzfInputStream != null ? bgzfInputStream.getVirtualOffset() : streamPosition;
+            bufferPosition = 0;
+            bufferLimit = 0;
+            int read = inputStream.read(buffer, 0, buffer.length);
+            if (read < 0) {
+                return false;
+            }
+            bufferLimit = read;
+            streamPosition += read;
+            return true;
+        }
+
+        @Override
+        public int read() {
+            throw new UnsupportedOperationException("Only whole lines can be read");
+        }
+
+        @Override
+        public int read(char[] chars, int offset, int length) {
+            throw new UnsupportedOperationException("Only whole lines can be read");
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Index of a BGZF-compressed VCF, read from a tabix (.tbi) or CSI (.csi) file, that tells where to start reading the
+ * records of a region.
+ * <p>
+ * Both formats use the same binning scheme: the genome is split into bins of decreasing size, each of them with the
+ * chunks of the file (pairs of BGZF virtual offsets) that contain records overlapping the bin. Tabix uses a fixed
+ * scheme (bins of 16Kb to 512Mb) plus a linear index, and CSI allows a configurable minimum bin size and depth.
+ * See the specifications in https://samtools.github.io/hts-specs/
+ */
+public class TabixIndex {
+
+    public static final String TABIX_EXTENSION = ".tbi";
+
+    public static final String CSI_EXTENSION = ".csi";
+
+    private static final int TABIX_MIN_SHIFT = 14;
+
+    private static final int TABIX_DEPTH = 5;
+
+    private static final int TABIX_MAGIC = 0x01494254; // "TBI\1"
+
+    private static final int CSI_MAGIC = 0x01495343; // "CSI\1"
+
+    private final int minShift;
+
+    private final int depth;
+
+    private final Map<String, Integer> sequenceIds;
+
+    private final List<ReferenceIndex> references;
+
+    private TabixIndex(int minShift, int depth, Map<String, Integer> sequenceIds, List<ReferenceIndex> references) {
+        this.minShift = minShift;
+        this.depth = depth;
+        this.sequenceIds = sequenceIds;
+        this.references = references;
+    }
+
+    /**
+     * @return the .tbi or .csi index next to the file, or null if there is none
+     */
+    public static File findIndex(File file) {
+        for (String extension : new String[]{TABIX_EXTENSION, CSI_EXTENSION}) {
+            File index = new File(file.getPath() + extension);
+            if (index.isFile()) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    public static TabixIndex read(File indexFile) throws IOException {
+        ByteBuffer buffer;
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(indexFile))) {
+            buffer = ByteBuffer.wrap(readAll(inputStream)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int magic = buffer.getInt();
+        if (magic == TABIX_MAGIC) {
+            return readTabix(buffer);
+        } else if (magic == CSI_MAGIC) {
+            return readCsi(buffer);
+        }
+        throw new IOException("File " + indexFile + " is not a tabix nor CSI index");
+    }
+
+    private static TabixIndex readTabix(ByteBuffer buffer) {
+        int numberOfReferences = buffer.getInt();
+        Map<String, Integer> sequenceIds = readSequenceNames(buffer);
+        List<ReferenceIndex> references = new ArrayList<>(numberOfReferences);
+        for (int i = 0; i < numberOfReferences; i++) {
+            ReferenceIndex reference = new ReferenceIndex();
+            int numberOfBins = buffer.getInt();
+            for (int j = 0; j < numberOfBins; j++) {
+                int bin = buffer.getInt();
+                reference.bins.put(bin, readChunks(buffer));
+            }
+            int numberOfIntervals = buffer.getInt();
+            reference.linearIndex = new long[numberOfIntervals];
+            for (int j = 0; j < numberOfIntervals; j++) {
+                reference.linearIndex[j] = buffer.getLong();
+            }
+            references.add(reference);
+        }
+        return new TabixIndex(TABIX_MIN_SHIFT, TABIX_DEPTH, sequenceIds, references);
+    }
+
+    private static TabixIndex readCsi(ByteBuffer buffer) {
+        int minShift = buffer.getInt();
+        int depth = buffer.getInt();
+        int auxiliaryLength = buffer.getInt();
+        int auxiliaryEnd = buffer.position() + auxiliaryLength;
+        Map<String, Integer> sequenceIds = auxiliaryLength > 0 ? readSequenceNames(buffer) : new HashMap<>();
+        buffer.position(auxiliaryEnd);
+
+        int numberOfReferences = buffer.getInt();
+        List<ReferenceIndex> references = new ArrayList<>(numberOfReferences);
+        for (int i = 0; i < numberOfReferences; i++) {
+            ReferenceIndex reference = new ReferenceIndex();
+            int numberOfBins = buffer.getInt();
+            for (int j = 0; j < numberOfBins; j++) {
+                int bin = buffer.getInt();
+                reference.binOffsets.put(bin, buffer.getLong());
+                reference.bins.put(bin, readChunks(buffer));
+            }
+            references.add(reference);
+        }
+        return new TabixIndex(minShift, depth, sequenceIds, references);
+    }
+
+    /**
+     * Reads the tabix header (format, columns, meta character, lines to skip) and keeps only the sequence names.
+     */
+    private static Map<String, Integer> readSequenceNames(ByteBuffer buffer) {
+        buffer.position(buffer.position() + 6 * Integer.BYTES);
+        int namesLength = buffer.getInt();
+        byte[] names = new byte[namesLength];
+        buffer.get(names);
+
+        Map<String, Integer> sequenceIds = new HashMap<>();
+        int nameStart = 0;
+        for (int i = 0; i < namesLength; i++) {
+            if (names[i] == 0) {
+                sequenceIds.put(new String(names, nameStart, i - nameStart, StandardCharsets.US_ASCII),
+                                sequenceIds.size());
+                nameStart = i + 1;
+            }
+        }
+        return sequenceIds;
+    }
+
+    private static long[] readChunks(ByteBuffer buffer) {
+        int numberOfChunks = buffer.getInt();
+        long[] chunks = new long[numberOfChunks * 2];
+        for (int k = 0; k < chunks.length; k++) {
+            chunks[k] = buffer.getLong();
+        }
+        return chunks;
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        int read;
+        while ((read = inputStream.read(buffer)) > 0) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @return the names of the sequences in the index, in the same order as in the file
+     */
+    public List<String> getSequenceNames() {
+        List<String> sequenceNames = new ArrayList<>(sequenceIds.keySet());
+        sequenceNames.sort(Comparator.comparingInt(sequenceIds::get));
+        return sequenceNames;
+    }
+
+    public boolean containsSequence(String sequence) {
+        return sequenceIds.containsKey(sequence);
+    }
+
+    /**
+     * @return the position of the sequence in the file, to read several regions in the same order as the file
+     */
+    public int getSequenceId(String sequence) {
+        Integer id = sequenceIds.get(sequence);
+        return id == null ? Integer.MAX_VALUE : id;
+    }
+
+    /**
+     * Finds the virtual offset where to start reading the records of a region. Records before the region may also
+     * be found from there, but no record overlapping the region appears before that offset.
+     *
+     * @return the BGZF virtual offset, or -1 if the index has no records overlapping the region
+     */
+    public long getStartOffset(GenomicRegion region) {
+        Integer sequenceId = sequenceIds.get(region.getChromosome());
+        if (sequenceId == null || sequenceId >= references.size()) {
+            return -1;
+        }
+        ReferenceIndex reference = references.get(sequenceId);
+        long maxPosition = (1L << (minShift + 3 * depth)) - 1;
+        long begin = Math.min(region.getStart() - 1, maxPosition);
+        long end = Math.min(region.getEnd(), maxPosition + 1);
+
+        long minimumOffset = getMinimumOffset(reference, begin);
+        long startOffset = Long.MAX_VALUE;
+        for (int bin : overlappingBins(begin, end)) {
+            long[] chunks = reference.bins.get(bin);
+            if (chunks != null) {
+                for (int k = 0; k < chunks.length; k += 2) {
+                    if (Long.compareUnsigned(chunks[k + 1], minimumOffset) > 0
+                            && Long.compareUnsigned(chunks[k], startOffset) < 0) {
+                        startOffset = chunks[k];
+                    }
+                }
+            }
+        }
+        if (startOffset == Long.MAX_VALUE) {
+            return -1;
+        }
+        return Long.compareUnsigned(startOffset, minimumOffset) < 0 ? minimumOffset : startOffset;
+    }
+
+    /**
+     * Lower bound of the offsets of records overlapping a position: the linear index in tabix, or the offset of the
+     * smallest bin containing the position in CSI.
+     */
+    private long getMinimumOffset(ReferenceIndex reference, long position) {
+        if (reference.linearIndex != null) {
+            if (reference.linearIndex.length == 0) {
+                return 0;
+            }
+            int window = (int) Math.min(position >> minShift, reference.linearIndex.length - 1);
+            return reference.linearIndex[window];
+        }
+        int bin = firstBinOfLevel(depth) + (int) (position >> minShift);
+        while (bin > 0 && !reference.binOffsets.containsKey(bin)) {
+            bin = (bin - 1) >> 3;
+        }
+        Long offset = reference.binOffsets.get(bin);
+        return offset == null ? 0 : offset;
+    }
+
+    /**
+     * Bins overlapping the 0-based, half-open interval [begin, end), from the biggest to the smallest.
+     */
+    List<Integer> overlappingBins(long begin, long end) {
+        List<Integer> bins = new ArrayList<>();
+        long last = end - 1;
+        int shift = minShift + 3 * depth;
+        for (int level = 0; level <= depth; level++, shift -= 3) {
+            int firstBin = firstBinOfLevel(level);
+            for (int bin = firstBin + (int) (begin >> shift); bin <= firstBin + (int) (last >> shift); bin++) {
+                bins.add(bin);
+            }
+        }
+        return bins;
+    }
+
+    private static int firstBinOfLevel(int level) {
+        return ((1 << (3 * level)) - 1) / 7;
+    }
+
+    private static class ReferenceIndex {
+
+        private final Map<Integer, long[]> bins = new HashMap<>();
+
+        private final Map<Integer, Long> binOffsets = new HashMap<>();
+
+        private long[] linearIndex;
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+
+import uk.ac.ebi.eva.utils.CompressionHelper;
+import uk.ac.ebi.eva.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VCF file resource that only returns the records overlapping some regions (header lines are not returned).
+ * <p>
+ * If the file is compressed with bgzip and there is a tabix (.tbi) or CSI (.csi) index next to it, the reading
+ * starts directly at the offsets given by the index for each region, and stops as soon as a record beyond the region
+ * is found, so only the blocks of the file that contain the regions are decompressed. Otherwise, the whole file is
+ * read and the records are filtered.
+ * <p>
+ * Chromosome names are compared ignoring a "chr" prefix, in the same way as {@link
+ * uk.ac.ebi.eva.pipeline.io.mappers.VariantVcfFactory} does when it parses the records.
+ */
+public class VcfRegionsResource extends FileSystemResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(VcfRegionsResource.class);
+
+    private final List<GenomicRegion> regions;
+
+    public VcfRegionsResource(File file, List<GenomicRegion> regions) {
+        super(file);
+        this.regions = regions;
+    }
+
+    public List<GenomicRegion> getRegions() {
+        return regions;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        File indexFile = TabixIndex.findIndex(getFile());
+        if (indexFile != null && CompressionHelper.isBgzf(getFile())) {
+            logger.debug("Reading regions {} of {} using the index {}", regions, getFile(), indexFile);
+            return new IndexedRegionsInputStream(getFile(), TabixIndex.read(indexFile), regions);
+        }
+        logger.warn("There is no tabix or CSI index for {}, the whole file will be read to select the regions {}",
+                    getFile(), regions);
+        return new FilteredRegionsInputStream(FileUtils.getResource(getFile()).getInputStream(), regions);
+    }
+
+    private static String withoutChrPrefix(String chromosome) {
+        String prefix = "chr";
+        if (chromosome.regionMatches(true, 0, prefix, 0, prefix.length())) {
+            return chromosome.substring(prefix.length());
+        }
+        return chromosome;
+    }
+
+    /**
+     * Location of a VCF record: the chromosome, and the first and last positions of the reference allele.
+     */
+    private static class RecordLocation {
+
+        private final String chromosome;
+
+        private final int start;
+
+        private final int end;
+
+        private RecordLocation(String chromosome, int start, int end) {
+            this.chromosome = chromosome;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the location of the record, or null if the line is a header or doesn't have enough columns
+         */
+        static RecordLocation parse(String line) {
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                return null;
+            }
+            int chromosomeEnd = line.indexOf('\t');
+            int positionEnd = chromosomeEnd < 0 ? -1 : line.indexOf('\t', chromosomeEnd + 1);
+            int idEnd = positionEnd < 0 ? -1 : line.indexOf('\t', positionEnd + 1);
+            int referenceEnd = idEnd < 0 ? -1 : line.indexOf('\t', idEnd + 1);
+            if (referenceEnd < 0) {
+                return null;
+            }
+            int start = Integer.parseInt(line.substring(chromosomeEnd + 1, positionEnd));
+            int referenceLength = referenceEnd - idEnd - 1;
+            return new RecordLocation(withoutChrPrefix(line.substring(0, chromosomeEnd)), start,
+                                      start + Math.max(referenceLength, 1) - 1);
+        }
+    }
+
+    /**
+     * Stream of the lines selected by {@link #nextSelectedLine()}, each of them followed by a new line character.
+     */
+    private abstract static class SelectedLinesInputStream extends InputStream {
+
+        private byte[] line = new byte[0];
+
+        private int position = 0;
+
+        /**
+         * @return the next line to return, or null if there are no more
+         */
+        protected abstract String nextSelectedLine() throws IOException;
+
+        @Override
+        public int read() throws IOException {
+            if (!fillLine()) {
+                return -1;
+            }
+            return line[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fillLine()) {
+                return -1;
+            }
+            int copied = Math.min(length, line.length - position);
+            System.arraycopy(line, position, buffer, offset, copied);
+            position += copied;
+            return copied;
+        }
+
+        private boolean fillLine() throws IOException {
+            while (position == line.length) {
+                String nextLine = nextSelectedLine();
+                if (nextLine == null) {
+                    return false;
+                }
+                // ISO-8859-1 maps every byte to a char and back, so the original bytes are returned unchanged
+                line = (nextLine + "\n").getBytes(StandardCharsets.ISO_8859_1);
+                position = 0;
+            }
+            return true;
+        }
+
+        protected static BufferedReader newReader(InputStream inputStream) {
+            return new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /**
+     * Reads the whole file and returns the records overlapping any of the regions.
+     */
+    private static class FilteredRegionsInputStream extends SelectedLinesInputStream {
+
+        private final BufferedReader reader;
+
+        private final Map<String, List<GenomicRegion>> regionsByChromosome;
+
+        FilteredRegionsInputStream(InputStream inputStream, List<GenomicRegion> regions) {
+            this.reader = newReader(inputStream);
+            this.regionsByChromosome = new HashMap<>();
+            for (GenomicRegion region : regions) {
+                regionsByChromosome.computeIfAbsent(withoutChrPrefix(region.getChromosome()),
+                                                    chromosome -> new ArrayList<>()).add(region);
+            }
+        }
+
+        @Override
+        protected String nextSelectedLine() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                RecordLocation location = RecordLocation.parse(line);
+                if (location != null && overlapsAnyRegion(location)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        private boolean overlapsAnyRegion(RecordLocation location) {
+            List<GenomicRegion> chromosomeRegions = regionsByChromosome.get(location.chromosome);
+            if (chromosomeRegions != null) {
+                for (GenomicRegion region : chromosomeRegions) {
+                    if (region.overlaps(location.start, location.end)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Seeks to the start of each region using the index, and reads until the first record after the region.
+     * <p>
+     * The regions are sorted and merged when they overlap or touch, so that no record is read twice. A record
+     * spanning two merged regions is still found from both, so it is returned only for the first one.
+     */
+    private static class IndexedRegionsInputStream extends SelectedLinesInputStream {
+
+        private final File file;
+
+        private final List<IndexedRegion> regions;
+
+        private int currentRegion;
+
+        private BgzfInputStream bgzfInputStream;
+
+        private BufferedReader reader;
+
+        IndexedRegionsInputStream(File file, TabixIndex index, List<GenomicRegion> regions) {
+            this.file = file;
+            this.regions = new ArrayList<>();
+            for (GenomicRegion region : regions) {
+                String indexedName = getIndexedName(index, region.getChromosome());
+                if (indexedName == null) {
+                    logger.warn("Chromosome {} is not in the index of {}", region.getChromosome(), file);
+                    continue;
+                }
+                GenomicRegion indexedRegion = new GenomicRegion(indexedName, region.getStart(), region.getEnd());
+                long offset = index.getStartOffset(indexedRegion);
+                if (offset >= 0) {
+                    this.regions.add(new IndexedRegion(region, index.getSequenceId(indexedName), offset));
+                }
+            }
+            // read the regions in the same order as the records are in the file
+            this.regions.sort(Comparator.comparingInt((IndexedRegion r) -> r.sequenceId)
+                                        .thenComparingInt(r -> r.region.getStart()));
+            mergeRegions(this.regions);
+            this.currentRegion = -1;
+        }
+
+        /**
+         * Merges the sorted regions of the same sequence that overlap or are next to each other.
+         */
+        private static void mergeRegions(List<IndexedRegion> regions) {
+            List<IndexedRegion> merged = new ArrayList<>();
+            for (IndexedRegion region : regions) {
+                IndexedRegion last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && last.sequenceId == region.sequenceId
+                        && region.region.getStart() <= (long) last.region.getEnd() + 1) {
+                    GenomicRegion union = new GenomicRegion(last.region.getChromosome(), last.region.getStart(),
+                                                            Math.max(last.region.getEnd(), region.region.getEnd()));
+                    merged.set(merged.size() - 1, new IndexedRegion(union, last.sequenceId,
+                                                                    Math.min(last.offset, region.offset)));
+                } else {
+                    merged.add(region);
+                }
+            }
+            regions.clear();
+            regions.addAll(merged);
+        }
+
+        private static String getIndexedName(TabixIndex index, String chromosome) {
+            for (String name : new String[]{chromosome, "chr" + chromosome, withoutChrPrefix(chromosome)}) {
+                if (index.containsSequence(name)) {
+                    return name;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        protected String nextSelectedLine() throws IOException {
+            while (true) {
+                if (reader == null && !openNextRegion()) {
+                    return null;
+                }
+                IndexedRegion indexedRegion = regions.get(currentRegion);
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    RecordLocation location = RecordLocation.parse(line);
+                    if (location == null) {
+                        continue;
+                    }
+                    if (!location.chromosome.equals(withoutChrPrefix(indexedRegion.region.getChromosome()))
+                            || location.start > indexedRegion.region.getEnd()) {
+                        break;
+                    }
+                    if (indexedRegion.region.overlaps(location.start, location.end)
+                            && !startsInPreviousRegion(location)) {
+                        return line;
+                    }
+                }
+                reader = null;
+            }
+        }
+
+        /**
+         * The regions don't overlap, so a record that starts before the end of the previous region of the same
+         * sequence overlaps that region or spans it, and has already been returned.
+         */
+        private boolean startsInPreviousRegion(RecordLocation location) {
+            if (currentRegion == 0) {
+                return false;
+            }
+            IndexedRegion previous = regions.get(currentRegion - 1);
+            return previous.sequenceId == regions.get(currentRegion).sequenceId
+                    && location.start <= previous.region.getEnd();
+        }
+
+        private boolean openNextRegion() throws IOException {
+            currentRegion++;
+            if (currentRegion >= regions.size()) {
+                return false;
+            }
+            long offset = regions.get(currentRegion).offset;
+            if (bgzfInputStream == null) {
+                bgzfInputStream = BgzfInputStream.open(file, offset);
+            } else {
+                bgzfInputStream.seek(offset);
+            }
+            // the previous reader may have buffered lines from before the seek
+            reader = newReader(bgzfInputStream);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader = null;
+            if (bgzfInputStream != null) {
+                bgzfInputStream.close();
+                bgzfInputStream = null;
+            }
+        }
+    }
+
+    private static class IndexedRegion {
+
+        private final GenomicRegion region;
+
+        private final int sequenceId;
+
+        private final long offset;
+
+        IndexedRegion(GenomicRegion region, int sequenceId, long offset) {
+            this.region = region;
+            this.sequenceId = sequenceId;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * On-disk cache of the annotations written by VEP, shared by all the jobs that use the same VEP and VEP cache
+ * versions, so that the variants already annotated in any study or database are not sent to VEP again.
+ * <p>
+ * The annotations are stored in gzipped files of {@link #BIN_SIZE} bases, in
+ * {@code <cache root>/<VEP version>_<VEP cache version>/<chromosome>/<bin>.tsv.gz}. Each line has the end of the
+ * variant and its number of annotations, followed by a line of the VEP output, whose first column identifies the
+ * variant. The annotations of a variant are stored together, in consecutive lines. The files are only
+ * appended, one complete gzip member at a time, while holding an exclusive lock of the file, so several partitions or
+ * jobs can use the same cache. Only the last {@link #LOADED_BINS} bins read are kept in memory, which is efficient
+ * when the variants are annotated in genomic order.
+ * <p>
+ * The variants that VEP doesn't annotate are not stored, so they are sent to VEP every time.
+ */
+public class VepAnnotationCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepAnnotationCache.class);
+
+    static final int BIN_SIZE = 1000000;
+
+    private static final int LOADED_BINS = 8;
+
+    private static final String BIN_SUFFIX = ".tsv.gz";
+
+    private static final String HEADER_FILE = "header.txt";
+
+    private static final boolean APPEND = true;
+
+    /**
+     * A file can only be locked once per JVM, so the threads of this JVM are synchronized on these objects before
+     * locking a file
+     */
+    private static final Map<String, Object> fileMonitors = new ConcurrentHashMap<>();
+
+    private final File directory;
+
+    private final Map<File, Map<String, List<String>>> loadedBins;
+
+    private List<String> header;
+
+    private long hits;
+
+    private long misses;
+
+    public VepAnnotationCache(String cacheRoot, String vepVersion, String vepCacheVersion) {
+        this.directory = new File(cacheRoot, encode(vepVersion + "_" + vepCacheVersion));
+        this.loadedBins = new LinkedHashMap<File, Map<String, List<String>>>(LOADED_BINS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, Map<String, List<String>>> eldest) {
+                return size() > LOADED_BINS;
+            }
+        };
+    }
+
+    /**
+     * Annotates the variants that are not in the cache with the annotator provided, and stores its annotations.
+     *
+     * @param variantLines variants in VEP input format, without line separators
+     * @param annotator annotates a list of variants in VEP input format, returning the VEP output without header
+     * @return annotations of all the variants, grouped by variant in the same order as the variants
+     */
+    public List<String> annotate(List<String> variantLines, Function<List<String>, List<String>> annotator) {
+        List<List<String>> cachedAnnotations = new ArrayList<>(variantLines.size());
+        List<String> missingVariantLines = new ArrayList<>();
+        for (String variantLine : variantLines) {
+            List<String> annotations = get(new CachedVariant(variantLine));
+            cachedAnnotations.add(annotations);
+            if (annotations == null) {
+                missingVariantLines.add(variantLine);
+            }
+        }
+        hits += variantLines.size() - missingVariantLines.size();
+        misses += missingVariantLines.size();
+        if (missingVariantLines.isEmpty()) {
+            return concatenate(cachedAnnotations);
+        }
+
+        Map<String, List<String>> newAnnotationsById = groupById(annotator.apply(missingVariantLines));
+        put(missingVariantLines, newAnnotationsById);
+
+        List<String> annotations = new ArrayList<>();
+        for (int i = 0; i < variantLines.size(); i++) {
+            if (cachedAnnotations.get(i) != null) {
+                annotations.addAll(cachedAnnotations.get(i));
+            } else {
+                List<String> newAnnotations = newAnnotationsById.remove(new CachedVariant(variantLines.get(i)).id);
+                if (newAnnotations != null) {
+                    annotations.addAll(newAnnotations);
+                }
+            }
+        }
+        for (List<String> unexpectedAnnotations : newAnnotationsById.values()) {
+            annotations.addAll(unexpectedAnnotations);
+        }
+        return annotations;
+    }
+
+    private List<String> concatenate(List<List<String>> annotationsByVariant) {
+        List<String> annotations = new ArrayList<>();
+        for (List<String> variantAnnotations : annotationsByVariant) {
+            annotations.addAll(variantAnnotations);
+        }
+        return annotations;
+    }
+
+    private Map<String, List<String>> groupById(List<String> annotations) {
+        Map<String, List<String>> annotationsById = new LinkedHashMap<>();
+        for (String annotation : annotations) {
+            annotationsById.computeIfAbsent(getId(annotation), id -> new ArrayList<>()).add(annotation);
+        }
+        return annotationsById;
+    }
+
+    private List<String> get(CachedVariant variant) {
+        return getBin(variant.getBinFile(directory)).get(variant.getKey());
+    }
+
+    private Map<String, List<String>> getBin(File binFile) {
+        Map<String, List<String>> bin = loadedBins.get(binFile);
+        if (bin == null) {
+            bin = readBin(binFile);
+            loadedBins.put(binFile, bin);
+        }
+        return bin;
+    }
+
+    /**
+     * If a variant was stored several times, by jobs that annotated it at the same time, only the first annotations
+     * are kept. If the file is damaged, the annotations read before the damage are kept.
+     */
+    private Map<String, List<String>> readBin(File binFile) {
+        Map<String, List<String>> bin = new HashMap<>();
+        if (!binFile.exists()) {
+            return bin;
+        }
+        synchronized (getFileMonitor(binFile)) {
+            String currentKey = null;
+            List<String> currentAnnotations = null;
+            int remainingAnnotations = 0;
+            try (FileInputStream inputStream = lockForReading(binFile);
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(
+                            new GZIPInputStream(new BufferedInputStream(inputStream)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int endSeparator = line.indexOf('\t');
+                    int countSeparator = line.indexOf('\t', endSeparator + 1);
+                    String annotation = line.substring(countSeparator + 1);
+                    if (remainingAnnotations == 0) {
+                        currentKey = getId(annotation) + "\t" + line.substring(0, endSeparator);
+                        remainingAnnotations = Integer.parseInt(line.substring(endSeparator + 1, countSeparator));
+                        currentAnnotations = bin.containsKey(currentKey) ? null : new ArrayList<>();
+                        if (currentAnnotations != null) {
+                            bin.put(currentKey, currentAnnotations);
+                        }
+                    }
+                    if (currentAnnotations != null) {
+                        currentAnnotations.add(annotation);
+                    }
+                    remainingAnnotations--;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Could not read the whole VEP annotation cache file " + binFile + ", the variants after "
+                                    + "the error will be annotated again (hint: delete the file to repair it)", e);
+            }
+            if (remainingAnnotations != 0 && currentAnnotations != null) {
+                bin.remove(currentKey);
+            }
+        }
+        return bin;
+    }
+
+    private FileInputStream lockForReading(File file) throws IOException {
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            inputStream.getChannel().lock(0L, Long.MAX_VALUE, true);
+        } catch (IOException | RuntimeException e) {
+            inputStream.close();
+            throw e;
+        }
+        return inputStream;
+    }
+
+    private void put(List<String> variantLines, Map<String, List<String>> annotationsById) {
+        Map<File, List<String>> linesByBinFile = new LinkedHashMap<>();
+        for (String variantLine : variantLines) {
+            CachedVariant variant = new CachedVariant(variantLine);
+            List<String> annotations = annotationsById.get(variant.id);
+            File binFile = variant.getBinFile(directory);
+            Map<String, List<String>> bin = getBin(binFile);
+            if (annotations != null && !bin.containsKey(variant.getKey())) {
+                bin.put(variant.getKey(), annotations);
+                List<String> binLines = linesByBinFile.computeIfAbsent(binFile, file -> new ArrayList<>());
+                for (String annotation : annotations) {
+                    binLines.add(variant.end + "\t" + annotations.size() + "\t" + annotation);
+                }
+            }
+        }
+        for (Map.Entry<File, List<String>> binLines : linesByBinFile.entrySet()) {
+            appendToBin(binLines.getKey(), binLines.getValue());
+        }
+    }
+
+    /**
+     * The gzip member is compressed in memory before locking the file, so the lock is held only while writing it.
+     */
+    private void appendToBin(File binFile, List<String> lines) {
+        try {
+            ByteArrayOutputStream member = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(member), StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            }
+            Files.createDirectories(binFile.getParentFile().toPath());
+            synchronized (getFileMonitor(binFile)) {
+                try (FileOutputStream outputStream = new FileOutputStream(binFile, APPEND)) {
+                    outputStream.getChannel().lock();
+                    member.writeTo(outputStream);
+                }
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Could not write to the VEP annotation cache file " + binFile, e);
+        }
+    }
+
+    private static Object getFileMonitor(File file) {
+        return fileMonitors.computeIfAbsent(file.getAbsolutePath(), path -> new Object());
+    }
+
+    /**
+     * @return the header of the VEP output stored with the annotations, or an empty list if it was never stored
+     */
+    public List<String> getHeader() {
+        if (header == null) {
+            File headerFile = new File(directory, HEADER_FILE);
+            try {
+                header = headerFile.exists() ? Files.readAllLines(headerFile.toPath(), StandardCharsets.UTF_8)
+                        : Collections.emptyList();
+            } catch (IOException e) {
+                throw new ItemStreamException("Could not read the VEP annotation cache header " + headerFile, e);
+            }
+        }
+        return header;
+    }
+
+    /**
+     * Stores the header of the VEP output, unless it was already stored, so that it can be written in the output of
+     * the jobs whose variants are all in the cache.
+     */
+    public void putHeader(List<String> vepHeader) {
+        if (!getHeader().isEmpty() || vepHeader.isEmpty()) {
+            return;
+        }
+        File headerFile = new File(directory, HEADER_FILE);
+        try {
+            Files.createDirectories(directory.toPath());
+            File temporaryFile = File.createTempFile(HEADER_FILE, null, directory);
+            Files.write(temporaryFile.toPath(), vepHeader, StandardCharsets.UTF_8);
+            if (!temporaryFile.renameTo(headerFile)) {
+                Files.delete(temporaryFile.toPath());
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Could not write the VEP annotation cache header " + headerFile, e);
+        }
+        header = new ArrayList<>(vepHeader);
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return identifier of the variant written by VEP in the first column of its output
+     */
+    private static String getId(String annotation) {
+        int separator = annotation.indexOf('\t');
+        return separator < 0 ? annotation : annotation.substring(0, separator);
+    }
+
+    private static String encode(String name) {
+        try {
+            return URLEncoder.encode(name, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Variant parsed from a line in VEP input format: chromosome, start, end, alleles and strand.
+     */
+    private static class CachedVariant {
+
+        private final String chromosome;
+
+        private final int start;
+
+        private final String end;
+
+        /**
+         * Identifier that VEP writes in the first column of the annotations of the variant
+         */
+        private final String id;
+
+        CachedVariant(String variantLine) {
+            String[] fields = variantLine.split("\t");
+            chromosome = fields[0];
+            start = Integer.parseInt(fields[1]);
+            end = fields[2];
+            id = fields[0] + "_" + fields[1] + "_" + fields[3];
+        }
+
+        String getKey() {
+            return id + "\t" + end;
+        }
+
+        File getBinFile(File directory) {
+            return new File(new File(directory, encode(chromosome)), (start / BIN_SIZE) + BIN_SUFFIX);
+        }
+    }
+}
@@ -33,12 +33,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.Arrays;
 import java.util.Scanner;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPOutputStream;
@@ -64,6 +59,9 @@ import java.util.zip.GZIPOutputStream;
  * 20_60479_C/T	20:60479	T	-	-	-	intergenic_variant	-	-	-	-	-	rs149529999	GMAF=T:0.0018;AFR_MAF=T:0.01;AMR_MAF=T:0.0028
  * ..
  * }
+ * <p>
+ * The writes to the standard input happen in the calling thread, and the {@link VepWatchdog} kills VEP if a write or
+ * flush doesn't progress, and VEP doesn't write any output, for longer than the timeout.
  */
 public class VepProcess {
     private static final Logger logger = LoggerFactory.getLogger(VepProcess.class);
@@ -72,6 +70,8 @@ public class VepProcess {
 
     private AnnotationParameters annotationParameters;
 
+    private final String vepOutput;
+
     private int chunkSize;
 
     private final Long timeoutInSeconds;
@@ -86,12 +86,23 @@ public class VepProcess {
 
     private AtomicLong outputIdleSince;
 
+    private boolean killedByWatchdog;
+
     public VepProcess(AnnotationParameters annotationParameters, int chunkSize, Long timeoutInSeconds) {
+        this(annotationParameters, annotationParameters.getVepOutput(), chunkSize, timeoutInSeconds);
+    }
+
+    /**
+     * @param vepOutput file where the annotations are appended, instead of the one of the annotation parameters
+     */
+    public VepProcess(AnnotationParameters annotationParameters, String vepOutput, int chunkSize,
+                      Long timeoutInSeconds) {
         if (timeoutInSeconds <= 0) {
             throw new IllegalArgumentException(
                     "timeout (" + timeoutInSeconds + " seconds) must be strictly greater than 0");
         }
         this.annotationParameters = annotationParameters;
+        this.vepOutput = vepOutput;
         this.chunkSize = chunkSize;
         this.timeoutInSeconds = timeoutInSeconds;
         this.outputIdleSince = new AtomicLong(System.currentTimeMillis());
@@ -123,12 +134,9 @@ public class VepProcess {
         }
 
         processStandardInput = new BufferedOutputStream(process.getOutputStream());
-        String vepOutputPath = annotationParameters.getVepOutput();
-
-        captureOutput(process, vepOutputPath);
+        captureOutput(process, vepOutput);
     }
 
-
     private void captureOutput(Process process, String vepOutputPath) {
         writingOk = new AtomicBoolean(false);
         outputCaptureThread = new Thread(() -> {
@@ -158,31 +166,37 @@ public class VepProcess {
         return new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(vepOutputPath, APPEND)));
     }
 
+    /**
+     * Writes the bytes to the standard input of VEP. Several lines should be written at once, as a whole chunk.
+     */
     public void write(byte[] bytes) throws IOException {
         if (!isOpen()) {
             throw new IllegalStateException("Process must be initialized (hint: call open() before write())");
         }
-        tryWithTimeout(() -> {
-            processStandardInput.write(bytes);
-            return null;
-        });
+        checkNotKilledByWatchdog();
+        try (VepWatchdog.Watch watch = VepWatchdog.watch(process, timeoutInSeconds, outputIdleSince)) {
+            try {
+                watch.write(processStandardInput, bytes);
+            } catch (IOException e) {
+                throw getWritingException(watch, e);
+            }
+        }
     }
 
-    private void tryWithTimeout(Callable<Void> callable) {
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
-        Future<Void> future = executorService.submit(callable);
-        try {
-            future.get(timeoutInSeconds, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-            throw new ItemStreamException("Error writing to VEP: timeout reached", e);
-        } catch (Exception e) {
-            throw new ItemStreamException("Error writing to VEP", e);
-        } finally {
-            executorService.shutdown();
-            executorService.shutdownNow();
+    private void checkNotKilledByWatchdog() {
+        if (killedByWatchdog) {
+            throw new ItemStreamException("Error writing to VEP: timeout reached");
         }
     }
 
+    private ItemStreamException getWritingException(VepWatchdog.Watch watch, IOException e) {
+        if (watch.isProcessKilled()) {
+            killedByWatchdog = true;
+            return new ItemStreamException("Error writing to VEP: timeout reached", e);
+        }
+        return new ItemStreamException("Error writing to VEP", e);
+    }
+
     public boolean isOpen() {
         return process != null;
     }
@@ -191,10 +205,18 @@ public class VepProcess {
         if (!isOpen()) {
             throw new IllegalStateException("Process must be initialized (hint: call open() before flush())");
         }
-        tryWithTimeout(() -> {
-            processStandardInput.flush();
-            return null;
-        });
+        flushProcessStandardInput();
+    }
+
+    private void flushProcessStandardInput() {
+        checkNotKilledByWatchdog();
+        try (VepWatchdog.Watch watch = VepWatchdog.watch(process, timeoutInSeconds, outputIdleSince)) {
+            try {
+                processStandardInput.flush();
+            } catch (IOException e) {
+                throw getWritingException(watch, e);
+            }
+        }
     }
 
     /**
@@ -215,12 +237,21 @@ public class VepProcess {
         }
     }
 
+    /**
+     * Kills the process without checking its status, after a failed write. It is safe to call this method several
+     * times; it's idempotent.
+     */
+    public void abort() {
+        if (isOpen()) {
+            logger.debug("Killing VEP process");
+            process.destroyForcibly();
+            process = null;
+        }
+    }
+
     private void flushProcessStdin() {
         try {
-            tryWithTimeout(() -> {
-                processStandardInput.flush();
-                return null;
-            });
+            flushProcessStandardInput();
             processStandardInput.close();
         } catch (IOException e) {
             logger.error("Could not close stream for VEP's stdin", e);
@@ -256,7 +287,7 @@ public class VepProcess {
         int exitValue = process.exitValue();
         if (exitValue != 0) {
             String timestamp = Long.toString(System.currentTimeMillis());
-            String backupVepOutput = annotationParameters.getVepOutput().replaceFirst("tsv\\.gz$",
+            String backupVepOutput = vepOutput.replaceFirst("tsv\\.gz$",
                     timestamp + ".tsv.gz");
 
             String errorLog = backupVepOutput + ".errors.txt";
@@ -267,7 +298,7 @@ public class VepProcess {
                         + " but the file to dump the errors could not be created: " + errorLog,
                         e);
             }
-            boolean renamed = new File(annotationParameters.getVepOutput()).renameTo(new File(backupVepOutput));
+            boolean renamed = new File(vepOutput).renameTo(new File(backupVepOutput));
             if (renamed) {
                 logger.info("Failed VEP output saved to " + backupVepOutput);
             }
@@ -311,6 +342,7 @@ public class VepProcess {
             writer.write(line);
             writer.write('\n');
             writtenLines++;
+            outputIdleSince.set(System.currentTimeMillis());
 
             lastLine = line;
             line = getNextLine(reader, skipComments);
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single daemon thread, shared by all the VEP processes of the JVM, that kills the processes that get stuck while
+ * their standard input is being written. That unblocks the writing thread, which gets an IOException.
+ * <p>
+ * Every write is done inside a {@link Watch}, which is registered while the write lasts:
+ * {@code
+ * try (VepWatchdog.Watch watch = VepWatchdog.watch(process, timeoutInSeconds, outputIdleSince)) {
+ *     watch.write(processStandardInput, bytes);
+ * }
+ * }
+ * A process is killed when neither the write nor its output have progressed for longer than the timeout.
+ */
+public class VepWatchdog {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepWatchdog.class);
+
+    private static final long CHECK_INTERVAL_MILLIS = 500;
+
+    /**
+     * Big writes are done in slices, so that the watchdog sees the progress of a slow but working VEP
+     */
+    private static final int WRITE_SLICE_BYTES = 64 * 1024;
+
+    private static final Set<Watch> watches = ConcurrentHashMap.newKeySet();
+
+    private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vep-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        watchdog.scheduleWithFixedDelay(VepWatchdog::checkWatches, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS,
+                                        TimeUnit.MILLISECONDS);
+    }
+
+    private VepWatchdog() {
+    }
+
+    /**
+     * Starts watching a process until the returned watch is closed.
+     *
+     * @param outputIdleSince last time the process wrote some output, which also counts as progress
+     */
+    public static Watch watch(Process process, long timeoutInSeconds, AtomicLong outputIdleSince) {
+        Watch watch = new Watch(process, timeoutInSeconds * 1000L, outputIdleSince);
+        watches.add(watch);
+        return watch;
+    }
+
+    /**
+     * @return number of writes being watched
+     */
+    static int getWatchCount() {
+        return watches.size();
+    }
+
+    private static void checkWatches() {
+        long now = System.currentTimeMillis();
+        for (Watch watch : watches) {
+            try {
+                if (now - watch.getLastProgress() > watch.timeoutInMillis) {
+                    watches.remove(watch);
+                    watch.processKilled = true;
+                    watch.process.destroyForcibly();
+                    logger.error("VEP has been idle for more than the timeout (" + watch.timeoutInMillis / 1000
+                                         + " seconds) while receiving variants. The process has been killed.");
+                }
+            } catch (RuntimeException e) {
+                // an exception would cancel the next checks of all the watches
+                logger.error("Could not check a VEP process", e);
+            }
+        }
+    }
+
+    public static class Watch implements AutoCloseable {
+
+        private final Process process;
+
+        private final long timeoutInMillis;
+
+        private final AtomicLong outputIdleSince;
+
+        private final AtomicLong inputIdleSince;
+
+        private volatile boolean processKilled;
+
+        private Watch(Process process, long timeoutInMillis, AtomicLong outputIdleSince) {
+            this.process = process;
+            this.timeoutInMillis = timeoutInMillis;
+            this.outputIdleSince = outputIdleSince;
+            this.inputIdleSince = new AtomicLong(System.currentTimeMillis());
+        }
+
+        private long getLastProgress() {
+            return Math.max(inputIdleSince.get(), outputIdleSince.get());
+        }
+
+        /**
+         * Writes the bytes in slices, recording the progress after each one.
+         */
+        public void write(OutputStream outputStream, byte[] bytes) throws IOException {
+            for (int offset = 0; offset < bytes.length; offset += WRITE_SLICE_BYTES) {
+                outputStream.write(bytes, offset, Math.min(WRITE_SLICE_BYTES, bytes.length - offset));
+                inputIdleSince.set(System.currentTimeMillis());
+            }
+        }
+
+        /**
+         * @return whether the watchdog killed the process because it was stuck
+         */
+        public boolean isProcessKilled() {
+            return processKilled;
+        }
+
+        /**
+         * Stops watching the process.
+         */
+        @Override
+        public void close() {
+            watches.remove(this);
+        }
+    }
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemStreamException;
+
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * VEP process that stays alive to annotate several chunks of variants, instead of being started for each one like
+ * {@link VepProcess}.
+ * <p>
+ * VEP only annotates a buffer of variants when it is full or when its input ends, so every chunk is padded up to a
+ * multiple of the buffer size with markers: copies of a variant that carry an identifier like {@code eva-chunk-end-3}.
+ * VEP writes that identifier in the first column of the marker annotations, and when the first of them arrives all the
+ * annotations of the chunk have already been written, as VEP keeps the input order. The marker annotations are
+ * discarded.
+ * <p>
+ * VEP doesn't write anything for some variants (e.g. in an unknown sequence region), so the markers are copies of a
+ * variant that this worker has already seen annotated. Until there is one, in the first chunk, the markers are copies
+ * of all the variants of the chunk in turn, so that the chunk only times out if VEP annotates none of them.
+ * <p>
+ * The header of the VEP output is available through {@link #getHeader()} after the first chunk is annotated.
+ */
+public class VepWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepWorker.class);
+
+    static final String CHUNK_MARKER_PREFIX = "eva-chunk-end-";
+
+    /**
+     * Runs the VEP script with autoflush enabled in its stdout, so that the annotations of each buffer are not held
+     * in the perl buffers until more output is written.
+     * <p>
+     * 'do' doesn't fail when the script can't be read, so that is checked first; otherwise perl would exit with
+     * status 0 without running VEP. The script path must be absolute, as 'do' looks up relative paths in @INC, which
+     * doesn't include the working directory since perl 5.26.
+     */
+    private static final String AUTOFLUSH_WRAPPER = "$| = 1; $0 = shift @ARGV; "
+            + "-r $0 or die(\"Cannot read $0: $!\\n\"); do $0; die $@ if $@;";
+
+    private static final long HEALTH_CHECK_INTERVAL_MILLIS = 500;
+
+    private final AnnotationParameters annotationParameters;
+
+    private final int bufferSize;
+
+    private final Long timeoutInSeconds;
+
+    private final String name;
+
+    private Process process;
+
+    private OutputStream processStandardInput;
+
+    private File errorLog;
+
+    private Thread outputCaptureThread;
+
+    private final BlockingQueue<List<String>> annotatedChunks;
+
+    private final List<String> header;
+
+    private final AtomicBoolean capturingOk;
+
+    private final AtomicLong outputIdleSince;
+
+    private long chunks;
+
+    private long sentLines;
+
+    /**
+     * Variant already annotated by this VEP, used as marker
+     */
+    private String annotatedVariant;
+
+    /**
+     * @param bufferSize VEP buffer size; must be greater than the number of variants of any chunk to avoid annotating
+     * a whole buffer of markers
+     * @param name used in the thread names and error log file name, to tell the workers apart
+     */
+    public VepWorker(AnnotationParameters annotationParameters, int bufferSize, Long timeoutInSeconds, String name) {
+        if (timeoutInSeconds <= 0) {
+            throw new IllegalArgumentException(
+                    "timeout (" + timeoutInSeconds + " seconds) must be strictly greater than 0");
+        }
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("buffer size (" + bufferSize + ") must be at least 2");
+        }
+        this.annotationParameters = annotationParameters;
+        this.bufferSize = bufferSize;
+        this.timeoutInSeconds = timeoutInSeconds;
+        this.name = name;
+        this.annotatedChunks = new LinkedBlockingQueue<>();
+        this.header = Collections.synchronizedList(new ArrayList<>());
+        this.capturingOk = new AtomicBoolean(true);
+        this.outputIdleSince = new AtomicLong(System.currentTimeMillis());
+    }
+
+    public void open() throws ItemStreamException {
+        ProcessBuilder processBuilder = new ProcessBuilder("perl",
+                "-e", AUTOFLUSH_WRAPPER,
+                new File(annotationParameters.getVepPath()).getAbsolutePath(),
+                "--cache",
+                "--cache_version", annotationParameters.getVepCacheVersion(),
+                "-dir", annotationParameters.getVepCachePath(),
+                "--species", annotationParameters.getVepCacheSpecies(),
+                "--fasta", annotationParameters.getInputFasta(),
+                "--fork", Integer.toString(annotationParameters.getVepNumForks()),
+                "--buffer_size", Integer.toString(bufferSize),
+                "-o", "STDOUT",
+                "--force_overwrite",
+                "--offline",
+                "--everything",
+                "--format", "ensembl"
+        );
+
+        // a long-lived process writes more to stderr than the pipe can hold, so it goes to a file instead
+        errorLog = new File(annotationParameters.getVepOutput() + "." + name + "." + System.currentTimeMillis()
+                                    + ".errors.txt");
+        processBuilder.redirectError(errorLog);
+
+        logger.trace("Starting VEP {} with parameters = {}", name, Arrays.toString(processBuilder.command().toArray()));
+
+        try {
+            process = processBuilder.start();
+        } catch (IOException e) {
+            throw new ItemStreamException(e);
+        }
+
+        processStandardInput = new BufferedOutputStream(process.getOutputStream());
+        captureOutput(process);
+    }
+
+    private void captureOutput(Process process) {
+        outputCaptureThread = new Thread(() -> {
+            try (BufferedReader processStandardOutput = new BufferedReader(
+                    new InputStreamReader(process.getInputStream()))) {
+                splitChunks(processStandardOutput);
+            } catch (IOException e) {
+                capturingOk.set(false);
+                logger.error("Reading the output of VEP " + name + " failed. ", e);
+            }
+        }, "vep-output-" + name);
+        outputCaptureThread.setDaemon(true);
+        outputCaptureThread.start();
+    }
+
+    /**
+     * Collects the annotations until the first line of a new marker, and then hands them over as a whole chunk.
+     */
+    private void splitChunks(BufferedReader reader) throws IOException {
+        List<String> annotations = new ArrayList<>();
+        String lastMarker = null;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            outputIdleSince.set(System.currentTimeMillis());
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.startsWith(CHUNK_MARKER_PREFIX)) {
+                int endOfIdentifier = line.indexOf('\t');
+                String marker = endOfIdentifier == -1 ? line : line.substring(0, endOfIdentifier);
+                if (!marker.equals(lastMarker)) {
+                    lastMarker = marker;
+                    annotatedChunks.add(annotations);
+                    annotations = new ArrayList<>();
+                }
+            } else if (line.charAt(0) == '#') {
+                if (lastMarker == null && annotations.isEmpty()) {
+                    header.add(line);
+                }
+            } else {
+                annotations.add(line);
+            }
+        }
+    }
+
+    public boolean isOpen() {
+        return process != null;
+    }
+
+    /**
+     * @return whether the process is running and its output is still being read
+     */
+    public boolean isHealthy() {
+        return isOpen() && process.isAlive() && outputCaptureThread.isAlive() && capturingOk.get();
+    }
+
+    /**
+     * Sends a chunk of variants to VEP and waits until all its annotations have been written.
+     *
+     * @param variantLines variants in VEP input format, without line separators
+     * @return VEP annotations of the chunk, without header
+     */
+    public List<String> annotate(List<String> variantLines) {
+        if (!isOpen()) {
+            throw new IllegalStateException("Process must be initialized (hint: call open() before annotate())");
+        }
+        if (variantLines.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (!isHealthy()) {
+            abort();
+            throw new ItemStreamException("VEP " + name + " is not running. See " + errorLog
+                                                  + " for the errors description from VEP.");
+        }
+
+        chunks++;
+        String marker = "\t" + CHUNK_MARKER_PREFIX + chunks;
+        List<String> markerVariants = annotatedVariant != null ? Collections.singletonList(annotatedVariant)
+                : variantLines;
+        int markers = bufferSize - variantLines.size() % bufferSize;
+        logger.trace("VEP {} receives {} variants and {} markers", name, variantLines.size(), markers);
+
+        StringBuilder input = new StringBuilder();
+        for (String variantLine : variantLines) {
+            input.append(variantLine).append(System.lineSeparator());
+        }
+        for (int i = 0; i < markers; i++) {
+            input.append(markerVariants.get(i % markerVariants.size())).append(marker).append(System.lineSeparator());
+        }
+
+        sentLines += variantLines.size() + markers;
+        outputIdleSince.set(System.currentTimeMillis());
+        writeWithTimeout(input.toString().getBytes());
+        List<String> annotations = waitForChunk();
+        if (annotatedVariant == null) {
+            annotatedVariant = findAnnotatedVariant(variantLines, annotations);
+        }
+        return annotations;
+    }
+
+    private static String findAnnotatedVariant(List<String> variantLines, List<String> annotations) {
+        Set<String> annotatedIdentifiers = new HashSet<>();
+        for (String annotation : annotations) {
+            int endOfIdentifier = annotation.indexOf('\t');
+            annotatedIdentifiers.add(endOfIdentifier == -1 ? annotation : annotation.substring(0, endOfIdentifier));
+        }
+        for (String variantLine : variantLines) {
+            if (annotatedIdentifiers.contains(getIdentifier(variantLine))) {
+                return variantLine;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the identifier that VEP writes in the first column: the one in the input, or chr_start_ref/alt
+     */
+    static String getIdentifier(String variantLine) {
+        String[] columns = variantLine.split("\t");
+        if (columns.length > 5) {
+            return columns[5];
+        }
+        return columns[0] + "_" + columns[1] + "_" + columns[3];
+    }
+
+    private void writeWithTimeout(byte[] bytes) {
+        try (VepWatchdog.Watch watch = VepWatchdog.watch(process, timeoutInSeconds, outputIdleSince)) {
+            try {
+                watch.write(processStandardInput, bytes);
+                processStandardInput.flush();
+            } catch (IOException e) {
+                abort();
+                if (watch.isProcessKilled()) {
+                    throw new ItemStreamException("Error writing to VEP " + name + ": timeout reached", e);
+                }
+                throw new ItemStreamException("Error writing to VEP " + name, e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the marker of the current chunk, checking regularly that VEP is still alive. The timeout is extended
+     * while VEP keeps writing annotations.
+     */
+    private List<String> waitForChunk() {
+        long timeoutInMillis = timeoutInSeconds * 1000L;
+        try {
+            while (true) {
+                List<String> annotations = annotatedChunks.poll(HEALTH_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (annotations != null) {
+                    return annotations;
+                }
+                if (!outputCaptureThread.isAlive()) {
+                    abort();
+                    throw new ItemStreamException("VEP " + name + " finished before annotating the whole chunk. See "
+                                                          + errorLog + " for the errors description from VEP.");
+                }
+                if (System.currentTimeMillis() - outputIdleSince.get() > timeoutInMillis) {
+                    abort();
+                    String timeoutReachedMessage = "VEP " + name + " has been idle for more than the timeout ("
+                            + timeoutInSeconds + " seconds). The process has been killed.";
+                    logger.error(timeoutReachedMessage);
+                    throw new ItemStreamException(timeoutReachedMessage);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+            throw new ItemStreamException("Interrupted while waiting for VEP " + name, e);
+        }
+    }
+
+    /**
+     * @return number of lines written to VEP, including the markers
+     */
+    public long getSentLines() {
+        return sentLines;
+    }
+
+    public List<String> getHeader() {
+        synchronized (header) {
+            return new ArrayList<>(header);
+        }
+    }
+
+    /**
+     * Kills the process without checking its status. The error log is kept.
+     */
+    public void abort() {
+        if (isOpen()) {
+            process.destroyForcibly();
+            outputCaptureThread.interrupt();
+            process = null;
+        }
+    }
+
+    /**
+     * Closes VEP's input and waits for it to finish. It is safe to call this method several times; it's idempotent.
+     */
+    public void close() {
+        if (isOpen()) {
+            try {
+                logger.trace("About to close VEP {} after {} chunks", name, chunks);
+                processStandardInput.close();
+                waitUntilProcessEnds();
+                checkExitStatus();
+                checkOutputCaptureStatus();
+                if (!errorLog.delete()) {
+                    logger.debug("Could not remove the error log of VEP {}: {}", name, errorLog);
+                }
+            } catch (IOException e) {
+                logger.error("Could not close stream for VEP's stdin", e);
+            } finally {
+                process = null;
+                logger.trace("VEP {} finished", name);
+            }
+        }
+    }
+
+    private void waitUntilProcessEnds() {
+        boolean finished;
+        try {
+            finished = process.waitFor(timeoutInSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new ItemStreamException(e);
+        }
+
+        if (!finished) {
+            process.destroy();
+            String timeoutReachedMessage = "VEP " + name + " didn't finish after closing its input in the timeout ("
+                    + timeoutInSeconds + " seconds). The process has been killed.";
+            logger.error(timeoutReachedMessage);
+            throw new ItemStreamException(timeoutReachedMessage);
+        }
+    }
+
+    private void checkExitStatus() {
+        int exitValue = process.exitValue();
+        if (exitValue != 0) {
+            throw new ItemStreamException("Error while running VEP " + name + " (exit status " + exitValue + "). See "
+                                                  + errorLog + " for the errors description from VEP.");
+        }
+    }
+
+    private void checkOutputCaptureStatus() {
+        try {
+            outputCaptureThread.join(timeoutInSeconds * 1000L);
+        } catch (InterruptedException e) {
+            throw new ItemStreamException("Interrupted while waiting for the VEP output reader thread to finish. ", e);
+        }
+        if (outputCaptureThread.isAlive()) {
+            outputCaptureThread.interrupt();
+            throw new ItemStreamException("Reached the timeout (" + timeoutInSeconds
+                    + " seconds) while waiting for VEP output reading to finish. The thread has been killed.");
+        }
+        if (!capturingOk.get()) {
+            throw new ItemStreamException("VEP output reader thread could not finish properly. ");
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemStreamException;
+
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of {@link VepWorker} that annotate the chunks of a step. Each chunk is split in consecutive slices, at most one
+ * per worker, that are annotated in parallel, and the annotations are returned in the same order as the variants.
+ * <p>
+ * The workers pad every slice with markers up to a multiple of their buffer size, and VEP annotates the markers too.
+ * To keep that extra work small whatever the number of variants of a chunk, the buffer size is limited to
+ * {@link #MAX_BUFFER_SIZE}, and the slices are sized so that all their buffers but the last one are full and only one
+ * marker is needed. This way, less than a buffer plus one line per worker is padded in every chunk, and small sets
+ * of variants, like those not found in the annotation cache, are sent to a single worker.
+ * <p>
+ * If a {@link VepAnnotationCache} is provided, only the variants that are not in it are sent to the workers.
+ */
+public class VepWorkerPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepWorkerPool.class);
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
+    static final int MAX_BUFFER_SIZE = 100;
+
+    private final List<VepWorker> workers;
+
+    private final ExecutorService executor;
+
+    private final VepAnnotationCache annotationCache;
+
+    private final int bufferSize;
+
+    /**
+     * @param chunkSize expected maximum number of variants per chunk, used to size the buffers of the workers up to
+     * {@link #MAX_BUFFER_SIZE}
+     */
+    public VepWorkerPool(AnnotationParameters annotationParameters, int workers, int chunkSize,
+                         Long timeoutInSeconds) {
+        this(annotationParameters, workers, chunkSize, timeoutInSeconds, null);
+    }
+
+    /**
+     * @param chunkSize expected maximum number of variants per chunk, used to size the buffers of the workers up to
+     * {@link #MAX_BUFFER_SIZE}
+     * @param annotationCache cache of annotations consulted before annotating the variants, or null
+     */
+    public VepWorkerPool(AnnotationParameters annotationParameters, int workers, int chunkSize,
+                         Long timeoutInSeconds, VepAnnotationCache annotationCache) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("The number of VEP workers (" + workers + ") must be positive");
+        }
+        int poolNumber = poolCount.incrementAndGet();
+        this.bufferSize = Math.max(2, Math.min(divideRoundingUp(chunkSize, workers) + 1, MAX_BUFFER_SIZE));
+        this.workers = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            this.workers.add(new VepWorker(annotationParameters, bufferSize, timeoutInSeconds,
+                                           "worker-" + poolNumber + "-" + i));
+        }
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "vep-worker-" + poolNumber);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.annotationCache = annotationCache;
+    }
+
+    private static int divideRoundingUp(int dividend, int divisor) {
+        return Math.max(1, (dividend + divisor - 1) / divisor);
+    }
+
+    public void open() {
+        logger.debug("Starting {} VEP workers", workers.size());
+        for (VepWorker worker : workers) {
+            worker.open();
+        }
+    }
+
+    /**
+     * Annotates a chunk, waiting for all the workers even if some fail. The first error is rethrown.
+     *
+     * @param variantLines variants in VEP input format, without line separators
+     * @return VEP annotations of the whole chunk, without header
+     */
+    public List<String> annotate(List<String> variantLines) {
+        if (annotationCache == null) {
+            return annotateWithWorkers(variantLines);
+        }
+        List<String> annotations = annotationCache.annotate(variantLines, this::annotateWithWorkers);
+        annotationCache.putHeader(workers.get(0).getHeader());
+        return annotations;
+    }
+
+    private List<String> annotateWithWorkers(List<String> variantLines) {
+        int variants = variantLines.size();
+        int slices = Math.min(workers.size(), divideRoundingUp(variants, bufferSize - 1));
+        int buffers = divideRoundingUp(variants + slices, bufferSize);
+        slices = Math.min(slices, buffers);
+
+        List<Future<List<String>>> pendingSlices = new ArrayList<>(slices);
+        for (int i = 0, from = 0; i < slices && from < variants; i++) {
+            VepWorker worker = workers.get(i);
+            int sliceBuffers = buffers / slices + (i < buffers % slices ? 1 : 0);
+            int to = Math.min(from + sliceBuffers * bufferSize - 1, variants);
+            List<String> slice = variantLines.subList(from, to);
+            pendingSlices.add(executor.submit(() -> worker.annotate(slice)));
+            from = to;
+        }
+
+        List<String> annotations = new ArrayList<>();
+        RuntimeException firstError = null;
+        for (Future<List<String>> pendingSlice : pendingSlices) {
+            try {
+                annotations.addAll(pendingSlice.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ItemStreamException("Interrupted while annotating variants", e);
+            } catch (ExecutionException e) {
+                if (firstError == null) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    firstError = cause instanceof RuntimeException ? (RuntimeException) cause
+                            : new ItemStreamException("Could not annotate variants", cause);
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+        return annotations;
+    }
+
+    /**
+     * @return the header written by VEP, once the first chunk has been annotated, or the one stored in the annotation
+     * cache if all the variants were found there
+     */
+    public List<String> getHeader() {
+        List<String> header = workers.get(0).getHeader();
+        if (header.isEmpty() && annotationCache != null) {
+            return annotationCache.getHeader();
+        }
+        return header;
+    }
+
+    /**
+     * @return number of lines written to VEP, including the markers
+     */
+    public long getSentLines() {
+        long sentLines = 0;
+        for (VepWorker worker : workers) {
+            sentLines += worker.getSentLines();
+        }
+        return sentLines;
+    }
+
+    /**
+     * Closes all the workers, even if some fail. The first error is rethrown.
+     */
+    public void close() {
+        if (annotationCache != null) {
+            logger.info("{} variants found in the VEP annotation cache, {} sent to VEP", annotationCache.getHits(),
+                        annotationCache.getMisses());
+        }
+        logger.debug("{} lines sent to VEP, including the chunk markers", getSentLines());
+        RuntimeException firstError = null;
+        for (VepWorker worker : workers) {
+            try {
+                worker.close();
+            } catch (RuntimeException e) {
+                if (firstError == null) {
+                    firstError = e;
+                } else {
+                    logger.error("Could not close VEP worker", e);
+                }
+            }
+        }
+        executor.shutdownNow();
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+}
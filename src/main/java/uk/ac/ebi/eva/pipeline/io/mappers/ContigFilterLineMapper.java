@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+import org.springframework.batch.item.file.LineMapper;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Decorates a VCF line mapper so that only the lines of some contigs are parsed.
+ * <p>
+ * The lines of other contigs are mapped to an empty list instead of being discarded, so the reader still counts
+ * them and the restart position stays consistent between partitioned and non-partitioned executions.
+ */
+public class ContigFilterLineMapper implements LineMapper<List<Variant>> {
+
+    private final LineMapper<List<Variant>> delegate;
+
+    private final Set<String> contigs;
+
+    private final boolean excludeContigs;
+
+    /**
+     * @param delegate mapper for the lines that pass the filter
+     * @param contigs contigs to select (or to ignore, if excludeContigs is true)
+     * @param excludeContigs whether the contigs given are the ones to ignore instead of the ones to parse
+     */
+    public ContigFilterLineMapper(LineMapper<List<Variant>> delegate, Set<String> contigs, boolean excludeContigs) {
+        this.delegate = delegate;
+        this.contigs = contigs;
+        this.excludeContigs = excludeContigs;
+    }
+
+    @Override
+    public List<Variant> mapLine(String line, int lineNumber) throws Exception {
+        int endOfContig = line.indexOf('\t');
+        String contig = endOfContig < 0 ? line : line.substring(0, endOfContig);
+        if (contigs.contains(contig) == excludeContigs) {
+            return Collections.emptyList();
+        }
+        return delegate.mapLine(line, lineNumber);
+    }
+}
@@ -17,8 +17,8 @@
 package uk.ac.ebi.eva.pipeline.io.mappers;
 
 import org.opencb.biodata.models.feature.Genotype;
-import org.opencb.biodata.models.variant.exceptions.NonStandardCompliantSampleField;
 
+import uk.ac.ebi.eva.commons.models.data.SampleColumns;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 import uk.ac.ebi.eva.commons.models.data.VariantStats;
@@ -109,15 +109,18 @@ public class VariantAggregatedVcfFactory extends VariantVcfFactory {
     }
 
     @Override
-    protected void parseSplitSampleData(Variant variant, String fileId, String studyId, String[] fields,
-                                        String[] alternateAlleles, String[] secondaryAlternates, int alternateAlleleIdx)
-            throws NonStandardCompliantSampleField {
-        if (fields.length > 8) {
+    protected void checkSampleColumns(VcfFieldTokenizer fields) {
+        if (fields.size() > 8) {
             throw new IllegalArgumentException("Aggregated VCFs should not have column FORMAT nor " +
                     "further sample columns, i.e. there should be only 8 columns");
         }
     }
 
+    @Override
+    protected SampleColumns parseSamples(VcfFieldTokenizer fields, String format) {
+        return SampleColumns.EMPTY;
+    }
+
     @Override
     protected void setOtherFields(Variant variant, String fileId, String studyId, Set<String> ids, float quality,
                                   String filter, String info, String format, int numAllele, String[] alternateAlleles,
@@ -150,13 +153,15 @@ public class VariantAggregatedVcfFactory extends VariantVcfFactory {
         VariantSourceEntry file = variant.getSourceEntry(fileId, studyId);
         VariantStats vs = new VariantStats(variant);
         Map<String, String> stats = new LinkedHashMap<>();
-        String[] splittedInfo = info.split(";");
-        for (String attribute : splittedInfo) {
-            String[] assignment = attribute.split("=");
-
-            if (assignment.length == 2 && (assignment[0].equals("AC") || assignment[0].equals("AN")
-                    || assignment[0].equals("AF") || assignment[0].equals("GTC") || assignment[0].equals("GTS"))) {
-                stats.put(assignment[0], assignment[1]);
+        VcfFieldTokenizer splittedInfo = infoTokenizer.tokenize(info, ';');
+        for (int i = 0; i < splittedInfo.size(); i++) {
+            VcfFieldTokenizer assignment = infoKeyValueTokenizer.tokenize(info, splittedInfo.start(i),
+                                                                          splittedInfo.end(i), '=');
+
+            if (assignment.size() == 2 && (assignment.fieldEquals(0, "AC") || assignment.fieldEquals(0, "AN")
+                    || assignment.fieldEquals(0, "AF") || assignment.fieldEquals(0, "GTC")
+                    || assignment.fieldEquals(0, "GTS"))) {
+                stats.put(assignment.get(0), assignment.get(1));
             }
         }
 
@@ -170,12 +175,13 @@ public class VariantAggregatedVcfFactory extends VariantVcfFactory {
         VariantSourceEntry file = variant.getSourceEntry(fileId, studyId);
         Map<String, Map<String, String>> cohortStats = new LinkedHashMap<>();
         // cohortName -> (statsName -> statsValue): EUR->(AC->3,2)
-        String[] splittedInfo = info.split(";");
-        for (String attribute : splittedInfo) {
-            String[] assignment = attribute.split("=");
+        VcfFieldTokenizer splittedInfo = infoTokenizer.tokenize(info, ';');
+        for (int i = 0; i < splittedInfo.size(); i++) {
+            VcfFieldTokenizer assignment = infoKeyValueTokenizer.tokenize(info, splittedInfo.start(i),
+                                                                          splittedInfo.end(i), '=');
 
-            if (assignment.length == 2 && reverseTagMap.containsKey(assignment[0])) {
-                String opencgaTag = reverseTagMap.get(assignment[0]);
+            String opencgaTag = assignment.size() == 2 ? reverseTagMap.get(assignment.get(0)) : null;
+            if (opencgaTag != null) {
                 String[] tagSplit = opencgaTag.split("\\.");
                 String cohortName = tagSplit[0];
                 String statName = tagSplit[1];
@@ -184,7 +190,7 @@ public class VariantAggregatedVcfFactory extends VariantVcfFactory {
                     parsedValues = new LinkedHashMap<>();
                     cohortStats.put(cohortName, parsedValues);
                 }
-                parsedValues.put(statName, assignment[1]);
+                parsedValues.put(statName, assignment.get(1));
             }
         }
 
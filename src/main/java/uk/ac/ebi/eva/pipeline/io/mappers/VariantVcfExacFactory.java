@@ -133,15 +133,16 @@ public class VariantVcfExacFactory extends VariantAggregatedVcfFactory {
     protected void parseCohortStats(Variant variant, String fileId, String studyId, int numAllele, String[] alternateAlleles,
                                     String info) {
         VariantSourceEntry sourceEntry = variant.getSourceEntry(fileId, studyId);
-        String[] attributes = info.split(";");
+        VcfFieldTokenizer attributes = infoTokenizer.tokenize(info, ';');
         Map<String, Integer> ans = new LinkedHashMap<>();
         Map<String, String[]> acs = new LinkedHashMap<>();
-        for (String attribute : attributes) {
-            String[] equalSplit = attribute.split("=");
-            if (equalSplit.length == 2) {
-                String mappedTag = reverseTagMap.get(equalSplit[0]);
-                String[] values = equalSplit[1].split(COMMA);
+        for (int i = 0; i < attributes.size(); i++) {
+            VcfFieldTokenizer equalSplit = infoKeyValueTokenizer.tokenize(info, attributes.start(i),
+                                                                          attributes.end(i), '=');
+            if (equalSplit.size() == 2) {
+                String mappedTag = reverseTagMap.get(equalSplit.get(0));
                 if (mappedTag != null) {
+                    String[] values = equalSplit.get(1).split(COMMA);
                     String[] opencgaTagSplit = mappedTag.split("\\.");   // a literal dot
                     String cohortName = opencgaTagSplit[0];
                     VariantStats cohortStats = sourceEntry.getCohortStats(cohortName);
@@ -22,6 +22,7 @@ import org.opencb.biodata.models.variant.VariantFactory;
 import org.opencb.biodata.models.variant.exceptions.NonStandardCompliantSampleField;
 import org.opencb.biodata.models.variant.exceptions.NotAVariantException;
 
+import uk.ac.ebi.eva.commons.models.data.SampleColumns;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 
@@ -30,9 +31,7 @@ import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,6 +42,38 @@ import static java.lang.Math.max;
  */
 public class VariantVcfFactory {
 
+    private final VcfFieldTokenizer fieldsTokenizer = new VcfFieldTokenizer();
+
+    private final VcfFieldTokenizer alternatesTokenizer = new VcfFieldTokenizer();
+
+    private final VcfFieldTokenizer sampleTokenizer = new VcfFieldTokenizer();
+
+    protected final VcfFieldTokenizer infoTokenizer = new VcfFieldTokenizer();
+
+    protected final VcfFieldTokenizer infoKeyValueTokenizer = new VcfFieldTokenizer();
+
+    private final VcfFieldTokenizer infoValuesTokenizer = new VcfFieldTokenizer();
+
+    private String lastFormat;
+
+    private SampleColumns.Format lastSampleFormat;
+
+    private boolean lazySamples;
+
+    /**
+     * In lazy mode the sample columns are not split when a line is read. The variants keep the raw columns, and they
+     * are only decoded if a consumer of the variants asks for the samples data, so that loads which don't store the
+     * samples don't pay for parsing them.
+     * <p>
+     * The INFO fields DP, MQ and MQ0 are calculated from the samples, so they still make the samples of their line
+     * be decoded.
+     *
+     * @param lazySamples whether to defer the parsing of the sample columns until they are needed
+     */
+    public void setLazySamples(boolean lazySamples) {
+        this.lazySamples = lazySamples;
+    }
+
     /**
      * Creates a list of Variant objects using the fields in a record of a VCF
      * file. A new Variant object is created per allele, so several of them can
@@ -51,6 +82,9 @@ public class VariantVcfFactory {
      * Start/end coordinates assignment tries to work as similarly as possible
      * as Ensembl does, except for insertions, where start is greater than end:
      * http://www.ensembl.org/info/docs/tools/vep/vep_formats.html#vcf
+     * <p>
+     * The line is split with a {@link VcfFieldTokenizer} owned by this factory, so a factory must not be shared by
+     * several threads.
      *
      * @param fileId,
      * @param studyId
@@ -59,10 +93,14 @@ public class VariantVcfFactory {
      */
     public List<Variant> create(String fileId, String studyId,
                                 String line) throws IllegalArgumentException, NotAVariantException {
-        String[] fields = line.split("\t");
-        if (fields.length < 8) {
+        // In lazy mode, the line is only split up to the FORMAT column
+        int samplesStart = lazySamples ? getSamplesStart(line) : -1;
+        VcfFieldTokenizer fields = samplesStart < 0 ? fieldsTokenizer.tokenize(line, '\t')
+                                                    : fieldsTokenizer.tokenize(line, 0, samplesStart - 1, '\t');
+        if (fields.size() < 8) {
             throw new IllegalArgumentException("Not enough fields provided (min 8)");
         }
+        checkSampleColumns(fields);
 
         String chromosome = getChromosomeWithoutPrefix(fields);
         int position = getPosition(fields);
@@ -73,6 +111,15 @@ public class VariantVcfFactory {
         String filter = getFilter(fields);
         String info = getInfo(fields);
         String format = getFormat(fields);
+        // The sample columns are split only once, and shared by all the variants created from this line. In lazy mode
+        // they are not split at all unless some consumer of the variants asks for them
+        SampleColumns samples = null;
+        RawSampleColumns rawSamples = null;
+        if (samplesStart >= 0) {
+            rawSamples = new RawSampleColumns(line, samplesStart, getSampleFormat(format));
+        } else {
+            samples = lazySamples ? SampleColumns.EMPTY : parseSamples(fields, format);
+        }
 
         List<VariantKeyFields> generatedKeyFields = buildVariantKeyFields(chromosome, position, reference,
                 alternateAlleles);
@@ -88,7 +135,11 @@ public class VariantVcfFactory {
             variant.addSourceEntry(file);
 
             try {
-                parseSplitSampleData(variant, fileId, studyId, fields, alternateAlleles, secondaryAlternates, altAlleleIdx);
+                if (rawSamples != null) {
+                    addRawSampleData(variant, fileId, studyId, rawSamples, altAlleleIdx);
+                } else {
+                    addSplitSampleData(variant, fileId, studyId, samples, altAlleleIdx);
+                }
                 // Fill the rest of fields (after samples because INFO depends on them)
                 setOtherFields(variant, fileId, studyId, ids, quality, filter, info, format, keyFields.getNumAllele(),
                                alternateAlleles, line);
@@ -108,8 +159,8 @@ public class VariantVcfFactory {
      * Replace "chr" references only at the beginning of the chromosome name.
      * For instance, tomato has SL2.40ch00 and that should be kept that way
      */
-    private String getChromosomeWithoutPrefix(String[] fields) {
-        String chromosome = fields[0];
+    private String getChromosomeWithoutPrefix(VcfFieldTokenizer fields) {
+        String chromosome = fields.get(0);
         boolean ignoreCase = true;
         int startOffset = 0;
         String prefixToRemove = "chr";
@@ -119,40 +170,40 @@ public class VariantVcfFactory {
         return chromosome;
     }
 
-    private int getPosition(String[] fields) {
-        return Integer.parseInt(fields[1]);
+    private int getPosition(VcfFieldTokenizer fields) {
+        return Integer.parseInt(fields.get(1));
     }
 
-    private Set<String> getIds(String[] fields) {
+    private Set<String> getIds(VcfFieldTokenizer fields) {
         Set<String> ids = new HashSet<>();
-        if (!fields[2].equals(".")) {    // note!: we store a "." as an empty set, not a set with an empty string
-            ids.addAll(Arrays.asList(fields[2].split(";")));
+        if (!fields.isMissing(2)) {    // note!: we store a "." as an empty set, not a set with an empty string
+            ids.addAll(Arrays.asList(fields.get(2).split(";")));
         }
         return ids;
     }
 
-    private String getReference(String[] fields) {
-        return fields[3].equals(".") ? "" : fields[3];
+    private String getReference(VcfFieldTokenizer fields) {
+        return fields.isMissing(3) ? "" : fields.get(3);
     }
 
-    private String[] getAlternateAlleles(String[] fields, String chromosome, int position, String reference) {
-        return fields[4].split(",");
+    private String[] getAlternateAlleles(VcfFieldTokenizer fields, String chromosome, int position, String reference) {
+        return alternatesTokenizer.tokenize(fields.getText(), fields.start(4), fields.end(4), ',').toArray();
     }
 
-    private float getQuality(String[] fields) {
-        return fields[5].equals(".") ? -1 : Float.parseFloat(fields[5]);
+    private float getQuality(VcfFieldTokenizer fields) {
+        return fields.isMissing(5) ? -1 : Float.parseFloat(fields.get(5));
     }
 
-    private String getFilter(String[] fields) {
-        return fields[6].equals(".") ? "" : fields[6];
+    private String getFilter(VcfFieldTokenizer fields) {
+        return fields.isMissing(6) ? "" : fields.get(6);
     }
 
-    private String getInfo(String[] fields) {
-        return fields[7].equals(".") ? "" : fields[7];
+    private String getInfo(VcfFieldTokenizer fields) {
+        return fields.isMissing(7) ? "" : fields.get(7);
     }
 
-    private String getFormat(String[] fields) {
-        return (fields.length <= 8 || fields[8].equals(".")) ? "" : fields[8];
+    private String getFormat(VcfFieldTokenizer fields) {
+        return (fields.size() <= 8 || fields.isMissing(8)) ? "" : fields.get(8);
     }
 
     private List<VariantKeyFields> buildVariantKeyFields(String chromosome, int position, String reference,
@@ -223,46 +274,119 @@ public class VariantVcfFactory {
         return secondaryAlternates;
     }
 
-    protected void parseSplitSampleData(Variant variant, String fileId, String studyId, String[] fields,
-                                        String[] alternateAlleles, String[] secondaryAlternates,
-                                        int alternateAlleleIdx) throws NonStandardCompliantSampleField {
-        String[] formatFields = variant.getSourceEntry(fileId, studyId).getFormat().split(":");
+    /**
+     * Checks the FORMAT and sample columns of a line. It is called before the samples are parsed, or before their
+     * parsing is deferred in lazy mode, so a line is rejected the same way in both modes. Any line is accepted by
+     * default.
+     *
+     * @param fields tokenized VCF line, which in lazy mode ends at the FORMAT column
+     * @throws IllegalArgumentException if the line should not have such columns
+     */
+    protected void checkSampleColumns(VcfFieldTokenizer fields) {
+    }
+
+    /**
+     * Splits the columns of every sample, so that they can be reused by all the variants created from a line.
+     *
+     * @param fields tokenized VCF line
+     * @param format contents of the FORMAT column, e.g. "GT:GQ:DP"
+     * @return the values of the samples, with the genotypes exactly as found in the VCF
+     */
+    protected SampleColumns parseSamples(VcfFieldTokenizer fields, String format) {
+        if (fields.size() <= 9) {
+            return SampleColumns.EMPTY;
+        }
+        return decodeSamples(fields, 9, getSampleFormat(format), sampleTokenizer);
+    }
 
-        for (int i = 9; i < fields.length; i++) {
-            Map<String, String> map = new TreeMap<>();
+    /**
+     * @param columns tokenized line, or section of a line, that contains the sample columns
+     * @param firstSample index of the first sample column in columns
+     * @param sampleFormat fields present in the samples
+     * @param sampleTokenizer tokenizer to split each sample column
+     * @return the values of the samples, with the genotypes exactly as found in the VCF
+     */
+    private static SampleColumns decodeSamples(VcfFieldTokenizer columns, int firstSample,
+                                               SampleColumns.Format sampleFormat, VcfFieldTokenizer sampleTokenizer) {
+        int numSamples = columns.size() - firstSample;
+        int genotypeIndex = sampleFormat.getGenotypeIndex();
+        String[][] values = new String[sampleFormat.size()][];
+        for (int j = 0; j < values.length; j++) {
+            if (j != genotypeIndex) {
+                values[j] = new String[numSamples];
+            }
+        }
+        SampleColumns.GenotypeDictionary genotypes = new SampleColumns.GenotypeDictionary(numSamples);
 
-            // Fill map of a sample
-            String[] sampleFields = fields[i].split(":");
+        for (int i = 0; i < numSamples; i++) {
+            VcfFieldTokenizer sampleFields = sampleTokenizer.tokenize(columns.getText(), columns.start(i + firstSample),
+                                                                      columns.end(i + firstSample), ':');
+            if (sampleFields.size() > sampleFormat.size()) {
+                throw new IllegalArgumentException("Sample " + i + " has more fields than the FORMAT column");
+            }
 
             // Samples may remove the trailing fields (only GT is mandatory),
-            // so the loop iterates to sampleFields.length, not formatFields.length
-            for (int j = 0; j < sampleFields.length; j++) {
-                String formatField = formatFields[j];
-                String sampleField = processSampleField(alternateAlleleIdx, formatField, sampleFields[j]);
+            // so the loop iterates to sampleFields.size(), not sampleFormat.size()
+            for (int j = 0; j < sampleFields.size(); j++) {
+                if (j != genotypeIndex) {
+                    values[j][i] = sampleFields.get(j);
+                }
+            }
+            boolean hasGenotype = genotypeIndex >= 0 && genotypeIndex < sampleFields.size();
+            genotypes.add(hasGenotype ? sampleFields.get(genotypeIndex) : null);
+        }
+        return new SampleColumns(sampleFormat, numSamples, values, genotypes.getGenotypes(), genotypes.getCodes());
+    }
 
-                map.put(formatField, sampleField);
+    /**
+     * @return the offset where the first sample column starts, or -1 if the line has no sample columns
+     */
+    private static int getSamplesStart(String line) {
+        int tab = -1;
+        for (int column = 0; column < 9; column++) {
+            tab = line.indexOf('\t', tab + 1);
+            if (tab < 0) {
+                return -1;
             }
+        }
+        return tab + 1 < line.length() ? tab + 1 : -1;
+    }
 
-            // Add sample to the variant entry in the source file
-            variant.getSourceEntry(fileId, studyId).addSampleData(map);
+    /**
+     * The FORMAT is usually the same in all the lines of a file, so the last one is reused if possible.
+     */
+    private SampleColumns.Format getSampleFormat(String format) {
+        if (!format.equals(lastFormat)) {
+            lastFormat = format;
+            lastSampleFormat = new SampleColumns.Format(format.split(":"));
         }
+        return lastSampleFormat;
     }
 
     /**
-     * If this is a field other than the genotype (GT), return unmodified. Otherwise,
-     * see {@link VariantVcfFactory#processGenotypeField(int, java.lang.String)}
-     *
-     * @param alternateAlleleIdx current alternate being processed. 0 for first alternate, 1 or more for a secondary alternate.
-     * @param formatField as shown in the FORMAT column. most probably the GT field.
-     * @param sampleField parsed value in a column of a sample, such as a genotype, e.g. "0/0".
-     * @return processed sample field, ready to be stored.
+     * Adds the samples data to the variant created for one of the alternate alleles of a line. The values are shared
+     * between all the variants of the line, and only the distinct genotypes are recoded for each alternate allele.
      */
-    private String processSampleField(int alternateAlleleIdx, String formatField, String sampleField) {
-        if (formatField.equalsIgnoreCase("GT")) {
-            return processGenotypeField(alternateAlleleIdx, sampleField);
-        } else {
-            return sampleField;
+    protected void addSplitSampleData(Variant variant, String fileId, String studyId, SampleColumns samples,
+                                      int alternateAlleleIdx) throws NonStandardCompliantSampleField {
+        variant.getSourceEntry(fileId, studyId).setSampleColumns(recodeGenotypes(samples, alternateAlleleIdx));
+    }
+
+    /**
+     * Like {@link #addSplitSampleData}, but the samples are only split and recoded if the variant is asked for them.
+     */
+    private void addRawSampleData(Variant variant, String fileId, String studyId, RawSampleColumns rawSamples,
+                                  int alternateAlleleIdx) {
+        variant.getSourceEntry(fileId, studyId).setSampleColumns(
+                rawSamples.getNumberOfSamples(), () -> recodeGenotypes(rawSamples.decode(), alternateAlleleIdx));
+    }
+
+    private SampleColumns recodeGenotypes(SampleColumns samples, int alternateAlleleIdx) {
+        String[] genotypes = new String[samples.getNumberOfGenotypes()];
+        for (int code = 0; code < genotypes.length; code++) {
+            genotypes[code] = processGenotypeField(alternateAlleleIdx, samples.getGenotype(code));
         }
+        return samples.withGenotypes(genotypes);
     }
 
     /**
@@ -317,24 +441,22 @@ public class VariantVcfFactory {
     protected void parseInfo(Variant variant, String fileId, String studyId, String info, int numAllele) {
         VariantSourceEntry file = variant.getSourceEntry(fileId, studyId);
 
-        for (String var : info.split(";")) {
-            String[] splits = var.split("=");
-            if (splits.length == 2) {
-                switch (splits[0]) {
+        VcfFieldTokenizer infoFields = infoTokenizer.tokenize(info, ';');
+        for (int i = 0; i < infoFields.size(); i++) {
+            VcfFieldTokenizer splits = infoKeyValueTokenizer.tokenize(info, infoFields.start(i), infoFields.end(i),
+                                                                      '=');
+            String key = splits.get(0);
+            if (splits.size() == 2) {
+                switch (key) {
                     case "ACC":
                         // Managing accession ID for the allele
-                        String[] ids = splits[1].split(",");
-                        file.addAttribute(splits[0], ids[numAllele]);
-                        break;
                     case "AC":
                         // TODO For now, only one alternate is supported
-                        String[] counts = splits[1].split(",");
-                        file.addAttribute(splits[0], counts[numAllele]);
-                        break;
                     case "AF":
                         // TODO For now, only one alternate is supported
-                        String[] frequencies = splits[1].split(",");
-                        file.addAttribute(splits[0], frequencies[numAllele]);
+                        VcfFieldTokenizer values = infoValuesTokenizer.tokenize(info, splits.start(1), splits.end(1),
+                                                                                ',');
+                        file.addAttribute(key, values.get(numAllele));
                         break;
 //                    case "AN":
 //                        // TODO For now, only two alleles (reference and one alternate) are supported, but this should be changed
@@ -342,24 +464,28 @@ public class VariantVcfFactory {
 //                        break;
                     case "NS":
                         // Count the number of samples that are associated with the allele
-                        file.addAttribute(splits[0], String.valueOf(file.getSamplesData().size()));
+                        file.addAttribute(key, String.valueOf(file.getNumberOfSamples()));
                         break;
                     case "DP":
                         int dp = 0;
-                        for (Map<String, String> sampleData : file.getSamplesData()) {
-                            String sampleDp = sampleData.get("DP");
+                        SampleColumns dpSamples = file.getSampleColumns();
+                        int dpIndex = dpSamples.getFormat().indexOf("DP");
+                        for (int sample = 0; sample < dpSamples.getNumberOfSamples(); sample++) {
+                            String sampleDp = dpSamples.getValue(sample, dpIndex);
                             if (StringUtils.isNumeric(sampleDp)) {
                                 dp += Integer.parseInt(sampleDp);
                             }
                         }
-                        file.addAttribute(splits[0], String.valueOf(dp));
+                        file.addAttribute(key, String.valueOf(dp));
                         break;
                     case "MQ":
                     case "MQ0":
                         int mq = 0;
                         int mq0 = 0;
-                        for (Map<String, String> sampleData : file.getSamplesData()) {
-                            String sampleGq = sampleData.get("GQ");
+                        SampleColumns gqSamples = file.getSampleColumns();
+                        int gqIndex = gqSamples.getFormat().indexOf("GQ");
+                        for (int sample = 0; sample < gqSamples.getNumberOfSamples(); sample++) {
+                            String sampleGq = gqSamples.getValue(sample, gqIndex);
                             if (StringUtils.isNumeric(sampleGq)) {
                                 int gq = Integer.parseInt(sampleGq);
                                 mq += gq * gq;
@@ -372,11 +498,11 @@ public class VariantVcfFactory {
                         file.addAttribute("MQ0", String.valueOf(mq0));
                         break;
                     default:
-                        file.addAttribute(splits[0], splits[1]);
+                        file.addAttribute(key, splits.get(1));
                         break;
                 }
             } else {
-                variant.getSourceEntry(fileId, studyId).addAttribute(splits[0], "");
+                variant.getSourceEntry(fileId, studyId).addAttribute(key, "");
             }
         }
     }
@@ -429,4 +555,66 @@ public class VariantVcfFactory {
         }
         return correctedAllele;
     }
+
+    /**
+     * Sample columns of a line that have not been split yet. They are decoded at most once, and the result is shared
+     * by all the variants created from the line. The decoding uses its own tokenizers, so it may happen in a
+     * different thread than the one reading the file.
+     */
+    private static class RawSampleColumns {
+
+        private final String line;
+
+        private final int start;
+
+        private final SampleColumns.Format sampleFormat;
+
+        private final int numberOfSamples;
+
+        private SampleColumns decoded;
+
+        RawSampleColumns(String line, int start, SampleColumns.Format sampleFormat) {
+            this.line = line;
+            this.start = start;
+            this.sampleFormat = sampleFormat;
+            this.numberOfSamples = countColumns(line, start);
+        }
+
+        /**
+         * Counts the columns without allocating anything, ignoring trailing empty columns as
+         * {@link VcfFieldTokenizer} does.
+         */
+        private static int countColumns(String line, int start) {
+            int end = line.length();
+            while (end > start && line.charAt(end - 1) == '\t') {
+                end--;
+            }
+            if (end == start) {
+                return 0;
+            }
+            int columns = 1;
+            for (int i = start; i < end; i++) {
+                if (line.charAt(i) == '\t') {
+                    columns++;
+                }
+            }
+            return columns;
+        }
+
+        int getNumberOfSamples() {
+            return numberOfSamples;
+        }
+
+        synchronized SampleColumns decode() {
+            if (decoded == null) {
+                if (numberOfSamples == 0) {
+                    decoded = SampleColumns.EMPTY;
+                } else {
+                    VcfFieldTokenizer columns = new VcfFieldTokenizer().tokenize(line, start, line.length(), '\t');
+                    decoded = decodeSamples(columns, 0, sampleFormat, new VcfFieldTokenizer());
+                }
+            }
+            return decoded;
+        }
+    }
 }
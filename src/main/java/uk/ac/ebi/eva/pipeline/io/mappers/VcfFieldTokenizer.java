@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+import java.util.Arrays;
+
+/**
+ * Splits a VCF line, or a part of it, by a separator character, recording the offsets of each field instead of
+ * creating a String for each of them. Only the fields actually requested with {@link #get(int)} are materialised.
+ * <p>
+ * The fields found are the same as with {@link String#split(String)} using a single character as regex: trailing
+ * empty fields are discarded, and a text without separators is a single field.
+ * <p>
+ * An instance can be reused for any number of lines, but it is not thread-safe.
+ */
+public class VcfFieldTokenizer {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String text;
+
+    private int[] starts;
+
+    private int[] ends;
+
+    private int size;
+
+    public VcfFieldTokenizer() {
+        starts = new int[INITIAL_CAPACITY];
+        ends = new int[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    public VcfFieldTokenizer tokenize(String text, char separator) {
+        return tokenize(text, 0, text.length(), separator);
+    }
+
+    /**
+     * Finds the fields in text[from, to) separated by the given character.
+     *
+     * @return this tokenizer, to allow chaining
+     */
+    public VcfFieldTokenizer tokenize(String text, int from, int to, char separator) {
+        this.text = text;
+        size = 0;
+        int fieldStart = from;
+        for (int i = from; i < to; i++) {
+            if (text.charAt(i) == separator) {
+                add(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        add(fieldStart, to);
+
+        if (size > 1) {
+            while (size > 0 && starts[size - 1] == ends[size - 1]) {
+                size--;
+            }
+        }
+        return this;
+    }
+
+    private void add(int start, int end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int start(int field) {
+        checkIndex(field);
+        return starts[field];
+    }
+
+    public int end(int field) {
+        checkIndex(field);
+        return ends[field];
+    }
+
+    public int length(int field) {
+        return end(field) - start(field);
+    }
+
+    public String get(int field) {
+        return text.substring(start(field), end(field));
+    }
+
+    /**
+     * @return whether the field has exactly the given value, without creating a String for it
+     */
+    public boolean fieldEquals(int field, String value) {
+        return length(field) == value.length() && text.regionMatches(start(field), value, 0, value.length());
+    }
+
+    /**
+     * @return whether the field is "." (missing value in VCF)
+     */
+    public boolean isMissing(int field) {
+        return length(field) == 1 && text.charAt(start(field)) == '.';
+    }
+
+    public String[] toArray() {
+        String[] fields = new String[size];
+        for (int i = 0; i < size; i++) {
+            fields[i] = get(i);
+        }
+        return fields;
+    }
+
+    private void checkIndex(int field) {
+        if (field < 0 || field >= size) {
+            throw new ArrayIndexOutOfBoundsException(field);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.util.Assert;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reader that keeps reading (and parsing) items from a delegate in a background thread, while the step is busy
+ * processing or writing the previous chunk. Up to a given number of items are buffered.
+ * <p>
+ * The restart semantics of the delegate are kept: the item count stored in the execution context is the number of
+ * items handed to the step, not the number of items read ahead from the delegate. If the delegate is a
+ * {@link ResumableItemReader}, the position in its input is also the one after the last item handed to the step.
+ * <p>
+ * Exceptions of the delegate are handed to the step in order, and reading continues after them, as the step may skip
+ * the failed items. Errors (e.g. OutOfMemoryError) stop the reading and are handed to the step too.
+ *
+ * @param <T> type of the items
+ */
+public class ReadAheadItemStreamReader<T> implements ItemStreamReader<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadAheadItemStreamReader.class);
+
+    /**
+     * Key used by {@link AbstractItemCountingItemStreamItemReader} to store the number of items read.
+     */
+    private static final String READ_COUNT = "read.count";
+
+    private static final long THREAD_CHECK_INTERVAL_MILLIS = 500;
+
+    private final AbstractItemCountingItemStreamItemReader<T> delegate;
+
+    private final ResumableItemReader resumableDelegate;
+
+    private final int capacity;
+
+    private BlockingQueue<Result<T>> buffer;
+
+    private Thread readingThread;
+
+    private int itemCount;
+
+    /** Position in the input of the delegate after the last item handed to the step */
+    private long position;
+
+    private boolean exhausted;
+
+    /**
+     * @param delegate reader whose items are read in advance
+     * @param capacity maximum number of items read in advance
+     */
+    public ReadAheadItemStreamReader(AbstractItemCountingItemStreamItemReader<T> delegate, int capacity) {
+        Assert.notNull(delegate);
+        Assert.isTrue(capacity > 0, "The number of items to read ahead must be positive");
+        this.delegate = delegate;
+        this.resumableDelegate = delegate instanceof ResumableItemReader ? (ResumableItemReader) delegate : null;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.open(executionContext);
+        itemCount = executionContext.getInt(delegate.getExecutionContextKey(READ_COUNT), 0);
+        position = getDelegatePosition();
+        exhausted = false;
+        buffer = new ArrayBlockingQueue<>(capacity);
+        readingThread = new Thread(this::readAhead, "read-ahead-" + delegate.getClass().getSimpleName());
+        readingThread.setDaemon(true);
+        readingThread.start();
+    }
+
+    private void readAhead() {
+        try {
+            Result<T> result;
+            do {
+                synchronized (delegate) {
+                    result = readFromDelegate();
+                }
+                buffer.put(result);
+            } while (result.item != null || result.exception instanceof Exception);
+        } catch (InterruptedException e) {
+            logger.debug("Reading ahead was interrupted");
+        }
+    }
+
+    private Result<T> readFromDelegate() {
+        try {
+            T item = delegate.read();
+            return new Result<>(item, null, getDelegatePosition());
+        } catch (Exception e) {
+            // the step decides whether the failed item is skipped, so the following items are still read
+            return new Result<>(null, e, getDelegatePosition());
+        } catch (Error e) {
+            // this can't be skipped, so it's the last result and it will fail the step
+            return new Result<>(null, e, -1);
+        }
+    }
+
+    /**
+     * @return position in the input of the delegate after the last item read from it, or -1 if it is unknown
+     */
+    private long getDelegatePosition() {
+        if (resumableDelegate == null) {
+            return -1;
+        }
+        try {
+            return resumableDelegate.getPosition();
+        } catch (IOException e) {
+            logger.warn("Could not get the position of the next item, a restart will skip the previous ones", e);
+            return -1;
+        }
+    }
+
+    @Override
+    public T read() throws Exception {
+        if (exhausted) {
+            return null;
+        }
+        Result<T> result = takeResult();
+        if (result.exception instanceof Error) {
+            throw (Error) result.exception;
+        }
+        position = result.position;
+        if (result.exception != null) {
+            itemCount++;
+            throw (Exception) result.exception;
+        }
+        if (result.item == null) {
+            exhausted = true;
+        } else {
+            itemCount++;
+        }
+        return result.item;
+    }
+
+    /**
+     * Waits for the next result, checking regularly that the reading thread didn't die without handing over a result.
+     */
+    private Result<T> takeResult() throws InterruptedException {
+        while (true) {
+            Result<T> result = buffer.poll(THREAD_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            if (result != null) {
+                return result;
+            }
+            if (!readingThread.isAlive()) {
+                result = buffer.poll();
+                if (result != null) {
+                    return result;
+                }
+                throw new ItemStreamException("The thread reading ahead from " + delegate.getClass().getSimpleName()
+                                                      + " finished without reading all the items");
+            }
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        synchronized (delegate) {
+            delegate.update(executionContext);
+        }
+        if (delegate.isSaveState()) {
+            executionContext.putInt(delegate.getExecutionContextKey(READ_COUNT), itemCount);
+            if (resumableDelegate != null && position >= 0) {
+                resumableDelegate.savePosition(executionContext, position, itemCount);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (readingThread != null) {
+            readingThread.interrupt();
+            try {
+                readingThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            readingThread = null;
+        }
+        synchronized (delegate) {
+            delegate.close();
+        }
+    }
+
+    private static class Result<T> {
+
+        private final T item;
+
+        private final Throwable exception;
+
+        private final long position;
+
+        Result(T item, Throwable exception, long position) {
+            this.item = item;
+            this.exception = exception;
+            this.position = position;
+        }
+    }
+}
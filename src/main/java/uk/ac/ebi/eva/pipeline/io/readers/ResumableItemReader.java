@@ -0,0 +1,40 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+
+/**
+ * Reader that knows the position in its input after the last item read, and can save it in the execution context to
+ * resume reading there after a restart.
+ * <p>
+ * A reader wrapping it that hands over fewer items than the ones it has read (see
+ * {@link ReadAheadItemStreamReader}) can then save the position of the last item actually handed over.
+ */
+public interface ResumableItemReader {
+
+    /**
+     * @return position in the input after the last item read, or -1 if the reader doesn't save positions
+     */
+    long getPosition() throws IOException;
+
+    /**
+     * Saves a position returned by {@link #getPosition()} as the one to resume at after some number of items.
+     */
+    void savePosition(ExecutionContext executionContext, long position, int itemCount);
+}
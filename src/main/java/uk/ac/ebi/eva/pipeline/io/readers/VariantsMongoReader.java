@@ -15,6 +15,7 @@
  */
 package uk.ac.ebi.eva.pipeline.io.readers;
 
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.BasicDBObjectBuilder;
 import com.mongodb.DBObject;
@@ -29,9 +30,11 @@ import uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument;
 import uk.ac.ebi.eva.commons.models.mongo.entity.projections.SimplifiedVariant;
 import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantAnnotation;
 import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantSourceEntryMongo;
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
 import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
 
 import javax.annotation.PostConstruct;
+import java.util.List;
 
 import static uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument.ALTERNATE_FIELD;
 import static uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument.CHROMOSOME_FIELD;
@@ -52,6 +55,8 @@ public class VariantsMongoReader
 
     private MongoConverter converter;
 
+    private DBObject query;
+
     private static final String STUDY_KEY = VariantDocument.FILES_FIELD + "." + VariantSourceEntryMongo.STUDYID_FIELD;
 
     private static final String FILE_KEY = VariantDocument.FILES_FIELD + "." + VariantSourceEntryMongo.FILEID_FIELD;
@@ -91,7 +96,8 @@ public class VariantsMongoReader
                     new BasicDBObject("$not", new BasicDBObject("$elemMatch", annotationSubdocument));
             queryBuilder.add(VariantDocument.ANNOTATION_FIELD, noElementMatchesOurVersion);
         }
-        delegateReader.setQuery(queryBuilder.get());
+        query = queryBuilder.get();
+        delegateReader.setQuery(query);
 
         String[] fields = {CHROMOSOME_FIELD, START_FIELD, END_FIELD, REFERENCE_FIELD, ALTERNATE_FIELD};
         delegateReader.setFields(fields);
@@ -99,6 +105,25 @@ public class VariantsMongoReader
         converter = mongoOperations.getConverter();
     }
 
+    /**
+     * Restricts the variants read to those starting in any of the regions. An empty list doesn't restrict them.
+     */
+    public void setRegions(List<GenomicRegion> regions) {
+        if (regions.isEmpty()) {
+            query.removeField("$or");
+        } else {
+            BasicDBList regionQueries = new BasicDBList();
+            for (GenomicRegion region : regions) {
+                BasicDBObject startInRegion = new BasicDBObject("$gte", region.getStart())
+                        .append("$lte", region.getEnd());
+                regionQueries.add(new BasicDBObject(CHROMOSOME_FIELD, region.getChromosome())
+                                          .append(START_FIELD, startInRegion));
+            }
+            query.put("$or", regionQueries);
+        }
+        delegateReader.setQuery(query);
+    }
+
     @PostConstruct
     @Override
     public void afterPropertiesSet() throws Exception {
@@ -15,17 +15,27 @@
  */
 package uk.ac.ebi.eva.pipeline.io.readers;
 
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.file.FlatFileItemReader;
 import org.springframework.batch.item.file.LineMapper;
 import org.springframework.core.io.Resource;
 
 import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
+import uk.ac.ebi.eva.pipeline.io.PositionedBufferedReaderFactory;
+import uk.ac.ebi.eva.pipeline.io.TabixIndex;
+import uk.ac.ebi.eva.pipeline.io.VcfRegionsResource;
+import uk.ac.ebi.eva.pipeline.io.mappers.ContigFilterLineMapper;
 import uk.ac.ebi.eva.pipeline.io.mappers.VcfLineMapper;
+import uk.ac.ebi.eva.utils.CompressionHelper;
 import uk.ac.ebi.eva.utils.FileUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * VCF file reader.
@@ -34,8 +44,31 @@ import java.util.List;
  * <p>
  * It receives a VariantSource (which needs to be completely filled, including the samples, possibly by
  * {@link VcfHeaderReader}), and a file (compressed or not).
+ * <p>
+ * Besides the number of lines read, the position in the file of the next line is saved in the execution context
+ * (see {@link PositionedBufferedReaderFactory}), so that a restart resumes reading there instead of reading again
+ * all the previous lines. Plain gzip files can't seek: a restart still inflates them from the start, and only
+ * splitting and parsing the previous lines is avoided. Bgzip and uncompressed files are resumed with random access.
  */
-public class VcfReader extends FlatFileItemReader<List<Variant>> {
+public class VcfReader extends FlatFileItemReader<List<Variant>> implements ResumableItemReader {
+
+    private static final String POSITION_KEY = "position";
+
+    private static final String POSITION_COUNT_KEY = "position.count";
+
+    private static final String READ_COUNT_KEY = "read.count";
+
+    private final LineMapper<List<Variant>> lineMapper;
+
+    private final File file;
+
+    private final PositionedBufferedReaderFactory bufferedReaderFactory;
+
+    private boolean savePosition;
+
+    private boolean resumedAtPosition;
+
+    private List<GenomicRegion> regions;
 
     public VcfReader(String fileId, String studyId, String file)
             throws IOException {
@@ -51,6 +84,109 @@ public class VcfReader extends FlatFileItemReader<List<Variant>> {
         Resource resource = FileUtils.getResource(file);
         setResource(resource);
         setLineMapper(lineMapper);
+        this.lineMapper = lineMapper;
+        this.file = file;
+        this.bufferedReaderFactory = new PositionedBufferedReaderFactory();
+        setBufferedReaderFactory(bufferedReaderFactory);
+        this.savePosition = true;
+    }
+
+    /**
+     * Restricts the variants returned by this reader to the ones overlapping some regions. If the file is
+     * bgzip-compressed and indexed with tabix or CSI, only the parts of the file that contain the regions are read.
+     *
+     * @param regions regions to read, see {@link GenomicRegion#parseList(String)}
+     */
+    public void setRegions(List<GenomicRegion> regions) {
+        this.regions = regions;
+        setResource(new VcfRegionsResource(file, regions));
+        // the lines returned come from different parts of the file, so there is no single position to resume from
+        this.savePosition = false;
+    }
+
+    /**
+     * Restricts the variants returned by this reader to the ones in some contigs. If the file is bgzip-compressed and
+     * indexed with tabix or CSI, the contigs are read as whole regions, so only the parts of the file that contain
+     * them are read. Otherwise, or if some regions were already set, lines from other contigs are still read, but not
+     * parsed.
+     *
+     * @param contigs contigs to read (or to skip, if excludeContigs is true)
+     * @param excludeContigs whether the contigs given are the ones to skip instead of the ones to read
+     * @throws IOException if the index can't be read
+     */
+    public void setContigs(Set<String> contigs, boolean excludeContigs) throws IOException {
+        File indexFile = TabixIndex.findIndex(file);
+        if (regions == null && indexFile != null && CompressionHelper.isBgzf(file)) {
+            List<GenomicRegion> contigRegions = new ArrayList<>();
+            for (String sequence : TabixIndex.read(indexFile).getSequenceNames()) {
+                if (contigs.contains(sequence) != excludeContigs) {
+                    contigRegions.add(new GenomicRegion(sequence));
+                }
+            }
+            setRegions(contigRegions);
+        } else {
+            setLineMapper(new ContigFilterLineMapper(lineMapper, contigs, excludeContigs));
+        }
+    }
+
+    /**
+     * If the execution context has a position saved for the same number of lines as the last commit, the reader
+     * starts there. Otherwise (the position was saved by an older version, or the reader is wrapped by another one
+     * that checkpoints fewer lines than this one has read and doesn't save the position with
+     * {@link #savePosition}), the previous lines are skipped one by one as usual.
+     */
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        resumedAtPosition = false;
+        long position = 0;
+        String positionKey = getExecutionContextKey(POSITION_KEY);
+        String positionCountKey = getExecutionContextKey(POSITION_COUNT_KEY);
+        String readCountKey = getExecutionContextKey(READ_COUNT_KEY);
+        if (isSaveState() && savePosition && executionContext.containsKey(positionKey)
+                && executionContext.containsKey(readCountKey)
+                && executionContext.getInt(positionCountKey, -1) == executionContext.getInt(readCountKey)) {
+            position = executionContext.getLong(positionKey);
+            resumedAtPosition = true;
+        }
+        bufferedReaderFactory.setStartPosition(position);
+        super.open(executionContext);
+    }
+
+    @Override
+    protected void jumpToItem(int itemIndex) throws Exception {
+        if (!resumedAtPosition) {
+            super.jumpToItem(itemIndex);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        super.update(executionContext);
+        try {
+            long position = getPosition();
+            if (position >= 0) {
+                savePosition(executionContext, position, getCurrentItemCount());
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Could not get the position of the next line in " + file, e);
+        }
+    }
+
+    /**
+     * @return position in the file of the line after the last one read, or -1 if the position is not saved
+     */
+    @Override
+    public long getPosition() throws IOException {
+        if (!isSaveState() || !savePosition) {
+            return -1;
+        }
+        return bufferedReaderFactory.getPosition();
+    }
+
+    @Override
+    public void savePosition(ExecutionContext executionContext, long position, int itemCount) {
+        executionContext.putLong(getExecutionContextKey(POSITION_KEY), position);
+        executionContext.putInt(getExecutionContextKey(POSITION_COUNT_KEY), itemCount);
     }
 
 }
@@ -18,6 +18,7 @@ package uk.ac.ebi.eva.pipeline.io.writers;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import org.springframework.batch.item.ItemWriter;
 import org.springframework.data.mongodb.core.BulkOperations;
@@ -77,12 +78,22 @@ public class AnnotationMongoWriter implements ItemWriter<Annotation> {
     private final String collection;
 
     public AnnotationMongoWriter(MongoOperations mongoOperations, String collection) {
+        this(mongoOperations, collection, false);
+    }
+
+    /**
+     * @param deferIndexes if true, no index is created, and {@link #createIndexes(DBCollection, boolean)} must be
+     * called once all the annotations have been written
+     */
+    public AnnotationMongoWriter(MongoOperations mongoOperations, String collection, boolean deferIndexes) {
         Assert.notNull(mongoOperations);
         Assert.hasText(collection);
         this.mongoOperations = mongoOperations;
         this.collection = collection;
 
-        createIndexes();
+        if (!deferIndexes) {
+            createIndexes(mongoOperations.getCollection(collection), true);
+        }
     }
 
     @Override
@@ -138,12 +149,15 @@ public class AnnotationMongoWriter implements ItemWriter<Annotation> {
         return (BasicDBList) mongoOperations.getConverter().convertToMongoType(object);
     }
 
-    private void createIndexes() {
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(ANNOTATION_XREF_ID_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(ANNOTATION_CT_SO_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+    /**
+     * Creates the indexes of an annotations collection on the xrefs and the SO accessions of the consequence types.
+     *
+     * @param background whether the indexes are built in the background instead of locking the database
+     */
+    public static void createIndexes(DBCollection annotationsCollection, boolean background) {
+        annotationsCollection.createIndex(new BasicDBObject(ANNOTATION_XREF_ID_FIELD, 1),
+                                          new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
+        annotationsCollection.createIndex(new BasicDBObject(ANNOTATION_CT_SO_FIELD, 1),
+                                          new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
     }
 }
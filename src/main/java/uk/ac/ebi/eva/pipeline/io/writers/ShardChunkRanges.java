@@ -0,0 +1,154 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shard that owns each range of positions of a sharded variants collection, as described by the chunks of the
+ * collection in the "config" database: documents like
+ * {@code { ns: "db.variants", min: { chr: "1", start: 1000 }, max: { chr: "1", start: 20000 }, shard: "shard01" }}.
+ * <p>
+ * Only shard keys made of "chr" and/or "start" are understood. Any other shard key, such as a hashed one, can't be
+ * used to predict where a variant goes, and every variant is then considered to be in the same shard.
+ */
+public class ShardChunkRanges {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardChunkRanges.class);
+
+    private static final String CONFIG_DATABASE = "config";
+
+    private static final String CHUNKS_COLLECTION = "chunks";
+
+    private static final String NAMESPACE_FIELD = "ns";
+
+    private static final String MIN_FIELD = "min";
+
+    private static final String SHARD_FIELD = "shard";
+
+    private final List<DBObject> lowerBounds;
+
+    private final List<String> shards;
+
+    /**
+     * @param chunks documents with the format of the "config.chunks" collection, in any order
+     */
+    public ShardChunkRanges(List<DBObject> chunks) {
+        List<DBObject> sortedChunks = new ArrayList<>(chunks);
+        sortedChunks.sort((chunk, otherChunk) -> compare((DBObject) chunk.get(MIN_FIELD),
+                                                         (DBObject) otherChunk.get(MIN_FIELD)));
+        lowerBounds = new ArrayList<>(sortedChunks.size());
+        shards = new ArrayList<>(sortedChunks.size());
+        for (DBObject chunk : sortedChunks) {
+            DBObject lowerBound = (DBObject) chunk.get(MIN_FIELD);
+            if (!isPositionKey(lowerBound)) {
+                logger.warn("Shard key {} is not based on the variant position, writes will not be grouped by shard",
+                            lowerBound.keySet());
+                lowerBounds.clear();
+                shards.clear();
+                return;
+            }
+            lowerBounds.add(lowerBound);
+            shards.add(chunk.get(SHARD_FIELD).toString());
+        }
+    }
+
+    /**
+     * Reads the chunk ranges of a collection from the "config" database of its cluster. In a deployment without
+     * sharding there are no chunks, and every variant is considered to be in the same shard.
+     */
+    public static ShardChunkRanges fromConfigChunks(DBCollection collection) {
+        DBCollection chunksCollection = collection.getDB().getMongo().getDB(CONFIG_DATABASE)
+                                                  .getCollection(CHUNKS_COLLECTION);
+        List<DBObject> chunks = chunksCollection.find(new BasicDBObject(NAMESPACE_FIELD, collection.getFullName()))
+                                                .toArray();
+        logger.info("Found {} chunks of collection {}", chunks.size(), collection.getFullName());
+        return new ShardChunkRanges(chunks);
+    }
+
+    /**
+     * @return name of the shard that owns the position, or null if it is unknown
+     */
+    public String getShard(String chromosome, int start) {
+        DBObject position = new BasicDBObject(VariantDocument.CHROMOSOME_FIELD, chromosome)
+                .append(VariantDocument.START_FIELD, start);
+        int low = 0;
+        int high = lowerBounds.size() - 1;
+        int found = -1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (compare(lowerBounds.get(middle), position) <= 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found == -1 ? null : shards.get(found);
+    }
+
+    private static boolean isPositionKey(DBObject bound) {
+        for (String field : bound.keySet()) {
+            if (!field.equals(VariantDocument.CHROMOSOME_FIELD) && !field.equals(VariantDocument.START_FIELD)) {
+                return false;
+            }
+        }
+        return !bound.keySet().isEmpty();
+    }
+
+    /**
+     * Compares two shard key values field by field, in the order of the fields of the first one. A field missing in
+     * the second one is considered equal.
+     */
+    private static int compare(DBObject bound, DBObject otherBound) {
+        for (String field : bound.keySet()) {
+            if (!otherBound.containsField(field)) {
+                continue;
+            }
+            int comparison = compareValues(bound.get(field), otherBound.get(field));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object value, Object otherValue) {
+        if (value instanceof MinKey || otherValue instanceof MaxKey) {
+            return (value instanceof MinKey && otherValue instanceof MinKey)
+                    || (value instanceof MaxKey && otherValue instanceof MaxKey) ? 0 : -1;
+        }
+        if (value instanceof MaxKey || otherValue instanceof MinKey) {
+            return 1;
+        }
+        if (value instanceof Number && otherValue instanceof Number) {
+            return Double.compare(((Number) value).doubleValue(), ((Number) otherValue).doubleValue());
+        }
+        return ((Comparable<Object>) value).compareTo(otherValue);
+    }
+}
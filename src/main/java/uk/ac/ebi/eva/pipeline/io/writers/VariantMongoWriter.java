@@ -17,11 +17,15 @@ package uk.ac.ebi.eva.pipeline.io.writers;
 
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteError;
+import com.mongodb.BulkWriteException;
 import com.mongodb.BulkWriteOperation;
+import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.batch.item.data.MongoItemWriter;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.data.mongodb.core.MongoOperations;
 import org.springframework.util.Assert;
 import uk.ac.ebi.eva.commons.models.data.Variant;
@@ -29,13 +33,25 @@ import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 import uk.ac.ebi.eva.commons.models.data.VariantStats;
 import uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument;
 import uk.ac.ebi.eva.commons.models.mongo.entity.projections.SimplifiedVariant;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.SourceLineEncoder;
 import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantSourceEntryMongo;
 import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantStatsMongo;
 import uk.ac.ebi.eva.utils.MongoDBHelper;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument.ANNOTATION_FIELD;
 import static uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument.IDS_FIELD;
@@ -46,47 +62,325 @@ import static uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantAnno
  * Write a list of {@link Variant} into MongoDB
  * See also {@link org.opencb.opencga.storage.mongodb.variant.VariantMongoDBWriter}
  */
-public class VariantMongoWriter extends MongoItemWriter<Variant> {
+public class VariantMongoWriter extends MongoItemWriter<Variant> implements DisposableBean {
+
+    /**
+     * How the variants are written into the collection.
+     */
+    public enum WriteMode {
+        /** Upsert every variant, merging it with the variant already stored, if any */
+        UPSERT,
+
+        /**
+         * Insert whole documents, which avoids the index lookup of each upsert. The variants that were already
+         * stored are upserted afterwards. Fast if the collection is expected to be empty.
+         */
+        INSERT,
+
+        /** Insert the chunks in which no variant falls in a range with stored variants, and upsert the rest */
+        AUTO
+    }
 
     private static final Logger logger = LoggerFactory.getLogger(VariantMongoWriter.class);
 
+    private static final int DUPLICATE_KEY_ERROR_CODE = 11000;
+
+    private static final AtomicInteger poolCount = new AtomicInteger();
+
     private final MongoOperations mongoOperations;
 
     private final String collection;
     private final boolean includeStats;
     private final boolean includeSamples;
 
+    /**
+     * The batches of a chunk are converted in several threads, and each encoder keeps the last line it gzipped
+     */
+    private final ThreadLocal<SourceLineEncoder> sourceLineEncoder;
+
+    private final WriteMode writeMode;
+
+    private final int writeThreads;
+
+    private final int writeBatchSize;
+
+    private ExecutorService writeExecutor;
+
+    private final ShardChunkRanges shardChunkRanges;
+
+    private long writtenBatches;
+
+    private long totalBatchMillis;
+
+    private long maxBatchMillis;
+
+    private final AtomicLong mergedDuplicates = new AtomicLong();
+
+    private final boolean packGenotypes;
+
     public VariantMongoWriter(String collection, MongoOperations mongoOperations, boolean includeStats,
                               boolean includeSamples) {
+        this(collection, mongoOperations, includeStats, includeSamples, new VariantMongoWriterSettings());
+    }
+
+    /**
+     * @param settings how the variants are converted and written, see {@link VariantMongoWriterSettings}
+     */
+    public VariantMongoWriter(String collection, MongoOperations mongoOperations, boolean includeStats,
+                              boolean includeSamples, VariantMongoWriterSettings settings) {
         Assert.notNull(mongoOperations, "A Mongo instance is required");
         Assert.hasText(collection, "A collection name is required");
+        Assert.notNull(settings, "The writer settings are required");
 
         this.mongoOperations = mongoOperations;
         this.collection = collection;
         setTemplate(mongoOperations);
         this.includeStats = includeStats;
         this.includeSamples = includeSamples;
+        SourceLineEncoder.Policy includeSrc = settings.getIncludeSrc();
+        this.sourceLineEncoder = ThreadLocal.withInitial(() -> new SourceLineEncoder(includeSrc));
+        this.writeMode = settings.getWriteMode();
+        this.writeThreads = settings.getWriteThreads();
+        this.writeBatchSize = settings.getWriteBatchSize();
+        this.shardChunkRanges = settings.getShardChunkRanges();
+        this.packGenotypes = settings.isPackGenotypes();
+
+        if (settings.isDeferIndexes()) {
+            createPositionIndex(mongoOperations.getCollection(collection), true);
+        } else {
+            createIndexes(mongoOperations.getCollection(collection), true);
+        }
 
-        createIndexes();
+        if (writeThreads > 1) {
+            int poolNumber = poolCount.incrementAndGet();
+            writeExecutor = Executors.newFixedThreadPool(writeThreads, runnable -> {
+                Thread thread = new Thread(runnable, "variant-writer-" + poolNumber);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
 
     @Override
     protected void doWrite(List<? extends Variant> variants) {
-        BulkWriteOperation bulk = mongoOperations.getCollection(collection).initializeUnorderedBulkOperation();
+        List<List<? extends Variant>> batches = splitInBatches(variants);
+        if (writeExecutor == null || batches.size() == 1) {
+            for (List<? extends Variant> batch : batches) {
+                writeBatch(batch);
+            }
+        } else {
+            List<Future<?>> pendingBatches = new ArrayList<>(batches.size());
+            for (List<? extends Variant> batch : batches) {
+                pendingBatches.add(writeExecutor.submit(() -> writeBatch(batch)));
+            }
+            waitForBatches(pendingBatches);
+        }
+    }
+
+    /**
+     * Sorts the variants by position and cuts them in batches, also where the shard changes if the shard chunk ranges
+     * are known. Variants at the same position always go in the same batch, so that two concurrent writes never race
+     * to create the same document.
+     */
+    private List<List<? extends Variant>> splitInBatches(List<? extends Variant> variants) {
+        int batchSize = writeBatchSize > 0 ? writeBatchSize : (variants.size() + writeThreads - 1) / writeThreads;
+        List<List<? extends Variant>> batches = new ArrayList<>();
+        if (variants.isEmpty() || (batchSize >= variants.size() && shardChunkRanges == null)) {
+            batches.add(variants);
+            return batches;
+        }
+
+        List<Variant> sortedVariants = new ArrayList<>(variants);
+        sortedVariants.sort(Comparator.comparing(Variant::getChromosome).thenComparing(Variant::getStart));
+        int batchStart = 0;
+        String batchShard = getShard(sortedVariants.get(0));
+        for (int i = 1; i < sortedVariants.size(); i++) {
+            Variant variant = sortedVariants.get(i);
+            String shard = getShard(variant);
+            boolean batchIsFull = i - batchStart >= batchSize && !samePosition(sortedVariants.get(i - 1), variant);
+            if (batchIsFull || !Objects.equals(batchShard, shard)) {
+                batches.add(sortedVariants.subList(batchStart, i));
+                batchStart = i;
+                batchShard = shard;
+            }
+        }
+        batches.add(sortedVariants.subList(batchStart, sortedVariants.size()));
+        return batches;
+    }
+
+    private String getShard(Variant variant) {
+        return shardChunkRanges == null ? null : shardChunkRanges.getShard(variant.getChromosome(),
+                                                                            variant.getStart());
+    }
+
+    private boolean samePosition(Variant variant, Variant otherVariant) {
+        return variant.getStart() == otherVariant.getStart()
+                && variant.getChromosome().equals(otherVariant.getChromosome());
+    }
+
+    private void writeBatch(List<? extends Variant> variants) {
+        long start = System.currentTimeMillis();
+        List<UniqueVariant> uniqueVariants = mergeDuplicates(variants);
+        if (writeMode == WriteMode.INSERT || (writeMode == WriteMode.AUTO && !anyVariantStoredInRange(variants))) {
+            insertVariants(uniqueVariants);
+        } else {
+            upsertVariants(uniqueVariants);
+        }
+        recordBatchLatency(variants.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Groups the variants that would be stored in the same document, such as the same variant written twice in a VCF,
+     * or two records that are equal after normalization. Each group is written with a single operation instead of
+     * sending several operations for the same ID in the same bulk.
+     */
+    private List<UniqueVariant> mergeDuplicates(List<? extends Variant> variants) {
+        Map<String, UniqueVariant> variantsById = new LinkedHashMap<>();
         for (Variant variant : variants) {
             String id = VariantDocument.buildVariantId(variant.getChromosome(), variant.getStart(),
                     variant.getReference(), variant.getAlternate());
+            variantsById.computeIfAbsent(id, UniqueVariant::new).duplicates.add(variant);
+        }
+        int duplicates = variants.size() - variantsById.size();
+        if (duplicates > 0) {
+            mergedDuplicates.addAndGet(duplicates);
+            logger.debug("Merged {} duplicated variants before writing", duplicates);
+        }
+        return new ArrayList<>(variantsById.values());
+    }
+
+    /**
+     * @return number of variants that were merged with another one with the same ID in the same chunk
+     */
+    public long getMergedDuplicates() {
+        return mergedDuplicates.get();
+    }
+
+    /**
+     * Waits for all the batches, even if some fail, so that no write of this chunk is still running when the step
+     * rolls back or retries it. The first error is rethrown.
+     */
+    private void waitForBatches(List<Future<?>> pendingBatches) {
+        RuntimeException firstError = null;
+        for (Future<?> pendingBatch : pendingBatches) {
+            try {
+                pendingBatch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while writing variants", e);
+            } catch (ExecutionException e) {
+                if (firstError == null) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    firstError = cause instanceof RuntimeException ? (RuntimeException) cause
+                            : new IllegalStateException("Could not write variants", cause);
+                }
+            }
+        }
+        if (firstError != null) {
+            throw firstError;
+        }
+    }
+
+    private synchronized void recordBatchLatency(int batchSize, long millis) {
+        writtenBatches++;
+        totalBatchMillis += millis;
+        maxBatchMillis = Math.max(maxBatchMillis, millis);
+        logger.debug("Wrote a batch of {} variants in {} ms", batchSize, millis);
+    }
+
+    /**
+     * Logs the latency of the bulk writes and stops the write threads.
+     */
+    @Override
+    public synchronized void destroy() {
+        if (writtenBatches > 0) {
+            logger.info("Wrote {} batches of variants into '{}', {} ms on average, {} ms the slowest", writtenBatches,
+                        collection, totalBatchMillis / writtenBatches, maxBatchMillis);
+        }
+        if (mergedDuplicates.get() > 0) {
+            logger.info("{} duplicated variants were merged before writing them", mergedDuplicates.get());
+        }
+        if (writeExecutor != null) {
+            writeExecutor.shutdown();
+            writeExecutor = null;
+        }
+    }
+
+    private void upsertVariants(List<UniqueVariant> uniqueVariants) {
+        BulkWriteOperation bulk = mongoOperations.getCollection(collection).initializeUnorderedBulkOperation();
+        for (UniqueVariant uniqueVariant : uniqueVariants) {
+            Variant variant = uniqueVariant.duplicates.get(0);
 
             // the chromosome and start appear just as shard keys, in an unsharded cluster they wouldn't be needed
-            BasicDBObject query = new BasicDBObject("_id", id)
+            BasicDBObject query = new BasicDBObject("_id", uniqueVariant.id)
                     .append(VariantDocument.CHROMOSOME_FIELD, variant.getChromosome())
                     .append(VariantDocument.START_FIELD, variant.getStart());
 
-            bulk.find(query).upsert().updateOne(generateUpdate(variant));
+            bulk.find(query).upsert().updateOne(generateUpdate(uniqueVariant));
+
+        }
+
+        executeBulk(bulk, uniqueVariants.size());
+    }
+
+    /**
+     * Inserts the variants as whole documents. The ones rejected because a variant with the same ID was already
+     * stored are upserted afterwards, so the result is the same as upserting all of them.
+     */
+    private void insertVariants(List<UniqueVariant> uniqueVariants) {
+        if (uniqueVariants.isEmpty()) {
+            return;
+        }
+        BulkWriteOperation bulk = mongoOperations.getCollection(collection).initializeUnorderedBulkOperation();
+        for (UniqueVariant uniqueVariant : uniqueVariants) {
+            bulk.insert(generateDocument(uniqueVariant));
+        }
+
+        try {
+            executeBulk(bulk, uniqueVariants.size());
+        } catch (BulkWriteException e) {
+            if (e.getWriteConcernError() != null) {
+                throw e;
+            }
+            List<UniqueVariant> storedVariants = new ArrayList<>();
+            for (BulkWriteError writeError : e.getWriteErrors()) {
+                if (writeError.getCode() != DUPLICATE_KEY_ERROR_CODE) {
+                    throw e;
+                }
+                storedVariants.add(uniqueVariants.get(writeError.getIndex()));
+            }
+            logger.debug("{} out of {} variants were already stored, they will be updated", storedVariants.size(),
+                         uniqueVariants.size());
+            upsertVariants(storedVariants);
+        }
+    }
 
+    /**
+     * Checks, for each chromosome in the variants, whether there is any stored variant between the smallest and
+     * largest start of the variants. This is one indexed query per chromosome instead of one per variant.
+     */
+    private boolean anyVariantStoredInRange(List<? extends Variant> variants) {
+        Map<String, int[]> startRanges = new LinkedHashMap<>();
+        for (Variant variant : variants) {
+            int[] range = startRanges.computeIfAbsent(variant.getChromosome(),
+                                                      chromosome -> new int[]{variant.getStart(), variant.getStart()});
+            range[0] = Math.min(range[0], variant.getStart());
+            range[1] = Math.max(range[1], variant.getStart());
         }
 
-        executeBulk(bulk, variants.size());
+        DBCollection dbCollection = mongoOperations.getCollection(collection);
+        for (Map.Entry<String, int[]> startRange : startRanges.entrySet()) {
+            BasicDBObject query = new BasicDBObject(VariantDocument.CHROMOSOME_FIELD, startRange.getKey())
+                    .append(VariantDocument.START_FIELD, new BasicDBObject("$gte", startRange.getValue()[0])
+                            .append("$lte", startRange.getValue()[1]));
+            if (dbCollection.findOne(query, new BasicDBObject("_id", 1)) != null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void executeBulk(BulkWriteOperation bulk, int currentBulkSize) {
@@ -96,73 +390,152 @@ public class VariantMongoWriter extends MongoItemWriter<Variant> {
         }
     }
 
-    private void createIndexes() {
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(VariantDocument.CHROMOSOME_FIELD, 1)
-                        .append(VariantDocument.START_FIELD, 1).append(VariantDocument.END_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+    /**
+     * Creates all the indexes of a variants collection.
+     *
+     * @param background whether the indexes are built in the background, which does not block the database but is
+     * slower and produces bigger indexes than a foreground build
+     */
+    public static void createIndexes(DBCollection variantsCollection, boolean background) {
+        createPositionIndex(variantsCollection, background);
 
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(VariantDocument.IDS_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+        variantsCollection.createIndex(new BasicDBObject(VariantDocument.IDS_FIELD, 1),
+                                       new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
 
         String filesStudyIdField = String.format("%s.%s", VariantDocument.FILES_FIELD,
                 VariantSourceEntryMongo.STUDYID_FIELD);
         String filesFileIdField = String.format("%s.%s", VariantDocument.FILES_FIELD,
                 VariantSourceEntryMongo.FILEID_FIELD);
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(filesStudyIdField, 1).append(filesFileIdField, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+        variantsCollection.createIndex(new BasicDBObject(filesStudyIdField, 1).append(filesFileIdField, 1),
+                                       new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
 
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(ANNOTATION_FIELD + "." + XREFS_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
-        mongoOperations.getCollection(collection).createIndex(
-                new BasicDBObject(ANNOTATION_FIELD + "." + SO_ACCESSION_FIELD, 1),
-                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, true));
+        variantsCollection.createIndex(new BasicDBObject(ANNOTATION_FIELD + "." + XREFS_FIELD, 1),
+                                       new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
+        variantsCollection.createIndex(new BasicDBObject(ANNOTATION_FIELD + "." + SO_ACCESSION_FIELD, 1),
+                                       new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
     }
 
-    private DBObject generateUpdate(Variant variant) {
+    private static void createPositionIndex(DBCollection variantsCollection, boolean background) {
+        variantsCollection.createIndex(
+                new BasicDBObject(VariantDocument.CHROMOSOME_FIELD, 1)
+                        .append(VariantDocument.START_FIELD, 1).append(VariantDocument.END_FIELD, 1),
+                new BasicDBObject(MongoDBHelper.BACKGROUND_INDEX, background));
+    }
+
+    /**
+     * @param uniqueVariant variants with the same ID, whose files, statistics and IDs are merged into the same update
+     */
+    private DBObject generateUpdate(UniqueVariant uniqueVariant) {
+        List<Variant> duplicates = uniqueVariant.duplicates;
+        Variant variant = duplicates.get(0);
         Assert.notNull(variant, "Variant should not be null. Please provide a valid Variant object");
         logger.trace("Convert variant {} into mongo object", variant);
 
         BasicDBObject addToSet = new BasicDBObject();
 
-        if (!variant.getSourceEntries().isEmpty()) {
-            VariantSourceEntry variantSourceEntry = variant.getSourceEntries().values().iterator().next();
-
-            addToSet.put(VariantDocument.FILES_FIELD, convert(variantSourceEntry));
+        BasicDBList files = convertSourceEntries(duplicates);
+        if (!files.isEmpty()) {
+            addToSet.put(VariantDocument.FILES_FIELD, files.size() == 1 ? files.get(0)
+                    : new BasicDBObject("$each", files));
 
             if (includeStats) {
-                BasicDBList basicDBList = convertStatistics(variantSourceEntry);
-                addToSet.put(VariantDocument.STATS_FIELD, new BasicDBObject("$each", basicDBList));
+                addToSet.put(VariantDocument.STATS_FIELD, new BasicDBObject("$each", convertStatistics(duplicates)));
             }
         }
 
-        if (variant.getIds() != null && !variant.getIds().isEmpty()) {
-            addToSet.put(IDS_FIELD, new BasicDBObject("$each", variant.getIds()));
+        Set<String> ids = mergeIds(duplicates);
+        if (!ids.isEmpty()) {
+            addToSet.put(IDS_FIELD, new BasicDBObject("$each", ids));
         }
 
         BasicDBObject update = new BasicDBObject();
         if (!addToSet.isEmpty()) {
             update.put("$addToSet", addToSet);
         }
-        update.append("$setOnInsert", convert(variant));
+        update.append("$setOnInsert", convert(variant, uniqueVariant.id));
 
         return update;
     }
 
+    /**
+     * @return the document that {@link #generateUpdate} would create if the variant was not stored yet
+     */
+    private DBObject generateDocument(UniqueVariant uniqueVariant) {
+        List<Variant> duplicates = uniqueVariant.duplicates;
+        Variant variant = duplicates.get(0);
+        Assert.notNull(variant, "Variant should not be null. Please provide a valid Variant object");
+
+        DBObject document = convert(variant, uniqueVariant.id);
+        BasicDBList files = convertSourceEntries(duplicates);
+        if (!files.isEmpty()) {
+            document.put(VariantDocument.FILES_FIELD, files);
+
+            if (includeStats) {
+                document.put(VariantDocument.STATS_FIELD, convertStatistics(duplicates));
+            }
+        }
+
+        Set<String> ids = mergeIds(duplicates);
+        if (!ids.isEmpty()) {
+            BasicDBList idsList = new BasicDBList();
+            idsList.addAll(ids);
+            document.put(IDS_FIELD, idsList);
+        }
+        return document;
+    }
+
+    /**
+     * Converts the first source entry of each variant, skipping repeated ones like $addToSet would do.
+     */
+    private BasicDBList convertSourceEntries(List<Variant> duplicates) {
+        BasicDBList files = new BasicDBList();
+        for (Variant variant : duplicates) {
+            if (!variant.getSourceEntries().isEmpty()) {
+                addIfAbsent(files, convert(variant.getSourceEntries().values().iterator().next()));
+            }
+        }
+        return files;
+    }
+
+    private BasicDBList convertStatistics(List<Variant> duplicates) {
+        BasicDBList variantStats = new BasicDBList();
+        for (Variant variant : duplicates) {
+            if (!variant.getSourceEntries().isEmpty()) {
+                for (Object stats : convertStatistics(variant.getSourceEntries().values().iterator().next())) {
+                    addIfAbsent(variantStats, stats);
+                }
+            }
+        }
+        return variantStats;
+    }
+
+    private void addIfAbsent(BasicDBList list, Object element) {
+        if (!list.contains(element)) {
+            list.add(element);
+        }
+    }
+
+    private Set<String> mergeIds(List<Variant> duplicates) {
+        Set<String> ids = new LinkedHashSet<>();
+        for (Variant variant : duplicates) {
+            if (variant.getIds() != null) {
+                ids.addAll(variant.getIds());
+            }
+        }
+        return ids;
+    }
+
     private BasicDBList convertStatistics(VariantSourceEntry variantSourceEntry) {
-        List<VariantStatsMongo> variantStats = new ArrayList<>();
+        BasicDBList variantStats = new BasicDBList();
         for (Map.Entry<String, VariantStats> variantStatsEntry : variantSourceEntry.getCohortStats().entrySet()) {
             variantStats.add(new VariantStatsMongo(
                     variantSourceEntry.getStudyId(),
                     variantSourceEntry.getFileId(),
                     variantStatsEntry.getKey(),
                     variantStatsEntry.getValue()
-            ));
+            ).toDBObject());
         }
-        return (BasicDBList) mongoOperations.getConverter().convertToMongoType(variantStats);
+        return variantStats;
     }
 
     private DBObject convert(VariantSourceEntry variantSourceEntry) {
@@ -174,21 +547,25 @@ public class VariantMongoWriter extends MongoItemWriter<Variant> {
                     variantSourceEntry.getSecondaryAlternates(),
                     variantSourceEntry.getAttributes(),
                     variantSourceEntry.getFormat(),
-                    variantSourceEntry.getSamplesData()
+                    variantSourceEntry.getSampleColumns(),
+                    sourceLineEncoder.get(),
+                    packGenotypes
             );
         } else {
             variantSource = new VariantSourceEntryMongo(
                     variantSourceEntry.getFileId(),
                     variantSourceEntry.getStudyId(),
                     variantSourceEntry.getSecondaryAlternates(),
-                    variantSourceEntry.getAttributes()
+                    variantSourceEntry.getAttributes(),
+                    sourceLineEncoder.get()
             );
         }
-        return (DBObject) mongoOperations.getConverter().convertToMongoType(variantSource);
+        return variantSource.toDBObject();
     }
 
-    private DBObject convert(Variant variant) {
+    private DBObject convert(Variant variant, String id) {
         SimplifiedVariant simplifiedVariant = new SimplifiedVariant(
+                id,
                 variant.getType(),
                 variant.getChromosome(),
                 variant.getStart(),
@@ -197,6 +574,21 @@ public class VariantMongoWriter extends MongoItemWriter<Variant> {
                 variant.getReference(),
                 variant.getAlternate(),
                 variant.getHgvs());
-        return (DBObject) mongoOperations.getConverter().convertToMongoType(simplifiedVariant);
+        return simplifiedVariant.toDBObject();
+    }
+
+    /**
+     * Variants of a batch that are stored in the same document, with the ID of that document
+     */
+    private static class UniqueVariant {
+
+        private final String id;
+
+        private final List<Variant> duplicates;
+
+        UniqueVariant(String id) {
+            this.id = id;
+            this.duplicates = new ArrayList<>(1);
+        }
     }
 }
\ No newline at end of file
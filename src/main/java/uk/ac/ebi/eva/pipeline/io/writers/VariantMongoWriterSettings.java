@@ -0,0 +1,143 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.springframework.util.Assert;
+
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.PackedGenotypes;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.SourceLineEncoder;
+
+/**
+ * Optional settings of a {@link VariantMongoWriter}. By default, the first 8 columns of the VCF line are stored, each
+ * chunk is upserted in a single bulk write, all the indexes are created up front and the genotypes are not packed.
+ */
+public class VariantMongoWriterSettings {
+
+    private SourceLineEncoder.Policy includeSrc;
+
+    private VariantMongoWriter.WriteMode writeMode;
+
+    private boolean deferIndexes;
+
+    private int writeThreads;
+
+    private int writeBatchSize;
+
+    private ShardChunkRanges shardChunkRanges;
+
+    private boolean packGenotypes;
+
+    public VariantMongoWriterSettings() {
+        this.includeSrc = SourceLineEncoder.Policy.FIRST_8_COLUMNS;
+        this.writeMode = VariantMongoWriter.WriteMode.UPSERT;
+        this.deferIndexes = false;
+        this.writeThreads = 1;
+        this.writeBatchSize = 0;
+        this.shardChunkRanges = null;
+        this.packGenotypes = false;
+    }
+
+    public SourceLineEncoder.Policy getIncludeSrc() {
+        return includeSrc;
+    }
+
+    /**
+     * @param includeSrc how much of the original VCF line is stored in the "src" attribute
+     */
+    public VariantMongoWriterSettings setIncludeSrc(SourceLineEncoder.Policy includeSrc) {
+        Assert.notNull(includeSrc, "The policy to store the VCF line is required");
+        this.includeSrc = includeSrc;
+        return this;
+    }
+
+    public VariantMongoWriter.WriteMode getWriteMode() {
+        return writeMode;
+    }
+
+    /**
+     * @param writeMode whether the variants are upserted or inserted, see {@link VariantMongoWriter.WriteMode}
+     */
+    public VariantMongoWriterSettings setWriteMode(VariantMongoWriter.WriteMode writeMode) {
+        Assert.notNull(writeMode, "The write mode is required");
+        this.writeMode = writeMode;
+        return this;
+    }
+
+    public boolean isDeferIndexes() {
+        return deferIndexes;
+    }
+
+    /**
+     * @param deferIndexes if true, only the position index is created by the writer, because it queries it. The
+     * rest must be built after loading with {@link VariantMongoWriter#createIndexes}
+     */
+    public VariantMongoWriterSettings setDeferIndexes(boolean deferIndexes) {
+        this.deferIndexes = deferIndexes;
+        return this;
+    }
+
+    public int getWriteThreads() {
+        return writeThreads;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Splits every chunk in batches of contiguous genomic positions and sends up to writeThreads of them to the
+     * database at the same time, so that the round trip of one bulk write does not hold back the rest. The chunk is
+     * not finished until all its batches are acknowledged.
+     *
+     * @param writeThreads maximum number of bulk writes in flight
+     * @param writeBatchSize number of variants per bulk write, or 0 to split each chunk in writeThreads batches
+     */
+    public VariantMongoWriterSettings setConcurrentWrites(int writeThreads, int writeBatchSize) {
+        Assert.isTrue(writeThreads > 0, "The number of write threads must be positive");
+        Assert.isTrue(writeBatchSize >= 0, "The write batch size can't be negative");
+        this.writeThreads = writeThreads;
+        this.writeBatchSize = writeBatchSize;
+        return this;
+    }
+
+    public ShardChunkRanges getShardChunkRanges() {
+        return shardChunkRanges;
+    }
+
+    /**
+     * Makes every batch contain variants of just one shard, so that each bulk write is sent to a single shard instead
+     * of being split by mongos among all of them.
+     *
+     * @param shardChunkRanges the shard of each range of positions, or null to not group the variants by shard
+     */
+    public VariantMongoWriterSettings setShardChunkRanges(ShardChunkRanges shardChunkRanges) {
+        this.shardChunkRanges = shardChunkRanges;
+        return this;
+    }
+
+    public boolean isPackGenotypes() {
+        return packGenotypes;
+    }
+
+    /**
+     * @param packGenotypes if true, the genotypes of the samples are stored in the compact binary format of
+     * {@link PackedGenotypes}, which readers must decode with {@link PackedGenotypes#decode}
+     */
+    public VariantMongoWriterSettings setPackGenotypes(boolean packGenotypes) {
+        this.packGenotypes = packGenotypes;
+        return this;
+    }
+}
@@ -17,57 +17,191 @@ package uk.ac.ebi.eva.pipeline.io.writers;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
 
+import uk.ac.ebi.eva.pipeline.io.VepAnnotationCache;
 import uk.ac.ebi.eva.pipeline.io.VepProcess;
+import uk.ac.ebi.eva.pipeline.io.VepWorkerPool;
 import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
 import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * ItemStreamWriter that takes VariantWrappers and serialize them into a {@link VepProcess}, which will be responsible
  * for annotating the variants and writing them to a file.
+ * <p>
+ * If some workers are requested, the variants are annotated instead by a {@link VepWorkerPool} that is started with
+ * the first chunk and stays alive until the step finishes, and the annotations of each chunk are appended to the
+ * file once all of them have been received.
+ * <p>
+ * If a {@link VepAnnotationCache} is set, the variants are always annotated by a {@link VepWorkerPool}, with one
+ * worker if none were requested, that only sends to VEP the variants that are not in the cache.
  */
-public class VepAnnotationFileWriter implements ItemWriter<EnsemblVariant> {
+public class VepAnnotationFileWriter implements ItemStreamWriter<EnsemblVariant> {
 
     private static final Logger logger = LoggerFactory.getLogger(VepAnnotationFileWriter.class);
 
+    private static final boolean APPEND = true;
+
     private final AnnotationParameters annotationParameters;
 
+    private final String vepOutput;
+
     private final Integer chunkSize;
 
     private final Long timeoutInSeconds;
 
+    private final int workers;
+
+    private VepAnnotationCache annotationCache;
+
+    private VepWorkerPool vepWorkerPool;
+
     public VepAnnotationFileWriter(AnnotationParameters annotationParameters, Integer chunkSize, Long timeoutInSeconds) {
+        this(annotationParameters, chunkSize, timeoutInSeconds, 0);
+    }
+
+    /**
+     * @param workers number of persistent VEP processes, or 0 to start a new one for each chunk
+     */
+    public VepAnnotationFileWriter(AnnotationParameters annotationParameters, Integer chunkSize, Long timeoutInSeconds,
+                                   int workers) {
+        this(annotationParameters, annotationParameters.getVepOutput(), chunkSize, timeoutInSeconds, workers);
+    }
+
+    /**
+     * @param vepOutput file where the annotations are appended, such as the shard of a partition
+     * @param workers number of persistent VEP processes, or 0 to start a new one for each chunk
+     */
+    public VepAnnotationFileWriter(AnnotationParameters annotationParameters, String vepOutput, Integer chunkSize,
+                                   Long timeoutInSeconds, int workers) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("The number of VEP workers (" + workers + ") can't be negative");
+        }
         this.annotationParameters = annotationParameters;
+        this.vepOutput = vepOutput;
         this.chunkSize = chunkSize;
         this.timeoutInSeconds = timeoutInSeconds;
+        this.workers = workers;
+    }
+
+    /**
+     * @param annotationCache cache consulted before sending the variants to VEP, or null
+     */
+    public void setAnnotationCache(VepAnnotationCache annotationCache) {
+        this.annotationCache = annotationCache;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (vepWorkerPool != null) {
+            try {
+                vepWorkerPool.close();
+            } finally {
+                vepWorkerPool = null;
+            }
+        }
     }
 
     @Override
     public void write(List<? extends EnsemblVariant> variantWrappers) throws Exception {
-        VepProcess vepProcess = new VepProcess(annotationParameters, chunkSize, timeoutInSeconds);
+        if (workers > 0 || annotationCache != null) {
+            writeWithWorkers(variantWrappers);
+        } else {
+            writeWithNewProcess(variantWrappers);
+        }
+    }
+
+    private void writeWithNewProcess(List<? extends EnsemblVariant> variantWrappers) throws IOException {
+        VepProcess vepProcess = new VepProcess(annotationParameters, vepOutput, chunkSize, timeoutInSeconds);
         vepProcess.open();
 
+        StringBuilder input = new StringBuilder();
+        for (EnsemblVariant ensemblVariant : variantWrappers) {
+            input.append(getVariantInVepInputFormat(ensemblVariant)).append(System.lineSeparator());
+        }
+        try {
+            vepProcess.write(input.toString().getBytes());
+            logReceivedVariants(variantWrappers);
+            vepProcess.flush();
+        } catch (IOException | RuntimeException e) {
+            vepProcess.abort();
+            throw e;
+        }
+        vepProcess.close();
+    }
+
+    private void writeWithWorkers(List<? extends EnsemblVariant> variantWrappers) throws IOException {
+        if (variantWrappers.isEmpty()) {
+            return;
+        }
+        if (vepWorkerPool == null) {
+            vepWorkerPool = new VepWorkerPool(annotationParameters, Math.max(1, workers), chunkSize, timeoutInSeconds,
+                                              annotationCache);
+            vepWorkerPool.open();
+        }
+
+        List<String> lines = new ArrayList<>(variantWrappers.size());
         for (EnsemblVariant ensemblVariant : variantWrappers) {
-            String line = getVariantInVepInputFormat(ensemblVariant);
-            vepProcess.write(line.getBytes());
-            vepProcess.write(System.lineSeparator().getBytes());
+            lines.add(getVariantInVepInputFormat(ensemblVariant));
+        }
+        logReceivedVariants(variantWrappers);
+
+        List<String> annotations = vepWorkerPool.annotate(lines);
+        appendAnnotations(vepOutput, vepWorkerPool.getHeader(), annotations);
+        logger.trace("VEP wrote {} annotations", annotations.size());
+    }
+
+    /**
+     * Every chunk is written as a separate gzip member, so the file is complete after each commit. The header is
+     * written only if the file is new.
+     */
+    static void appendAnnotations(String vepOutput, List<String> header, List<String> annotations)
+            throws IOException {
+        boolean writeHeader = !new File(vepOutput).exists();
+        try (Writer writer = new OutputStreamWriter(
+                new GZIPOutputStream(new FileOutputStream(vepOutput, APPEND)))) {
+            if (writeHeader) {
+                for (String headerLine : header) {
+                    writer.write(headerLine);
+                    writer.write('\n');
+                }
+            }
+            for (String annotation : annotations) {
+                writer.write(annotation);
+                writer.write('\n');
+            }
         }
+    }
 
+    private void logReceivedVariants(List<? extends EnsemblVariant> variantWrappers) {
         if (variantWrappers.size() > 0) {
             EnsemblVariant first = variantWrappers.get(0);
             EnsemblVariant last = variantWrappers.get(variantWrappers.size() - 1);
             logger.trace("VEP has received {} variants from {}:{} to {}:{}", variantWrappers.size(),
                     first.getChr(), first.getStart(), last.getChr(), last.getStart());
         }
-
-        vepProcess.flush();
-        vepProcess.close();
     }
 
-    private String getVariantInVepInputFormat(EnsemblVariant ensemblVariant) {
+    static String getVariantInVepInputFormat(EnsemblVariant ensemblVariant) {
         return String.join("\t",
                            ensemblVariant.getChr(),
                            Integer.toString(ensemblVariant.getStart()),
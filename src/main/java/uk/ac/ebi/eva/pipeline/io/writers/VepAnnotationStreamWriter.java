@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStream;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+
+import uk.ac.ebi.eva.commons.models.mongo.entity.Annotation;
+import uk.ac.ebi.eva.pipeline.io.VepAnnotationCache;
+import uk.ac.ebi.eva.pipeline.io.VepWorkerPool;
+import uk.ac.ebi.eva.pipeline.io.mappers.AnnotationLineMapper;
+import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ItemStreamWriter that annotates the variants with a {@link VepWorkerPool} and, instead of writing the VEP output to
+ * a file to be loaded by a later step, parses every line with an {@link AnnotationLineMapper} and passes the
+ * annotations of the whole chunk to another writer, such as the one that stores them in the database.
+ * <p>
+ * The VEP output file can still be written as an audit copy of what was loaded. The lines that can't be parsed are
+ * skipped, up to {@link #SKIP_LIMIT} per step, like in the step that loads the annotations from the VEP output file.
+ */
+public class VepAnnotationStreamWriter implements ItemStreamWriter<EnsemblVariant> {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepAnnotationStreamWriter.class);
+
+    static final int SKIP_LIMIT = 50;
+
+    private final AnnotationParameters annotationParameters;
+
+    private final String auditOutput;
+
+    private final Integer chunkSize;
+
+    private final Long timeoutInSeconds;
+
+    private final int workers;
+
+    private final ItemWriter<Annotation> annotationWriter;
+
+    private final AnnotationLineMapper lineMapper;
+
+    private VepAnnotationCache annotationCache;
+
+    private VepWorkerPool vepWorkerPool;
+
+    private int lineNumber;
+
+    private int skippedLines;
+
+    /**
+     * @param auditOutput file where the VEP output is appended as well, or null to keep it only in memory
+     * @param workers number of persistent VEP processes; 0 is taken as 1, as the output of a VEP process that is
+     * started for each chunk can only be written to a file
+     * @param annotationWriter writer of the annotations parsed from the VEP output
+     */
+    public VepAnnotationStreamWriter(AnnotationParameters annotationParameters, String auditOutput, Integer chunkSize,
+                                     Long timeoutInSeconds, int workers, ItemWriter<Annotation> annotationWriter) {
+        if (workers < 0) {
+            throw new IllegalArgumentException("The number of VEP workers (" + workers + ") can't be negative");
+        }
+        this.annotationParameters = annotationParameters;
+        this.auditOutput = auditOutput;
+        this.chunkSize = chunkSize;
+        this.timeoutInSeconds = timeoutInSeconds;
+        this.workers = Math.max(1, workers);
+        this.annotationWriter = annotationWriter;
+        this.lineMapper = new AnnotationLineMapper(annotationParameters.getVepVersion(),
+                                                   annotationParameters.getVepCacheVersion());
+    }
+
+    /**
+     * @param annotationCache cache consulted before sending the variants to VEP, or null
+     */
+    public void setAnnotationCache(VepAnnotationCache annotationCache) {
+        this.annotationCache = annotationCache;
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (annotationWriter instanceof ItemStream) {
+            ((ItemStream) annotationWriter).open(executionContext);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (annotationWriter instanceof ItemStream) {
+            ((ItemStream) annotationWriter).update(executionContext);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        try {
+            if (vepWorkerPool != null) {
+                vepWorkerPool.close();
+            }
+        } finally {
+            vepWorkerPool = null;
+            if (annotationWriter instanceof ItemStream) {
+                ((ItemStream) annotationWriter).close();
+            }
+        }
+    }
+
+    @Override
+    public void write(List<? extends EnsemblVariant> variantWrappers) throws Exception {
+        if (variantWrappers.isEmpty()) {
+            return;
+        }
+        if (vepWorkerPool == null) {
+            vepWorkerPool = new VepWorkerPool(annotationParameters, workers, chunkSize, timeoutInSeconds,
+                                              annotationCache);
+            vepWorkerPool.open();
+        }
+
+        List<String> lines = new ArrayList<>(variantWrappers.size());
+        for (EnsemblVariant ensemblVariant : variantWrappers) {
+            lines.add(VepAnnotationFileWriter.getVariantInVepInputFormat(ensemblVariant));
+        }
+        List<String> vepOutputLines = vepWorkerPool.annotate(lines);
+
+        List<Annotation> annotations = mapAnnotations(vepOutputLines);
+        annotationWriter.write(annotations);
+        if (auditOutput != null) {
+            VepAnnotationFileWriter.appendAnnotations(auditOutput, vepWorkerPool.getHeader(), vepOutputLines);
+        }
+        logger.trace("{} variants annotated, {} annotations written", variantWrappers.size(), annotations.size());
+    }
+
+    private List<Annotation> mapAnnotations(List<String> vepOutputLines) {
+        List<Annotation> annotations = new ArrayList<>(vepOutputLines.size());
+        for (String line : vepOutputLines) {
+            lineNumber++;
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            try {
+                annotations.add(lineMapper.mapLine(line, lineNumber));
+            } catch (RuntimeException e) {
+                skippedLines++;
+                logger.error("Skipped line " + lineNumber + " of the VEP output (" + line + "): " + e.getMessage());
+                if (skippedLines > SKIP_LIMIT) {
+                    throw new ItemStreamException("More than " + SKIP_LIMIT + " lines of the VEP output could not "
+                                                          + "be parsed", e);
+                }
+            }
+        }
+        return annotations;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.util.StringUtils;
+
+import uk.ac.ebi.eva.commons.models.mongo.entity.VariantDocument;
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.REGIONS;
+
+/**
+ * Splits the variants of a collection in genomic ranges of similar length, so that each range can be annotated
+ * independently.
+ * <p>
+ * The first and last start of each chromosome are taken from the position index, and the sum of the spans of all
+ * the chromosomes is divided evenly among the partitions, so a big chromosome can be split in several partitions and
+ * a partition can take several small chromosomes. The first range of each chromosome starts at position 1 and the
+ * last one has no end, so every variant is assigned to exactly one partition.
+ */
+public class VariantRegionPartitioner implements Partitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(VariantRegionPartitioner.class);
+
+    public static final String PARTITION_PREFIX = "partition";
+
+    private final MongoOperations mongoOperations;
+
+    private final String collectionVariantsName;
+
+    public VariantRegionPartitioner(MongoOperations mongoOperations, String collectionVariantsName) {
+        this.mongoOperations = mongoOperations;
+        this.collectionVariantsName = collectionVariantsName;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<List<GenomicRegion>> regionsByPartition = splitRegions(readChromosomeSpans(), gridSize);
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        for (int i = 0; i < regionsByPartition.size(); i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putString(REGIONS, StringUtils.collectionToCommaDelimitedString(regionsByPartition.get(i)));
+            partitions.put(PARTITION_PREFIX + i, context);
+        }
+
+        logger.info("Variants of collection {} split in {} partitions: {}", collectionVariantsName,
+                    regionsByPartition.size(), regionsByPartition);
+        return partitions;
+    }
+
+    /**
+     * @return first and last start of every chromosome
+     */
+    private Map<String, int[]> readChromosomeSpans() {
+        DBCollection collection = mongoOperations.getCollection(collectionVariantsName);
+        Map<String, int[]> chromosomeSpans = new LinkedHashMap<>();
+        for (Object chromosome : collection.distinct(VariantDocument.CHROMOSOME_FIELD)) {
+            BasicDBObject query = new BasicDBObject(VariantDocument.CHROMOSOME_FIELD, chromosome);
+            int firstStart = readStart(collection, query, 1);
+            int lastStart = readStart(collection, query, -1);
+            chromosomeSpans.put(chromosome.toString(), new int[]{firstStart, lastStart});
+        }
+        return chromosomeSpans;
+    }
+
+    private int readStart(DBCollection collection, DBObject query, int order) {
+        DBObject sort = new BasicDBObject(VariantDocument.CHROMOSOME_FIELD, order)
+                .append(VariantDocument.START_FIELD, order);
+        DBObject fields = new BasicDBObject(VariantDocument.START_FIELD, 1);
+        try (DBCursor cursor = collection.find(query, fields).sort(sort).limit(1)) {
+            return ((Number) cursor.next().get(VariantDocument.START_FIELD)).intValue();
+        }
+    }
+
+    /**
+     * @param chromosomeSpans first and last start of every chromosome, in the order they should be assigned
+     * @return regions of each partition; a single partition without regions if there are no chromosomes
+     */
+    static List<List<GenomicRegion>> splitRegions(Map<String, int[]> chromosomeSpans, int partitions) {
+        long totalSpan = 0;
+        for (int[] span : chromosomeSpans.values()) {
+            totalSpan += span[1] - span[0] + 1L;
+        }
+        int numberOfPartitions = (int) Math.max(1, Math.min(partitions, totalSpan));
+        long spanPerPartition = (totalSpan + numberOfPartitions - 1) / numberOfPartitions;
+
+        List<List<GenomicRegion>> regionsByPartition = new ArrayList<>(numberOfPartitions);
+        regionsByPartition.add(new ArrayList<>());
+        long remainingInPartition = spanPerPartition;
+        for (Map.Entry<String, int[]> chromosomeSpan : chromosomeSpans.entrySet()) {
+            int first = chromosomeSpan.getValue()[0];
+            int last = chromosomeSpan.getValue()[1];
+            long from = first;
+            while (from <= last) {
+                if (remainingInPartition == 0) {
+                    regionsByPartition.add(new ArrayList<>());
+                    remainingInPartition = spanPerPartition;
+                }
+                long to = Math.min(last, from + remainingInPartition - 1);
+                int start = from == first ? 1 : (int) from;
+                int end = to == last ? Integer.MAX_VALUE : (int) to;
+                regionsByPartition.get(regionsByPartition.size() - 1)
+                                  .add(new GenomicRegion(chromosomeSpan.getKey(), start, end));
+                remainingInPartition -= to - from + 1;
+                from = to + 1;
+            }
+        }
+        return regionsByPartition;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.util.StringUtils;
+
+import uk.ac.ebi.eva.utils.FileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.CONTIGS;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.EXCLUDE_CONTIGS;
+
+/**
+ * Splits a VCF file in groups of contigs of similar size, so that each group can be loaded independently.
+ * <p>
+ * The size of each contig is taken from the "##contig" lines of the header. If any contig lacks its length, the
+ * body of the file is scanned and the number of lines of each contig is used as its size instead.
+ * <p>
+ * The contigs are distributed largest first, each one to the partition with less work assigned so far. The first
+ * partition will also read any contig not declared in the header, so every line of the file is assigned to exactly
+ * one partition.
+ */
+public class VcfContigPartitioner implements Partitioner {
+
+    private static final Logger logger = LoggerFactory.getLogger(VcfContigPartitioner.class);
+
+    public static final String PARTITION_PREFIX = "partition";
+
+    private static final Pattern CONTIG_HEADER = Pattern.compile("^##contig=<ID=([^,>]+)(?:.*[,<]length=(\\d+))?.*>");
+
+    private final File vcf;
+
+    public VcfContigPartitioner(File vcf) {
+        this.vcf = vcf;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        Map<String, Long> contigSizes;
+        try {
+            contigSizes = readContigSizes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the contigs of the VCF " + vcf, e);
+        }
+
+        int numberOfPartitions = Math.max(1, Math.min(gridSize, contigSizes.size()));
+        List<List<String>> contigsByPartition = new ArrayList<>(numberOfPartitions);
+        long[] sizeByPartition = new long[numberOfPartitions];
+        for (int i = 0; i < numberOfPartitions; i++) {
+            contigsByPartition.add(new ArrayList<>());
+        }
+
+        List<Map.Entry<String, Long>> contigs = new ArrayList<>(contigSizes.entrySet());
+        contigs.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+        for (Map.Entry<String, Long> contig : contigs) {
+            int lightest = 0;
+            for (int i = 1; i < numberOfPartitions; i++) {
+                if (sizeByPartition[i] < sizeByPartition[lightest]) {
+                    lightest = i;
+                }
+            }
+            contigsByPartition.get(lightest).add(contig.getKey());
+            sizeByPartition[lightest] += contig.getValue();
+        }
+
+        Map<String, ExecutionContext> partitions = new HashMap<>();
+        List<String> contigsInOtherPartitions = new ArrayList<>();
+        for (int i = 1; i < numberOfPartitions; i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putString(CONTIGS, StringUtils.collectionToCommaDelimitedString(contigsByPartition.get(i)));
+            context.putString(EXCLUDE_CONTIGS, Boolean.FALSE.toString());
+            partitions.put(PARTITION_PREFIX + i, context);
+            contigsInOtherPartitions.addAll(contigsByPartition.get(i));
+        }
+        ExecutionContext firstContext = new ExecutionContext();
+        firstContext.putString(CONTIGS, StringUtils.collectionToCommaDelimitedString(contigsInOtherPartitions));
+        firstContext.putString(EXCLUDE_CONTIGS, Boolean.TRUE.toString());
+        partitions.put(PARTITION_PREFIX + 0, firstContext);
+
+        logger.info("VCF {} split in {} partitions: {}", vcf, numberOfPartitions, contigsByPartition);
+        return partitions;
+    }
+
+    private Map<String, Long> readContigSizes() throws IOException {
+        Map<String, Long> contigSizes = new LinkedHashMap<>();
+        boolean allLengthsKnown = true;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(FileUtils.getResource(vcf).getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null && line.startsWith("#")) {
+                Matcher matcher = CONTIG_HEADER.matcher(line);
+                if (matcher.matches()) {
+                    String length = matcher.group(2);
+                    allLengthsKnown &= length != null;
+                    contigSizes.put(matcher.group(1), length == null ? 0 : Long.parseLong(length));
+                }
+            }
+
+            if (contigSizes.isEmpty() || !allLengthsKnown) {
+                contigSizes.clear();
+                for (; line != null; line = reader.readLine()) {
+                    int endOfContig = line.indexOf('\t');
+                    String contig = endOfContig < 0 ? line : line.substring(0, endOfContig);
+                    contigSizes.merge(contig, 1L, Long::sum);
+                }
+            }
+        }
+        return contigSizes;
+    }
+
+}
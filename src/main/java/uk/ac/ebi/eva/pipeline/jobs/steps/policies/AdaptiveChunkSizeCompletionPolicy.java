@@ -0,0 +1,209 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.policies;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.policy.SimpleCompletionPolicy;
+import org.springframework.util.Assert;
+
+import uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Completion policy that changes the chunk size of a step while it runs. It must also be registered as a listener of
+ * the step, so that it can measure every chunk.
+ * <p>
+ * After each full chunk, the size is recalculated so that a chunk takes about the target time, growing or shrinking
+ * it at most by a factor of 2 each time. If the heap used after the last garbage collection is over the budget, the
+ * size is halved instead, and it is not allowed to grow while it is close to the budget. The size is always kept
+ * between the configured bounds.
+ * <p>
+ * The current size and the changes are stored in the step {@link ExecutionContext}, so that the sizes chosen can be
+ * analysed after the run, and a restarted step continues with the last size.
+ * <p>
+ * Until {@link #setAdaptive} is called, it behaves like a {@link SimpleCompletionPolicy}.
+ */
+public class AdaptiveChunkSizeCompletionPolicy extends SimpleCompletionPolicy implements ChunkListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveChunkSizeCompletionPolicy.class);
+
+    static final int MAX_RECORDED_CHANGES = 100;
+
+    /**
+     * Fraction of the heap budget from which the chunk size is not increased any more.
+     */
+    private static final double NO_GROWTH_HEAP_FRACTION = 0.8;
+
+    private boolean adaptive;
+
+    private int minChunkSize;
+
+    private int maxChunkSize;
+
+    private long targetChunkMillis;
+
+    private double heapBudget;
+
+    private boolean restored;
+
+    private long chunkStartMillis;
+
+    private int readCountBeforeChunk;
+
+    private final Deque<String> changes = new ArrayDeque<>();
+
+    public AdaptiveChunkSizeCompletionPolicy(int chunkSize) {
+        super(chunkSize);
+    }
+
+    /**
+     * @param minChunkSize the chunk size will not be smaller than this
+     * @param maxChunkSize the chunk size will not be bigger than this
+     * @param targetChunkMillis time that reading, processing and writing a chunk should take
+     * @param heapBudgetPercent percentage of the maximum heap that the live objects should not exceed
+     */
+    public void setAdaptive(int minChunkSize, int maxChunkSize, long targetChunkMillis, int heapBudgetPercent) {
+        Assert.isTrue(minChunkSize > 0, "The minimum chunk size must be positive");
+        Assert.isTrue(maxChunkSize >= minChunkSize, "The maximum chunk size can't be smaller than the minimum");
+        Assert.isTrue(targetChunkMillis > 0, "The target chunk time must be positive");
+        Assert.isTrue(heapBudgetPercent > 0 && heapBudgetPercent <= 100, "The heap budget must be a percentage");
+        this.adaptive = true;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetChunkMillis = targetChunkMillis;
+        this.heapBudget = heapBudgetPercent / 100.0;
+        setChunkSize(clamp(getChunkSize(), minChunkSize, maxChunkSize));
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        if (!adaptive) {
+            return;
+        }
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        if (!restored) {
+            restoreChunkSize(stepExecution.getExecutionContext());
+            restored = true;
+        }
+        readCountBeforeChunk = stepExecution.getReadCount();
+        chunkStartMillis = currentTimeMillis();
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (!adaptive) {
+            return;
+        }
+        StepExecution stepExecution = context.getStepContext().getStepExecution();
+        int items = stepExecution.getReadCount() - readCountBeforeChunk;
+        if (items < getChunkSize()) {
+            // the last chunk of the step, or some items were skipped: the time doesn't represent a full chunk
+            return;
+        }
+
+        int chunkSize = getChunkSize();
+        int nextChunkSize = calculateChunkSize(chunkSize, items, currentTimeMillis() - chunkStartMillis,
+                                               getHeapUsage());
+        if (nextChunkSize != chunkSize) {
+            logger.debug("Changing chunk size of step '{}' from {} to {}", stepExecution.getStepName(), chunkSize,
+                         nextChunkSize);
+            setChunkSize(nextChunkSize);
+            recordChange(stepExecution.getExecutionContext(), stepExecution.getReadCount(), nextChunkSize);
+        }
+    }
+
+    @Override
+    public void afterChunkError(ChunkContext context) {
+    }
+
+    int calculateChunkSize(int chunkSize, int items, long chunkMillis, double heapUsage) {
+        long nextChunkSize = chunkMillis > 0 ? items * targetChunkMillis / chunkMillis : (long) chunkSize * 2;
+        nextChunkSize = clamp(nextChunkSize, chunkSize / 2, (long) chunkSize * 2);
+        if (heapUsage > heapBudget) {
+            nextChunkSize = Math.min(nextChunkSize, chunkSize / 2);
+        } else if (heapUsage > heapBudget * NO_GROWTH_HEAP_FRACTION) {
+            nextChunkSize = Math.min(nextChunkSize, chunkSize);
+        }
+        return (int) clamp(nextChunkSize, minChunkSize, maxChunkSize);
+    }
+
+    private void restoreChunkSize(ExecutionContext executionContext) {
+        if (executionContext.containsKey(ExecutionContextParametersNames.CHUNK_SIZE)) {
+            setChunkSize(clamp(executionContext.getInt(ExecutionContextParametersNames.CHUNK_SIZE), minChunkSize,
+                               maxChunkSize));
+            logger.info("Resuming with chunk size {}", getChunkSize());
+        }
+        String recordedChanges = executionContext.getString(ExecutionContextParametersNames.CHUNK_SIZE_CHANGES, "");
+        for (String change : recordedChanges.split(",")) {
+            if (!change.isEmpty()) {
+                changes.addLast(change);
+            }
+        }
+        if (changes.isEmpty()) {
+            recordChange(executionContext, 0, getChunkSize());
+        }
+    }
+
+    /**
+     * The changes are stored as a list of "itemsRead:chunkSize", keeping only the last ones so that the execution
+     * context doesn't grow without limit in long steps.
+     */
+    private void recordChange(ExecutionContext executionContext, int readCount, int chunkSize) {
+        changes.addLast(readCount + ":" + chunkSize);
+        while (changes.size() > MAX_RECORDED_CHANGES) {
+            changes.removeFirst();
+        }
+        executionContext.putInt(ExecutionContextParametersNames.CHUNK_SIZE, chunkSize);
+        executionContext.putString(ExecutionContextParametersNames.CHUNK_SIZE_CHANGES, String.join(",", changes));
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * @return fraction of the maximum heap used after the last garbage collection, which only counts live objects
+     */
+    double getHeapUsage() {
+        long used = 0;
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage usage = memoryPool.getCollectionUsage();
+            if (memoryPool.getType() == MemoryType.HEAP && usage != null) {
+                used += usage.getUsed();
+            }
+        }
+        return (double) used / Runtime.getRuntime().maxMemory();
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.tasklets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import uk.ac.ebi.eva.pipeline.io.writers.AnnotationMongoWriter;
+import uk.ac.ebi.eva.pipeline.io.writers.VariantMongoWriter;
+import uk.ac.ebi.eva.pipeline.parameters.DatabaseParameters;
+
+/**
+ * Builds the indexes that the writers skipped when they were asked to defer them (see
+ * {@link DatabaseParameters#isDeferIndexes()}).
+ * <p>
+ * The indexes are built in the foreground, each collection in one pass over the loaded documents, which is faster
+ * and gives more compact indexes than keeping them up to date during the load. The time spent on each collection
+ * is logged and stored in the step execution context.
+ */
+public class BuildDeferredIndexesTasklet implements Tasklet {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildDeferredIndexesTasklet.class);
+
+    public static final String VARIANTS_INDEXES_BUILD_MILLIS = "variants-indexes-build-millis";
+
+    public static final String ANNOTATIONS_INDEXES_BUILD_MILLIS = "annotations-indexes-build-millis";
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Autowired
+    private DatabaseParameters databaseParameters;
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        if (!databaseParameters.isDeferIndexes()) {
+            logger.info("Indexes were created by the writers, there are no deferred indexes to build");
+            return RepeatStatus.FINISHED;
+        }
+
+        ExecutionContext executionContext = chunkContext.getStepContext().getStepExecution().getExecutionContext();
+
+        String variantsCollection = databaseParameters.getCollectionVariantsName();
+        long start = System.currentTimeMillis();
+        VariantMongoWriter.createIndexes(mongoOperations.getCollection(variantsCollection), false);
+        long elapsed = System.currentTimeMillis() - start;
+        logger.info("Indexes of collection '{}' built in {} ms", variantsCollection, elapsed);
+        executionContext.putLong(VARIANTS_INDEXES_BUILD_MILLIS, elapsed);
+
+        String annotationsCollection = databaseParameters.getCollectionAnnotationsName();
+        if (annotationsCollection != null) {
+            start = System.currentTimeMillis();
+            AnnotationMongoWriter.createIndexes(mongoOperations.getCollection(annotationsCollection), false);
+            elapsed = System.currentTimeMillis() - start;
+            logger.info("Indexes of collection '{}' built in {} ms", annotationsCollection, elapsed);
+            executionContext.putLong(ANNOTATIONS_INDEXES_BUILD_MILLIS, elapsed);
+        }
+
+        return RepeatStatus.FINISHED;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.tasklets;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.pipeline.parameters.PartitionParameters;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends the files written by the partitions of the partitioned VEP annotation step to the VEP output, in partition
+ * order, so that the steps that read the annotations don't need to know whether they were generated in partitions.
+ * <p>
+ * Each shard is a sequence of complete gzip members, so they are concatenated without decompressing them. The header
+ * of every shard is kept, but the annotation reader skips the comment lines. A partition that had no variants to
+ * annotate has no shard. The shards are removed once they are merged.
+ * <p>
+ * The step can be restarted at any point without duplicating or losing annotations: the output and the shards are
+ * first copied into a temporary file, which is renamed to {@link #getMergedOutput} once complete. Only then are the
+ * shards removed and the merged file renamed to the VEP output, so a restart that finds the merged file just
+ * finishes those last two operations.
+ */
+public class MergeVepAnnotationShardsTasklet implements Tasklet {
+
+    private static final Logger logger = LoggerFactory.getLogger(MergeVepAnnotationShardsTasklet.class);
+
+    private static final String PARTIAL_OUTPUT_SUFFIX = ".merging";
+
+    private static final String MERGED_OUTPUT_SUFFIX = ".merged";
+
+    @Autowired
+    private AnnotationParameters annotationParameters;
+
+    @Autowired
+    private PartitionParameters partitionParameters;
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        List<File> shards = new ArrayList<>();
+        for (int i = 0; i < partitionParameters.getAnnotationPartitions(); i++) {
+            File shard = new File(annotationParameters.getVepOutputShard(i));
+            if (shard.exists()) {
+                shards.add(shard);
+            }
+        }
+
+        long mergedBytes = mergeShards(shards, new File(annotationParameters.getVepOutput()));
+        logger.info("{} VEP output shards ({} bytes) merged into {}", shards.size(), mergedBytes,
+                    annotationParameters.getVepOutput());
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * @return bytes appended to the output, 0 if a previous execution had already merged the shards
+     */
+    static long mergeShards(List<File> shards, File vepOutput) throws IOException {
+        File mergedOutput = getMergedOutput(vepOutput.getPath());
+        long mergedBytes = 0;
+        if (!mergedOutput.exists()) {
+            if (shards.isEmpty()) {
+                return 0;
+            }
+            File partialOutput = new File(vepOutput.getPath() + PARTIAL_OUTPUT_SUFFIX);
+            try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(partialOutput))) {
+                if (vepOutput.exists()) {
+                    Files.copy(vepOutput.toPath(), outputStream);
+                }
+                for (File shard : shards) {
+                    mergedBytes += Files.copy(shard.toPath(), outputStream);
+                }
+            }
+            Files.move(partialOutput.toPath(), mergedOutput.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        for (File shard : shards) {
+            Files.deleteIfExists(shard.toPath());
+        }
+        Files.move(mergedOutput.toPath(), vepOutput.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+        return mergedBytes;
+    }
+
+    /**
+     * @return the file with the VEP output and all the shards, that only exists while the shards are being removed
+     */
+    public static File getMergedOutput(String vepOutput) {
+        return new File(vepOutput + MERGED_OUTPUT_SUFFIX);
+    }
+}
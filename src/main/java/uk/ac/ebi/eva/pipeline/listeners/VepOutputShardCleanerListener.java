@@ -0,0 +1,79 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.listeners;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+
+import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.MergeVepAnnotationShardsTasklet;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT_SHARD;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT_SHARD_STARTED;
+
+/**
+ * Removes the VEP output shard of a partition when the partition starts from the beginning, so that the annotations
+ * of a previous job that used the same output directory are not merged with the new ones. The shard is kept when the
+ * partition is restarted, because the reader then continues after the variants that were already annotated.
+ * <p>
+ * A merge of the shards left unfinished by a previous job is also discarded, as it belongs to those old shards.
+ * Should be wired into the partition step of the partitioned VEP annotation.
+ */
+public class VepOutputShardCleanerListener implements StepExecutionListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VepOutputShardCleanerListener.class);
+
+    private final AnnotationParameters annotationParameters;
+
+    public VepOutputShardCleanerListener(AnnotationParameters annotationParameters) {
+        this.annotationParameters = annotationParameters;
+    }
+
+    @Override
+    public void beforeStep(StepExecution stepExecution) {
+        ExecutionContext executionContext = stepExecution.getExecutionContext();
+        if (executionContext.containsKey(VEP_OUTPUT_SHARD_STARTED)) {
+            return;
+        }
+        try {
+            deleteStaleFile(new File(executionContext.getString(VEP_OUTPUT_SHARD)));
+            deleteStaleFile(MergeVepAnnotationShardsTasklet.getMergedOutput(annotationParameters.getVepOutput()));
+        } catch (IOException e) {
+            throw new ItemStreamException("Could not remove the VEP output of a previous job", e);
+        }
+        executionContext.putString(VEP_OUTPUT_SHARD_STARTED, Boolean.TRUE.toString());
+    }
+
+    private void deleteStaleFile(File file) throws IOException {
+        if (Files.deleteIfExists(file.toPath())) {
+            logger.warn("Removed {}, left by a previous job", file);
+        }
+    }
+
+    @Override
+    public ExitStatus afterStep(StepExecution stepExecution) {
+        return null;
+    }
+}
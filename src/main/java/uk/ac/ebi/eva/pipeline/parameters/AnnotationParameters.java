@@ -66,9 +66,21 @@ public class AnnotationParameters {
     @Value(PARAMETER + JobParametersNames.APP_VEP_TIMEOUT + END)
     private Long timeout;
 
+    @Value(PARAMETER + JobParametersNames.APP_VEP_WORKERS + "']?:0}")
+    private Integer vepWorkers;
+
     @Value(PARAMETER + JobParametersNames.INPUT_FASTA + END)
     private String inputFasta;
 
+    @Value(PARAMETER + JobParametersNames.CONFIG_ANNOTATION_STREAMING + "']?:false}")
+    private boolean streaming;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_ANNOTATION_AUDIT_OUTPUT + "']?:false}")
+    private boolean auditOutput;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_ANNOTATION_RESULT_CACHE_PATH + OR_EMPTY)
+    private String resultCachePath;
+
     @Value(PARAMETER + JobParametersNames.ANNOTATION_OVERWRITE + "']?:false}")
     private Boolean overwriteAnnotation;
 
@@ -100,6 +112,13 @@ public class AnnotationParameters {
         return timeout;
     }
 
+    /**
+     * @return number of VEP processes kept alive during the whole step, or 0 to start a new one for each chunk
+     */
+    public Integer getVepWorkers() {
+        return vepWorkers;
+    }
+
     public String getInputFasta() {
         return inputFasta;
     }
@@ -108,10 +127,39 @@ public class AnnotationParameters {
         return overwriteAnnotation;
     }
 
+    /**
+     * @return whether the annotations are loaded into the database as soon as VEP writes them, instead of loading
+     * them from the VEP output file in a later step
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @return whether the VEP output file is written anyway when the annotations are streamed into the database
+     */
+    public boolean isAuditOutput() {
+        return auditOutput;
+    }
+
+    /**
+     * @return directory of the cache of VEP annotations shared by all the jobs, or an empty string to not use it
+     */
+    public String getResultCachePath() {
+        return resultCachePath;
+    }
+
     public String getVepOutput() {
         return URLHelper.resolveVepOutput(outputDirAnnotation, studyId, fileId);
     }
 
+    /**
+     * @return file where the annotations generated by one partition of a partitioned annotation step are written
+     */
+    public String getVepOutputShard(int shard) {
+        return URLHelper.resolveVepOutputShard(outputDirAnnotation, studyId, fileId, shard);
+    }
+
     public void setOutputDirAnnotation(String outputDirAnnotation) {
         this.outputDirAnnotation = outputDirAnnotation;
     }
@@ -148,9 +196,25 @@ public class AnnotationParameters {
         this.timeout = timeout;
     }
 
+    public void setVepWorkers(Integer vepWorkers) {
+        this.vepWorkers = vepWorkers;
+    }
+
     public void setInputFasta(String inputFasta) {
         this.inputFasta = inputFasta;
     }
+
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public void setAuditOutput(boolean auditOutput) {
+        this.auditOutput = auditOutput;
+    }
+
+    public void setResultCachePath(String resultCachePath) {
+        this.resultCachePath = resultCachePath;
+    }
 }
 
 
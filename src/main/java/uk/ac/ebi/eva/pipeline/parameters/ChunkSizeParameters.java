@@ -29,7 +29,59 @@ public class ChunkSizeParameters {
     @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_SIZE + OR_DEFAULT)
     private Integer chunkSize;
 
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_ADAPTIVE + "']?:false}")
+    private boolean adaptive;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_SIZE_MIN + "']?:'0'}")
+    private Integer minChunkSize;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_SIZE_MAX + "']?:'0'}")
+    private Integer maxChunkSize;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS + "']?:'10000'}")
+    private Integer targetChunkMillis;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT + "']?:'70'}")
+    private Integer heapBudgetPercent;
+
     public Integer getChunkSize() {
         return chunkSize;
     }
+
+    /**
+     * @return true if the chunk size should change during the step, see
+     * {@link uk.ac.ebi.eva.pipeline.jobs.steps.policies.AdaptiveChunkSizeCompletionPolicy}
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * @return the minimum chunk size, by default a tenth of the initial one
+     */
+    public Integer getMinChunkSize() {
+        if (minChunkSize > 0) {
+            return minChunkSize;
+        }
+        int defaultMinChunkSize = Math.max(1, chunkSize / 10);
+        return maxChunkSize > 0 ? Math.min(defaultMinChunkSize, maxChunkSize) : defaultMinChunkSize;
+    }
+
+    /**
+     * @return the maximum chunk size, by default 10 times the initial one
+     */
+    public Integer getMaxChunkSize() {
+        if (maxChunkSize > 0) {
+            return maxChunkSize;
+        }
+        return Math.max(chunkSize * 10, minChunkSize);
+    }
+
+    public Integer getTargetChunkMillis() {
+        return targetChunkMillis;
+    }
+
+    public Integer getHeapBudgetPercent() {
+        return heapBudgetPercent;
+    }
 }
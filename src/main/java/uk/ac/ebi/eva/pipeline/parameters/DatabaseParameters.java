@@ -49,6 +49,9 @@ public class DatabaseParameters {
     @Value(PARAMETER + JobParametersNames.DB_COLLECTIONS_ANNOTATIONS_NAME + END)
     private String collectionAnnotationsName;
 
+    @Value(PARAMETER + JobParametersNames.CONFIG_DB_DEFER_INDEXES + "']?:false}")
+    private boolean deferIndexes;
+
     @Autowired
     private MongoConnection mongoConnection;
 
@@ -79,4 +82,12 @@ public class DatabaseParameters {
     public String getCollectionAnnotationsName() {
         return collectionAnnotationsName;
     }
+
+    /**
+     * @return true if the writers should not create the secondary indexes, leaving them to be built in one pass at the
+     * end of the job
+     */
+    public boolean isDeferIndexes() {
+        return deferIndexes;
+    }
 }
@@ -20,4 +20,18 @@ package uk.ac.ebi.eva.pipeline.parameters;
  */
 public class ExecutionContextParametersNames {
     public static final String NUMBER_OF_LINES = "line";
+
+    public static final String CONTIGS = "contigs";
+
+    public static final String EXCLUDE_CONTIGS = "exclude-contigs";
+
+    public static final String REGIONS = "regions";
+
+    public static final String VEP_OUTPUT_SHARD = "vep-output-shard";
+
+    public static final String VEP_OUTPUT_SHARD_STARTED = "vep-output-shard-started";
+
+    public static final String CHUNK_SIZE = "chunk-size";
+
+    public static final String CHUNK_SIZE_CHANGES = "chunk-size-changes";
 }
@@ -51,6 +51,9 @@ public class InputParameters {
     @Value(PARAMETER + JobParametersNames.INPUT_VCF_AGGREGATION + "']?:'NONE'}")
     private String vcfAggregation;
 
+    @Value(PARAMETER + JobParametersNames.INPUT_VCF_REGIONS + OR_NULL)
+    private String vcfRegions;
+
     @Value(PARAMETER + JobParametersNames.INPUT_STUDY_NAME + END)
     private String studyName;
 
@@ -68,6 +71,10 @@ public class InputParameters {
         return VariantSource.Aggregation.valueOf(vcfAggregation);
     }
 
+    public String getVcfRegions() {
+        return vcfRegions;
+    }
+
     public String getStudyId() {
         return studyId;
     }
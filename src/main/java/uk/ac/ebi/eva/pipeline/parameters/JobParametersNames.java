@@ -29,6 +29,8 @@ public class JobParametersNames {
 
     public static final String INPUT_VCF_AGGREGATION = "input.vcf.aggregation";
 
+    public static final String INPUT_VCF_REGIONS = "input.vcf.regions";
+
     public static final String INPUT_STUDY_NAME = "input.study.name";
 
     public static final String INPUT_STUDY_ID = "input.study.id";
@@ -68,6 +70,18 @@ public class JobParametersNames {
 
     public static final String CONFIG_DB_READPREFERENCE = "config.db.read-preference";
 
+    public static final String CONFIG_DB_DEFER_INDEXES = "config.db.defer-indexes";
+
+    public static final String CONFIG_DB_POOL_MAX_SIZE = "config.db.pool.max-size";
+
+    public static final String CONFIG_DB_POOL_WAIT_QUEUE_MULTIPLIER = "config.db.pool.wait-queue-multiplier";
+
+    public static final String CONFIG_DB_POOL_MAX_WAIT_MILLIS = "config.db.pool.max-wait-millis";
+
+    public static final String CONFIG_DB_CONNECT_TIMEOUT_MILLIS = "config.db.connect-timeout-millis";
+
+    public static final String CONFIG_DB_SOCKET_TIMEOUT_MILLIS = "config.db.socket-timeout-millis";
+
 
     /*
      * Database and collections
@@ -140,6 +154,8 @@ public class JobParametersNames {
 
     public static final String APP_VEP_TIMEOUT = "app.vep.timeout";
 
+    public static final String APP_VEP_WORKERS = "app.vep.workers";
+
 
     /*
      * Other configuration
@@ -149,6 +165,40 @@ public class JobParametersNames {
 
     public static final String CONFIG_CHUNK_SIZE = "config.chunk.size";
 
+    public static final String CONFIG_CHUNK_ADAPTIVE = "config.chunk.adaptive";
+
+    public static final String CONFIG_CHUNK_SIZE_MIN = "config.chunk.size.min";
+
+    public static final String CONFIG_CHUNK_SIZE_MAX = "config.chunk.size.max";
+
+    public static final String CONFIG_CHUNK_TARGET_MILLIS = "config.chunk.target-millis";
+
+    public static final String CONFIG_CHUNK_HEAP_BUDGET_PERCENT = "config.chunk.heap-budget-percent";
+
+    public static final String CONFIG_LOAD_PARTITIONS = "config.load.partitions";
+
+    public static final String CONFIG_ANNOTATION_PARTITIONS = "config.annotation.partitions";
+
+    public static final String CONFIG_ANNOTATION_STREAMING = "config.annotation.streaming";
+
+    public static final String CONFIG_ANNOTATION_AUDIT_OUTPUT = "config.annotation.audit-output";
+
+    public static final String CONFIG_ANNOTATION_RESULT_CACHE_PATH = "config.annotation.result-cache.path";
+
+    public static final String CONFIG_LOAD_INCLUDE_SRC = "config.load.include-src";
+
+    public static final String CONFIG_LOAD_IN_FLIGHT_CHUNKS = "config.load.in-flight-chunks";
+
+    public static final String CONFIG_LOAD_WRITE_MODE = "config.load.write-mode";
+
+    public static final String CONFIG_LOAD_WRITE_THREADS = "config.load.write-threads";
+
+    public static final String CONFIG_LOAD_WRITE_BATCH_SIZE = "config.load.write-batch-size";
+
+    public static final String CONFIG_LOAD_SHARD_AWARE = "config.load.shard-aware";
+
+    public static final String CONFIG_LOAD_PACK_GENOTYPES = "config.load.pack-genotypes";
+
 
     public static final String PROPERTY_FILE_PROPERTY = "parameters.path";
 
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.SourceLineEncoder;
+import uk.ac.ebi.eva.pipeline.io.writers.VariantMongoWriter;
+
+/**
+ * Service that holds access to the options of how the variants are written by the load step.
+ */
+@Service
+@StepScope
+public class LoadParameters {
+
+    private static final String PARAMETER = "#{jobParameters['";
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_INCLUDE_SRC + "']?:'FIRST_8_COLUMNS'}")
+    private String includeSrc;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_IN_FLIGHT_CHUNKS + "']?:'1'}")
+    private Integer inFlightChunks;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_WRITE_MODE + "']?:'AUTO'}")
+    private String writeMode;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_WRITE_THREADS + "']?:'1'}")
+    private Integer writeThreads;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_WRITE_BATCH_SIZE + "']?:'0'}")
+    private Integer writeBatchSize;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_SHARD_AWARE + "']?:false}")
+    private boolean shardAware;
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_PACK_GENOTYPES + "']?:false}")
+    private boolean packGenotypes;
+
+    public SourceLineEncoder.Policy getIncludeSrc() {
+        return SourceLineEncoder.Policy.valueOf(includeSrc);
+    }
+
+    /**
+     * @return number of chunks that can be in the load step at the same time, e.g. one being written while the next
+     * one is read
+     */
+    public Integer getInFlightChunks() {
+        return inFlightChunks;
+    }
+
+    public VariantMongoWriter.WriteMode getWriteMode() {
+        return VariantMongoWriter.WriteMode.valueOf(writeMode);
+    }
+
+    /**
+     * @return maximum number of bulk writes of the same chunk that are sent to the database at the same time
+     */
+    public Integer getWriteThreads() {
+        return writeThreads;
+    }
+
+    /**
+     * @return number of variants in each bulk write, 0 meaning the chunk is split evenly among the write threads
+     */
+    public Integer getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * @return true if the writes of each chunk should be grouped by the shard that owns the variants
+     */
+    public boolean isShardAware() {
+        return shardAware;
+    }
+
+    /**
+     * @return true if the genotypes of the samples should be stored in a compact binary format
+     */
+    public boolean isPackGenotypes() {
+        return packGenotypes;
+    }
+}
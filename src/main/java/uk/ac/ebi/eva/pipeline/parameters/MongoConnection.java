@@ -42,6 +42,21 @@ public class MongoConnection {
     @Value("${" + JobParametersNames.CONFIG_DB_READPREFERENCE + ":#{null}}")
     private String readPreference;
 
+    @Value("${" + JobParametersNames.CONFIG_DB_POOL_MAX_SIZE + ":100}")
+    private int poolMaxSize;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_POOL_WAIT_QUEUE_MULTIPLIER + ":5}")
+    private int poolWaitQueueMultiplier;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_POOL_MAX_WAIT_MILLIS + ":120000}")
+    private int poolMaxWaitMillis;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_CONNECT_TIMEOUT_MILLIS + ":10000}")
+    private int connectTimeoutMillis;
+
+    @Value("${" + JobParametersNames.CONFIG_DB_SOCKET_TIMEOUT_MILLIS + ":0}")
+    private int socketTimeoutMillis;
+
     public String getHosts() {
         return hosts;
     }
@@ -65,4 +80,34 @@ public class MongoConnection {
     public ReadPreference getReadPreference() {
         return ReadPreference.valueOf(readPreference);
     }
+
+    /**
+     * @return maximum number of connections to each host in the pool of a client
+     */
+    public int getPoolMaxSize() {
+        return poolMaxSize;
+    }
+
+    /**
+     * @return how many threads per pooled connection can be waiting for a connection, e.g. with a pool of 100 and a
+     * multiplier of 5, the 501st thread waiting will get an error
+     */
+    public int getPoolWaitQueueMultiplier() {
+        return poolWaitQueueMultiplier;
+    }
+
+    public int getPoolMaxWaitMillis() {
+        return poolMaxWaitMillis;
+    }
+
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * @return timeout of the reads from a socket, 0 meaning no timeout
+     */
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters;
+
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service that holds access to the number of partitions a partitioned step is split into.
+ */
+@Service
+@StepScope
+public class PartitionParameters {
+
+    private static final String PARAMETER = "#{jobParameters['";
+    private static final String OR_DEFAULT = "']?:'1'}";
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_LOAD_PARTITIONS + OR_DEFAULT)
+    private Integer partitions;
+
+
+    @Value(PARAMETER + JobParametersNames.CONFIG_ANNOTATION_PARTITIONS + OR_DEFAULT)
+    private Integer annotationPartitions;
+
+    public Integer getPartitions() {
+        return partitions;
+    }
+
+    public Integer getAnnotationPartitions() {
+        return annotationPartitions;
+    }
+}
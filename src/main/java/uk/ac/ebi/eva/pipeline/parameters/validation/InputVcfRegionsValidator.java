@@ -0,0 +1,45 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.JobParametersValidator;
+
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+/**
+ * Checks that the regions to load are a comma-separated list of regions like "20", "20:1000" or "20:1000-2000".
+ *
+ * @throws JobParametersInvalidException If the regions are empty or any of them is malformed
+ */
+public class InputVcfRegionsValidator implements JobParametersValidator {
+
+    @Override
+    public void validate(JobParameters parameters) throws JobParametersInvalidException {
+        String regions = parameters.getString(JobParametersNames.INPUT_VCF_REGIONS);
+        ParametersValidatorUtil.checkIsValidString(regions, JobParametersNames.INPUT_VCF_REGIONS);
+        try {
+            if (GenomicRegion.parseList(regions).isEmpty()) {
+                throw new JobParametersInvalidException(
+                        JobParametersNames.INPUT_VCF_REGIONS + " must contain at least one region");
+            }
+        } catch (IllegalArgumentException e) {
+            throw new JobParametersInvalidException(e.getMessage());
+        }
+    }
+}
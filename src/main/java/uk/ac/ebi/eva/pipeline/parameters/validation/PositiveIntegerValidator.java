@@ -0,0 +1,52 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.JobParametersValidator;
+
+/**
+ * Checks that a parameter is a positive integer number, optionally not greater than a maximum
+ *
+ * @throws JobParametersInvalidException If the parameter is not a number, or is out of range
+ */
+public class PositiveIntegerValidator implements JobParametersValidator {
+
+    private final String jobParametersName;
+
+    private final int maximum;
+
+    public PositiveIntegerValidator(String jobParametersName) {
+        this(jobParametersName, Integer.MAX_VALUE);
+    }
+
+    public PositiveIntegerValidator(String jobParametersName, int maximum) {
+        this.jobParametersName = jobParametersName;
+        this.maximum = maximum;
+    }
+
+    @Override
+    public void validate(JobParameters parameters) throws JobParametersInvalidException {
+        String number = parameters.getString(jobParametersName);
+        ParametersValidatorUtil.checkIsPositiveInteger(number, jobParametersName);
+        if (Integer.parseInt(number) > maximum) {
+            throw new JobParametersInvalidException(
+                    String.format("%s is %s, please provide a number between 1 and %d", jobParametersName, number,
+                                  maximum));
+        }
+    }
+}
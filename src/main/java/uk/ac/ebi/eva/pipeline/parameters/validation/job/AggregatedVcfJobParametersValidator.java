@@ -23,6 +23,7 @@ import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.configuration.jobs.AggregatedVcfJobConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.step.BuildDeferredIndexesStepParametersValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.step.LoadVepAnnotationStepParametersValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.step.AnnotationMetadataStepParametersValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.step.LoadFileStepParametersValidator;
@@ -47,6 +48,7 @@ public class AggregatedVcfJobParametersValidator extends DefaultJobParametersVal
 
         jobParametersValidators.add(new LoadVariantsStepParametersValidator());
         jobParametersValidators.add(new LoadFileStepParametersValidator());
+        jobParametersValidators.add(new BuildDeferredIndexesStepParametersValidator());
 
         Boolean skipAnnotation = Boolean.valueOf(jobParameters.getString(JobParametersNames.ANNOTATION_SKIP));
         if (!skipAnnotation) {
@@ -22,6 +22,7 @@ import org.springframework.batch.core.job.CompositeJobParametersValidator;
 import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.parameters.validation.step.AnnotationMetadataStepParametersValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.step.BuildDeferredIndexesStepParametersValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.step.GenerateVepAnnotationStepParametersValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.step.LoadVepAnnotationStepParametersValidator;
 
@@ -47,6 +48,7 @@ public class AnnotationJobParametersValidator extends DefaultJobParametersValida
         jobParametersValidators.add(new GenerateVepAnnotationStepParametersValidator(studyIdRequired));
         jobParametersValidators.add(new LoadVepAnnotationStepParametersValidator(studyIdRequired));
         jobParametersValidators.add(new AnnotationMetadataStepParametersValidator());
+        jobParametersValidators.add(new BuildDeferredIndexesStepParametersValidator());
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
         compositeJobParametersValidator.setValidators(jobParametersValidators);
@@ -24,6 +24,8 @@ import org.springframework.batch.core.job.DefaultJobParametersValidator;
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.GenerateVepAnnotationStepConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
 import uk.ac.ebi.eva.pipeline.parameters.validation.AnnotationOverwriteValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.BooleanValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigAnnotationResultCachePathValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsVariantsNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbNameValidator;
@@ -32,6 +34,7 @@ import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OptionalValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OutputDirAnnotationValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.PositiveIntegerValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepCachePathValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepCacheSpeciesValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.VepCacheVersionValidator;
@@ -89,7 +92,28 @@ public class GenerateVepAnnotationStepParametersValidator extends DefaultJobPara
                 new VepNumForksValidator(),
                 new VepPathValidator(),
                 new VepTimeoutValidator(),
-                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE)
+                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                        JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                        JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                        JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                        JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                new OptionalValidator(
+                        new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, 100),
+                        JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.APP_VEP_WORKERS),
+                        JobParametersNames.APP_VEP_WORKERS),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_ANNOTATION_PARTITIONS),
+                        JobParametersNames.CONFIG_ANNOTATION_PARTITIONS),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_ANNOTATION_STREAMING),
+                        JobParametersNames.CONFIG_ANNOTATION_STREAMING),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_ANNOTATION_AUDIT_OUTPUT),
+                        JobParametersNames.CONFIG_ANNOTATION_AUDIT_OUTPUT),
+                new OptionalValidator(new ConfigAnnotationResultCachePathValidator(),
+                        JobParametersNames.CONFIG_ANNOTATION_RESULT_CACHE_PATH)
         );
 
         if (isStudyIdRequired) {
@@ -23,12 +23,14 @@ import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadGenesStepConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.BooleanValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigRestartabilityAllowValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsFeaturesNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputGtfValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OptionalValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.PositiveIntegerValidator;
 
 import java.util.Arrays;
 import java.util.List;
@@ -58,7 +60,18 @@ public class LoadGenesStepParametersValidator extends DefaultJobParametersValida
                 new InputGtfValidator(),
                 new OptionalValidator(new ConfigRestartabilityAllowValidator(),
                                       JobParametersNames.CONFIG_RESTARTABILITY_ALLOW),
-                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE)
+                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                                      JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                                      JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                                      JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                                      JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                new OptionalValidator(
+                        new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, 100),
+                        JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT)
         );
 
         CompositeJobParametersValidator compositeJobParametersValidator = new CompositeJobParametersValidator();
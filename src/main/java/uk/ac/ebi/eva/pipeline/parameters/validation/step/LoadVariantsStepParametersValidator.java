@@ -23,7 +23,10 @@ import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadVariantsStepConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.BooleanValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigLoadIncludeSrcValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigLoadWriteModeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigRestartabilityAllowValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsVariantsNameValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbNameValidator;
@@ -31,8 +34,10 @@ import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfAggregationMappingPathValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfAggregationValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfIdValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfRegionsValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OptionalValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.PositiveIntegerValidator;
 
 import java.util.Arrays;
 import java.util.List;
@@ -70,7 +75,36 @@ public class LoadVariantsStepParametersValidator extends DefaultJobParametersVal
                 new InputVcfAggregationValidator(),
                 new OptionalValidator(new InputVcfAggregationMappingPathValidator(),
                         JobParametersNames.INPUT_VCF_AGGREGATION_MAPPING_PATH),
+                new OptionalValidator(new InputVcfRegionsValidator(), JobParametersNames.INPUT_VCF_REGIONS),
                 new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                        JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                        JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                        JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                        JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                new OptionalValidator(
+                        new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, 100),
+                        JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_LOAD_PARTITIONS),
+                        JobParametersNames.CONFIG_LOAD_PARTITIONS),
+                new OptionalValidator(new ConfigLoadIncludeSrcValidator(),
+                        JobParametersNames.CONFIG_LOAD_INCLUDE_SRC),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_LOAD_IN_FLIGHT_CHUNKS),
+                        JobParametersNames.CONFIG_LOAD_IN_FLIGHT_CHUNKS),
+                new OptionalValidator(new ConfigLoadWriteModeValidator(), JobParametersNames.CONFIG_LOAD_WRITE_MODE),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_LOAD_WRITE_THREADS),
+                        JobParametersNames.CONFIG_LOAD_WRITE_THREADS),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_LOAD_WRITE_BATCH_SIZE),
+                        JobParametersNames.CONFIG_LOAD_WRITE_BATCH_SIZE),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_LOAD_SHARD_AWARE),
+                        JobParametersNames.CONFIG_LOAD_SHARD_AWARE),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_LOAD_PACK_GENOTYPES),
+                        JobParametersNames.CONFIG_LOAD_PACK_GENOTYPES),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_DB_DEFER_INDEXES),
+                        JobParametersNames.CONFIG_DB_DEFER_INDEXES),
                 new OptionalValidator(new ConfigRestartabilityAllowValidator(),
                         JobParametersNames.CONFIG_RESTARTABILITY_ALLOW)
         );
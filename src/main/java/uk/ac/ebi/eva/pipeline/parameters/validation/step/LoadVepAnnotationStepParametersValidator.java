@@ -23,6 +23,7 @@ import org.springframework.batch.core.job.DefaultJobParametersValidator;
 
 import uk.ac.ebi.eva.pipeline.configuration.jobs.steps.LoadVepAnnotationStepConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+import uk.ac.ebi.eva.pipeline.parameters.validation.BooleanValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigChunkSizeValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.ConfigRestartabilityAllowValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.DbCollectionsAnnotationsNameValidator;
@@ -32,6 +33,7 @@ import uk.ac.ebi.eva.pipeline.parameters.validation.InputStudyIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.InputVcfIdValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OptionalValidator;
 import uk.ac.ebi.eva.pipeline.parameters.validation.OutputDirAnnotationValidator;
+import uk.ac.ebi.eva.pipeline.parameters.validation.PositiveIntegerValidator;
 
 import java.util.ArrayList;
 import java.util.Collections;
@@ -68,7 +70,20 @@ public class LoadVepAnnotationStepParametersValidator extends DefaultJobParamete
                 new OutputDirAnnotationValidator(),
                 new OptionalValidator(new ConfigRestartabilityAllowValidator(),
                         JobParametersNames.CONFIG_RESTARTABILITY_ALLOW),
-                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE)
+                new OptionalValidator(new ConfigChunkSizeValidator(), JobParametersNames.CONFIG_CHUNK_SIZE),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                        JobParametersNames.CONFIG_CHUNK_ADAPTIVE),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                        JobParametersNames.CONFIG_CHUNK_SIZE_MIN),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                        JobParametersNames.CONFIG_CHUNK_SIZE_MAX),
+                new OptionalValidator(new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                        JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS),
+                new OptionalValidator(
+                        new PositiveIntegerValidator(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, 100),
+                        JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT),
+                new OptionalValidator(new BooleanValidator(JobParametersNames.CONFIG_DB_DEFER_INDEXES),
+                        JobParametersNames.CONFIG_DB_DEFER_INDEXES)
         );
 
         if (isStudyIdRequired) {
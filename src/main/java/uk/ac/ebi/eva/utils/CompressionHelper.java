@@ -15,11 +15,14 @@
  */
 package uk.ac.ebi.eva.utils;
 
+import uk.ac.ebi.eva.pipeline.io.BgzfInputStream;
+
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipException;
@@ -43,6 +46,21 @@ public class CompressionHelper {
         return true;
     }
 
+    /**
+     * @return whether the file is compressed in BGZF (blocked gzip, as written by bgzip), which is also valid gzip
+     */
+    public static boolean isBgzf(File file) throws IOException {
+        byte[] header = new byte[BgzfInputStream.BLOCK_HEADER_LENGTH];
+        int length = 0;
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int read;
+            while (length < header.length && (read = inputStream.read(header, length, header.length - length)) > 0) {
+                length += read;
+            }
+        }
+        return BgzfInputStream.isBgzfHeader(header, length);
+    }
+
     public static byte[] gzip(String text) throws IOException {
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         BufferedOutputStream bufos = new BufferedOutputStream(new GZIPOutputStream(bos));
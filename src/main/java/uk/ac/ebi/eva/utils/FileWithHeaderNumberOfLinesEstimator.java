@@ -18,14 +18,14 @@ package uk.ac.ebi.eva.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import uk.ac.ebi.eva.pipeline.io.GzipLazyResource;
+
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Scanner;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 /**
@@ -93,7 +93,7 @@ public class FileWithHeaderNumberOfLinesEstimator {
         }
 
         try (Writer head = getOutputStreamWriter(headFile); Writer body = getOutputStreamWriter(bodyFile);
-             Scanner scanner = new Scanner(new GZIPInputStream(new FileInputStream(filePath)))) {
+             Scanner scanner = new Scanner(new GzipLazyResource(filePath).getInputStream())) {
             while (scanner.hasNextLine() && linesInBody < MAX_NUMBER_OF_LINES) {
                 String line = scanner.nextLine();
                 if (line.startsWith(HEADER_PREFIX)) {
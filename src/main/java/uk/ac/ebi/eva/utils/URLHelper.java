@@ -27,6 +27,8 @@ public class URLHelper {
 
     public static final String ANNOTATED_VARIANTS_SUFFIX = "_vep_annotation.tsv.gz";
 
+    private static final String ANNOTATED_VARIANTS_SHARD_SUFFIX = "_vep_annotation.shard%d.tsv.gz";
+
     public static URI createUri(String input) throws URISyntaxException {
         URI sourceUri = new URI(input);
         if (sourceUri.getScheme() == null || sourceUri.getScheme().isEmpty()) {
@@ -57,4 +59,9 @@ public class URLHelper {
     public static String resolveVepOutput(String outputDirAnnotation, String studyId, String vcfId) {
         return outputDirAnnotation + "/" + studyId + "_" + vcfId + ANNOTATED_VARIANTS_SUFFIX;
     }
+
+    public static String resolveVepOutputShard(String outputDirAnnotation, String studyId, String vcfId, int shard) {
+        return outputDirAnnotation + "/" + studyId + "_" + vcfId
+                + String.format(ANNOTATED_VARIANTS_SHARD_SUFFIX, shard);
+    }
 }
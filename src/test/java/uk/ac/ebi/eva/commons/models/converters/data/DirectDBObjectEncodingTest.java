@@ -0,0 +1,140 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.converters.data;
+
+import com.mongodb.DBObject;
+import org.bson.BasicBSONEncoder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opencb.biodata.models.feature.Genotype;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+import uk.ac.ebi.eva.commons.models.data.VariantStats;
+import uk.ac.ebi.eva.commons.models.mongo.entity.projections.SimplifiedVariant;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.SourceLineEncoder;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantSourceEntryMongo;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantStatsMongo;
+import uk.ac.ebi.eva.test.configuration.MongoOperationConfiguration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the documents built by the toDBObject methods of the Mongo entities have exactly the same fields, in
+ * the same order and with the same BSON types, as the ones written by the Spring Data mapping converter.
+ */
+@RunWith(SpringRunner.class)
+@TestPropertySource({"classpath:test-mongo.properties"})
+@ContextConfiguration(classes = {MongoOperationConfiguration.class})
+public class DirectDBObjectEncodingTest {
+
+    @Autowired
+    private MongoOperations mongoOperations;
+
+    @Test
+    public void simplifiedVariantShouldBeEncodedAsByTheConverter() {
+        Map<String, Set<String>> hgvs = new HashMap<>();
+        hgvs.put("genomic", new HashSet<>(Collections.singletonList("1:g.1000A>C")));
+        hgvs.put("transcript", new HashSet<>(Collections.singletonList("ENST01:c.100A>C")));
+        assertSameEncoding(new SimplifiedVariant(Variant.VariantType.SNV, "1", 1000, 1000, 1, "A", "C", hgvs));
+        assertSameEncoding(new SimplifiedVariant(Variant.VariantType.INDEL, "X", 2000, 2003, 4, "", "ACGT",
+                                                 new HashMap<>()));
+    }
+
+    @Test
+    public void sourceEntryWithSamplesShouldBeEncodedAsByTheConverter() {
+        Map<String, String> na001 = new HashMap<>();
+        na001.put("GT", "0/0");
+        na001.put("DP", "4");
+        Map<String, String> na002 = new HashMap<>();
+        na002.put("GT", "0/1");
+        na002.put("DP", "5");
+        Map<String, String> na003 = new HashMap<>();
+        na003.put("GT", "./.");
+        na003.put("DP", "0");
+        List<Map<String, String>> samples = new ArrayList<>();
+        samples.add(na001);
+        samples.add(na002);
+        samples.add(na003);
+        samples.add(na001);
+
+        assertSameEncoding(new VariantSourceEntryMongo("f1", "s1", new String[]{"T", "G"}, buildAttributes(),
+                                                       "GT:DP", samples));
+    }
+
+    @Test
+    public void sourceEntryWithoutSamplesShouldBeEncodedAsByTheConverter() {
+        assertSameEncoding(new VariantSourceEntryMongo("f1", "s1", null, buildAttributes()));
+        assertSameEncoding(new VariantSourceEntryMongo("f1", "s1", new String[0], buildAttributes(),
+                                                       new SourceLineEncoder(SourceLineEncoder.Policy.NO)));
+        assertSameEncoding(new VariantSourceEntryMongo("f1", "s1", null, new HashMap<>()));
+    }
+
+    @Test
+    public void statsShouldBeEncodedAsByTheConverter() {
+        VariantStats stats = new VariantStats(null, -1, null, null, Variant.VariantType.SNV, 0.1f, 0.01f, "A", "A/A",
+                                              10, 5, -1, -1, -1, -1, -1);
+        stats.addGenotype(new Genotype("0/0"), 100);
+        stats.addGenotype(new Genotype("0/1"), 50);
+        stats.addGenotype(new Genotype("./."), 10);
+        assertSameEncoding(new VariantStatsMongo("s1", "f1", "ALL", stats));
+
+        VariantStats emptyStats = new VariantStats(null, -1, null, null, Variant.VariantType.SNV, 0, 0, null, null,
+                                                   0, 0, -1, -1, -1, -1, -1);
+        assertSameEncoding(new VariantStatsMongo("s1", "f1", "ALL", emptyStats));
+    }
+
+    private Map<String, String> buildAttributes() {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        attributes.put("QUAL", "0.01");
+        attributes.put("AN", "2");
+        attributes.put("dotted.key", "1");
+        attributes.put("src", "1\t1000\t.\tA\tC,G\t0.01\tPASS\tAN=2\tGT:DP\t0/0:4");
+        return attributes;
+    }
+
+    private void assertSameEncoding(Object entity) {
+        DBObject converted = (DBObject) mongoOperations.getConverter().convertToMongoType(entity);
+        DBObject encoded = toDBObject(entity);
+
+        assertEquals(converted, encoded);
+        assertArrayEquals(new BasicBSONEncoder().encode(converted), new BasicBSONEncoder().encode(encoded));
+    }
+
+    private DBObject toDBObject(Object entity) {
+        if (entity instanceof SimplifiedVariant) {
+            return ((SimplifiedVariant) entity).toDBObject();
+        } else if (entity instanceof VariantSourceEntryMongo) {
+            return ((VariantSourceEntryMongo) entity).toDBObject();
+        } else {
+            return ((VariantStatsMongo) entity).toDBObject();
+        }
+    }
+}
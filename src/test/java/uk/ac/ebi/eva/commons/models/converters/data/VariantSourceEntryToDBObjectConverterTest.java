@@ -113,4 +113,17 @@ public class VariantSourceEntryToDBObjectConverterTest {
         );
         assertEquals(mongoFileWithIds, mongoOperations.getConverter().convertToMongoType(variantSource));
     }
+
+    @Test
+    public void testConvertToStorageTypeWithSampleColumns() {
+        VariantSourceEntryMongo variantSource = new VariantSourceEntryMongo(
+                file.getFileId(),
+                file.getStudyId(),
+                file.getSecondaryAlternates(),
+                file.getAttributes(),
+                file.getFormat(),
+                file.getSampleColumns()
+        );
+        assertEquals(mongoFileWithIds, mongoOperations.getConverter().convertToMongoType(variantSource));
+    }
 }
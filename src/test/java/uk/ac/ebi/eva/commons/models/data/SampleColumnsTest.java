@@ -0,0 +1,147 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SampleColumns}
+ * <p>
+ * input: sample-related values of a variant
+ * <p>
+ * output: the same values, read by sample and field
+ */
+public class SampleColumnsTest {
+
+    @Test
+    public void genotypesShouldBeDictionaryCoded() {
+        SampleColumns samples = SampleColumns.fromMaps(Arrays.asList(sample("0/1", "10"), sample("0/0", "5"),
+                                                                     sample("0/1", "7"), sample(null, "3")));
+
+        assertEquals(4, samples.getNumberOfSamples());
+        assertEquals(2, samples.getNumberOfGenotypes());
+        assertEquals(samples.getGenotypeCode(0), samples.getGenotypeCode(2));
+        assertEquals("0/0", samples.getGenotype(samples.getGenotypeCode(1)));
+        assertEquals(SampleColumns.MISSING_GENOTYPE, samples.getGenotypeCode(3));
+        assertNull(samples.getValue(3, "GT"));
+    }
+
+    @Test
+    public void valuesShouldBeReadByFieldNameOrIndex() {
+        SampleColumns samples = SampleColumns.fromMaps(Arrays.asList(sample("0/1", "10"), sample("0/0", null)));
+
+        int dpIndex = samples.getFormat().indexOf("DP");
+        assertEquals("10", samples.getValue(0, dpIndex));
+        assertEquals("10", samples.getValue(0, "dp"));
+        assertNull(samples.getValue(1, dpIndex));
+        assertEquals(-1, samples.getFormat().indexOf("GQ"));
+        assertNull(samples.getValue(1, "GQ"));
+    }
+
+    @Test
+    public void mapsShouldBeRebuilt() {
+        List<Map<String, String>> samplesData = Arrays.asList(sample("0/1", "10"), sample("0|0", null),
+                                                              sample(null, "3"));
+
+        assertEquals(samplesData, SampleColumns.fromMaps(samplesData).toMaps());
+    }
+
+    @Test
+    public void recodedGenotypesShouldShareTheOtherValues() {
+        SampleColumns samples = SampleColumns.fromMaps(Arrays.asList(sample("0/1", "10"), sample("1/2", "5")));
+        SampleColumns recoded = samples.withGenotypes(new String[]{"0/2", "2/1"});
+
+        assertEquals("2/1", recoded.getValue(1, "GT"));
+        assertEquals("1/2", samples.getValue(1, "GT"));
+        assertSame(samples.getValue(0, "DP"), recoded.getValue(0, "DP"));
+    }
+
+    @Test
+    public void sourceEntryShouldExposeColumnsAsMaps() {
+        VariantSourceEntry sourceEntry = new VariantSourceEntry("file", "study");
+        List<Map<String, String>> samplesData = Arrays.asList(sample("0/1", "10"), sample("0/0", "5"));
+        sourceEntry.setSampleColumns(SampleColumns.fromMaps(samplesData));
+
+        assertEquals(2, sourceEntry.getNumberOfSamples());
+        assertEquals(samplesData, sourceEntry.getSamplesData());
+        assertEquals("5", sourceEntry.getSampleData(1, "DP"));
+
+        sourceEntry.addSampleData(sample("1/1", "8"));
+        assertEquals(3, sourceEntry.getNumberOfSamples());
+        assertEquals("1/1", sourceEntry.getSampleColumns().getValue(2, "GT"));
+    }
+
+    @Test
+    public void equalityShouldNotDependOnFieldOrderOrGenotypeCodes() {
+        SampleColumns samples = SampleColumns.fromMaps(Arrays.asList(sample("0/1", "10"), sample("0/0", "5")));
+        SampleColumns otherOrder = new SampleColumns(new SampleColumns.Format(new String[]{"DP", "GT"}), 2,
+                                                     new String[][]{{"10", "5"}, {null, null}},
+                                                     new String[]{"0/0", "0/1"}, new int[]{1, 0});
+        SampleColumns otherDepth = SampleColumns.fromMaps(Arrays.asList(sample("0/1", "10"), sample("0/0", "6")));
+        SampleColumns noDepth = SampleColumns.fromMaps(Arrays.asList(sample("0/1", null), sample("0/0", null)));
+        SampleColumns onlyGenotypes = new SampleColumns(new SampleColumns.Format(new String[]{"GT"}), 2,
+                                                        new String[][]{{null, null}}, new String[]{"0/1", "0/0"},
+                                                        new int[]{0, 1});
+
+        assertEquals(samples, otherOrder);
+        assertEquals(samples.hashCode(), otherOrder.hashCode());
+        assertNotEquals(samples, otherDepth);
+        assertEquals(noDepth, onlyGenotypes);
+        assertEquals(noDepth.hashCode(), onlyGenotypes.hashCode());
+    }
+
+    @Test
+    public void sourceEntryShouldCompareSamplesWithoutBuildingMaps() {
+        List<Map<String, String>> samplesData = Arrays.asList(sample("0/1", "10"), sample("0/0", "5"));
+        VariantSourceEntry sourceEntry = new VariantSourceEntry("file", "study");
+        samplesData.forEach(sourceEntry::addSampleData);
+        VariantSourceEntry lazySourceEntry = new VariantSourceEntry("file", "study");
+        AtomicInteger decodings = new AtomicInteger();
+        lazySourceEntry.setSampleColumns(2, () -> {
+            decodings.incrementAndGet();
+            return SampleColumns.fromMaps(samplesData);
+        });
+
+        assertTrue(lazySourceEntry.toString().contains("samples=2"));
+        assertEquals(0, decodings.get());
+        assertEquals(sourceEntry, lazySourceEntry);
+        assertEquals(sourceEntry.hashCode(), lazySourceEntry.hashCode());
+        assertEquals(1, decodings.get());
+    }
+
+    private Map<String, String> sample(String genotype, String depth) {
+        Map<String, String> sample = new HashMap<>();
+        if (genotype != null) {
+            sample.put("GT", genotype);
+        }
+        if (depth != null) {
+            sample.put("DP", depth);
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.mongo.entity;
+
+import org.junit.Test;
+import org.opencb.commons.utils.CryptoUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link VariantIdBuilder}
+ * <p>
+ * input: the coordinates and alleles of a variant
+ * <p>
+ * output: the ID of the variant or annotation document
+ */
+public class VariantIdBuilderTest {
+
+    private static final String LONG_ALLELE = "ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGT";
+
+    private static final String OTHER_LONG_ALLELE = LONG_ALLELE + "TTT";
+
+    @Test
+    public void shortAllelesShouldBeCopied() {
+        VariantIdBuilder builder = new VariantIdBuilder(1000);
+
+        assertEquals("1_1000_A_C", builder.buildVariantId("1", 1000, "A", "C"));
+        assertEquals("1_1000__CA", builder.buildVariantId("1", 1000, "", "CA"));
+        assertEquals("1_1000__CA", builder.buildVariantId("1", 1000, "-", "CA"));
+    }
+
+    @Test
+    public void longAllelesShouldBeReplacedByTheirDigest() {
+        VariantIdBuilder builder = new VariantIdBuilder(1000, 1);
+        String digest = new String(CryptoUtils.encryptSha1(LONG_ALLELE));
+        String expectedId = "1_1000_TAG_" + digest;
+
+        assertEquals(expectedId, builder.buildVariantId("1", 1000, "TAG", LONG_ALLELE));
+        assertEquals(expectedId, builder.buildVariantId("1", 1000, "TAG", LONG_ALLELE));
+        assertEquals(LONG_ALLELE.length() + digest.length(), builder.getCachedDigestsLength());
+    }
+
+    @Test
+    public void digestsEvictedFromTheCacheShouldBeComputedAgain() {
+        String digest = new String(CryptoUtils.encryptSha1(LONG_ALLELE));
+        String otherDigest = new String(CryptoUtils.encryptSha1(OTHER_LONG_ALLELE));
+        int otherEntryLength = OTHER_LONG_ALLELE.length() + otherDigest.length();
+        VariantIdBuilder builder = new VariantIdBuilder(otherEntryLength, 1);
+
+        assertEquals("2_5_" + digest + "_", builder.buildVariantId("2", 5, LONG_ALLELE, ""));
+        assertEquals("2_5_" + otherDigest + "_", builder.buildVariantId("2", 5, OTHER_LONG_ALLELE, ""));
+        assertEquals(otherEntryLength, builder.getCachedDigestsLength());
+        assertEquals("2_5_" + digest + "_" + otherDigest,
+                     builder.buildVariantId("2", 5, LONG_ALLELE, OTHER_LONG_ALLELE));
+        assertEquals(otherEntryLength, builder.getCachedDigestsLength());
+    }
+
+    @Test
+    public void allelesLongerThanTheCacheShouldNotBeCached() {
+        String veryLongAllele = LONG_ALLELE + LONG_ALLELE + LONG_ALLELE;
+        VariantIdBuilder builder = new VariantIdBuilder(LONG_ALLELE.length() * 2, 1);
+
+        assertEquals("3_7_A_" + new String(CryptoUtils.encryptSha1(veryLongAllele)),
+                     builder.buildVariantId("3", 7, "A", veryLongAllele));
+        assertEquals(0, builder.getCachedDigestsLength());
+    }
+
+    @Test
+    public void cachedDigestsShouldNotExceedTheCacheLength() {
+        int cacheLength = 10000;
+        VariantIdBuilder builder = new VariantIdBuilder(cacheLength, 4);
+
+        for (int i = 0; i < 1000; i++) {
+            builder.buildVariantId("4", i, "A", LONG_ALLELE + i);
+            assertTrue(builder.getCachedDigestsLength() <= cacheLength);
+        }
+        assertTrue(builder.getCachedDigestsLength() > cacheLength / 2);
+    }
+
+    @Test
+    public void annotationIdShouldAppendTheVepVersions() {
+        VariantIdBuilder builder = new VariantIdBuilder(0);
+
+        assertEquals("X_100_A_T_87_86", builder.buildAnnotationId("X", 100, "A", "T", "87", "86"));
+        assertEquals("X_100_A_T", builder.buildVariantId("X", 100, "A", "T"));
+    }
+
+    @Test
+    public void concurrentThreadsShouldNotShareTheBuffer() throws Exception {
+        VariantIdBuilder builder = new VariantIdBuilder(400, 2);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                String chromosome = Integer.toString(thread);
+                results.add(executor.submit(() -> {
+                    for (int start = 0; start < 10000; start++) {
+                        String alternate = start % 2 == 0 ? "C" : (start % 3 == 0 ? LONG_ALLELE : OTHER_LONG_ALLELE);
+                        String id = builder.buildVariantId(chromosome, start, "A", alternate);
+                        assertEquals(VariantDocument.buildVariantId(chromosome, start, "A", alternate), id);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.junit.Test;
+
+import uk.ac.ebi.eva.commons.models.data.SampleColumns;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link PackedGenotypes}
+ * <p>
+ * input: the genotypes of the samples of a variant
+ * <p>
+ * output: the same genotypes after encoding and decoding them
+ */
+public class PackedGenotypesTest {
+
+    @Test
+    public void genotypesShouldBeDecodedAsTheyWereEncoded() {
+        String[] genotypes = {"0|0", "0|1", "0|0", null, "1|1", "0|0", "./.", "0|1"};
+
+        assertArrayEquals(genotypes, PackedGenotypes.decode(PackedGenotypes.encode(samples(genotypes))));
+    }
+
+    @Test
+    public void mostCommonGenotypeShouldNotBeStoredPerSample() {
+        BasicDBObject encoded = PackedGenotypes.encode(samples("0/0", "0/1", "0/0", "0/0"));
+
+        assertEquals(4, encoded.get(PackedGenotypes.NUMBER_OF_SAMPLES_FIELD));
+        assertEquals("0/0", encoded.get(PackedGenotypes.DEFAULT_GENOTYPE_FIELD));
+        assertEquals(Collections.singletonList("0/1"), encoded.get(PackedGenotypes.GENOTYPES_FIELD));
+        // sample 1 is one sample after the start, and has the first genotype of the list
+        assertArrayEquals(new byte[]{1, 1}, (byte[]) encoded.get(PackedGenotypes.PACKED_SAMPLES_FIELD));
+    }
+
+    @Test
+    public void samplesWithTheSameGenotypeShouldNotStoreAnyBinary() {
+        BasicDBObject encoded = PackedGenotypes.encode(samples("0|0", "0|0", "0|0"));
+
+        assertFalse(encoded.containsField(PackedGenotypes.PACKED_SAMPLES_FIELD));
+        assertArrayEquals(new String[]{"0|0", "0|0", "0|0"}, PackedGenotypes.decode(encoded));
+    }
+
+    @Test
+    public void mostlyMissingGenotypesShouldNotHaveDefault() {
+        String[] genotypes = {null, null, "0/1", null};
+        BasicDBObject encoded = PackedGenotypes.encode(samples(genotypes));
+
+        assertNull(encoded.get(PackedGenotypes.DEFAULT_GENOTYPE_FIELD));
+        assertArrayEquals(genotypes, PackedGenotypes.decode(encoded));
+    }
+
+    @Test
+    public void distantSamplesShouldBeDecodedInTheirPosition() {
+        String[] genotypes = new String[5000];
+        Arrays.fill(genotypes, "0|0");
+        genotypes[0] = "1|0";
+        genotypes[300] = "0|1";
+        genotypes[4999] = "1|1";
+
+        BasicDBObject encoded = PackedGenotypes.encode(samples(genotypes));
+
+        assertArrayEquals(genotypes, PackedGenotypes.decode(encoded));
+        assertTrue(((byte[]) encoded.get(PackedGenotypes.PACKED_SAMPLES_FIELD)).length <= 8);
+    }
+
+    @Test
+    public void sampleIndexListsShouldNotBeConsideredPacked() {
+        DBObject sampleIndexes = new BasicDBObject("def", "0|0").append("0|1", Arrays.asList(1, 5));
+
+        assertFalse(PackedGenotypes.isPacked(sampleIndexes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void corruptedBinaryShouldBeRejected() {
+        BasicDBObject encoded = PackedGenotypes.encode(samples("0|0", "0|1", "0|0"));
+        encoded.put(PackedGenotypes.PACKED_SAMPLES_FIELD, new byte[]{1, 7});
+
+        PackedGenotypes.decode(encoded);
+    }
+
+    private SampleColumns samples(String... genotypes) {
+        List<Map<String, String>> samplesData = new ArrayList<>();
+        for (String genotype : genotypes) {
+            Map<String, String> sampleData = new HashMap<>();
+            if (genotype != null) {
+                sampleData.put(SampleColumns.GENOTYPE_FIELD, genotype);
+            }
+            samplesData.add(sampleData);
+        }
+        return SampleColumns.fromMaps(samplesData);
+    }
+}
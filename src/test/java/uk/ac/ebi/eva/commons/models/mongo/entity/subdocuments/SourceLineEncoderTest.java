@@ -0,0 +1,74 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class SourceLineEncoderTest {
+
+    private static final String LINE = "1\t1000\trs1\tA\tC,G\t10\tPASS\tAC=1,2\tGT:DP\t0/1:10\t1/2:12";
+
+    @Test
+    public void noSourceLineIsStored() {
+        SourceLineEncoder encoder = new SourceLineEncoder(SourceLineEncoder.Policy.NO);
+        assertNull(encoder.encode(LINE));
+    }
+
+    @Test
+    public void first8ColumnsAreStoredCompressed() throws IOException {
+        SourceLineEncoder encoder = new SourceLineEncoder(SourceLineEncoder.Policy.FIRST_8_COLUMNS);
+        assertEquals("1\t1000\trs1\tA\tC,G\t10\tPASS\tAC=1,2", gunzip((byte[]) encoder.encode(LINE)));
+    }
+
+    @Test
+    public void fullLineIsStoredCompressed() throws IOException {
+        SourceLineEncoder encoder = new SourceLineEncoder(SourceLineEncoder.Policy.FULL);
+        assertEquals(LINE, gunzip((byte[]) encoder.encode(LINE)));
+    }
+
+    @Test
+    public void lineIsEncodedOnceForAllItsVariants() {
+        SourceLineEncoder encoder = new SourceLineEncoder(SourceLineEncoder.Policy.FULL);
+        assertSame(encoder.encode(LINE), encoder.encode(LINE));
+    }
+
+    @Test
+    public void shortLinesAreStoredCompletely() {
+        assertEquals("1\t1000", SourceLineEncoder.getFirstColumns("1\t1000", 8));
+    }
+
+    private String gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = input.read(buffer)) > 0) {
+                output.write(buffer, 0, read);
+            }
+        }
+        return output.toString();
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration;
+
+import com.mongodb.MongoClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
+import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Testing {@link MongoClientRegistry}
+ */
+@RunWith(SpringRunner.class)
+@TestPropertySource(value = {"classpath:test-mongo.properties"},
+                    properties = {"config.db.pool.max-size=10", "config.db.socket-timeout-millis=60000"})
+@ContextConfiguration(classes = {MongoConnection.class})
+public class MongoClientRegistryTest {
+
+    @Autowired
+    private MongoConnection mongoConnection;
+
+    @Rule
+    public TemporaryMongoRule mongoRule = new TemporaryMongoRule();
+
+    private MongoClientRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        registry = new MongoClientRegistry();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        registry.close();
+    }
+
+    @Test
+    public void sameConnectionShouldShareTheClient() throws Exception {
+        MongoClient client = registry.getClient(mongoConnection);
+        assertSame(client, registry.getClient(mongoConnection));
+    }
+
+    @Test
+    public void poolAndSocketOptionsShouldBeApplied() throws Exception {
+        MongoClient client = registry.getClient(mongoConnection);
+        assertEquals(10, client.getMongoClientOptions().getConnectionsPerHost());
+        assertEquals(60000, client.getMongoClientOptions().getSocketTimeout());
+        assertEquals(mongoConnection.getReadPreference(), client.getMongoClientOptions().getReadPreference());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void clientsShouldBeClosedWithTheRegistry() throws Exception {
+        MongoClient client = registry.getClient(mongoConnection);
+        registry.close();
+        client.getDB(mongoRule.getRandomTemporaryDatabaseName()).getCollectionNames();
+    }
+
+    @Test
+    public void poolStatisticsShouldBeReadable() throws Exception {
+        MongoClient client = registry.getClient(mongoConnection);
+        client.getDB(mongoRule.getRandomTemporaryDatabaseName()).getCollectionNames();
+
+        for (MongoClientRegistry.PoolStatistics poolStatistics : registry.getPoolStatistics()) {
+            assertNotNull(poolStatistics.getAddress());
+        }
+    }
+
+    @Test
+    public void timeWaitingForAConnectionShouldBeEstimated() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("org.mongodb.driver:type=ConnectionPool,clusterId=test,host=busy,port=1");
+        server.registerMBean(new BusyPool(), name);
+        registry.close();
+        registry = new MongoClientRegistry(10, 50);
+        try {
+            registry.getClient(mongoConnection);
+            Thread.sleep(500);
+
+            MongoClientRegistry.PoolStatistics busyPool = registry.getPoolStatistics().stream()
+                    .filter(poolStatistics -> poolStatistics.getAddress().equals("busy:1"))
+                    .findFirst().get();
+            assertEquals(2, busyPool.getWaitQueueSize());
+            assertEquals(1, busyPool.getAvailable());
+            assertTrue(busyPool.getWaitMillis() > 0);
+            assertTrue(busyPool.toString().contains("estimated " + busyPool.getWaitMillis() + " ms waited"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void passwordShouldOnlyBeKeptAsAHash() {
+        String hash = MongoClientRegistry.hashPassword("secret");
+        assertEquals(hash, MongoClientRegistry.hashPassword("secret"));
+        assertNotEquals(hash, MongoClientRegistry.hashPassword("other secret"));
+        assertFalse(hash.contains("secret"));
+        assertNull(MongoClientRegistry.hashPassword(null));
+    }
+
+    public interface BusyPoolMBean {
+
+        int getSize();
+
+        int getCheckedOutCount();
+
+        int getWaitQueueSize();
+    }
+
+    /**
+     * Pool published like the ones of the driver, with 9 of its 10 connections in use and two threads waiting.
+     */
+    public static class BusyPool implements BusyPoolMBean {
+
+        @Override
+        public int getSize() {
+            return 10;
+        }
+
+        @Override
+        public int getCheckedOutCount() {
+            return 9;
+        }
+
+        @Override
+        public int getWaitQueueSize() {
+            return 2;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.configuration.jobs.steps;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.JobLauncherTestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import uk.ac.ebi.eva.pipeline.Application;
+import uk.ac.ebi.eva.pipeline.configuration.BeanNames;
+import uk.ac.ebi.eva.pipeline.configuration.jobs.AnnotationJobConfiguration;
+import uk.ac.ebi.eva.test.configuration.BatchTestConfiguration;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
+import uk.ac.ebi.eva.utils.EvaJobParameterBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.BuildDeferredIndexesTasklet.ANNOTATIONS_INDEXES_BUILD_MILLIS;
+import static uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.BuildDeferredIndexesTasklet.VARIANTS_INDEXES_BUILD_MILLIS;
+import static uk.ac.ebi.eva.test.utils.JobTestUtils.assertCompleted;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * Test for {@link BuildDeferredIndexesStepConfiguration}. In the context it is loaded
+ * {@link AnnotationJobConfiguration} because {@link JobLauncherTestUtils} require one
+ * {@link org.springframework.batch.core.Job} to be present in order to run properly.
+ */
+@RunWith(SpringRunner.class)
+@ActiveProfiles(Application.VARIANT_ANNOTATION_MONGO_PROFILE)
+@TestPropertySource({"classpath:common-configuration.properties", "classpath:test-mongo.properties"})
+@ContextConfiguration(classes = {AnnotationJobConfiguration.class, BatchTestConfiguration.class})
+public class BuildDeferredIndexesStepTest {
+
+    private static final String COLLECTION_VARIANTS_NAME = "variants";
+
+    private static final String COLLECTION_ANNOTATIONS_NAME = "annotations";
+
+    private static final String COLLECTION_ANNOTATION_METADATA_NAME = "annotationMetadata";
+
+    private static final String MOCK_VEP = "/mockvep.pl";
+
+    @Rule
+    public TemporaryMongoRule mongoRule = new TemporaryMongoRule();
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Autowired
+    private JobLauncherTestUtils jobLauncherTestUtils;
+
+    @Test
+    public void deferredIndexesAreBuiltInTheForeground() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        DBCollection variantsCollection = mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME);
+        DBCollection annotationsCollection = mongoRule.getCollection(databaseName, COLLECTION_ANNOTATIONS_NAME);
+        variantsCollection.insert(new BasicDBObject("_id", "20_60343_G_A").append("chr", "20").append("start", 60343));
+        annotationsCollection.insert(new BasicDBObject("_id", "20_60343_G_A_82_82"));
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .databaseName(databaseName)
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .collectionAnnotationsName(COLLECTION_ANNOTATIONS_NAME)
+                .deferIndexes(true)
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.BUILD_DEFERRED_INDEXES_STEP,
+                                                                    jobParameters);
+
+        assertCompleted(jobExecution);
+
+        assertEquals(new HashSet<>(Arrays.asList("annot.xrefs_1", "files.sid_1_files.fid_1", "chr_1_start_1_end_1",
+                                                 "annot.so_1", "_id_", "ids_1")),
+                     getIndexNames(variantsCollection));
+        assertEquals(new HashSet<>(Arrays.asList("ct.so_1", "xrefs.id_1", "_id_")),
+                     getIndexNames(annotationsCollection));
+
+        variantsCollection.getIndexInfo().forEach(index -> assertFalse(Boolean.TRUE.equals(index.get("background"))));
+
+        StepExecution stepExecution = jobExecution.getStepExecutions().iterator().next();
+        assertTrue(stepExecution.getExecutionContext().containsKey(VARIANTS_INDEXES_BUILD_MILLIS));
+        assertTrue(stepExecution.getExecutionContext().containsKey(ANNOTATIONS_INDEXES_BUILD_MILLIS));
+    }
+
+    @Test
+    public void nothingIsBuiltIfIndexesWereNotDeferred() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        DBCollection variantsCollection = mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME);
+        variantsCollection.insert(new BasicDBObject("_id", "20_60343_G_A"));
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .databaseName(databaseName)
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.BUILD_DEFERRED_INDEXES_STEP,
+                                                                    jobParameters);
+
+        assertCompleted(jobExecution);
+        assertEquals(new HashSet<>(Arrays.asList("_id_")), getIndexNames(variantsCollection));
+        StepExecution stepExecution = jobExecution.getStepExecutions().iterator().next();
+        assertFalse(stepExecution.getExecutionContext().containsKey(VARIANTS_INDEXES_BUILD_MILLIS));
+    }
+
+    @Test
+    public void stepRunsAtTheEndOfTheJobOnlyIfIndexesWereDeferred() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+        File fasta = temporaryFolderRule.newFile();
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .annotationOverwrite("false")
+                .collectionAnnotationMetadataName(COLLECTION_ANNOTATION_METADATA_NAME)
+                .collectionAnnotationsName(COLLECTION_ANNOTATIONS_NAME)
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .databaseName(databaseName)
+                .deferIndexes(true)
+                .inputFasta(fasta.getAbsolutePath())
+                .inputStudyId("1")
+                .inputVcfId("1")
+                .outputDirAnnotation(temporaryFolderRule.getRoot().getAbsolutePath())
+                .vepCachePath("")
+                .vepCacheSpecies("Human")
+                .vepCacheVersion("80")
+                .vepNumForks("4")
+                .vepPath(getResource(MOCK_VEP).getPath())
+                .vepTimeout("60")
+                .vepVersion("80")
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchJob(jobParameters);
+
+        assertCompleted(jobExecution);
+
+        List<StepExecution> steps = new ArrayList<>(jobExecution.getStepExecutions());
+        assertEquals(2, steps.size());
+        assertEquals(BeanNames.GENERATE_VEP_ANNOTATION_STEP, steps.get(0).getStepName());
+        assertEquals(BeanNames.BUILD_DEFERRED_INDEXES_STEP, steps.get(1).getStepName());
+    }
+
+    private Set<String> getIndexNames(DBCollection collection) {
+        return collection.getIndexInfo().stream().map(index -> index.get("name").toString())
+                         .collect(Collectors.toSet());
+    }
+}
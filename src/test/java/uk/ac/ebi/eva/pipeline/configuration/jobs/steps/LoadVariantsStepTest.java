@@ -90,4 +90,46 @@ public class LoadVariantsStepTest {
         // And the number of documents in the DB should be equals to the number of lines in the VCF file
         assertEquals(EXPECTED_VARIANTS, mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME).count());
     }
+
+    @Test
+    public void partitionedLoaderStepShouldLoadAllVariants() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .databaseName(databaseName)
+                .inputStudyId("1")
+                .inputVcf(input)
+                .inputVcfAggregation("NONE")
+                .inputVcfId("1")
+                .loadPartitions("4")
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.PARTITIONED_LOAD_VARIANTS_STEP,
+                jobParameters);
+
+        assertCompleted(jobExecution);
+        assertEquals(EXPECTED_VARIANTS, mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME).count());
+    }
+
+    @Test
+    public void loaderStepWithSeveralChunksInFlightShouldLoadAllVariants() throws Exception {
+        String databaseName = mongoRule.getRandomTemporaryDatabaseName();
+
+        JobParameters jobParameters = new EvaJobParameterBuilder()
+                .collectionVariantsName(COLLECTION_VARIANTS_NAME)
+                .databaseName(databaseName)
+                .inputStudyId("1")
+                .inputVcf(input)
+                .inputVcfAggregation("NONE")
+                .inputVcfId("1")
+                .chunkSize("10")
+                .loadInFlightChunks("3")
+                .toJobParameters();
+
+        JobExecution jobExecution = jobLauncherTestUtils.launchStep(BeanNames.LOAD_VARIANTS_STEP, jobParameters);
+
+        assertCompleted(jobExecution);
+        assertEquals(EXPECTED_VARIANTS, mongoRule.getCollection(databaseName, COLLECTION_VARIANTS_NAME).count());
+    }
 }
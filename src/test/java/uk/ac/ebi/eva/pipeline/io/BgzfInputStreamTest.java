@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.util.StreamUtils;
+
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+import uk.ac.ebi.eva.test.utils.TestFileUtils;
+import uk.ac.ebi.eva.utils.CompressionHelper;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link BgzfInputStream}
+ * <p>
+ * input: a file compressed with BGZF
+ * <p>
+ * output: the same bytes that would be obtained with a GZIPInputStream
+ */
+public class BgzfInputStreamTest {
+
+    private static final String INPUT_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Test
+    public void shouldInflateAllBlocksInOrder() throws Exception {
+        byte[] content = readGzip(getResource(INPUT_FILE_PATH));
+        File bgzipFile = TestFileUtils.makeBgzipFile(content, temporaryFolderRule.newFile(), 4096);
+
+        try (InputStream inputStream = new BgzfInputStream(new FileInputStream(bgzipFile), 3)) {
+            assertArrayEquals(content, StreamUtils.copyToByteArray(inputStream));
+        }
+    }
+
+    @Test
+    public void shouldBeReadableAsRegularGzip() throws Exception {
+        byte[] content = readGzip(getResource(INPUT_FILE_PATH));
+        File bgzipFile = TestFileUtils.makeBgzipFile(content, temporaryFolderRule.newFile(), 4096);
+
+        assertArrayEquals(content, readGzip(bgzipFile));
+    }
+
+    @Test
+    public void shouldDetectBgzfFiles() throws Exception {
+        File gzipFile = getResource(INPUT_FILE_PATH);
+        File bgzipFile = TestFileUtils.makeBgzipFile(readGzip(gzipFile), temporaryFolderRule.newFile(), 4096);
+
+        assertTrue(CompressionHelper.isBgzf(bgzipFile));
+        assertFalse(CompressionHelper.isBgzf(gzipFile));
+    }
+
+    @Test
+    public void gzipLazyResourceShouldReadBothFormats() throws Exception {
+        File gzipFile = getResource(INPUT_FILE_PATH);
+        byte[] content = readGzip(gzipFile);
+        File bgzipFile = TestFileUtils.makeBgzipFile(content, temporaryFolderRule.newFile(), 4096);
+
+        try (InputStream inputStream = new GzipLazyResource(bgzipFile).getInputStream()) {
+            assertTrue(inputStream instanceof BgzfInputStream);
+            assertArrayEquals(content, StreamUtils.copyToByteArray(inputStream));
+        }
+        try (InputStream inputStream = new GzipLazyResource(gzipFile).getInputStream()) {
+            assertTrue(inputStream instanceof GZIPInputStream);
+            assertArrayEquals(content, StreamUtils.copyToByteArray(inputStream));
+        }
+    }
+
+    @Test
+    public void shouldStartReadingAtVirtualOffset() throws Exception {
+        byte[] content = readGzip(getResource(INPUT_FILE_PATH));
+        File bgzipFile = TestFileUtils.makeBgzipFile(content, temporaryFolderRule.newFile(), 4096);
+
+        // the second block starts right after the first one, whose size is stored in its header
+        byte[] header = new byte[18];
+        try (InputStream inputStream = new FileInputStream(bgzipFile)) {
+            assertEquals(header.length, inputStream.read(header));
+        }
+        long secondBlockOffset = ((header[16] & 0xff) | ((header[17] & 0xff) << 8)) + 1;
+        int offsetInBlock = 100;
+
+        try (InputStream inputStream = BgzfInputStream.open(bgzipFile, secondBlockOffset << 16 | offsetInBlock)) {
+            assertArrayEquals(Arrays.copyOfRange(content, 4096 + offsetInBlock, content.length),
+                              StreamUtils.copyToByteArray(inputStream));
+        }
+    }
+
+    @Test
+    public void shouldSeekBackwardsAndForwards() throws Exception {
+        byte[] content = readGzip(getResource(INPUT_FILE_PATH));
+        File bgzipFile = TestFileUtils.makeBgzipFile(content, temporaryFolderRule.newFile(), 4096);
+
+        try (BgzfInputStream inputStream = BgzfInputStream.open(bgzipFile, 0)) {
+            StreamUtils.copyToByteArray(inputStream);
+            inputStream.seek(0);
+            byte[] start = new byte[5000];
+            new DataInputStream(inputStream).readFully(start);
+            assertArrayEquals(Arrays.copyOfRange(content, 0, start.length), start);
+
+            long offsetInSecondBlock = inputStream.getVirtualOffset();
+            inputStream.seek(0);
+            inputStream.seek(offsetInSecondBlock);
+            assertArrayEquals(Arrays.copyOfRange(content, start.length, content.length),
+                              StreamUtils.copyToByteArray(inputStream));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void seekShouldNeedAFile() throws Exception {
+        try (BgzfInputStream inputStream = new BgzfInputStream(new FileInputStream(getResource(INPUT_FILE_PATH)))) {
+            inputStream.seek(0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void plainGzipShouldBeRejected() throws Exception {
+        try (InputStream inputStream = new BgzfInputStream(new FileInputStream(getResource(INPUT_FILE_PATH)))) {
+            StreamUtils.copyToByteArray(inputStream);
+        }
+    }
+
+    private byte[] readGzip(File file) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(file))) {
+            return StreamUtils.copyToByteArray(inputStream);
+        }
+    }
+}
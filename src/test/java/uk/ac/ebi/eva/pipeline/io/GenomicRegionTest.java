@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link GenomicRegion}
+ * <p>
+ * input: regions written as chr, chr:position or chr:start-end
+ * <p>
+ * output: the parsed regions, merged if they overlap
+ */
+public class GenomicRegionTest {
+
+    @Test
+    public void shouldParseAllFormats() {
+        assertEquals(new GenomicRegion("20", 1, Integer.MAX_VALUE), GenomicRegion.parse("20"));
+        assertEquals(new GenomicRegion("20", 1000, 1000), GenomicRegion.parse("20:1000"));
+        assertEquals(new GenomicRegion("chrX", 1000, 2000), GenomicRegion.parse(" chrX:1000-2000 "));
+    }
+
+    @Test
+    public void shouldMergeOverlappingRegionsOfEachChromosome() {
+        assertEquals(Arrays.asList(new GenomicRegion("20", 100, 400),
+                                   new GenomicRegion("20", 500, 600),
+                                   new GenomicRegion("1", 1, 10)),
+                     GenomicRegion.parseList("20:300-400,1:1-10,20:500-600,20:100-350,"));
+    }
+
+    @Test
+    public void shouldCheckOverlapsInclusively() {
+        GenomicRegion region = new GenomicRegion("20", 100, 200);
+        assertTrue(region.overlaps(50, 100));
+        assertTrue(region.overlaps(200, 300));
+        assertTrue(region.overlaps(150, 150));
+        assertFalse(region.overlaps(50, 99));
+        assertFalse(region.overlaps(201, 300));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void startAfterEndShouldBeRejected() {
+        GenomicRegion.parse("20:2000-1000");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedRegionShouldBeRejected() {
+        GenomicRegion.parse("20:1000-");
+    }
+}
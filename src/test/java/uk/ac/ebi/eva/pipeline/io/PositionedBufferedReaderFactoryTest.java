@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.StreamUtils;
+
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+import uk.ac.ebi.eva.test.utils.TestFileUtils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link PositionedBufferedReaderFactory}
+ * <p>
+ * input: a VCF file, uncompressed or compressed with gzip or bgzip
+ * <p>
+ * output: the lines of the file, and readers that start at the position of any of them
+ */
+public class PositionedBufferedReaderFactoryTest {
+
+    private static final String INPUT_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
+
+    @Test
+    public void shouldResumeBgzipFileAtLineStarts() throws Exception {
+        byte[] content = readGzip(getResource(INPUT_FILE_PATH));
+        File bgzipFile = TestFileUtils.makeBgzipFile(content, temporaryFolderRule.newFile(), 4096);
+        checkResumeAtLineStarts(new GzipLazyResource(bgzipFile));
+    }
+
+    @Test
+    public void shouldResumeGzipFileAtLineStarts() throws Exception {
+        checkResumeAtLineStarts(new GzipLazyResource(getResource(INPUT_FILE_PATH)));
+    }
+
+    @Test
+    public void shouldResumeUncompressedFileAtLineStarts() throws Exception {
+        File uncompressedFile = temporaryFolderRule.newFile();
+        try (FileOutputStream outputStream = new FileOutputStream(uncompressedFile)) {
+            outputStream.write(readGzip(getResource(INPUT_FILE_PATH)));
+        }
+        checkResumeAtLineStarts(new FileSystemResource(uncompressedFile));
+    }
+
+    private void checkResumeAtLineStarts(Resource resource) throws IOException {
+        PositionedBufferedReaderFactory factory = new PositionedBufferedReaderFactory();
+        List<String> lines = new ArrayList<>();
+        List<Long> positions = new ArrayList<>();
+        try (BufferedReader reader = factory.create(resource, "UTF-8")) {
+            String line;
+            positions.add(factory.getPosition());
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+                positions.add(factory.getPosition());
+            }
+        }
+        assertEquals(String.join("\n", lines) + "\n", new String(readGzip(getResource(INPUT_FILE_PATH)), "UTF-8"));
+
+        for (int i = 0; i < lines.size(); i += 10) {
+            factory.setStartPosition(positions.get(i));
+            try (BufferedReader reader = factory.create(resource, "UTF-8")) {
+                assertEquals(lines.get(i), reader.readLine());
+            }
+        }
+        factory.setStartPosition(positions.get(lines.size()));
+        try (BufferedReader reader = factory.create(resource, "UTF-8")) {
+            assertNull(reader.readLine());
+        }
+    }
+
+    private byte[] readGzip(File file) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(file))) {
+            return StreamUtils.copyToByteArray(inputStream);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link VepAnnotationCache}
+ * <p>
+ * input: chunks of variants in VEP input format, and an annotator that writes two annotations per variant
+ * <p>
+ * output: the annotations of every variant, computed by the annotator only for the variants not in the cache
+ */
+public class VepAnnotationCacheTest {
+
+    private static final String VEP_VERSION = "78";
+
+    private static final String VEP_CACHE_VERSION = "79";
+
+    private static final String VARIANT_1 = "1\t100\t100\tA/T\t+";
+
+    private static final String VARIANT_2 = "1\t200\t200\tC/G\t+";
+
+    private static final String VARIANT_3 = "2\t2000000\t2000000\tG/A\t+";
+
+    private static final List<String> HEADER = Arrays.asList("## VEP header", "#Uploaded_variation\tLocation");
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolder = new PipelineTemporaryFolderRule();
+
+    private String cacheRoot;
+
+    private List<List<String>> annotatedChunks;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheRoot = temporaryFolder.newFolder().getAbsolutePath();
+        annotatedChunks = new ArrayList<>();
+    }
+
+    @Test
+    public void variantsShouldBeAnnotatedOnlyOnceAcrossCaches() {
+        List<String> variants = Arrays.asList(VARIANT_1, VARIANT_2, VARIANT_3);
+
+        List<String> firstAnnotations = newCache().annotate(variants, annotator());
+        List<String> secondAnnotations = newCache().annotate(variants, annotator());
+
+        assertEquals(Collections.singletonList(variants), annotatedChunks);
+        assertEquals(expectedAnnotations(variants), firstAnnotations);
+        assertEquals(firstAnnotations, secondAnnotations);
+    }
+
+    @Test
+    public void onlyMissingVariantsShouldBeAnnotatedAndOrderShouldBeKept() {
+        newCache().annotate(Collections.singletonList(VARIANT_2), annotator());
+
+        VepAnnotationCache cache = newCache();
+        List<String> variants = Arrays.asList(VARIANT_1, VARIANT_2, VARIANT_3);
+        List<String> annotations = cache.annotate(variants, annotator());
+
+        assertEquals(Arrays.asList(Collections.singletonList(VARIANT_2), Arrays.asList(VARIANT_1, VARIANT_3)),
+                     annotatedChunks);
+        assertEquals(expectedAnnotations(variants), annotations);
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void variantsAnnotatedByTwoCachesAtTheSameTimeShouldBeReadOnce() {
+        VepAnnotationCache firstCache = newCache();
+        VepAnnotationCache secondCache = newCache();
+        firstCache.annotate(Collections.singletonList(VARIANT_1), annotator());
+        secondCache.annotate(Collections.singletonList(VARIANT_2), annotator());
+        // the first cache loaded the bin before the second one stored the variant, so it stores it again
+        firstCache.annotate(Collections.singletonList(VARIANT_2), annotator());
+
+        List<String> variants = Arrays.asList(VARIANT_1, VARIANT_2, VARIANT_3);
+        List<String> annotations = newCache().annotate(variants, annotator());
+
+        assertEquals(Arrays.asList(Collections.singletonList(VARIANT_1), Collections.singletonList(VARIANT_2),
+                                   Collections.singletonList(VARIANT_2), Collections.singletonList(VARIANT_3)),
+                     annotatedChunks);
+        assertEquals(expectedAnnotations(variants), annotations);
+    }
+
+    @Test
+    public void otherVepVersionsShouldNotShareTheAnnotations() {
+        List<String> variants = Collections.singletonList(VARIANT_1);
+        newCache().annotate(variants, annotator());
+        new VepAnnotationCache(cacheRoot, VEP_VERSION, "80").annotate(variants, annotator());
+
+        assertEquals(2, annotatedChunks.size());
+    }
+
+    @Test
+    public void headerShouldBeStoredOnce() {
+        assertTrue(newCache().getHeader().isEmpty());
+
+        newCache().putHeader(HEADER);
+        newCache().putHeader(Collections.singletonList("## another header"));
+
+        assertEquals(HEADER, newCache().getHeader());
+    }
+
+    private VepAnnotationCache newCache() {
+        return new VepAnnotationCache(cacheRoot, VEP_VERSION, VEP_CACHE_VERSION);
+    }
+
+    /**
+     * Annotates like VEP does, writing the identifier of the variant in the first column and the location in the
+     * second one. Every variant overlaps two features.
+     */
+    private Function<List<String>, List<String>> annotator() {
+        return variants -> {
+            annotatedChunks.add(new ArrayList<>(variants));
+            return expectedAnnotations(variants);
+        };
+    }
+
+    private List<String> expectedAnnotations(List<String> variants) {
+        List<String> annotations = new ArrayList<>();
+        for (String variant : variants) {
+            String[] fields = variant.split("\t");
+            String id = fields[0] + "_" + fields[1] + "_" + fields[3];
+            annotations.add(id + "\t" + fields[0] + ":" + fields[1] + "\tintergenic_variant");
+            annotations.add(id + "\t" + fields[0] + ":" + fields[1] + "\tregulatory_region_variant");
+        }
+        return annotations;
+    }
+}
@@ -20,6 +20,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.batch.item.ItemStreamException;
 
 import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
 import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
@@ -27,6 +28,7 @@ import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
 
 import java.io.File;
 
+import static org.junit.Assert.assertEquals;
 import static uk.ac.ebi.eva.utils.FileUtils.getResource;
 
 public class VepProcessTest {
@@ -97,6 +99,38 @@ public class VepProcessTest {
         vepAnnotationFileWriter.flush();
     }
 
+    @Test
+    public void writingToAStuckProcessShouldTimeout() throws Exception {
+        annotationParameters.setVepPath(getResource("/mockvep_notReading.pl").getAbsolutePath());
+        VepProcess vepAnnotationFileWriter = new VepProcess(annotationParameters, CHUNK_SIZE, VEP_TIMEOUT);
+        vepAnnotationFileWriter.open();
+
+        StringBuilder chunk = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            chunk.append(getVariantInVepInputFormat(VARIANT_WRAPPER)).append(System.lineSeparator());
+        }
+
+        exception.expect(ItemStreamException.class);
+        exception.expectMessage("timeout reached");
+        try {
+            vepAnnotationFileWriter.write(chunk.toString().getBytes());
+        } finally {
+            assertEquals(0, VepWatchdog.getWatchCount());
+        }
+    }
+
+    @Test
+    public void writesShouldStopBeingWatchedWhenFinished() throws Exception {
+        VepProcess vepAnnotationFileWriter = new VepProcess(annotationParameters, CHUNK_SIZE, VEP_TIMEOUT);
+        vepAnnotationFileWriter.open();
+        vepAnnotationFileWriter.write((getVariantInVepInputFormat(VARIANT_WRAPPER) + "\n").getBytes());
+        vepAnnotationFileWriter.flush();
+        assertEquals(0, VepWatchdog.getWatchCount());
+
+        vepAnnotationFileWriter.close();
+        assertEquals(0, VepWatchdog.getWatchCount());
+    }
+
     @Test
     public void testWorkflowCloseWithoutOpening() throws Exception {
         VepProcess vepAnnotationFileWriter = new VepProcess(annotationParameters, CHUNK_SIZE, VEP_TIMEOUT);
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link VepWorkerPool}
+ * <p>
+ * input: chunks of variants in VEP input format
+ * <p>
+ * output: the annotations of every variant, in the same order, while sending few markers to VEP
+ */
+public class VepWorkerPoolTest {
+
+    private static final int WORKERS = 4;
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private static final long VEP_TIMEOUT = 5;
+
+    /**
+     * mockvep_persistent.pl writes two annotations for each variant
+     */
+    private static final int ANNOTATIONS_PER_VARIANT = 2;
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolder = new PipelineTemporaryFolderRule();
+
+    private AnnotationParameters annotationParameters;
+
+    private VepWorkerPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        annotationParameters = new AnnotationParameters();
+        annotationParameters.setFileId("fid");
+        annotationParameters.setStudyId("sid");
+        annotationParameters.setVepCacheVersion("1");
+        annotationParameters.setVepCachePath("cache");
+        annotationParameters.setVepPath(getResource("/mockvep_persistent.pl").getAbsolutePath());
+        annotationParameters.setVepCacheSpecies("hsapiens");
+        annotationParameters.setInputFasta("fasta");
+        annotationParameters.setVepNumForks(4);
+        annotationParameters.setOutputDirAnnotation(temporaryFolder.newFolder().getAbsolutePath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void fullChunkShouldBeAnnotatedInOrderWithFewMarkers() {
+        pool = new VepWorkerPool(annotationParameters, WORKERS, CHUNK_SIZE, VEP_TIMEOUT);
+        pool.open();
+
+        List<String> variants = variants(0, CHUNK_SIZE);
+        assertAnnotated(variants, pool.annotate(variants));
+        assertFewMarkers(variants.size(), pool.getSentLines());
+    }
+
+    @Test
+    public void fewVariantsShouldBeAnnotatedWithFewMarkers() {
+        pool = new VepWorkerPool(annotationParameters, WORKERS, CHUNK_SIZE, VEP_TIMEOUT);
+        pool.open();
+
+        List<String> variants = variants(0, 10);
+        assertAnnotated(variants, pool.annotate(variants));
+        assertFewMarkers(variants.size(), pool.getSentLines());
+    }
+
+    @Test
+    public void onlyVariantsMissingFromTheCacheShouldBeSentWithFewMarkers() throws Exception {
+        VepAnnotationCache annotationCache = new VepAnnotationCache(temporaryFolder.newFolder().getAbsolutePath(),
+                                                                    "78", "79");
+        pool = new VepWorkerPool(annotationParameters, WORKERS, CHUNK_SIZE, VEP_TIMEOUT, annotationCache);
+        pool.open();
+        pool.annotate(variants(0, CHUNK_SIZE));
+        long sentLinesOfFirstChunk = pool.getSentLines();
+
+        int missingVariants = CHUNK_SIZE / 10;
+        List<String> variants = variants(missingVariants, CHUNK_SIZE + missingVariants);
+        assertAnnotated(variants, pool.annotate(variants));
+        assertFewMarkers(missingVariants, pool.getSentLines() - sentLinesOfFirstChunk);
+    }
+
+    private List<String> variants(int from, int to) {
+        List<String> variants = new ArrayList<>();
+        for (int position = from + 1; position <= to; position++) {
+            variants.add(String.join("\t", "1", Integer.toString(position), Integer.toString(position), "A/T", "+"));
+        }
+        return variants;
+    }
+
+    private void assertAnnotated(List<String> variants, List<String> annotations) {
+        assertEquals(variants.size() * ANNOTATIONS_PER_VARIANT, annotations.size());
+        for (int i = 0; i < annotations.size(); i++) {
+            String[] variant = variants.get(i / ANNOTATIONS_PER_VARIANT).split("\t");
+            assertEquals(variant[0] + "_" + variant[1] + "_" + variant[3], annotations.get(i).split("\t")[0]);
+        }
+    }
+
+    private void assertFewMarkers(int variants, long sentLines) {
+        long markers = sentLines - variants;
+        assertTrue("Too many markers: " + markers, markers >= 1 && markers < VepWorkerPool.MAX_BUFFER_SIZE + WORKERS);
+    }
+}
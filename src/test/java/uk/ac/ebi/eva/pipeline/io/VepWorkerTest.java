@@ -0,0 +1,233 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.batch.item.ItemStreamException;
+
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+public class VepWorkerTest {
+
+    private static final int BUFFER_SIZE = 4;
+
+    private static final long VEP_TIMEOUT = 1;
+
+    private static final int HEADER_LINES = 3;
+
+    /**
+     * mockvep_persistent.pl writes two annotations for each variant
+     */
+    private static final int ANNOTATIONS_PER_VARIANT = 2;
+
+    private AnnotationParameters annotationParameters;
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolder = new PipelineTemporaryFolderRule();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Before
+    public void setUp() throws Exception {
+        annotationParameters = new AnnotationParameters();
+        annotationParameters.setFileId("fid");
+        annotationParameters.setStudyId("sid");
+        annotationParameters.setVepCacheVersion("1");
+        annotationParameters.setVepCachePath("cache");
+        annotationParameters.setVepPath(getResource("/mockvep_persistent.pl").getAbsolutePath());
+        annotationParameters.setVepCacheSpecies("hsapiens");
+        annotationParameters.setInputFasta("fasta");
+        annotationParameters.setVepNumForks(4);
+
+        File annotationFolder = temporaryFolder.newFolder();
+        annotationParameters.setOutputDirAnnotation(annotationFolder.getAbsolutePath());
+    }
+
+    @Test
+    public void severalChunksAreAnnotatedByTheSameProcess() throws Exception {
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        List<List<String>> chunks = Arrays.asList(Arrays.asList(variant(100), variant(101), variant(102)),
+                                                  Collections.singletonList(variant(103)),
+                                                  Arrays.asList(variant(104), variant(105), variant(106)));
+        for (List<String> chunk : chunks) {
+            List<String> annotations = vepWorker.annotate(chunk);
+
+            assertEquals(chunk.size() * ANNOTATIONS_PER_VARIANT, annotations.size());
+            for (int i = 0; i < annotations.size(); i++) {
+                String variant = chunk.get(i / ANNOTATIONS_PER_VARIANT);
+                String expectedIdentifier = variant.replaceFirst("\t(\\d+)\t\\d+\t(.*)\t\\+", "_$1_$2");
+                assertEquals(expectedIdentifier, annotations.get(i).split("\t")[0]);
+            }
+            assertTrue(vepWorker.isHealthy());
+        }
+        assertEquals(HEADER_LINES, vepWorker.getHeader().size());
+
+        vepWorker.close();
+        assertFalse(vepWorker.isOpen());
+    }
+
+    @Test
+    public void chunkAsBigAsTheBufferIsAnnotated() throws Exception {
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        List<String> chunk = Arrays.asList(variant(100), variant(101), variant(102), variant(103));
+        assertEquals(chunk.size() * ANNOTATIONS_PER_VARIANT, vepWorker.annotate(chunk).size());
+
+        vepWorker.close();
+    }
+
+    @Test
+    public void chunkEndingInAVariantWithoutAnnotationsIsAnnotated() throws Exception {
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        List<String> firstChunk = Arrays.asList(variant(100), unknownRegionVariant(101));
+        assertEquals(ANNOTATIONS_PER_VARIANT, vepWorker.annotate(firstChunk).size());
+
+        List<String> secondChunk = Arrays.asList(variant(102), variant(103), unknownRegionVariant(104));
+        assertEquals(2 * ANNOTATIONS_PER_VARIANT, vepWorker.annotate(secondChunk).size());
+
+        List<String> thirdChunk = Collections.singletonList(unknownRegionVariant(105));
+        assertEquals(0, vepWorker.annotate(thirdChunk).size());
+        assertTrue(vepWorker.isHealthy());
+
+        vepWorker.close();
+    }
+
+    @Test
+    public void relativeVepPathIsRun() throws Exception {
+        File vep = getResource("/mockvep_persistent.pl");
+        String relativePath = new File("").getAbsoluteFile().toPath().relativize(vep.toPath()).toString();
+        annotationParameters.setVepPath(relativePath);
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        List<String> chunk = Arrays.asList(variant(100), variant(101));
+        assertEquals(chunk.size() * ANNOTATIONS_PER_VARIANT, vepWorker.annotate(chunk).size());
+
+        vepWorker.close();
+    }
+
+    @Test
+    public void missingVepScriptFailsTheFirstChunk() throws Exception {
+        annotationParameters.setVepPath(new File(temporaryFolder.getRoot(), "missing_vep.pl").getAbsolutePath());
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        try {
+            vepWorker.annotate(Collections.singletonList(variant(100)));
+            fail("VEP should not have annotated anything");
+        } catch (ItemStreamException e) {
+            assertFalse(vepWorker.isHealthy());
+        }
+
+        File outputFolder = new File(annotationParameters.getVepOutput()).getParentFile();
+        File[] errorLogs = outputFolder.listFiles((folder, fileName) -> fileName.endsWith(".errors.txt"));
+        assertEquals(1, errorLogs.length);
+        assertTrue(new String(Files.readAllBytes(errorLogs[0].toPath())).startsWith("Cannot read"));
+    }
+
+    @Test
+    public void annotateWithoutOpening() throws Exception {
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+
+        exception.expect(IllegalStateException.class);
+        vepWorker.annotate(Collections.singletonList(variant(100)));
+    }
+
+    @Test
+    public void closeWithoutOpening() throws Exception {
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.close();
+    }
+
+    @Test
+    public void processThatDiesFailsTheChunk() throws Exception {
+        annotationParameters.setVepPath(getResource("/mockvep_writeToFile_error.pl").getAbsolutePath());
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        exception.expect(ItemStreamException.class);
+        try {
+            vepWorker.annotate(Arrays.asList("20\t65900\t65900\tG/A\t+", "20\t65901\t65901\tG/A\t+"));
+        } finally {
+            assertFalse(vepWorker.isOpen());
+        }
+    }
+
+    @Test
+    public void chunkWithoutMarkerTimesOut() throws Exception {
+        annotationParameters.setVepPath(getResource("/mockvep_writeToFile_delayed.pl").getAbsolutePath());
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        exception.expect(ItemStreamException.class);
+        vepWorker.annotate(Collections.singletonList(variant(100)));
+    }
+
+    @Test
+    public void processThatDoesNotReadTheVariantsTimesOut() throws Exception {
+        annotationParameters.setVepPath(getResource("/mockvep_notReading.pl").getAbsolutePath());
+        VepWorker vepWorker = new VepWorker(annotationParameters, BUFFER_SIZE, VEP_TIMEOUT, "test");
+        vepWorker.open();
+
+        List<String> chunk = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            chunk.add(variant(100 + i));
+        }
+
+        exception.expect(ItemStreamException.class);
+        exception.expectMessage("timeout reached");
+        try {
+            vepWorker.annotate(chunk);
+        } finally {
+            assertFalse(vepWorker.isOpen());
+            assertEquals(0, VepWatchdog.getWatchCount());
+        }
+    }
+
+    private String variant(int position) {
+        return String.join("\t", "1", Integer.toString(position), Integer.toString(position), "A/T", "+");
+    }
+
+    /**
+     * mockvep_persistent.pl, like VEP, doesn't write anything for this variant
+     */
+    private String unknownRegionVariant(int position) {
+        return String.join("\t", "unknown", Integer.toString(position), Integer.toString(position), "A/T", "+");
+    }
+}
@@ -56,6 +56,26 @@ public class VariantAggregatedVcfFactoryTest extends GenericTest {
         assertEquals(0.015827711, stats.getMaf(), 0.0001);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void genotypedLineIsRejected() {
+        String line = "20\t61098\trs6078030\tC\tT\t51254.56\tPASS\tAC=1;AN=4\tGT\t0/1\t0/0";
+        factory.create(FILE_ID, STUDY_ID, line);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void genotypedLineIsRejectedWithLazySamples() {
+        String line = "20\t61098\trs6078030\tC\tT\t51254.56\tPASS\tAC=1;AN=4\tGT\t0/1\t0/0";
+        factory.setLazySamples(true);
+        factory.create(FILE_ID, STUDY_ID, line);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void lineWithFormatAndNoSamplesIsRejectedWithLazySamples() {
+        String line = "20\t61098\trs6078030\tC\tT\t51254.56\tPASS\tAC=1;AN=4\tGT";
+        factory.setLazySamples(true);
+        factory.create(FILE_ID, STUDY_ID, line);
+    }
+
     @Test
     public void parseGTC() {
         String line = "20\t61098\trs6078030\tC\tT\t51254.56\tPASS\tAC=225;AN=996;GTC=304,163,31";   // structure like gonl
@@ -31,6 +31,7 @@ import java.util.Set;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * {@link VariantVcfFactory}
@@ -321,6 +322,57 @@ public class VariantVcfFactoryTest {
         assertArrayEquals(new String[]{"C"}, getVar1.getSourceEntry(FILE_ID, STUDY_ID).getSecondaryAlternates());
     }
 
+    @Test
+    public void testMultiallelicVariantsShareParsedSampleFields() {
+        String line = "1\t123456\t.\tT\tC,G\t110\tPASS\t.\tGT:AD:DP\t0/1:10,5:17\t0/2:3,8:15\t1/2:7,6:13";
+
+        List<Variant> result = factory.create(FILE_ID, STUDY_ID, line);
+        assertEquals(2, result.size());
+
+        VariantSourceEntry file0 = result.get(0).getSourceEntry(FILE_ID, STUDY_ID);
+        VariantSourceEntry file1 = result.get(1).getSourceEntry(FILE_ID, STUDY_ID);
+        for (int i = 0; i < 3; i++) {
+            // the sample columns are split once per line, so the values are the same instances
+            assertSame(file0.getSampleData(i, "AD"), file1.getSampleData(i, "AD"));
+            assertSame(file0.getSampleData(i, "DP"), file1.getSampleData(i, "DP"));
+        }
+        assertEquals("1/2", file0.getSampleData(2, "GT"));
+        assertEquals("2/1", file1.getSampleData(2, "GT"));
+    }
+
+    @Test
+    public void testLazySamplesAreEqualToParsedSamples() {
+        String line = "1\t123456\t.\tT\tC,G\t110\tPASS\tNS=3\tGT:AD:DP\t0/1:10,5:17\t0/2:3,8:15\t1/2:7,6:13";
+
+        VariantVcfFactory lazyFactory = new VariantVcfFactory();
+        lazyFactory.setLazySamples(true);
+        List<Variant> lazyResult = lazyFactory.create(FILE_ID, STUDY_ID, line);
+        List<Variant> result = factory.create(FILE_ID, STUDY_ID, line);
+
+        assertEquals(result.size(), lazyResult.size());
+        for (int i = 0; i < result.size(); i++) {
+            VariantSourceEntry file = result.get(i).getSourceEntry(FILE_ID, STUDY_ID);
+            VariantSourceEntry lazyFile = lazyResult.get(i).getSourceEntry(FILE_ID, STUDY_ID);
+            assertEquals(3, lazyFile.getNumberOfSamples());
+            assertEquals("3", lazyFile.getAttribute("NS"));
+            assertEquals(file.getSamplesData(), lazyFile.getSamplesData());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLazySamplesAreNotParsedUntilRead() {
+        // the second sample has more fields than declared in FORMAT
+        String line = "1\t123456\t.\tT\tC\t110\tPASS\t.\tGT:DP\t0/1:17\t0/0:15:1";
+
+        VariantVcfFactory lazyFactory = new VariantVcfFactory();
+        lazyFactory.setLazySamples(true);
+        List<Variant> result = lazyFactory.create(FILE_ID, STUDY_ID, line);
+        VariantSourceEntry file = result.get(0).getSourceEntry(FILE_ID, STUDY_ID);
+        assertEquals(2, file.getNumberOfSamples());
+
+        file.getSampleData(0, "GT");
+    }
+
     @Test
     public void testCreateVariantFromVcfCoLocatedVariants_Samples() {
         String line = "1\t10040\trs123\tT\tC,GC\t.\t.\t.\tGT\t0/0\t0/1\t0/2\t1/1\t1/2\t2/2"; // 6 samples
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.mappers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link VcfFieldTokenizer}
+ * <p>
+ * input: a text and a separator
+ * <p>
+ * output: the same fields that String.split would return
+ */
+public class VcfFieldTokenizerTest {
+
+    private static final String[] TEXTS = {"", "a", ";", "a;", "a;;", ";a", "a;b", ";;", "a;;b;", "a;b;c;;;",
+            "=", "k=", "k=v=", "=v", "k==v"};
+
+    @Test
+    public void fieldsShouldBeTheSameAsWithSplit() {
+        VcfFieldTokenizer tokenizer = new VcfFieldTokenizer();
+        for (String text : TEXTS) {
+            assertArrayEquals(text, text.split(";"), tokenizer.tokenize(text, ';').toArray());
+            assertArrayEquals(text, text.split("="), tokenizer.tokenize(text, '=').toArray());
+        }
+    }
+
+    @Test
+    public void rangeOfTextShouldBeTokenized() {
+        VcfFieldTokenizer tokenizer = new VcfFieldTokenizer().tokenize("20\t60343\t.\tG\tA,T\t.", 13, 16, ',');
+
+        assertEquals(2, tokenizer.size());
+        assertEquals("A", tokenizer.get(0));
+        assertEquals("T", tokenizer.get(1));
+        assertEquals(13, tokenizer.start(0));
+        assertEquals(16, tokenizer.end(1));
+    }
+
+    @Test
+    public void tokenizerShouldGrowForWideLines() {
+        StringBuilder line = new StringBuilder("20\t60343\t.\tG\tA\t.\tPASS\t.\tGT");
+        for (int i = 0; i < 2500; i++) {
+            line.append("\t0|1");
+        }
+        VcfFieldTokenizer tokenizer = new VcfFieldTokenizer().tokenize(line.toString(), '\t');
+
+        assertEquals(2509, tokenizer.size());
+        assertEquals("0|1", tokenizer.get(2508));
+    }
+
+    @Test
+    public void fieldsShouldBeComparedWithoutMaterialising() {
+        VcfFieldTokenizer tokenizer = new VcfFieldTokenizer().tokenize("AC=3;.;AN", ';');
+
+        assertTrue(tokenizer.fieldEquals(0, "AC=3"));
+        assertFalse(tokenizer.fieldEquals(0, "AC"));
+        assertTrue(tokenizer.isMissing(1));
+        assertFalse(tokenizer.isMissing(2));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void fieldOutOfRangeShouldFail() {
+        new VcfFieldTokenizer().tokenize("a;b", ';').get(2);
+    }
+}
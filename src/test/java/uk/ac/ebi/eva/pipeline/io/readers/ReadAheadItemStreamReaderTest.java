@@ -0,0 +1,178 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.readers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.batch.item.support.AbstractItemCountingItemStreamItemReader;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import uk.ac.ebi.eva.commons.models.data.Variant;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+public class ReadAheadItemStreamReaderTest {
+
+    private static final String INPUT_FILE_PATH = "/input-files/vcf/genotyped.vcf.gz";
+
+    private static final String INPUT_WRONG_FILE_PATH = "/input-files/vcf/wrong_same_ref_alt.vcf.gz";
+
+    private static final String FILE_ID = "5";
+
+    private static final String STUDY_ID = "7";
+
+    private static final int CAPACITY = 10;
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void shouldReadTheSameItemsAsTheDelegate() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        List<List<Variant>> expected = readAll(new VcfReader(FILE_ID, STUDY_ID, input), new ExecutionContext());
+
+        ReadAheadItemStreamReader<List<Variant>> reader = new ReadAheadItemStreamReader<>(
+                new VcfReader(FILE_ID, STUDY_ID, input), CAPACITY);
+        assertEquals(expected, readAll(reader, new ExecutionContext()));
+    }
+
+    @Test
+    public void shouldRestartAfterTheLastItemReturned() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        List<List<Variant>> expected = readAll(new VcfReader(FILE_ID, STUDY_ID, input), new ExecutionContext());
+
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        ReadAheadItemStreamReader<List<Variant>> reader = new ReadAheadItemStreamReader<>(
+                new VcfReader(FILE_ID, STUDY_ID, input), CAPACITY);
+        reader.open(executionContext);
+        int itemsBeforeFailure = 5;
+        for (int i = 0; i < itemsBeforeFailure; i++) {
+            reader.read();
+        }
+        // more items than the ones returned have been read ahead, but they must not be counted
+        reader.update(executionContext);
+        reader.close();
+
+        ReadAheadItemStreamReader<List<Variant>> restartedReader = new ReadAheadItemStreamReader<>(
+                new VcfReader(FILE_ID, STUDY_ID, input), CAPACITY);
+        List<List<Variant>> restOfItems = readAll(restartedReader, executionContext);
+        assertEquals(expected.subList(itemsBeforeFailure, expected.size()), restOfItems);
+    }
+
+    @Test
+    public void restartShouldResumeAtThePositionOfTheLastItemReturned() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        List<List<Variant>> expected = readAll(new VcfReader(FILE_ID, STUDY_ID, input), new ExecutionContext());
+
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        ReadAheadItemStreamReader<List<Variant>> reader = new ReadAheadItemStreamReader<>(vcfReader, CAPACITY);
+        reader.open(executionContext);
+        int itemsBeforeFailure = 25;
+        for (int i = 0; i < itemsBeforeFailure; i++) {
+            reader.read();
+        }
+        reader.update(executionContext);
+        reader.close();
+
+        // the position is saved for the items returned, so the restarted VcfReader doesn't skip the lines again
+        assertEquals(itemsBeforeFailure, executionContext.getInt(vcfReader.getExecutionContextKey("read.count")));
+        assertEquals(itemsBeforeFailure, executionContext.getInt(vcfReader.getExecutionContextKey("position.count")));
+
+        ReadAheadItemStreamReader<List<Variant>> restartedReader = new ReadAheadItemStreamReader<>(
+                new VcfReader(FILE_ID, STUDY_ID, input), CAPACITY);
+        List<List<Variant>> restOfItems = readAll(restartedReader, executionContext);
+        assertEquals(expected.subList(itemsBeforeFailure, expected.size()), restOfItems);
+    }
+
+    @Test
+    public void invalidFileShouldFail() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, getResource(INPUT_WRONG_FILE_PATH));
+        vcfReader.setSaveState(false);
+        ReadAheadItemStreamReader<List<Variant>> reader = new ReadAheadItemStreamReader<>(vcfReader, CAPACITY);
+        reader.open(executionContext);
+
+        exception.expect(FlatFileParseException.class);
+        while (reader.read() != null) {
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void errorInTheDelegateShouldFailInsteadOfBlocking() throws Exception {
+        int itemsBeforeError = 3;
+        ReadAheadItemStreamReader<Integer> reader = new ReadAheadItemStreamReader<>(
+                new ErrorThrowingReader(itemsBeforeError), CAPACITY);
+        reader.open(new ExecutionContext());
+        for (int i = 0; i < itemsBeforeError; i++) {
+            assertEquals(Integer.valueOf(i + 1), reader.read());
+        }
+
+        exception.expect(OutOfMemoryError.class);
+        reader.read();
+    }
+
+    private <T> List<T> readAll(ItemStreamReader<T> reader, ExecutionContext executionContext) throws Exception {
+        reader.open(executionContext);
+        List<T> items = new ArrayList<>();
+        T item;
+        while ((item = reader.read()) != null) {
+            items.add(item);
+        }
+        reader.close();
+        return items;
+    }
+
+    /**
+     * Reader of consecutive numbers that throws an Error after a given number of items
+     */
+    private static class ErrorThrowingReader extends AbstractItemCountingItemStreamItemReader<Integer> {
+
+        private final int itemsBeforeError;
+
+        private int items;
+
+        ErrorThrowingReader(int itemsBeforeError) {
+            this.itemsBeforeError = itemsBeforeError;
+            setName(ErrorThrowingReader.class.getSimpleName());
+        }
+
+        @Override
+        protected Integer doRead() throws Exception {
+            if (items == itemsBeforeError) {
+                throw new OutOfMemoryError("Simulated error while reading");
+            }
+            return ++items;
+        }
+
+        @Override
+        protected void doOpen() throws Exception {
+        }
+
+        @Override
+        protected void doClose() throws Exception {
+        }
+    }
+}
@@ -6,18 +6,28 @@ import org.junit.rules.ExpectedException;
 import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.batch.test.MetaDataInstanceFactory;
+import org.springframework.util.StreamUtils;
 
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
+import uk.ac.ebi.eva.pipeline.io.TabixIndex;
 import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
 import uk.ac.ebi.eva.test.utils.JobTestUtils;
+import uk.ac.ebi.eva.test.utils.TestFileUtils;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static uk.ac.ebi.eva.utils.FileUtils.getResource;
 
@@ -41,6 +51,10 @@ public class VcfReaderTest {
 
     private static final String STUDY_ID = "7";
 
+    private static final String REGIONS = "20:65000-66000,chr20:65500-70000";
+
+    private static final int REGIONS_EXPECTED_COUNT = 129;
+
     @Rule
     public PipelineTemporaryFolderRule temporaryFolderRule = new PipelineTemporaryFolderRule();
 
@@ -91,6 +105,191 @@ public class VcfReaderTest {
         consumeReader(input, vcfReader);
     }
 
+    @Test
+    public void shouldSkipLinesOfFilteredContigs() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        File input = getResource(INPUT_FILE_PATH);
+
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.setContigs(Collections.singleton("20"), true);
+        vcfReader.setSaveState(false);
+        vcfReader.open(executionContext);
+
+        List<Variant> variants;
+        int lines = 0;
+        while ((variants = vcfReader.read()) != null) {
+            assertTrue(variants.isEmpty());
+            lines++;
+        }
+        long expectedCount = JobTestUtils.getLines(new GZIPInputStream(new FileInputStream(input)));
+        assertEquals(expectedCount, lines);
+    }
+
+    @Test
+    public void shouldReadAllLinesOfSelectedContigs() throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+        File input = getResource(INPUT_FILE_PATH);
+
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.setContigs(Collections.singleton("20"), false);
+        vcfReader.setSaveState(false);
+        vcfReader.open(executionContext);
+
+        consumeReader(input, vcfReader);
+    }
+
+    @Test
+    public void shouldReadOnlyTheSelectedContigsUsingTheIndex() throws Exception {
+        File input = makeBgzipFile(getResource(INPUT_FILE_PATH));
+        TestFileUtils.makeTabixIndex(readGzip(getResource(INPUT_FILE_PATH)), input, 4096,
+                                     new File(input.getPath() + TabixIndex.TABIX_EXTENSION));
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.setContigs(Collections.singleton("20"), false);
+        vcfReader.setSaveState(false);
+        vcfReader.open(executionContext);
+        consumeReader(getResource(INPUT_FILE_PATH), vcfReader);
+        vcfReader.close();
+
+        // the lines of the other contigs are not even read, so no empty items are returned for them
+        VcfReader excludingReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        excludingReader.setContigs(Collections.singleton("20"), true);
+        excludingReader.setSaveState(false);
+        excludingReader.open(executionContext);
+        assertNull(excludingReader.read());
+        excludingReader.close();
+    }
+
+    @Test
+    public void restartShouldResumeAtSavedPosition() throws Exception {
+        File bgzipFile = makeBgzipFile(getResource(INPUT_FILE_PATH));
+        for (File input : new File[]{getResource(INPUT_FILE_PATH), bgzipFile}) {
+            List<List<Variant>> allVariants = readAll(input, new ExecutionContext());
+
+            ExecutionContext executionContext = new ExecutionContext();
+            VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+            vcfReader.open(executionContext);
+            for (int i = 0; i < 100; i++) {
+                vcfReader.read();
+            }
+            vcfReader.update(executionContext);
+            vcfReader.close();
+            assertTrue(executionContext.containsKey(vcfReader.getExecutionContextKey("position")));
+
+            List<List<Variant>> remainingVariants = readAll(input, executionContext);
+            assertEquals(allVariants.subList(100, allVariants.size()), remainingVariants);
+        }
+    }
+
+    @Test
+    public void restartWithPositionOfOtherLineCountShouldSkipLines() throws Exception {
+        File input = getResource(INPUT_FILE_PATH);
+        List<List<Variant>> allVariants = readAll(input, new ExecutionContext());
+
+        ExecutionContext executionContext = new ExecutionContext();
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.open(executionContext);
+        for (int i = 0; i < 100; i++) {
+            vcfReader.read();
+        }
+        vcfReader.update(executionContext);
+        vcfReader.close();
+
+        // as a wrapper reader that committed fewer items than this reader has read would do
+        executionContext.putInt(vcfReader.getExecutionContextKey("read.count"), 60);
+
+        List<List<Variant>> remainingVariants = readAll(input, executionContext);
+        assertEquals(allVariants.subList(60, allVariants.size()), remainingVariants);
+    }
+
+    private List<List<Variant>> readAll(File input, ExecutionContext executionContext) throws Exception {
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.open(executionContext);
+        List<List<Variant>> allVariants = new ArrayList<>();
+        List<Variant> variants;
+        while ((variants = vcfReader.read()) != null) {
+            allVariants.add(variants);
+        }
+        vcfReader.close();
+        return allVariants;
+    }
+
+    @Test
+    public void shouldReadOnlyVariantsInRegionsUsingTheIndex() throws Exception {
+        File input = makeBgzipFile(getResource(INPUT_FILE_PATH));
+        TestFileUtils.makeTabixIndex(readGzip(getResource(INPUT_FILE_PATH)), input, 4096,
+                                     new File(input.getPath() + TabixIndex.TABIX_EXTENSION));
+
+        assertEquals(REGIONS_EXPECTED_COUNT, countVariantsInRegions(input, REGIONS));
+    }
+
+    @Test
+    public void shouldReadOnlyVariantsInRegionsWithoutIndex() throws Exception {
+        assertEquals(REGIONS_EXPECTED_COUNT, countVariantsInRegions(getResource(INPUT_FILE_PATH), REGIONS));
+        assertEquals(REGIONS_EXPECTED_COUNT,
+                     countVariantsInRegions(makeBgzipFile(getResource(INPUT_FILE_PATH)), REGIONS));
+    }
+
+    @Test
+    public void regionsOfOtherChromosomesShouldReadNothing() throws Exception {
+        File input = makeBgzipFile(getResource(INPUT_FILE_PATH));
+        TestFileUtils.makeTabixIndex(readGzip(getResource(INPUT_FILE_PATH)), input, 4096,
+                                     new File(input.getPath() + TabixIndex.TABIX_EXTENSION));
+
+        assertEquals(0, countVariantsInRegions(input, "21:65000-70000,20:1-60000"));
+    }
+
+    @Test
+    public void nestedAndUnsortedRegionsShouldReadEachVariantOnce() throws Exception {
+        File input = makeBgzipFile(getResource(INPUT_FILE_PATH));
+        TestFileUtils.makeTabixIndex(readGzip(getResource(INPUT_FILE_PATH)), input, 4096,
+                                     new File(input.getPath() + TabixIndex.TABIX_EXTENSION));
+
+        // not merged by GenomicRegion.parseList, so the resource has to deal with them
+        List<GenomicRegion> regions = Arrays.asList(new GenomicRegion("20", 65500, 70000),
+                                                    new GenomicRegion("20", 68000, 68100),
+                                                    new GenomicRegion("20", 60000, 65499),
+                                                    new GenomicRegion("20", 66000, 66100),
+                                                    new GenomicRegion("20", 60500, 61000));
+
+        assertEquals(countVariantsInRegions(input, "20:60000-70000"), countVariantsInRegions(input, regions));
+    }
+
+    private int countVariantsInRegions(File input, String regions) throws Exception {
+        return countVariantsInRegions(input, GenomicRegion.parseList(regions));
+    }
+
+    private int countVariantsInRegions(File input, List<GenomicRegion> regions) throws Exception {
+        ExecutionContext executionContext = MetaDataInstanceFactory.createStepExecution().getExecutionContext();
+
+        VcfReader vcfReader = new VcfReader(FILE_ID, STUDY_ID, input);
+        vcfReader.setRegions(regions);
+        vcfReader.setSaveState(false);
+        vcfReader.open(executionContext);
+
+        List<Variant> variants;
+        int count = 0;
+        while ((variants = vcfReader.read()) != null) {
+            for (Variant variant : variants) {
+                assertEquals("20", variant.getChromosome());
+            }
+            count++;
+        }
+        vcfReader.close();
+        return count;
+    }
+
+    private File makeBgzipFile(File gzipFile) throws IOException {
+        return TestFileUtils.makeBgzipFile(readGzip(gzipFile), temporaryFolderRule.newFile("input.vcf.gz"), 4096);
+    }
+
+    private byte[] readGzip(File file) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(new FileInputStream(file))) {
+            return StreamUtils.copyToByteArray(inputStream);
+        }
+    }
+
     private void consumeReader(File inputFile, VcfReader vcfReader) throws Exception {
         List<Variant> variants;
         int count = 0;
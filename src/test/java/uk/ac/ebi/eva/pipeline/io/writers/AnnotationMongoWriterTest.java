@@ -52,6 +52,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -246,6 +247,20 @@ public class AnnotationMongoWriterTest {
         indexInfo.stream().filter(index -> !("_id_".equals(index.get("name").toString()))).forEach(index -> assertEquals("true", index.get(MongoDBHelper.BACKGROUND_INDEX).toString()));
     }
 
+    @Test
+    public void indexesShouldNotBeCreatedIfDeferred() throws UnknownHostException {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection, mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(COLLECTION_ANNOTATIONS_NAME);
+
+        AnnotationMongoWriter writer = new AnnotationMongoWriter(mongoOperations, COLLECTION_ANNOTATIONS_NAME, true);
+
+        Set<String> createdIndexes = dbCollection.getIndexInfo().stream().map(index -> index.get("name").toString())
+                .collect(Collectors.toSet());
+        assertFalse(createdIndexes.contains("ct.so_1"));
+        assertFalse(createdIndexes.contains("xrefs.id_1"));
+    }
+
     @Test
     public void shouldUpdateFieldsOfExistingAnnotationVersion() throws Exception {
         String databaseName = mongoRule.getRandomTemporaryDatabaseName();
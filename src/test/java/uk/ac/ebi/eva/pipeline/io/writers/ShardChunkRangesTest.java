@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import org.bson.types.MaxKey;
+import org.bson.types.MinKey;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Testing {@link ShardChunkRanges}
+ */
+public class ShardChunkRangesTest {
+
+    @Test
+    public void positionsShouldBeFoundInTheirChunk() {
+        ShardChunkRanges ranges = new ShardChunkRanges(Arrays.asList(
+                chunk(new BasicDBObject("chr", "2").append("start", new MinKey()), "shard03"),
+                chunk(new BasicDBObject("chr", new MinKey()).append("start", new MinKey()), "shard01"),
+                chunk(new BasicDBObject("chr", "1").append("start", 1000), "shard02")));
+
+        assertEquals("shard01", ranges.getShard("1", 999));
+        assertEquals("shard02", ranges.getShard("1", 1000));
+        assertEquals("shard02", ranges.getShard("10", 5));
+        assertEquals("shard03", ranges.getShard("2", 1));
+        assertEquals("shard03", ranges.getShard("X", 100));
+    }
+
+    @Test
+    public void unshardedCollectionShouldHaveNoShard() {
+        ShardChunkRanges ranges = new ShardChunkRanges(Collections.emptyList());
+        assertNull(ranges.getShard("1", 1000));
+    }
+
+    @Test
+    public void shardKeysOtherThanThePositionShouldBeIgnored() {
+        ShardChunkRanges ranges = new ShardChunkRanges(Arrays.asList(
+                chunk(new BasicDBObject("_id", new MinKey()), "shard01"),
+                chunk(new BasicDBObject("_id", "5_100_A_T"), "shard02")));
+        assertNull(ranges.getShard("1", 1000));
+    }
+
+    private DBObject chunk(DBObject lowerBound, String shard) {
+        return new BasicDBObject("ns", "test.variants").append("min", lowerBound)
+                                                        .append("max", new BasicDBObject("chr", new MaxKey()))
+                                                        .append("shard", shard);
+    }
+}
@@ -20,6 +20,7 @@ import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBObject;
+import org.bson.types.MinKey;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -32,6 +33,8 @@ import org.springframework.test.context.junit4.SpringRunner;
 import uk.ac.ebi.eva.commons.models.data.Variant;
 import uk.ac.ebi.eva.commons.models.data.VariantSourceEntry;
 import uk.ac.ebi.eva.commons.models.data.VariantStats;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.PackedGenotypes;
+import uk.ac.ebi.eva.commons.models.mongo.entity.subdocuments.VariantSourceEntryMongo;
 import uk.ac.ebi.eva.pipeline.configuration.MongoConfiguration;
 import uk.ac.ebi.eva.pipeline.parameters.MongoConnection;
 import uk.ac.ebi.eva.test.rules.TemporaryMongoRule;
@@ -48,10 +51,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Testing {@link VariantMongoWriter}
@@ -129,6 +134,31 @@ public class VariantMongoWriterTest {
 
     }
 
+    @Test
+    public void onlyPositionIndexShouldBeCreatedIfIndexesAreDeferred() throws UnknownHostException {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(VariantMongoWriter.WriteMode.AUTO)
+                .setDeferIndexes(true);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, false,
+                                                                       settings);
+
+        Set<String> createdIndexes = dbCollection.getIndexInfo().stream().map(index -> index.get("name").toString())
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("chr_1_start_1_end_1", "_id_")), createdIndexes);
+
+        VariantMongoWriter.createIndexes(dbCollection, false);
+
+        createdIndexes = dbCollection.getIndexInfo().stream().map(index -> index.get("name").toString())
+                .collect(Collectors.toSet());
+        assertEquals(new HashSet<>(Arrays.asList("annot.xrefs_1", "files.sid_1_files.fid_1", "chr_1_start_1_end_1",
+                "annot.so_1", "_id_", "ids_1")), createdIndexes);
+    }
+
     @Test
     public void writeTwiceSameVariantShouldUpdate() throws Exception {
         Variant variant1 = new Variant("1", 1, 2, "A", "T");
@@ -251,6 +281,201 @@ public class VariantMongoWriterTest {
         assertNull(storedVariant.get("ids"));
     }
 
+    @Test
+    public void insertModeShouldStoreTheSameDocumentsAsUpsertMode() throws Exception {
+        Variant variant = buildVariant("12", 3, 4, "A", "T", "fileId", "studyId");
+        variant.setIds(new HashSet<>(Arrays.asList("a", "b")));
+
+        DBObject upserted = writeAndFindOne(VariantMongoWriter.WriteMode.UPSERT, Collections.singletonList(variant));
+        DBObject inserted = writeAndFindOne(VariantMongoWriter.WriteMode.INSERT, Collections.singletonList(variant));
+
+        assertEquals(upserted, inserted);
+    }
+
+    @Test
+    public void insertModeShouldUpdateVariantsAlreadyStored() throws Exception {
+        Variant variant = buildVariant("12", 3, 4, "A", "T", "fileId", "studyId");
+        Variant sameVariantOtherFile = buildVariant("12", 3, 4, "A", "T", "otherFileId", "studyId");
+        Variant otherVariant = buildVariant("12", 5, 5, "C", "G", "otherFileId", "studyId");
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(VariantMongoWriter.WriteMode.INSERT);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(Collections.singletonList(variant));
+        variantMongoWriter.write(Arrays.asList(sameVariantOtherFile, otherVariant, sameVariantOtherFile));
+
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+        assertEquals(2, dbCollection.count());
+        DBObject storedVariant = dbCollection.findOne(new BasicDBObject("_id", "12_3_A_T"));
+        assertEquals(2, ((BasicDBList) storedVariant.get("files")).size());
+    }
+
+    @Test
+    public void autoModeShouldUpdateVariantsAlreadyStored() throws Exception {
+        Variant variant = buildVariant("12", 3, 4, "A", "T", "fileId", "studyId");
+        Variant sameVariantOtherFile = buildVariant("12", 3, 4, "A", "T", "otherFileId", "studyId");
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(VariantMongoWriter.WriteMode.AUTO);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(Collections.singletonList(variant));
+        variantMongoWriter.write(Collections.singletonList(sameVariantOtherFile));
+
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+        assertEquals(1, dbCollection.count());
+        assertEquals(2, ((BasicDBList) dbCollection.findOne().get("files")).size());
+    }
+
+    @Test
+    public void concurrentWritesShouldStoreAllTheVariants() throws Exception {
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            variants.add(buildVariant(Integer.toString(i % 3 + 1), 1000 - i, 1000 - i, "A", "T", "fileId",
+                                      "studyId"));
+        }
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(VariantMongoWriter.WriteMode.UPSERT)
+                .setConcurrentWrites(4, 7);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(variants);
+        variantMongoWriter.destroy();
+
+        assertEquals(100, mongoOperations.getCollection(collectionName).count());
+    }
+
+    @Test
+    public void concurrentWritesShouldMergeVariantsAtTheSamePosition() throws Exception {
+        Variant variant = buildVariant("12", 3, 4, "A", "T", "fileId", "studyId");
+        Variant otherVariant = buildVariant("12", 5, 5, "C", "G", "fileId", "studyId");
+        Variant sameVariantOtherFile = buildVariant("12", 3, 4, "A", "T", "otherFileId", "studyId");
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(VariantMongoWriter.WriteMode.INSERT)
+                .setConcurrentWrites(3, 1);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(Arrays.asList(variant, otherVariant, sameVariantOtherFile));
+        variantMongoWriter.destroy();
+
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+        assertEquals(2, dbCollection.count());
+        DBObject storedVariant = dbCollection.findOne(new BasicDBObject("_id", "12_3_A_T"));
+        assertEquals(2, ((BasicDBList) storedVariant.get("files")).size());
+    }
+
+    @Test
+    public void writesGroupedByShardShouldStoreAllTheVariants() throws Exception {
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            variants.add(buildVariant(i % 2 == 0 ? "1" : "2", 100 * i, 100 * i, "A", "T", "fileId", "studyId"));
+        }
+        ShardChunkRanges shardChunkRanges = new ShardChunkRanges(Arrays.<DBObject>asList(
+                new BasicDBObject("min", new BasicDBObject("chr", new MinKey()).append("start", new MinKey()))
+                        .append("shard", "shard01"),
+                new BasicDBObject("min", new BasicDBObject("chr", "1").append("start", 2000))
+                        .append("shard", "shard02")));
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(VariantMongoWriter.WriteMode.AUTO)
+                .setShardChunkRanges(shardChunkRanges);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(variants);
+
+        assertEquals(50, mongoOperations.getCollection(collectionName).count());
+    }
+
+    @Test
+    public void duplicatedVariantsInTheSameChunkShouldBeMergedWhenUpserting() throws Exception {
+        assertDuplicatedVariantsAreMerged(VariantMongoWriter.WriteMode.UPSERT);
+    }
+
+    @Test
+    public void duplicatedVariantsInTheSameChunkShouldBeMergedWhenInserting() throws Exception {
+        assertDuplicatedVariantsAreMerged(VariantMongoWriter.WriteMode.INSERT);
+    }
+
+    private void assertDuplicatedVariantsAreMerged(VariantMongoWriter.WriteMode writeMode) throws Exception {
+        Variant variant = buildVariant("12", 3, 4, "A", "T", "fileId", "studyId");
+        variant.setIds(new HashSet<>(Collections.singletonList("a")));
+        Variant sameVariantOtherFile = buildVariant("12", 3, 4, "A", "T", "otherFileId", "studyId");
+        sameVariantOtherFile.setIds(new HashSet<>(Arrays.asList("a", "b")));
+        Variant otherVariant = buildVariant("12", 5, 5, "C", "G", "fileId", "studyId");
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(writeMode);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(Arrays.asList(variant, otherVariant, sameVariantOtherFile, variant));
+
+        assertEquals(2, variantMongoWriter.getMergedDuplicates());
+        DBCollection dbCollection = mongoOperations.getCollection(collectionName);
+        assertEquals(2, dbCollection.count());
+        DBObject storedVariant = dbCollection.findOne(new BasicDBObject("_id", "12_3_A_T"));
+        assertEquals(2, ((BasicDBList) storedVariant.get("files")).size());
+        assertEquals(2, ((BasicDBList) storedVariant.get("ids")).size());
+    }
+
+    @Test
+    public void packedGenotypesShouldBeDecodedAsTheSamplesData() throws Exception {
+        Variant variant = buildVariant("12", 3, 4, "A", "T", "fileId", "studyId");
+        VariantSourceEntry sourceEntry = variant.getSourceEntries().values().iterator().next();
+        String[] genotypes = {"0|0", "0|1", "0|0", "1|1"};
+        for (String genotype : genotypes) {
+            sourceEntry.addSampleData(Collections.singletonMap("GT", genotype));
+        }
+
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setPackGenotypes(true);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, false, true,
+                                                                       settings);
+        variantMongoWriter.write(Collections.singletonList(variant));
+
+        DBObject storedFile = (DBObject) ((BasicDBList) mongoOperations.getCollection(collectionName).findOne()
+                .get("files")).get(0);
+        DBObject storedSamples = (DBObject) storedFile.get(VariantSourceEntryMongo.SAMPLES_FIELD);
+        assertTrue(PackedGenotypes.isPacked(storedSamples));
+        assertArrayEquals(genotypes, PackedGenotypes.decode(storedSamples));
+    }
+
+    private DBObject writeAndFindOne(VariantMongoWriter.WriteMode writeMode, List<Variant> variants)
+            throws Exception {
+        String dbName = mongoRule.getRandomTemporaryDatabaseName();
+        MongoOperations mongoOperations = MongoConfiguration.getMongoOperations(dbName, mongoConnection,
+                                                                                mongoMappingContext);
+        VariantMongoWriterSettings settings = new VariantMongoWriterSettings()
+                .setWriteMode(writeMode);
+        VariantMongoWriter variantMongoWriter = new VariantMongoWriter(collectionName, mongoOperations, true, true,
+                                                                       settings);
+        variantMongoWriter.write(variants);
+        return mongoOperations.getCollection(collectionName).findOne();
+    }
+
     private Variant buildVariant(String chromosome, int start, int end, String reference, String alternate,
                                  String fileId, String studyId) {
         Variant variant = new Variant(chromosome, start, end, reference, alternate);
@@ -20,6 +20,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.springframework.batch.item.ExecutionContext;
 import org.springframework.batch.item.ItemStreamException;
 
 import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
@@ -38,6 +39,7 @@ import java.util.List;
 import java.util.zip.GZIPInputStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static uk.ac.ebi.eva.test.utils.JobTestUtils.getLines;
 import static uk.ac.ebi.eva.utils.FileUtils.getResource;
@@ -54,6 +56,11 @@ public class VepAnnotationFileWriterTest {
 
     private static final int HEADER_LINES = 3;
 
+    /**
+     * mockvep_persistent.pl writes two annotations for each variant
+     */
+    private static final int PERSISTENT_MOCK_ANNOTATIONS_PER_VARIANT = 2;
+
     private final EnsemblVariant VARIANT_WRAPPER = new EnsemblVariant("1", 100, 105, "A", "T");
 
     private AnnotationParameters annotationParameters;
@@ -158,6 +165,55 @@ public class VepAnnotationFileWriterTest {
         }
     }
 
+    @Test
+    public void vepWorkersAnnotateAllTheChunksInOrder() throws Exception {
+        annotationParameters.setVepPath(getResource("/mockvep_persistent.pl").getAbsolutePath());
+        int chunkSize = 5;
+        int workers = 2;
+        VepAnnotationFileWriter vepAnnotationFileWriter = new VepAnnotationFileWriter(annotationParameters, chunkSize,
+                TIMEOUT_IN_SECONDS, workers);
+
+        List<EnsemblVariant> ensemblVariants = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ensemblVariants.add(new EnsemblVariant("1", 100 + i, 100 + i, "A", "T"));
+        }
+        vepAnnotationFileWriter.open(new ExecutionContext());
+        for (int from = 0; from < ensemblVariants.size(); from += chunkSize) {
+            vepAnnotationFileWriter.write(
+                    ensemblVariants.subList(from, Math.min(from + chunkSize, ensemblVariants.size())));
+        }
+        vepAnnotationFileWriter.close();
+
+        File vepOutputFile = new File(annotationParameters.getVepOutput());
+        assertEquals(HEADER_LINES, getCommentLines(new GZIPInputStream(new FileInputStream(vepOutputFile))));
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+                new FileInputStream(vepOutputFile))));
+        for (int i = 0; i < HEADER_LINES; i++) {
+            assertEquals('#', reader.readLine().charAt(0));
+        }
+        for (EnsemblVariant ensemblVariant : ensemblVariants) {
+            for (int i = 0; i < PERSISTENT_MOCK_ANNOTATIONS_PER_VARIANT; i++) {
+                assertEquals("1_" + ensemblVariant.getStart() + "_A/T", reader.readLine().split("\t")[0]);
+            }
+        }
+        assertNull(reader.readLine());
+    }
+
+    @Test
+    public void vepWorkersTimeouts() throws Exception {
+        annotationParameters.setVepPath(getResource("/mockvep_writeToFile_delayed.pl").getAbsolutePath());
+        long vepTimeouts = 1;
+        VepAnnotationFileWriter vepAnnotationFileWriter = new VepAnnotationFileWriter(annotationParameters, 10,
+                vepTimeouts, 1);
+
+        exception.expect(ItemStreamException.class);
+        try {
+            vepAnnotationFileWriter.write(Collections.singletonList(VARIANT_WRAPPER));
+        } finally {
+            vepAnnotationFileWriter.close();
+        }
+    }
+
     /**
      * counts non-comment lines in an InputStream
      */
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.io.writers;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import uk.ac.ebi.eva.commons.models.mongo.entity.Annotation;
+import uk.ac.ebi.eva.pipeline.model.EnsemblVariant;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static uk.ac.ebi.eva.pipeline.io.writers.VepAnnotationFileWriterTest.getCommentLines;
+import static uk.ac.ebi.eva.test.utils.JobTestUtils.getLines;
+import static uk.ac.ebi.eva.utils.FileUtils.getResource;
+
+/**
+ * {@link VepAnnotationStreamWriter}
+ * <p>
+ * input: chunks of variants to annotate
+ * <p>
+ * output: the annotations written by VEP, parsed and passed to another writer, and optionally the VEP output file
+ */
+public class VepAnnotationStreamWriterTest {
+
+    private static final long TIMEOUT_IN_SECONDS = 5L;
+
+    private static final int CHUNK_SIZE = 5;
+
+    private static final int HEADER_LINES = 3;
+
+    /**
+     * mockvep_persistent.pl writes two annotations for each variant
+     */
+    private static final int ANNOTATIONS_PER_VARIANT = 2;
+
+    private AnnotationParameters annotationParameters;
+
+    private List<EnsemblVariant> ensemblVariants;
+
+    private List<Annotation> writtenAnnotations;
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolder = new PipelineTemporaryFolderRule();
+
+    @Before
+    public void setUp() throws Exception {
+        annotationParameters = new AnnotationParameters();
+        annotationParameters.setFileId("fid");
+        annotationParameters.setStudyId("sid");
+        annotationParameters.setVepCacheVersion("1");
+        annotationParameters.setVepCachePath("cache");
+        annotationParameters.setVepPath(getResource("/mockvep_persistent.pl").getAbsolutePath());
+        annotationParameters.setVepCacheSpecies("hsapiens");
+        annotationParameters.setInputFasta("fasta");
+        annotationParameters.setVepNumForks(4);
+        annotationParameters.setOutputDirAnnotation(temporaryFolder.newFolder().getAbsolutePath());
+
+        ensemblVariants = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ensemblVariants.add(new EnsemblVariant("1", 100 + i, 100 + i, "A", "T"));
+        }
+        writtenAnnotations = new ArrayList<>();
+    }
+
+    @Test
+    public void annotationsShouldBeParsedAndWrittenInOrderWithoutVepOutput() throws Exception {
+        VepAnnotationStreamWriter writer = new VepAnnotationStreamWriter(annotationParameters, null, CHUNK_SIZE,
+                                                                         TIMEOUT_IN_SECONDS, 0,
+                                                                         writtenAnnotations::addAll);
+        writeInChunks(writer);
+
+        assertEquals(ensemblVariants.size() * ANNOTATIONS_PER_VARIANT, writtenAnnotations.size());
+        for (int i = 0; i < ensemblVariants.size(); i++) {
+            for (int j = 0; j < ANNOTATIONS_PER_VARIANT; j++) {
+                Annotation annotation = writtenAnnotations.get(i * ANNOTATIONS_PER_VARIANT + j);
+                assertEquals("1", annotation.getChromosome());
+                assertEquals(ensemblVariants.get(i).getStart(), annotation.getStart());
+            }
+        }
+        assertFalse(new File(annotationParameters.getVepOutput()).exists());
+    }
+
+    @Test
+    public void auditOutputShouldHaveTheHeaderOnceAndAllTheAnnotations() throws Exception {
+        String auditOutput = annotationParameters.getVepOutput();
+        VepAnnotationStreamWriter writer = new VepAnnotationStreamWriter(annotationParameters, auditOutput,
+                                                                         CHUNK_SIZE, TIMEOUT_IN_SECONDS, 2,
+                                                                         writtenAnnotations::addAll);
+        writeInChunks(writer);
+
+        assertEquals(ensemblVariants.size() * ANNOTATIONS_PER_VARIANT, writtenAnnotations.size());
+        assertEquals(HEADER_LINES, getCommentLines(new GZIPInputStream(new FileInputStream(auditOutput))));
+        assertEquals(writtenAnnotations.size(), getLines(new GZIPInputStream(new FileInputStream(auditOutput))));
+    }
+
+    private void writeInChunks(VepAnnotationStreamWriter writer) throws Exception {
+        writer.open(new ExecutionContext());
+        try {
+            for (int from = 0; from < ensemblVariants.size(); from += CHUNK_SIZE) {
+                writer.write(ensemblVariants.subList(from, Math.min(from + CHUNK_SIZE, ensemblVariants.size())));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
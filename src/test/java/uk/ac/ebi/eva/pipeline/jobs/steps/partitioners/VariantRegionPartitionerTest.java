@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.junit.Test;
+
+import uk.ac.ebi.eva.pipeline.io.GenomicRegion;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link VariantRegionPartitioner}
+ * <p>
+ * input: the first and last start of each chromosome and a number of partitions
+ * <p>
+ * output: the regions assigned to each partition
+ */
+public class VariantRegionPartitionerTest {
+
+    private static final int NO_END = Integer.MAX_VALUE;
+
+    @Test
+    public void bigChromosomeShouldBeSplitInSeveralPartitions() {
+        Map<String, int[]> spans = new LinkedHashMap<>();
+        spans.put("1", new int[]{101, 400});
+
+        List<List<GenomicRegion>> partitions = VariantRegionPartitioner.splitRegions(spans, 3);
+
+        assertEquals(3, partitions.size());
+        assertEquals(Collections.singletonList(new GenomicRegion("1", 1, 200)), partitions.get(0));
+        assertEquals(Collections.singletonList(new GenomicRegion("1", 201, 300)), partitions.get(1));
+        assertEquals(Collections.singletonList(new GenomicRegion("1", 301, NO_END)), partitions.get(2));
+    }
+
+    @Test
+    public void smallChromosomesShouldShareAPartition() {
+        Map<String, int[]> spans = new LinkedHashMap<>();
+        spans.put("1", new int[]{1, 200});
+        spans.put("2", new int[]{11, 60});
+        spans.put("3", new int[]{1, 50});
+
+        List<List<GenomicRegion>> partitions = VariantRegionPartitioner.splitRegions(spans, 2);
+
+        assertEquals(2, partitions.size());
+        assertEquals(Arrays.asList(new GenomicRegion("1", 1, 150)), partitions.get(0));
+        assertEquals(Arrays.asList(new GenomicRegion("1", 151, NO_END), new GenomicRegion("2", 1, NO_END),
+                                   new GenomicRegion("3", 1, NO_END)), partitions.get(1));
+    }
+
+    @Test
+    public void partitionsShouldNotExceedTheSpanOfTheVariants() {
+        Map<String, int[]> spans = new LinkedHashMap<>();
+        spans.put("1", new int[]{10, 10});
+        spans.put("2", new int[]{20, 20});
+
+        List<List<GenomicRegion>> partitions = VariantRegionPartitioner.splitRegions(spans, 8);
+
+        assertEquals(2, partitions.size());
+        assertEquals(Collections.singletonList(new GenomicRegion("1", 1, NO_END)), partitions.get(0));
+        assertEquals(Collections.singletonList(new GenomicRegion("2", 1, NO_END)), partitions.get(1));
+    }
+
+    @Test
+    public void noVariantsShouldGiveASinglePartitionWithoutRegions() {
+        List<List<GenomicRegion>> partitions = VariantRegionPartitioner.splitRegions(new LinkedHashMap<>(), 4);
+
+        assertEquals(1, partitions.size());
+        assertTrue(partitions.get(0).isEmpty());
+    }
+}
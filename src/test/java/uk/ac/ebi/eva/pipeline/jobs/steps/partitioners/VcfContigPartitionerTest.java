@@ -0,0 +1,100 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.partitioners;
+
+import org.junit.Test;
+import org.springframework.batch.item.ExecutionContext;
+
+import uk.ac.ebi.eva.utils.FileUtils;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.CONTIGS;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.EXCLUDE_CONTIGS;
+
+/**
+ * {@link VcfContigPartitioner}
+ * <p>
+ * input: a VCF file and a number of partitions
+ * <p>
+ * output: the contigs assigned to each partition
+ */
+public class VcfContigPartitionerTest {
+
+    private static final String HEADER_WITH_LENGTHS = "##fileformat=VCFv4.1\n"
+            + "##contig=<ID=1,length=1000>\n"
+            + "##contig=<ID=2,length=600>\n"
+            + "##contig=<ID=3,length=500>\n"
+            + "##contig=<ID=4,length=100>\n"
+            + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
+
+    private static final String HEADER_WITHOUT_LENGTHS = "##fileformat=VCFv4.1\n"
+            + "#CHROM\tPOS\tID\tREF\tALT\tQUAL\tFILTER\tINFO\n";
+
+    private static final String BODY = "1\t10\t.\tA\tC\t.\t.\t.\n"
+            + "2\t10\t.\tA\tC\t.\t.\t.\n"
+            + "2\t20\t.\tA\tC\t.\t.\t.\n"
+            + "3\t10\t.\tA\tC\t.\t.\t.\n"
+            + "3\t20\t.\tA\tC\t.\t.\t.\n"
+            + "3\t30\t.\tA\tC\t.\t.\t.\n";
+
+    @Test
+    public void contigsShouldBeBalancedByHeaderLength() throws Exception {
+        File vcf = FileUtils.newGzipFile(HEADER_WITH_LENGTHS + BODY, "partitioner");
+        Map<String, ExecutionContext> partitions = new VcfContigPartitioner(vcf).partition(2);
+
+        assertEquals(2, partitions.size());
+        assertPartition(partitions.get("partition0"), "2,3", true);
+        assertPartition(partitions.get("partition1"), "2,3", false);
+    }
+
+    @Test
+    public void contigsShouldBeBalancedByNumberOfLinesIfHeaderHasNoLengths() throws Exception {
+        File vcf = FileUtils.newGzipFile(HEADER_WITHOUT_LENGTHS + BODY, "partitioner");
+        Map<String, ExecutionContext> partitions = new VcfContigPartitioner(vcf).partition(2);
+
+        assertEquals(2, partitions.size());
+        assertPartition(partitions.get("partition0"), "2,1", true);
+        assertPartition(partitions.get("partition1"), "2,1", false);
+    }
+
+    @Test
+    public void partitionsShouldNotExceedNumberOfContigs() throws Exception {
+        File vcf = FileUtils.newGzipFile(HEADER_WITHOUT_LENGTHS + BODY, "partitioner");
+        Map<String, ExecutionContext> partitions = new VcfContigPartitioner(vcf).partition(8);
+
+        assertEquals(3, partitions.size());
+        assertPartition(partitions.get("partition0"), "2,1", true);
+        assertPartition(partitions.get("partition1"), "2", false);
+        assertPartition(partitions.get("partition2"), "1", false);
+    }
+
+    @Test
+    public void singlePartitionShouldReadEverything() throws Exception {
+        File vcf = FileUtils.newGzipFile(HEADER_WITH_LENGTHS + BODY, "partitioner");
+        Map<String, ExecutionContext> partitions = new VcfContigPartitioner(vcf).partition(1);
+
+        assertEquals(1, partitions.size());
+        assertPartition(partitions.get("partition0"), "", true);
+    }
+
+    private void assertPartition(ExecutionContext context, String contigs, boolean exclude) {
+        assertEquals(contigs, context.getString(CONTIGS));
+        assertEquals(Boolean.toString(exclude), context.getString(EXCLUDE_CONTIGS));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.policies;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.scope.context.StepContext;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.context.RepeatContextSupport;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link AdaptiveChunkSizeCompletionPolicy}
+ * <p>
+ * input: the time taken by each chunk and the heap usage
+ * <p>
+ * output: the size of the next chunks
+ */
+public class AdaptiveChunkSizeCompletionPolicyTest {
+
+    private static final int TARGET_MILLIS = 1000;
+
+    private FakeClockPolicy policy;
+
+    private StepExecution stepExecution;
+
+    private ChunkContext chunkContext;
+
+    @Before
+    public void setUp() {
+        policy = new FakeClockPolicy(100);
+        policy.setAdaptive(10, 1000, TARGET_MILLIS, 70);
+        stepExecution = MetaDataInstanceFactory.createStepExecution();
+        chunkContext = new ChunkContext(new StepContext(stepExecution));
+    }
+
+    @Test
+    public void fastChunksShouldGrowTheChunkSize() {
+        runChunk(100, 500, 0.1);
+        assertEquals(200, policy.getChunkSize());
+        assertCompletesAfter(200);
+    }
+
+    @Test
+    public void slowChunksShouldShrinkTheChunkSize() {
+        runChunk(100, 1250, 0.1);
+        assertEquals(80, policy.getChunkSize());
+    }
+
+    @Test
+    public void changesShouldBeAtMostAFactorOfTwo() {
+        runChunk(100, 10, 0.1);
+        assertEquals(200, policy.getChunkSize());
+        runChunk(200, 100000, 0.1);
+        assertEquals(100, policy.getChunkSize());
+    }
+
+    @Test
+    public void chunkSizeShouldStayWithinTheBounds() {
+        for (int i = 0; i < 10; i++) {
+            runChunk(policy.getChunkSize(), 1, 0.1);
+        }
+        assertEquals(1000, policy.getChunkSize());
+        for (int i = 0; i < 10; i++) {
+            runChunk(policy.getChunkSize(), 100000, 0.1);
+        }
+        assertEquals(10, policy.getChunkSize());
+    }
+
+    @Test
+    public void heapOverTheBudgetShouldHalveTheChunkSize() {
+        runChunk(100, 500, 0.9);
+        assertEquals(50, policy.getChunkSize());
+    }
+
+    @Test
+    public void heapCloseToTheBudgetShouldNotGrowTheChunkSize() {
+        runChunk(100, 500, 0.6);
+        assertEquals(100, policy.getChunkSize());
+    }
+
+    @Test
+    public void incompleteChunksShouldNotChangeTheChunkSize() {
+        runChunk(30, 10, 0.1);
+        assertEquals(100, policy.getChunkSize());
+    }
+
+    @Test
+    public void chunkSizesShouldBeRecordedInTheExecutionContext() {
+        runChunk(100, 500, 0.1);
+        runChunk(200, 1000, 0.1);
+        runChunk(200, 4000, 0.1);
+
+        assertEquals(100, stepExecution.getExecutionContext().getInt(ExecutionContextParametersNames.CHUNK_SIZE));
+        assertEquals("0:100,100:200,500:100",
+                     stepExecution.getExecutionContext().getString(ExecutionContextParametersNames.CHUNK_SIZE_CHANGES));
+    }
+
+    @Test
+    public void restartedStepShouldResumeWithTheRecordedChunkSize() {
+        stepExecution.getExecutionContext().putInt(ExecutionContextParametersNames.CHUNK_SIZE, 400);
+        stepExecution.getExecutionContext().putString(ExecutionContextParametersNames.CHUNK_SIZE_CHANGES,
+                                                      "0:100,100:200,300:400");
+
+        runChunk(400, 1000, 0.1);
+
+        assertEquals(400, policy.getChunkSize());
+        assertEquals("0:100,100:200,300:400",
+                     stepExecution.getExecutionContext().getString(ExecutionContextParametersNames.CHUNK_SIZE_CHANGES));
+    }
+
+    @Test
+    public void nonAdaptivePolicyShouldKeepTheChunkSize() {
+        policy = new FakeClockPolicy(100);
+
+        runChunk(100, 1, 0.1);
+
+        assertEquals(100, policy.getChunkSize());
+        assertFalse(stepExecution.getExecutionContext().containsKey(ExecutionContextParametersNames.CHUNK_SIZE));
+    }
+
+    private void runChunk(int items, long millis, double heapUsage) {
+        policy.heapUsage = heapUsage;
+        policy.beforeChunk(chunkContext);
+        stepExecution.setReadCount(stepExecution.getReadCount() + items);
+        policy.millis += millis;
+        policy.afterChunk(chunkContext);
+    }
+
+    private void assertCompletesAfter(int items) {
+        RepeatContext context = policy.start(new RepeatContextSupport(null));
+        for (int i = 0; i < items; i++) {
+            assertFalse(policy.isComplete(context));
+            policy.update(context);
+        }
+        assertTrue(policy.isComplete(context));
+    }
+
+    private static class FakeClockPolicy extends AdaptiveChunkSizeCompletionPolicy {
+
+        private long millis;
+
+        private double heapUsage;
+
+        FakeClockPolicy(int chunkSize) {
+            super(chunkSize);
+        }
+
+        @Override
+        long currentTimeMillis() {
+            return millis;
+        }
+
+        @Override
+        double getHeapUsage() {
+            return heapUsage;
+        }
+    }
+}
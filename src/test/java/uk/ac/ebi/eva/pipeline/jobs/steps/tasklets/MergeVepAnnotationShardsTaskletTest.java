@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.jobs.steps.tasklets;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * {@link MergeVepAnnotationShardsTasklet}
+ * <p>
+ * input: the gzipped VEP output shards of the partitions
+ * <p>
+ * output: a single gzipped VEP output with the lines of all the shards, in order
+ */
+public class MergeVepAnnotationShardsTaskletTest {
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolder = new PipelineTemporaryFolderRule();
+
+    @Test
+    public void shardsShouldBeConcatenatedInOrderAndRemoved() throws Exception {
+        File shard0 = temporaryFolder.newGzipFile("#header\n1_10_A/C\tline0\n", "shard0.tsv.gz");
+        File shard1 = temporaryFolder.newGzipFile("#header\n2_10_A/C\tline1\n", "shard1.tsv.gz");
+        File vepOutput = new File(temporaryFolder.getRoot(), "vep_annotation.tsv.gz");
+
+        MergeVepAnnotationShardsTasklet.mergeShards(Arrays.asList(shard0, shard1), vepOutput);
+
+        assertEquals(Arrays.asList("#header", "1_10_A/C\tline0", "#header", "2_10_A/C\tline1"), readLines(vepOutput));
+        assertFalse(shard0.exists());
+        assertFalse(shard1.exists());
+    }
+
+    @Test
+    public void shardsShouldBeAppendedToAnExistingOutput() throws Exception {
+        File vepOutput = temporaryFolder.newGzipFile("#header\n1_10_A/C\tline0\n", "vep_annotation.tsv.gz");
+        File shard = temporaryFolder.newGzipFile("2_10_A/C\tline1\n", "shard0.tsv.gz");
+
+        MergeVepAnnotationShardsTasklet.mergeShards(Collections.singletonList(shard), vepOutput);
+
+        assertEquals(Arrays.asList("#header", "1_10_A/C\tline0", "2_10_A/C\tline1"), readLines(vepOutput));
+    }
+
+    @Test
+    public void restartAfterTheMergeShouldNotAppendTheRemainingShardsAgain() throws Exception {
+        File vepOutput = new File(temporaryFolder.getRoot(), "vep_annotation.tsv.gz");
+        File shard0 = temporaryFolder.newGzipFile("1_10_A/C\tline0\n", "shard0.tsv.gz");
+        File shard1 = temporaryFolder.newGzipFile("2_10_A/C\tline1\n", "shard1.tsv.gz");
+        File mergedOutput = MergeVepAnnotationShardsTasklet.getMergedOutput(vepOutput.getPath());
+        // the previous execution stopped after merging the shards and removing the first one
+        Files.copy(shard0.toPath(), mergedOutput.toPath());
+        Files.write(mergedOutput.toPath(), Files.readAllBytes(shard1.toPath()), StandardOpenOption.APPEND);
+        Files.delete(shard0.toPath());
+
+        assertEquals(0, MergeVepAnnotationShardsTasklet.mergeShards(Collections.singletonList(shard1), vepOutput));
+
+        assertEquals(Arrays.asList("1_10_A/C\tline0", "2_10_A/C\tline1"), readLines(vepOutput));
+        assertFalse(shard1.exists());
+        assertFalse(mergedOutput.exists());
+    }
+
+    @Test
+    public void restartDuringTheMergeShouldMergeAllTheShardsAgain() throws Exception {
+        File vepOutput = temporaryFolder.newGzipFile("#header\n1_10_A/C\tline0\n", "vep_annotation.tsv.gz");
+        File shard = temporaryFolder.newGzipFile("2_10_A/C\tline1\n", "shard0.tsv.gz");
+        // the previous execution stopped while copying the shards
+        temporaryFolder.newGzipFile("2_10_A/C\tline1\n", "vep_annotation.tsv.gz.merging");
+
+        MergeVepAnnotationShardsTasklet.mergeShards(Collections.singletonList(shard), vepOutput);
+
+        assertEquals(Arrays.asList("#header", "1_10_A/C\tline0", "2_10_A/C\tline1"), readLines(vepOutput));
+        assertFalse(shard.exists());
+    }
+
+    @Test
+    public void noShardsShouldNotCreateTheOutput() throws Exception {
+        File vepOutput = new File(temporaryFolder.getRoot(), "vep_annotation.tsv.gz");
+
+        assertEquals(0, MergeVepAnnotationShardsTasklet.mergeShards(Collections.emptyList(), vepOutput));
+        assertFalse(vepOutput.exists());
+    }
+
+    private List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new GZIPInputStream(new FileInputStream(file))))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+}
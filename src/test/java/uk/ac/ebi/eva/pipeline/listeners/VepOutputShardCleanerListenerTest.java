@@ -0,0 +1,88 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.listeners;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.test.MetaDataInstanceFactory;
+
+import uk.ac.ebi.eva.pipeline.jobs.steps.tasklets.MergeVepAnnotationShardsTasklet;
+import uk.ac.ebi.eva.pipeline.parameters.AnnotationParameters;
+import uk.ac.ebi.eva.test.rules.PipelineTemporaryFolderRule;
+
+import java.io.File;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT_SHARD;
+import static uk.ac.ebi.eva.pipeline.parameters.ExecutionContextParametersNames.VEP_OUTPUT_SHARD_STARTED;
+
+/**
+ * {@link VepOutputShardCleanerListener}
+ * <p>
+ * input: the execution of a partition of the partitioned VEP annotation step
+ * <p>
+ * output: the shard of the partition is removed only if the partition starts from the beginning
+ */
+public class VepOutputShardCleanerListenerTest {
+
+    @Rule
+    public PipelineTemporaryFolderRule temporaryFolder = new PipelineTemporaryFolderRule();
+
+    private AnnotationParameters annotationParameters;
+
+    private File shard;
+
+    private File mergedOutput;
+
+    private StepExecution stepExecution;
+
+    @Before
+    public void setUp() throws Exception {
+        annotationParameters = new AnnotationParameters();
+        annotationParameters.setOutputDirAnnotation(temporaryFolder.getRoot().getAbsolutePath());
+        annotationParameters.setStudyId("sid");
+        annotationParameters.setFileId("fid");
+
+        shard = temporaryFolder.newGzipFile("1_10_A/C\tstale\n", "shard0.tsv.gz");
+        mergedOutput = MergeVepAnnotationShardsTasklet.getMergedOutput(annotationParameters.getVepOutput());
+        assertTrue(mergedOutput.createNewFile());
+
+        stepExecution = MetaDataInstanceFactory.createStepExecution();
+        stepExecution.getExecutionContext().putString(VEP_OUTPUT_SHARD, shard.getAbsolutePath());
+    }
+
+    @Test
+    public void partitionStartingFromTheBeginningShouldRemoveTheStaleFiles() {
+        new VepOutputShardCleanerListener(annotationParameters).beforeStep(stepExecution);
+
+        assertFalse(shard.exists());
+        assertFalse(mergedOutput.exists());
+        assertTrue(stepExecution.getExecutionContext().containsKey(VEP_OUTPUT_SHARD_STARTED));
+    }
+
+    @Test
+    public void restartedPartitionShouldKeepItsShard() {
+        stepExecution.getExecutionContext().putString(VEP_OUTPUT_SHARD_STARTED, Boolean.TRUE.toString());
+
+        new VepOutputShardCleanerListener(annotationParameters).beforeStep(stepExecution);
+
+        assertTrue(shard.exists());
+        assertTrue(mergedOutput.exists());
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.JobParametersInvalidException;
+
+import uk.ac.ebi.eva.pipeline.parameters.JobParametersNames;
+
+public class ConfigLoadIncludeSrcValidatorTest {
+
+    private ConfigLoadIncludeSrcValidator validator;
+
+    @Before
+    public void setUp() throws Exception {
+        validator = new ConfigLoadIncludeSrcValidator();
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void invalidIncludeSrcShouldThrow() throws Exception {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder();
+        jobParametersBuilder.addString(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, "invalid");
+        validator.validate(jobParametersBuilder.toJobParameters());
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void emptyIncludeSrcShouldThrow() throws Exception {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder();
+        jobParametersBuilder.addString(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, "");
+        validator.validate(jobParametersBuilder.toJobParameters());
+    }
+
+    @Test
+    public void noIncludeSrcIsValid() throws Exception {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder();
+        jobParametersBuilder.addString(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, "NO");
+        validator.validate(jobParametersBuilder.toJobParameters());
+    }
+
+    @Test
+    public void first8ColumnsIncludeSrcIsValid() throws Exception {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder();
+        jobParametersBuilder.addString(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, "FIRST_8_COLUMNS");
+        validator.validate(jobParametersBuilder.toJobParameters());
+    }
+
+    @Test
+    public void fullIncludeSrcIsValid() throws Exception {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder();
+        jobParametersBuilder.addString(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, "FULL");
+        validator.validate(jobParametersBuilder.toJobParameters());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2017 EMBL - European Bioinformatics Institute
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package uk.ac.ebi.eva.pipeline.parameters.validation;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.JobParametersInvalidException;
+import org.springframework.batch.core.JobParametersValidator;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the generic {@link PositiveIntegerValidator} and {@link BooleanValidator}, which are used for most of the
+ * numeric and boolean optional parameters of the steps
+ */
+@RunWith(Parameterized.class)
+public class ParameterTypeValidatorsTest {
+
+    private static final String PARAMETER = "config.test.parameter";
+
+    @Parameterized.Parameters(name = "{index}: \"{1}\" valid={2}")
+    public static Collection<Object[]> data() {
+        JobParametersValidator positive = new PositiveIntegerValidator(PARAMETER);
+        JobParametersValidator percent = new PositiveIntegerValidator(PARAMETER, 100);
+        JobParametersValidator bool = new BooleanValidator(PARAMETER);
+        return Arrays.asList(new Object[][]{
+                {positive, "4", true},
+                {positive, "2147483647", true},
+                {positive, "0", false},
+                {positive, "-1", false},
+                {positive, "hello", false},
+                {positive, "", false},
+                {positive, null, false},
+                {percent, "1", true},
+                {percent, "100", true},
+                {percent, "101", false},
+                {percent, "0", false},
+                {bool, "true", true},
+                {bool, "false", true},
+                {bool, "TRUE", true},
+                {bool, "yes", false},
+                {bool, "1", false},
+                {bool, "", false},
+                {bool, null, false},
+        });
+    }
+
+    @Parameterized.Parameter(0)
+    public JobParametersValidator validator;
+
+    @Parameterized.Parameter(1)
+    public String value;
+
+    @Parameterized.Parameter(2)
+    public boolean valid;
+
+    @Test
+    public void validate() {
+        JobParametersBuilder jobParametersBuilder = new JobParametersBuilder();
+        jobParametersBuilder.addString(PARAMETER, value);
+        boolean accepted = true;
+        try {
+            validator.validate(jobParametersBuilder.toJobParameters());
+        } catch (JobParametersInvalidException e) {
+            accepted = false;
+        }
+        assertEquals(valid, accepted);
+    }
+}
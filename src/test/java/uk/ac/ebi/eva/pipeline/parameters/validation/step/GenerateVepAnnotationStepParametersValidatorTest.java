@@ -72,6 +72,17 @@ public class GenerateVepAnnotationStepParametersValidatorTest {
 
         optionalParameters = new TreeMap<>();
         optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE, new JobParameter("100"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_ADAPTIVE, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MIN, new JobParameter("10"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MAX, new JobParameter("1000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS, new JobParameter("5000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, new JobParameter("70"));
+        optionalParameters.put(JobParametersNames.APP_VEP_WORKERS, new JobParameter("2"));
+        optionalParameters.put(JobParametersNames.CONFIG_ANNOTATION_PARTITIONS, new JobParameter("4"));
+        optionalParameters.put(JobParametersNames.CONFIG_ANNOTATION_STREAMING, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_ANNOTATION_AUDIT_OUTPUT, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_ANNOTATION_RESULT_CACHE_PATH,
+                               new JobParameter(temporaryFolderRule.newFolder().getCanonicalPath()));
     }
 
     @Test
@@ -182,4 +193,28 @@ public class GenerateVepAnnotationStepParametersValidatorTest {
         requiredParameters.remove(JobParametersNames.ANNOTATION_OVERWRITE);
         validator.validate(new JobParameters(requiredParameters));
     }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void appVepWorkersMustBePositive() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.APP_VEP_WORKERS, new JobParameter("0"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configAnnotationPartitionsMustBeANumber() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_ANNOTATION_PARTITIONS, new JobParameter("all"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configAnnotationStreamingMustBeBoolean() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_ANNOTATION_STREAMING, new JobParameter("on"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configAnnotationAuditOutputMustBeBoolean() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_ANNOTATION_AUDIT_OUTPUT, new JobParameter("off"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
 }
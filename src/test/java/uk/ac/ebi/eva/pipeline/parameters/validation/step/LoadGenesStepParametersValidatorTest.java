@@ -57,6 +57,11 @@ public class LoadGenesStepParametersValidatorTest {
 
         optionalParameters = new TreeMap<>();
         optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE, new JobParameter("100"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_ADAPTIVE, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MIN, new JobParameter("10"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MAX, new JobParameter("1000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS, new JobParameter("5000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, new JobParameter("70"));
         optionalParameters.put(JobParametersNames.CONFIG_RESTARTABILITY_ALLOW, new JobParameter("true"));
     }
 
@@ -91,4 +96,16 @@ public class LoadGenesStepParametersValidatorTest {
         validator.validate(new JobParameters(requiredParameters));
     }
 
+    @Test(expected = JobParametersInvalidException.class)
+    public void configChunkSizeMinMustBePositive() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MIN, new JobParameter("-1"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configChunkAdaptiveMustBeBoolean() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_CHUNK_ADAPTIVE, new JobParameter("maybe"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
 }
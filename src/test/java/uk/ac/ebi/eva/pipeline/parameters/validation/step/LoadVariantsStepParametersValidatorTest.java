@@ -63,6 +63,20 @@ public class LoadVariantsStepParametersValidatorTest {
 
         optionalParameters = new TreeMap<>();
         optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE, new JobParameter("100"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_ADAPTIVE, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MIN, new JobParameter("10"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MAX, new JobParameter("1000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS, new JobParameter("5000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, new JobParameter("70"));
+        optionalParameters.put(JobParametersNames.INPUT_VCF_REGIONS, new JobParameter("20:60000-70000,X"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, new JobParameter("NO"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_IN_FLIGHT_CHUNKS, new JobParameter("2"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_WRITE_MODE, new JobParameter("INSERT"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_WRITE_THREADS, new JobParameter("4"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_WRITE_BATCH_SIZE, new JobParameter("250"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_SHARD_AWARE, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_LOAD_PACK_GENOTYPES, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_DB_DEFER_INDEXES, new JobParameter("true"));
         optionalParameters.put(JobParametersNames.CONFIG_RESTARTABILITY_ALLOW, new JobParameter("true"));
     }
 
@@ -115,4 +129,34 @@ public class LoadVariantsStepParametersValidatorTest {
         validator.validate(new JobParameters(requiredParameters));
     }
 
+    @Test(expected = JobParametersInvalidException.class)
+    public void configLoadWriteThreadsMustBePositive() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_LOAD_WRITE_THREADS, new JobParameter("0"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configLoadWriteBatchSizeMustBeANumber() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_LOAD_WRITE_BATCH_SIZE, new JobParameter("many"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configChunkHeapBudgetPercentMustBeAtMostAHundred() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, new JobParameter("101"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configLoadShardAwareMustBeBoolean() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_LOAD_SHARD_AWARE, new JobParameter("yes"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configLoadPackGenotypesMustBeBoolean() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_LOAD_PACK_GENOTYPES, new JobParameter("no"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
 }
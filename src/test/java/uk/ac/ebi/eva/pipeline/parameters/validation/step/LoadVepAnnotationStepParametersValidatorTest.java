@@ -62,6 +62,12 @@ public class LoadVepAnnotationStepParametersValidatorTest {
 
         optionalParameters = new TreeMap<>();
         optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE, new JobParameter("100"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_ADAPTIVE, new JobParameter("true"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MIN, new JobParameter("10"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_SIZE_MAX, new JobParameter("1000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS, new JobParameter("5000"));
+        optionalParameters.put(JobParametersNames.CONFIG_CHUNK_HEAP_BUDGET_PERCENT, new JobParameter("70"));
+        optionalParameters.put(JobParametersNames.CONFIG_DB_DEFER_INDEXES, new JobParameter("true"));
         optionalParameters.put(JobParametersNames.CONFIG_RESTARTABILITY_ALLOW, new JobParameter("true"));
     }
 
@@ -131,4 +137,16 @@ public class LoadVepAnnotationStepParametersValidatorTest {
         validator = new LoadVepAnnotationStepParametersValidator(studyIdNotRequired);
         validator.validate(new JobParameters(requiredParameters));
     }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configChunkTargetMillisMustBeANumber() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_CHUNK_TARGET_MILLIS, new JobParameter("5s"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
+
+    @Test(expected = JobParametersInvalidException.class)
+    public void configDbDeferIndexesMustBeBoolean() throws JobParametersInvalidException, IOException {
+        requiredParameters.put(JobParametersNames.CONFIG_DB_DEFER_INDEXES, new JobParameter("later"));
+        validator.validate(new JobParameters(requiredParameters));
+    }
 }
@@ -2,12 +2,24 @@ package uk.ac.ebi.eva.test.utils;
 
 import org.springframework.util.FileCopyUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPOutputStream;
 
 public abstract class TestFileUtils {
@@ -24,6 +36,162 @@ public abstract class TestFileUtils {
         return tempFile;
     }
 
+    /**
+     * Writes the content compressed in BGZF format, like bgzip does, with blocks of blockSize uncompressed bytes.
+     */
+    public static File makeBgzipFile(byte[] content, File outputFile, int blockSize) throws IOException {
+        try (OutputStream output = new FileOutputStream(outputFile)) {
+            for (int start = 0; start < content.length; start += blockSize) {
+                writeBgzfBlock(output, content, start, Math.min(blockSize, content.length - start));
+            }
+            writeBgzfBlock(output, content, 0, 0);
+        }
+        return outputFile;
+    }
+
+    private static void writeBgzfBlock(OutputStream output, byte[] content, int start, int length)
+            throws IOException {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(content, start, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(content, start, length);
+        int blockSize = 18 + compressedLength + 8;
+
+        output.write(new byte[]{31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255, 6, 0, 'B', 'C', 2, 0});
+        writeLittleEndian(output, blockSize - 1, 2);
+        output.write(compressed, 0, compressedLength);
+        writeLittleEndian(output, crc.getValue(), 4);
+        writeLittleEndian(output, length, 4);
+    }
+
+    /**
+     * Writes a tabix index of a VCF compressed with {@link #makeBgzipFile(byte[], File, int)}, so that tests don't
+     * depend on the tabix binary.
+     *
+     * @param content uncompressed VCF
+     * @param bgzipFile the compressed VCF
+     * @param blockSize the size of the uncompressed blocks used to compress the VCF
+     * @param indexFile where to write the index, usually the compressed VCF path plus ".tbi"
+     */
+    public static File makeTabixIndex(byte[] content, File bgzipFile, int blockSize, File indexFile)
+            throws IOException {
+        List<Long> blockOffsets = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new FileInputStream(bgzipFile))) {
+            byte[] header = new byte[18];
+            long offset = 0;
+            while (offset < bgzipFile.length()) {
+                blockOffsets.add(offset);
+                input.readFully(header);
+                int totalBlockSize = ((header[16] & 0xff) | ((header[17] & 0xff) << 8)) + 1;
+                input.skipBytes(totalBlockSize - header.length);
+                offset += totalBlockSize;
+            }
+        }
+
+        Map<String, Map<Integer, List<long[]>>> binsByContig = new LinkedHashMap<>();
+        Map<String, List<Long>> linearIndexByContig = new LinkedHashMap<>();
+        int lineStart = 0;
+        while (lineStart < content.length) {
+            int lineEnd = lineStart;
+            while (lineEnd < content.length && content[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            String line = new String(content, lineStart, lineEnd - lineStart, StandardCharsets.ISO_8859_1);
+            int nextLineStart = Math.min(lineEnd + 1, content.length);
+            if (!line.startsWith("#") && !line.isEmpty()) {
+                String[] fields = line.split("\t", 5);
+                int begin = Integer.parseInt(fields[1]) - 1;
+                int end = begin + fields[3].length();
+                long chunkBegin = toVirtualOffset(blockOffsets, blockSize, lineStart);
+                long chunkEnd = toVirtualOffset(blockOffsets, blockSize, nextLineStart);
+
+                List<long[]> chunks = binsByContig.computeIfAbsent(fields[0], contig -> new TreeMap<>())
+                                                  .computeIfAbsent(tabixBin(begin, end), bin -> new ArrayList<>());
+                if (!chunks.isEmpty() && chunks.get(chunks.size() - 1)[1] == chunkBegin) {
+                    chunks.get(chunks.size() - 1)[1] = chunkEnd;
+                } else {
+                    chunks.add(new long[]{chunkBegin, chunkEnd});
+                }
+
+                List<Long> linearIndex = linearIndexByContig.computeIfAbsent(fields[0], contig -> new ArrayList<>());
+                for (int window = begin >> 14; window <= (end - 1) >> 14; window++) {
+                    while (linearIndex.size() <= window) {
+                        linearIndex.add(0L);
+                    }
+                    if (linearIndex.get(window) == 0) {
+                        linearIndex.set(window, chunkBegin);
+                    }
+                }
+            }
+            lineStart = nextLineStart;
+        }
+
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        for (String contig : binsByContig.keySet()) {
+            names.write(contig.getBytes(StandardCharsets.US_ASCII));
+            names.write(0);
+        }
+        try (OutputStream output = new GZIPOutputStream(new FileOutputStream(indexFile))) {
+            output.write(new byte[]{'T', 'B', 'I', 1});
+            writeLittleEndian(output, binsByContig.size(), 4);
+            // format (VCF), sequence column, begin column, end column, meta character, lines to skip
+            for (int value : new int[]{2, 1, 2, 0, '#', 0}) {
+                writeLittleEndian(output, value, 4);
+            }
+            writeLittleEndian(output, names.size(), 4);
+            names.writeTo(output);
+            for (String contig : binsByContig.keySet()) {
+                Map<Integer, List<long[]>> bins = binsByContig.get(contig);
+                writeLittleEndian(output, bins.size(), 4);
+                for (Map.Entry<Integer, List<long[]>> bin : bins.entrySet()) {
+                    writeLittleEndian(output, bin.getKey(), 4);
+                    writeLittleEndian(output, bin.getValue().size(), 4);
+                    for (long[] chunk : bin.getValue()) {
+                        writeLittleEndian(output, chunk[0], 8);
+                        writeLittleEndian(output, chunk[1], 8);
+                    }
+                }
+                List<Long> linearIndex = linearIndexByContig.get(contig);
+                writeLittleEndian(output, linearIndex.size(), 4);
+                for (long offset : linearIndex) {
+                    writeLittleEndian(output, offset, 8);
+                }
+            }
+        }
+        return indexFile;
+    }
+
+    private static long toVirtualOffset(List<Long> blockOffsets, int blockSize, int uncompressedOffset) {
+        return (blockOffsets.get(uncompressedOffset / blockSize) << 16) | (uncompressedOffset % blockSize);
+    }
+
+    /**
+     * Smallest bin containing the 0-based, half-open interval [begin, end), as in the SAM specification.
+     */
+    private static int tabixBin(int begin, int end) {
+        end--;
+        for (int shift = 14, firstBin = ((1 << 15) - 1) / 7; shift < 29; shift += 3, firstBin = (firstBin - 1) / 8) {
+            if (begin >> shift == end >> shift) {
+                return firstBin + (begin >> shift);
+            }
+        }
+        return 0;
+    }
+
+    private static void writeLittleEndian(OutputStream output, long value, int bytes) throws IOException {
+        for (int i = 0; i < bytes; i++) {
+            output.write((int) (value >>> (8 * i)) & 0xff);
+        }
+    }
+
     public static void copyResource(String resourcePath, String outputDir) throws IOException {
         File vcfFile = new File(TestFileUtils.class.getResource(resourcePath).getFile());
         FileCopyUtils.copy(vcfFile, new File(outputDir, vcfFile.getName()));
@@ -60,6 +60,11 @@ public class EvaJobParameterBuilder extends JobParametersBuilder {
         return this;
     }
 
+    public EvaJobParameterBuilder inputVcfRegions(String inputVcfRegions) {
+        addParameter(JobParametersNames.INPUT_VCF_REGIONS, new JobParameter(inputVcfRegions));
+        return this;
+    }
+
     public EvaJobParameterBuilder timestamp() {
         addParameter("timestamp", new JobParameter(new Timestamp(new Date().getTime())));
         return this;
@@ -131,6 +136,11 @@ public class EvaJobParameterBuilder extends JobParametersBuilder {
         return this;
     }
 
+    public EvaJobParameterBuilder vepWorkers(String vepWorkers) {
+        addParameter(JobParametersNames.APP_VEP_WORKERS, new JobParameter(vepWorkers));
+        return this;
+    }
+
     public EvaJobParameterBuilder inputFasta(String inputFasta) {
         addParameter(JobParametersNames.INPUT_FASTA, new JobParameter(inputFasta));
         return this;
@@ -160,4 +170,78 @@ public class EvaJobParameterBuilder extends JobParametersBuilder {
         addParameter(JobParametersNames.CONFIG_CHUNK_SIZE, new JobParameter(chunkSize));
         return this;
     }
+
+    public EvaJobParameterBuilder adaptiveChunkSize(String minChunkSize, String maxChunkSize) {
+        addParameter(JobParametersNames.CONFIG_CHUNK_ADAPTIVE, new JobParameter("true"));
+        addParameter(JobParametersNames.CONFIG_CHUNK_SIZE_MIN, new JobParameter(minChunkSize));
+        addParameter(JobParametersNames.CONFIG_CHUNK_SIZE_MAX, new JobParameter(maxChunkSize));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadPartitions(String loadPartitions) {
+        addParameter(JobParametersNames.CONFIG_LOAD_PARTITIONS, new JobParameter(loadPartitions));
+        return this;
+    }
+
+    public EvaJobParameterBuilder annotationPartitions(String annotationPartitions) {
+        addParameter(JobParametersNames.CONFIG_ANNOTATION_PARTITIONS, new JobParameter(annotationPartitions));
+        return this;
+    }
+
+    public EvaJobParameterBuilder annotationStreaming(boolean streaming) {
+        addParameter(JobParametersNames.CONFIG_ANNOTATION_STREAMING, new JobParameter(Boolean.toString(streaming)));
+        return this;
+    }
+
+    public EvaJobParameterBuilder annotationAuditOutput(boolean auditOutput) {
+        addParameter(JobParametersNames.CONFIG_ANNOTATION_AUDIT_OUTPUT,
+                     new JobParameter(Boolean.toString(auditOutput)));
+        return this;
+    }
+
+    public EvaJobParameterBuilder annotationResultCachePath(String resultCachePath) {
+        addParameter(JobParametersNames.CONFIG_ANNOTATION_RESULT_CACHE_PATH, new JobParameter(resultCachePath));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadInFlightChunks(String inFlightChunks) {
+        addParameter(JobParametersNames.CONFIG_LOAD_IN_FLIGHT_CHUNKS, new JobParameter(inFlightChunks));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadIncludeSrc(String includeSrc) {
+        addParameter(JobParametersNames.CONFIG_LOAD_INCLUDE_SRC, new JobParameter(includeSrc));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadWriteMode(String writeMode) {
+        addParameter(JobParametersNames.CONFIG_LOAD_WRITE_MODE, new JobParameter(writeMode));
+        return this;
+    }
+
+    public EvaJobParameterBuilder deferIndexes(boolean deferIndexes) {
+        addParameter(JobParametersNames.CONFIG_DB_DEFER_INDEXES, new JobParameter(Boolean.toString(deferIndexes)));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadWriteThreads(String writeThreads) {
+        addParameter(JobParametersNames.CONFIG_LOAD_WRITE_THREADS, new JobParameter(writeThreads));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadWriteBatchSize(String writeBatchSize) {
+        addParameter(JobParametersNames.CONFIG_LOAD_WRITE_BATCH_SIZE, new JobParameter(writeBatchSize));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadShardAware(boolean shardAware) {
+        addParameter(JobParametersNames.CONFIG_LOAD_SHARD_AWARE, new JobParameter(Boolean.toString(shardAware)));
+        return this;
+    }
+
+    public EvaJobParameterBuilder loadPackGenotypes(boolean packGenotypes) {
+        addParameter(JobParametersNames.CONFIG_LOAD_PACK_GENOTYPES,
+                     new JobParameter(Boolean.toString(packGenotypes)));
+        return this;
+    }
 }
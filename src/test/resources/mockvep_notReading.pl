@@ -0,0 +1,8 @@
+# mockvep_notReading.pl
+#
+# This file is a mock for VEP that never reads its standard input, as if it had got stuck. This is used for testing
+# that writing the variants to a VEP that doesn't accept them doesn't block forever.
+
+use strict;
+
+sleep 60;
@@ -0,0 +1,51 @@
+# mockvep_persistent.pl
+#
+# This file is a mock for VEP that, like VEP, annotates the variants only when it has read a whole buffer of them or
+# its input ends, and writes them to stdout. Every variant gets two annotations, as if it overlapped two features, and
+# the identifier of the variant (the optional sixth column) is written in the first column. The annotations follow the
+# VEP default output format, so they can be parsed. It is used for testing the VEP workers, which keep the process alive
+# and send several chunks of variants through the same stdin.
+# Like VEP with the variants of unknown sequence regions, nothing is written for the variants in chromosome "unknown".
+
+use warnings;
+use strict;
+
+use Getopt::Long;
+my $batchSize = 2;
+Getopt::Long::Configure("pass_through");
+my $result = GetOptions (
+        "buffer_size=i" => \$batchSize # -b integer
+        );
+
+print "## This line acts as the beginning of the header\n";
+print "## More header lines\n";
+print "# This line acts as the end of the header\n";
+
+sub annotate {
+    my @variants = @_;
+    foreach my $variant (@variants) {
+        my ($chromosome, $start, $end, $alleles, $strand, $id) = split(/\t/, $variant);
+        if ($chromosome eq "unknown") {
+            next;
+        }
+        if (!defined $id) {
+            $id = "${chromosome}_${start}_${alleles}";
+        }
+        my $alternate = (split(/\//, $alleles))[1];
+        print "$id\t$chromosome:$start\t$alternate\t-\t-\t-\tintergenic_variant\t-\t-\t-\t-\t-\t-\n";
+        print "$id\t$chromosome:$start\t$alternate\t-\t-\t-\tregulatory_region_variant\t-\t-\t-\t-\t-\t-\n";
+    }
+}
+
+my @buffer = ();
+my $line;
+while ($line = <STDIN>) {
+    chomp ($line);
+    push (@buffer, $line);
+    if (scalar (@buffer) == $batchSize) {
+        annotate(@buffer);
+        @buffer = ();
+    }
+}
+
+annotate(@buffer);